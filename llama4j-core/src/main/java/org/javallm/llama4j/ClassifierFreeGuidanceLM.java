@@ -0,0 +1,166 @@
+package org.javallm.llama4j;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Futures;
+import org.apache.commons.lang3.StringUtils;
+import org.javallm.llama4j.jfr.GenerationEvent;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.impl.LlamaModelImpl;
+import org.javallm.llama4j.model.params.ModelParameters;
+import org.javallm.llama4j.model.params.PenalizeParameters;
+import org.javallm.llama4j.model.params.SamplingParameters;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+/**
+ * Generation with classifier-free guidance, i.e., steering a completion away from a negative prompt
+ * <p>
+ * The guidance context evaluates the negative prompt beside the main context evaluating the prompt, then both evaluate
+ * each generated token. The two evaluations run in parallel on split thread budgets, so that a step costs about as
+ * much as an unguided one instead of twice as much. Not thread-safe.
+ */
+public class ClassifierFreeGuidanceLM implements AutoCloseable {
+    private final LlamaModel model;
+    private final LlamaModel guidance;
+    private final boolean ownsModels;
+    private final ExecutorService executor;
+
+    /**
+     * Create both contexts from the same parameters, splitting their threads between the two
+     *
+     * @param parameters model parameters
+     */
+    public ClassifierFreeGuidanceLM(ModelParameters parameters) {
+        this(parameters, new LlamaModelImpl(
+                parameters.copy().setNThreads(parameters.getNThreads() - parameters.getNThreads() / 2)));
+    }
+
+    private ClassifierFreeGuidanceLM(ModelParameters parameters, LlamaModel model) {
+        this(model, createGuidance(parameters, model), true);
+    }
+
+    /**
+     * Create the guidance context, closing the main one if that fails since nobody owns it yet
+     */
+    private static LlamaModel createGuidance(ModelParameters parameters, LlamaModel model) {
+        try {
+            return new LlamaModelImpl(parameters.copy().setNThreads(Math.max(parameters.getNThreads() / 2, 1)));
+        } catch (RuntimeException ex) {
+            try {
+                model.close();
+            } catch (Exception closeEx) {
+                ex.addSuppressed(closeEx);
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Wrap existing contexts of the same model, created with about half of the threads each
+     *
+     * @param model    the main context, owned by the caller and reset after each inference
+     * @param guidance the guidance context, owned by the caller and reset after each inference
+     */
+    public ClassifierFreeGuidanceLM(LlamaModel model, LlamaModel guidance) {
+        this(model, guidance, false);
+    }
+
+    private ClassifierFreeGuidanceLM(LlamaModel model, LlamaModel guidance, boolean ownsModels) {
+        Preconditions.checkArgument(model != guidance, "guidance should be another context");
+        this.model = Preconditions.checkNotNull(model);
+        this.guidance = Preconditions.checkNotNull(guidance);
+        this.ownsModels = ownsModels;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "llama4j-guidance");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public LlamaModel getModel() {
+        return model;
+    }
+
+    public LlamaModel getGuidance() {
+        return guidance;
+    }
+
+    /**
+     * Generate a guided completion piece by piece, with an upper bound of tokens and early cancellation
+     *
+     * @param prompt         the prompt
+     * @param negativePrompt the negative prompt, e.g., the prompt with the unwanted style
+     * @param guidanceScale  strength of the guidance, 1 for none, typically 1.5 to 3
+     * @param samplingParams parameters related to sampling
+     * @param penalizeParams parameters related to penalization
+     * @param maxTokens      maximum number of tokens to generate
+     * @param callback       receives each decoded piece, returns false to stop the generation
+     * @return the number of generated tokens
+     */
+    public int infer(String prompt, String negativePrompt, float guidanceScale, SamplingParameters samplingParams,
+                     PenalizeParameters penalizeParams, int maxTokens, Predicate<String> callback) {
+        Preconditions.checkArgument(guidanceScale >= 1, "guidanceScale should >= 1");
+        GenerationEvent event = GenerationEvent.start();
+        int[] tokens = model.tokenize(prompt, true);
+        int[] guidanceTokens = guidance.tokenize(negativePrompt, true);
+
+        List<Integer> cache = new ArrayList<>();
+        int nGenerated = 0;
+        try {
+            evaluate(tokens, guidanceTokens);
+            while (nGenerated < maxTokens) {
+                int id = model.sample(samplingParams, penalizeParams, guidance, guidanceScale);
+                if (id == model.eosToken()) {
+                    break;
+                }
+                nGenerated++;
+                cache.add(id);
+                String piece = model.detokenize(cache.stream().mapToInt(i -> i).toArray());
+                if (StringUtils.isNotBlank(piece)) {
+                    cache.clear();
+                    if (!callback.test(piece)) {
+                        break;
+                    }
+                }
+
+                int[] next = new int[] { id };
+                evaluate(next, next);
+            }
+        } finally {
+            model.reset();
+            guidance.reset();
+        }
+        event.finish(tokens.length, nGenerated, maxTokens, false);
+        return nGenerated;
+    }
+
+    /**
+     * Evaluate the guidance tokens on the executor while the main tokens are evaluated on this thread
+     */
+    private void evaluate(int[] tokens, int[] guidanceTokens) {
+        Future<?> future = executor.submit(() -> guidance.evaluate(guidanceTokens));
+        try {
+            model.evaluate(tokens);
+        } finally {
+            // the guidance context must be idle before it is used again, even if the main evaluation failed
+            Futures.getUnchecked(future);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        executor.shutdownNow();
+        if (ownsModels) {
+            try {
+                model.close();
+            } finally {
+                guidance.close();
+            }
+        }
+    }
+}
@@ -1,15 +1,29 @@
 package org.javallm.llama4j;
 
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.commons.lang3.StringUtils;
+import org.javallm.llama4j.cache.CachedCompletion;
+import org.javallm.llama4j.cache.CompletionCache;
+import org.javallm.llama4j.cache.CompletionKey;
+import org.javallm.llama4j.jfr.GenerationEvent;
 import org.javallm.llama4j.model.LlamaModel;
 import org.javallm.llama4j.model.impl.LlamaModelImpl;
 import org.javallm.llama4j.model.params.ModelParameters;
 import org.javallm.llama4j.model.params.PenalizeParameters;
 import org.javallm.llama4j.model.params.SamplingParameters;
-import org.javallm.llamacpp.global.llama;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * @author pengym
@@ -17,6 +31,7 @@ import java.util.function.Consumer;
  */
 public class SimpleCasualLM {
     private final LlamaModel model;
+    private CompletionCache completionCache;
 
     public SimpleCasualLM(String path) {
         ModelParameters params = new ModelParameters()
@@ -31,6 +46,19 @@ public class SimpleCasualLM {
         model = new LlamaModelImpl(parameters);
     }
 
+    /**
+     * Wrap an existing model, e.g., one borrowed from a pool. The model is reset after each inference.
+     *
+     * @param model the model
+     */
+    public SimpleCasualLM(LlamaModel model) {
+        this.model = model;
+    }
+
+    public LlamaModel getModel() {
+        return model;
+    }
+
     public void infer(String prompt, Consumer<String> callback) {
         SamplingParameters samplingParams = new SamplingParameters();
         PenalizeParameters penalizeParams = new PenalizeParameters();
@@ -38,30 +66,221 @@ public class SimpleCasualLM {
     }
 
     public void infer(String prompt, SamplingParameters samplingParams, PenalizeParameters penalizeParams, Consumer<String> callback) {
+        infer(prompt, samplingParams, penalizeParams, model.contextSize(), piece -> {
+            callback.accept(piece);
+            return true;
+        });
+    }
+
+    /**
+     * Generate a completion piece by piece, with an upper bound of tokens and early cancellation
+     *
+     * @param prompt         the prompt
+     * @param samplingParams parameters related to sampling
+     * @param penalizeParams parameters related to penalization
+     * @param maxTokens      maximum number of tokens to generate
+     * @param callback       receives each decoded piece, returns false to stop the generation (e.g., the client is gone)
+     * @return the number of generated tokens
+     */
+    public int infer(String prompt, SamplingParameters samplingParams, PenalizeParameters penalizeParams, int maxTokens,
+                     Predicate<String> callback) {
+        return infer(prompt, samplingParams, penalizeParams, maxTokens, () -> true, callback);
+    }
+
+    /**
+     * Generate a completion piece by piece, checking whether to go on before each token, e.g., for a deadline, since
+     * tokens of no text (e.g., parts of a UTF-8 character) do not reach the callback
+     *
+     * @param prompt         the prompt
+     * @param samplingParams parameters related to sampling
+     * @param penalizeParams parameters related to penalization
+     * @param maxTokens      maximum number of tokens to generate
+     * @param proceed        checked before sampling each token, returns false to stop the generation
+     * @param callback       receives each decoded piece, returns false to stop the generation (e.g., the client is gone)
+     * @return the number of generated tokens
+     */
+    public int infer(String prompt, SamplingParameters samplingParams, PenalizeParameters penalizeParams, int maxTokens,
+                     BooleanSupplier proceed, Predicate<String> callback) {
+        Preconditions.checkNotNull(proceed);
+        GenerationEvent event = GenerationEvent.start();
         int[] tokens = model.tokenize(prompt, true);
-        model.evaluate(tokens);
+        CompletionKey key = null;
+        if (completionCache != null && CompletionCache.isCacheable(samplingParams)) {
+            key = CompletionKey.of(model.identity(), tokens, samplingParams, penalizeParams, maxTokens);
+            CachedCompletion cached = completionCache.get(key);
+            if (cached != null) {
+                int nReplayed = cached.replay(callback);
+                event.finish(tokens.length, nReplayed, maxTokens, true);
+                return nReplayed;
+            }
+        }
+
+        int nGenerated;
+        try {
+            model.evaluate(tokens);
+            if (key == null) {
+                nGenerated = generate(model, samplingParams, penalizeParams, maxTokens, proceed, callback, null);
+            } else {
+                // only complete generations are cached, not the ones stopped by the callback
+                CachedCompletion.Recorder recorder = new CachedCompletion.Recorder();
+                boolean[] stopped = new boolean[1];
+                nGenerated = generate(model, samplingParams, penalizeParams, maxTokens, () -> {
+                    stopped[0] = !proceed.getAsBoolean();
+                    return !stopped[0];
+                }, piece -> {
+                    stopped[0] = !callback.test(piece);
+                    return !stopped[0];
+                }, recorder);
+                if (!stopped[0]) {
+                    completionCache.put(key, recorder.build());
+                }
+            }
+        } finally {
+            model.reset();
+        }
+        event.finish(tokens.length, nGenerated, maxTokens, false);
+        return nGenerated;
+    }
+
+    /**
+     * Cache greedy completions, i.e., the ones with {@code temperature <= 0}, and replay them for identical requests
+     *
+     * @param completionCache the cache, possibly shared among models; null to disable caching
+     */
+    public void setCompletionCache(CompletionCache completionCache) {
+        this.completionCache = completionCache;
+    }
+
+    /**
+     * Generate {@code n} completions of the same prompt, evaluating the prompt only once. The state after the prompt is
+     * restored before each further completion, and each completion samples with its own seed.
+     *
+     * @param prompt         the prompt
+     * @param n              number of completions
+     * @param samplingParams parameters related to sampling
+     * @param penalizeParams parameters related to penalization
+     * @param maxTokens      maximum number of tokens to generate per completion
+     * @param seed           seed of the first completion, completion {@code i} uses {@code seed + i}
+     * @return the completions
+     */
+    public List<String> infer(String prompt, int n, SamplingParameters samplingParams, PenalizeParameters penalizeParams,
+                              int maxTokens, int seed) {
+        return infer(prompt, n, samplingParams, penalizeParams, maxTokens, seed, Collections.emptyList());
+    }
 
+    /**
+     * Generate {@code n} completions of the same prompt in parallel, evaluating the prompt only once. The state after
+     * the prompt is forked into the given contexts, and the completions are spread over this model and the forks.
+     *
+     * @param prompt         the prompt
+     * @param n              number of completions
+     * @param samplingParams parameters related to sampling
+     * @param penalizeParams parameters related to penalization
+     * @param maxTokens      maximum number of tokens to generate per completion
+     * @param seed           seed of the first completion, completion {@code i} uses {@code seed + i}
+     * @param forks          other contexts of the same model with the same parameters, owned by the caller and reset
+     *                       afterwards
+     * @return the completions, in the order of their seeds
+     */
+    public List<String> infer(String prompt, int n, SamplingParameters samplingParams, PenalizeParameters penalizeParams,
+                              int maxTokens, int seed, List<? extends LlamaModel> forks) {
+        Preconditions.checkArgument(n > 0, "n should > 0");
+        Preconditions.checkNotNull(forks);
+
+        List<LlamaModel> contexts = new ArrayList<>();
+        contexts.add(model);
+        contexts.addAll(forks.subList(0, Math.min(forks.size(), n - 1)));
+
+        ExecutorService executor = contexts.size() > 1 ? Executors.newFixedThreadPool(contexts.size() - 1) : null;
+        try {
+            model.evaluate(model.tokenize(prompt, true));
+            byte[] state = n > 1 ? model.getState() : null;
+            int[] promptTokens = model.inputTokens();
+
+            String[] completions = new String[n];
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 1; c < contexts.size(); c++) {
+                LlamaModel context = contexts.get(c);
+                int first = c;
+                futures.add(executor.submit(() ->
+                        complete(context, first, contexts.size(), completions, state, promptTokens, samplingParams,
+                                penalizeParams, maxTokens, seed)));
+            }
+            complete(model, 0, contexts.size(), completions, state, promptTokens, samplingParams, penalizeParams,
+                    maxTokens, seed);
+
+            for (Future<?> future : futures) {
+                Futures.getUnchecked(future);
+            }
+            return Arrays.asList(completions);
+        } finally {
+            if (executor != null) {
+                // the forks must be idle before they are reset
+                executor.shutdown();
+                Uninterruptibles.awaitTerminationUninterruptibly(executor);
+            }
+            for (LlamaModel context : contexts) {
+                context.reset();
+            }
+        }
+    }
+
+    /**
+     * Generate completions {@code first}, {@code first + stride}, ... on a context, each recorded as a
+     * {@link GenerationEvent} on the thread of the context
+     */
+    private static void complete(LlamaModel context, int first, int stride, String[] completions, byte[] state,
+                                 int[] promptTokens, SamplingParameters samplingParams, PenalizeParameters penalizeParams,
+                                 int maxTokens, int seed) {
+        for (int i = first; i < completions.length; i += stride) {
+            GenerationEvent event = GenerationEvent.start();
+            if (i > 0) {
+                // the first completion continues right after the prompt evaluation
+                context.loadState(state, promptTokens);
+            }
+            context.setRandomSeed(seed + i);
+            StringBuilder text = new StringBuilder();
+            int nGenerated = generate(context, samplingParams, penalizeParams, maxTokens, () -> true, piece -> {
+                text.append(piece);
+                return true;
+            }, null);
+            completions[i] = text.toString();
+            event.finish(promptTokens.length, nGenerated, maxTokens, false);
+        }
+    }
+
+    private static int generate(LlamaModel model, SamplingParameters samplingParams, PenalizeParameters penalizeParams,
+                                int maxTokens, BooleanSupplier proceed, Predicate<String> callback,
+                                CachedCompletion.Recorder recorder) {
         ArrayList<Integer> cache = new ArrayList<>();
-        int maxTokens = model.contextSize();
-        for (int i = 0; i < maxTokens; i++) {
+        int nGenerated = 0;
+        while (nGenerated < maxTokens && proceed.getAsBoolean()) {
             int id = model.sample(samplingParams, penalizeParams);
             if (id == model.eosToken()) {
                 break;
             }
+            nGenerated++;
             cache.add(id);
+            if (recorder != null) {
+                recorder.token(id);
+            }
             String piece = model.detokenize(toArray(cache));
             if (StringUtils.isNotBlank(piece)) {
                 cache.clear();
-                callback.accept(piece);
+                if (recorder != null) {
+                    recorder.piece(piece);
+                }
+                if (!callback.test(piece)) {
+                    break;
+                }
             }
 
             model.evaluate(new int[]{id});
         }
-
-        model.reset();
+        return nGenerated;
     }
 
-    private int[] toArray(ArrayList<Integer> list) {
+    private static int[] toArray(ArrayList<Integer> list) {
         return list.stream().mapToInt(i -> i).toArray();
     }
 }
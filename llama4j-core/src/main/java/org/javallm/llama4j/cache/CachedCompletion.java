@@ -0,0 +1,77 @@
+package org.javallm.llama4j.cache;
+
+import com.google.common.collect.ImmutableList;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A completion as it was streamed: the generated tokens and the decoded pieces delivered to the callback
+ */
+@Value
+public class CachedCompletion {
+    int[] tokens;
+
+    ImmutableList<String> pieces;
+
+    /**
+     * Number of tokens generated when each piece was delivered
+     */
+    int[] pieceEnds;
+
+    /**
+     * Stream the cached pieces again
+     *
+     * @param callback receives each decoded piece, returns false to stop the replay
+     * @return the number of tokens replayed
+     */
+    public int replay(Predicate<String> callback) {
+        for (int i = 0; i < pieces.size(); i++) {
+            if (!callback.test(pieces.get(i))) {
+                return pieceEnds[i];
+            }
+        }
+        return tokens.length;
+    }
+
+    /**
+     * @return approximate retained size in bytes
+     */
+    long weight() {
+        long weight = 64 + 4L * tokens.length + 4L * pieceEnds.length;
+        for (String piece : pieces) {
+            weight += 40 + 2L * piece.length();
+        }
+        return weight;
+    }
+
+    /**
+     * Records a completion while it is generated
+     */
+    public static final class Recorder {
+        private int[] tokens = new int[64];
+        private int nTokens = 0;
+        private final List<String> pieces = new ArrayList<>();
+        private final List<Integer> pieceEnds = new ArrayList<>();
+
+        public void token(int token) {
+            if (nTokens == tokens.length) {
+                tokens = Arrays.copyOf(tokens, nTokens * 2);
+            }
+            tokens[nTokens++] = token;
+        }
+
+        public void piece(String piece) {
+            pieces.add(piece);
+            pieceEnds.add(nTokens);
+        }
+
+        public CachedCompletion build() {
+            return new CachedCompletion(Arrays.copyOf(tokens, nTokens), ImmutableList.copyOf(pieces),
+                    pieceEnds.stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.javallm.llama4j.cache;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.primitives.Ints;
+import org.javallm.llama4j.model.params.SamplingParameters;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded cache of greedy completions, which are deterministic for the same model, prompt and parameters
+ * <p>
+ * Entries expire after a TTL and the least recently used ones are evicted once the cached completions exceed the
+ * memory budget. Thread-safe.
+ */
+public class CompletionCache {
+    private final Cache<CompletionKey, CachedCompletion> cache;
+
+    /**
+     * @param maxBytes maximum approximate size of the cached completions
+     * @param ttl      time to live of an entry since it was cached
+     * @param unit     unit of {@code ttl}
+     */
+    public CompletionCache(long maxBytes, long ttl, TimeUnit unit) {
+        Preconditions.checkArgument(maxBytes > 0, "maxBytes should > 0");
+        Preconditions.checkArgument(ttl > 0, "ttl should > 0");
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((CompletionKey key, CachedCompletion value) ->
+                        Ints.saturatedCast(value.weight() + 4L * key.getPromptTokens().length + 128))
+                .expireAfterWrite(ttl, unit)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return whether completions sampled with the parameters are deterministic, and hence cacheable
+     */
+    public static boolean isCacheable(SamplingParameters samplingParams) {
+        return samplingParams.getTemperature() <= 0;
+    }
+
+    /**
+     * @return the cached completion, or null if absent or expired
+     */
+    public CachedCompletion get(CompletionKey key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void put(CompletionKey key, CachedCompletion completion) {
+        Preconditions.checkNotNull(key);
+        Preconditions.checkNotNull(completion);
+        cache.put(key, completion);
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
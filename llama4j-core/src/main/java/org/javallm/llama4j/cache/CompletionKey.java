@@ -0,0 +1,33 @@
+package org.javallm.llama4j.cache;
+
+import lombok.Value;
+import org.javallm.llama4j.model.params.PenalizeParameters;
+import org.javallm.llama4j.model.params.SamplingParameters;
+
+/**
+ * Everything a greedy completion depends on
+ */
+@Value
+public class CompletionKey {
+    /**
+     * See {@link org.javallm.llama4j.model.LlamaModel#identity()}
+     */
+    String modelIdentity;
+
+    int[] promptTokens;
+
+    SamplingParameters samplingParams;
+
+    PenalizeParameters penalizeParams;
+
+    int maxTokens;
+
+    /**
+     * Create a key from copies of the arguments, so that later changes to them do not alter the key
+     */
+    public static CompletionKey of(String modelIdentity, int[] promptTokens, SamplingParameters samplingParams,
+                                   PenalizeParameters penalizeParams, int maxTokens) {
+        return new CompletionKey(modelIdentity, promptTokens.clone(), samplingParams.copy(), penalizeParams.copy(),
+                maxTokens);
+    }
+}
@@ -0,0 +1,28 @@
+package org.javallm.llama4j.chat;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.javallm.llama4j.model.LlamaModel;
+
+import java.util.List;
+
+/**
+ * The ChatML template, i.e., {@code <|im_start|>{role}\n{content}<|im_end|>\n} for each message
+ */
+public class ChatMLTemplate implements ChatTemplate {
+    @Override
+    public int[] encode(LlamaModel model, List<ChatMessage> history, ChatMessage message) {
+        String text = "<|im_start|>" + message.getRole().name().toLowerCase() + "\n" + message.getContent() + "<|im_end|>\n";
+        int[] tokens = model.tokenize(text, false);
+        return history.isEmpty() ? ArrayUtils.insert(0, tokens, model.bosToken()) : tokens;
+    }
+
+    @Override
+    public int[] replyPrefix(LlamaModel model) {
+        return model.tokenize("<|im_start|>assistant\n", false);
+    }
+
+    @Override
+    public int[] replySuffix(LlamaModel model) {
+        return model.tokenize("<|im_end|>\n", false);
+    }
+}
@@ -0,0 +1,10 @@
+package org.javallm.llama4j.chat;
+
+import lombok.Value;
+
+@Value
+public class ChatMessage {
+    ChatRole role;
+
+    String content;
+}
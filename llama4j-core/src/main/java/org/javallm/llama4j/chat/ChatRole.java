@@ -0,0 +1,7 @@
+package org.javallm.llama4j.chat;
+
+public enum ChatRole {
+    SYSTEM,
+    USER,
+    ASSISTANT
+}
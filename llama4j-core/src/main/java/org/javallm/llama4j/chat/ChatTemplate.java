@@ -0,0 +1,30 @@
+package org.javallm.llama4j.chat;
+
+import org.javallm.llama4j.model.LlamaModel;
+
+import java.util.List;
+
+/**
+ * Renders chat messages into tokens, one message at a time, so that a conversation only tokenizes what is appended
+ */
+public interface ChatTemplate {
+    /**
+     * Encode a message appended to a conversation
+     *
+     * @param model   the model, for tokenization and special tokens
+     * @param history the messages before {@code message}
+     * @param message the appended message
+     * @return tokens of the message, possibly empty if the template renders it together with a later message
+     */
+    int[] encode(LlamaModel model, List<ChatMessage> history, ChatMessage message);
+
+    /**
+     * @return tokens preceding a generated reply of the assistant
+     */
+    int[] replyPrefix(LlamaModel model);
+
+    /**
+     * @return tokens closing a generated reply of the assistant
+     */
+    int[] replySuffix(LlamaModel model);
+}
@@ -0,0 +1,173 @@
+package org.javallm.llama4j.chat;
+
+import com.google.common.base.Preconditions;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.params.PenalizeParameters;
+import org.javallm.llama4j.model.params.SamplingParameters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A chat over a model context, which keeps the token sequence of the conversation aligned with the input tokens of
+ * the model
+ * <p>
+ * Each appended message is rendered and tokenized on its own, and each reply only evaluates the tokens which are not
+ * in the KV cache yet, i.e., the messages appended since the previous reply. The tokens of a generated reply are kept
+ * as sampled rather than re-tokenized from its text. The context is owned by the conversation between replies; if it
+ * is used for anything else, the next reply re-evaluates from the longest common prefix.
+ * <p>
+ * Not thread-safe.
+ */
+public class Conversation {
+    private final LlamaModel model;
+    private final ChatTemplate template;
+    private final List<ChatMessage> messages = new ArrayList<>();
+
+    private int[] tokens = new int[256];
+    private int nTokens = 0;
+
+    private long reusedTokens = 0;
+    private long evaluatedTokens = 0;
+
+    /**
+     * @param model    the model context, which is reset
+     * @param template the chat template
+     */
+    public Conversation(LlamaModel model, ChatTemplate template) {
+        this.model = Preconditions.checkNotNull(model);
+        this.template = Preconditions.checkNotNull(template);
+        model.reset();
+    }
+
+    public Conversation system(String content) {
+        return append(new ChatMessage(ChatRole.SYSTEM, content));
+    }
+
+    public Conversation user(String content) {
+        return append(new ChatMessage(ChatRole.USER, content));
+    }
+
+    /**
+     * Append a message, tokenizing only that message
+     *
+     * @param message the message
+     * @return this
+     */
+    public Conversation append(ChatMessage message) {
+        Preconditions.checkNotNull(message);
+        Preconditions.checkNotNull(message.getContent());
+        appendTokens(template.encode(model, Collections.unmodifiableList(messages), message));
+        messages.add(message);
+        return this;
+    }
+
+    /**
+     * Generate the next reply of the assistant and append it to the conversation
+     *
+     * @param samplingParams parameters related to sampling
+     * @param penalizeParams parameters related to penalization
+     * @param maxTokens      maximum number of tokens to generate
+     * @param callback       receives each decoded piece, returns false to stop the generation
+     * @return the reply
+     */
+    public String reply(SamplingParameters samplingParams, PenalizeParameters penalizeParams, int maxTokens,
+                        Predicate<String> callback) {
+        Preconditions.checkState(!messages.isEmpty(), "there is nothing to reply to");
+        appendTokens(template.replyPrefix(model));
+        align();
+
+        int replyStart = nTokens;
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < maxTokens; i++) {
+            int id = model.sample(samplingParams, penalizeParams);
+            if (id == model.eosToken()) {
+                break;
+            }
+            if (nTokens + 1 >= model.contextSize()) {
+                // the context is full, stop rather than shifting it out of alignment
+                break;
+            }
+            appendTokens(new int[]{id});
+            model.evaluate(new int[]{id});
+            evaluatedTokens++;
+
+            pending.add(id);
+            String piece = model.detokenize(pending.stream().mapToInt(Integer::intValue).toArray());
+            if (StringUtils.isNotBlank(piece)) {
+                pending.clear();
+                if (!callback.test(piece)) {
+                    break;
+                }
+            }
+        }
+
+        String reply = model.detokenize(Arrays.copyOfRange(tokens, replyStart, nTokens));
+        messages.add(new ChatMessage(ChatRole.ASSISTANT, reply != null ? reply : ""));
+        // evaluated together with the next message
+        appendTokens(template.replySuffix(model));
+        return messages.get(messages.size() - 1).getContent();
+    }
+
+    public String reply(SamplingParameters samplingParams, PenalizeParameters penalizeParams, int maxTokens) {
+        return reply(samplingParams, penalizeParams, maxTokens, piece -> true);
+    }
+
+    public List<ChatMessage> messages() {
+        return Collections.unmodifiableList(messages);
+    }
+
+    /**
+     * @return tokens of the whole conversation, of which the input tokens of the model are a prefix after a reply
+     */
+    public int[] tokens() {
+        return Arrays.copyOf(tokens, nTokens);
+    }
+
+    /**
+     * @return tokens whose KV cache was reused instead of being evaluated
+     */
+    public long reusedTokens() {
+        return reusedTokens;
+    }
+
+    /**
+     * @return tokens evaluated, including the generated ones
+     */
+    public long evaluatedTokens() {
+        return evaluatedTokens;
+    }
+
+    private void appendTokens(int[] appended) {
+        if (nTokens + appended.length > tokens.length) {
+            tokens = Arrays.copyOf(tokens, Math.max(tokens.length * 2, nTokens + appended.length));
+        }
+        System.arraycopy(appended, 0, tokens, nTokens, appended.length);
+        nTokens += appended.length;
+    }
+
+    /**
+     * Evaluate the tokens which are not in the KV cache yet, re-evaluating at least the last one for its logits
+     */
+    private void align() {
+        Preconditions.checkState(nTokens > 0, "the conversation is empty");
+        Preconditions.checkState(nTokens < model.contextSize(), "the conversation exceeds the context size %s",
+                model.contextSize());
+        int[] current = model.inputTokens();
+        int common = 0;
+        int limit = Math.min(current.length, nTokens - 1);
+        while (common < limit && current[common] == tokens[common]) {
+            common++;
+        }
+
+        model.truncate(common);
+        model.evaluate(ArrayUtils.subarray(tokens, common, nTokens));
+        reusedTokens += common;
+        evaluatedTokens += nTokens - common;
+    }
+}
@@ -0,0 +1,43 @@
+package org.javallm.llama4j.chat;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.javallm.llama4j.model.LlamaModel;
+
+import java.util.List;
+
+/**
+ * The Llama-2 chat template, i.e., {@code <s>[INST] <<SYS>>\n{system}\n<</SYS>>\n\n{user} [/INST] {assistant} </s>}
+ * <p>
+ * The system message is rendered within the first user message following it.
+ */
+public class Llama2ChatTemplate implements ChatTemplate {
+    @Override
+    public int[] encode(LlamaModel model, List<ChatMessage> history, ChatMessage message) {
+        switch (message.getRole()) {
+            case SYSTEM:
+                return new int[0];
+            case USER:
+                StringBuilder text = new StringBuilder("[INST] ");
+                ChatMessage previous = history.isEmpty() ? null : history.get(history.size() - 1);
+                if (previous != null && previous.getRole() == ChatRole.SYSTEM) {
+                    text.append("<<SYS>>\n").append(previous.getContent()).append("\n<</SYS>>\n\n");
+                }
+                text.append(message.getContent()).append(" [/INST]");
+                return ArrayUtils.insert(0, model.tokenize(text.toString(), false), model.bosToken());
+            case ASSISTANT:
+                return ArrayUtils.add(model.tokenize(message.getContent(), false), model.eosToken());
+            default:
+                throw new IllegalArgumentException(String.format("Unsupported role: %s", message.getRole()));
+        }
+    }
+
+    @Override
+    public int[] replyPrefix(LlamaModel model) {
+        return new int[0];
+    }
+
+    @Override
+    public int[] replySuffix(LlamaModel model) {
+        return new int[]{model.eosToken()};
+    }
+}
@@ -0,0 +1,20 @@
+package org.javallm.llama4j.embedding;
+
+import lombok.Value;
+
+@Value
+public class EmbeddedChunk {
+    String documentId;
+
+    /**
+     * Index of the chunk within its document
+     */
+    int index;
+
+    /**
+     * Tokens of the chunk, excluding the <BOS> token
+     */
+    int[] tokens;
+
+    float[] embedding;
+}
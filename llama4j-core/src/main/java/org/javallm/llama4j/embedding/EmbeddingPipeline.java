@@ -0,0 +1,165 @@
+package org.javallm.llama4j.embedding;
+
+import com.google.common.base.Preconditions;
+import org.apache.commons.lang3.ArrayUtils;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.utils.ValidationUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Embeds documents chunk by chunk while streaming them from channels
+ * <p>
+ * A document is read and decoded block by block, tokenized incrementally and cut into overlapping chunks of bounded
+ * token count. Chunks are embedded by a pool of embedding contexts in parallel and written to the sink as they
+ * complete. The reader blocks once {@code maxInFlightChunks} chunks are pending, so memory stays flat regardless of
+ * the document size.
+ */
+public class EmbeddingPipeline implements AutoCloseable {
+    private final LlamaModel tokenizer;
+    private final EmbeddingPipelineParameters params;
+    private final BlockingQueue<LlamaModel> idle;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private volatile boolean closed = false;
+
+    /**
+     * @param tokenizer a context of the model used only for tokenization, which must not be one of {@code models}
+     * @param models    embedding contexts of the model, owned by the caller
+     * @param params    pipeline parameters
+     */
+    public EmbeddingPipeline(LlamaModel tokenizer, List<? extends LlamaModel> models, EmbeddingPipelineParameters params) {
+        Preconditions.checkNotNull(tokenizer);
+        Preconditions.checkArgument(!models.isEmpty(), "models should not be empty");
+        Preconditions.checkArgument(!models.contains(tokenizer), "tokenizer should not be one of the models");
+        ValidationUtils.validateOrThrow(params);
+        for (LlamaModel model : models) {
+            // the <BOS> token is evaluated too, and a full context would be swapped in the middle of the chunk
+            Preconditions.checkArgument(params.getChunkTokens() + 1 < model.contextSize(),
+                    "chunkTokens %s plus <BOS> should be less than the context size %s", params.getChunkTokens(),
+                    model.contextSize());
+        }
+
+        this.tokenizer = tokenizer;
+        this.params = params;
+        this.idle = new ArrayBlockingQueue<>(models.size(), false, models);
+        this.executor = Executors.newFixedThreadPool(models.size());
+        this.inFlight = new Semaphore(params.getMaxInFlightChunks());
+    }
+
+    /**
+     * Embed a file, see {@link #embed(String, ReadableByteChannel, EmbeddingSink)}
+     */
+    public int embed(Path file, EmbeddingSink sink) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return embed(file.toString(), channel, sink);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(String.format("Failed to read %s", file), ex);
+        }
+    }
+
+    /**
+     * Embed a UTF-8 document, returning once all of its chunks are written to the sink
+     *
+     * @param documentId id of the document, passed to the sink
+     * @param channel    the document, owned by the caller
+     * @param sink       receives the embedded chunks
+     * @return number of chunks
+     * @throws IOException if the channel cannot be read
+     */
+    public int embed(String documentId, ReadableByteChannel channel, EmbeddingSink sink) throws IOException {
+        Preconditions.checkNotNull(documentId);
+        Preconditions.checkNotNull(channel);
+        Preconditions.checkNotNull(sink);
+        Preconditions.checkState(!closed, "The pipeline is closed");
+
+        Phaser pending = new Phaser(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        int[] nChunks = new int[1];
+        TokenChunker chunker = new TokenChunker(params.getChunkTokens(), params.getOverlapTokens(), tokens -> {
+            int index = nChunks[0]++;
+            acquireInFlight();
+            pending.register();
+            Runnable task = () -> {
+                try {
+                    if (failure.get() == null) {
+                        EmbeddedChunk chunk = new EmbeddedChunk(documentId, index, tokens, embed(tokens));
+                        synchronized (sink) {
+                            sink.accept(chunk);
+                        }
+                    }
+                } catch (Throwable ex) {
+                    failure.compareAndSet(null, ex);
+                } finally {
+                    inFlight.release();
+                    pending.arriveAndDeregister();
+                }
+            };
+            try {
+                executor.execute(task);
+            } catch (RuntimeException ex) {
+                // e.g., rejected after close, the task never arrives
+                inFlight.release();
+                pending.arriveAndDeregister();
+                throw ex;
+            }
+        });
+
+        try {
+            TextBlockReader reader = new TextBlockReader(channel, params.getReadBufferBytes());
+            String block;
+            while ((block = reader.next()) != null && failure.get() == null) {
+                chunker.add(tokenizer.tokenize(block, false));
+            }
+            chunker.finish();
+        } finally {
+            pending.arriveAndAwaitAdvance();
+        }
+
+        Throwable ex = failure.get();
+        if (ex != null) {
+            throw new IllegalStateException(String.format("Failed to embed document %s", documentId), ex);
+        }
+        return nChunks[0];
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private float[] embed(int[] tokens) throws InterruptedException {
+        LlamaModel model = idle.take();
+        try {
+            float[] embedding = model.embed(ArrayUtils.insert(0, tokens, model.bosToken()));
+            return params.isNormalize() ? Embeddings.normalize(embedding) : embedding;
+        } finally {
+            idle.put(model);
+        }
+    }
+
+    private void acquireInFlight() {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for in-flight chunks", ex);
+        }
+    }
+}
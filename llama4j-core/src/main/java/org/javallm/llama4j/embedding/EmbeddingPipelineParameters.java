@@ -0,0 +1,45 @@
+package org.javallm.llama4j.embedding;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+@Accessors(chain = true)
+@Data
+public final class EmbeddingPipelineParameters {
+    /**
+     * Maximum number of tokens per chunk, excluding the <BOS> token; together with it, they must be fewer than the
+     * context size
+     */
+    @Min(value = 1, message = "chunkTokens must be positive")
+    private int chunkTokens = 256;
+
+    /**
+     * Number of tokens shared by consecutive chunks of a document
+     */
+    @Min(value = 0, message = "overlapTokens must not be negative")
+    private int overlapTokens = 32;
+
+    /**
+     * Maximum number of chunks read but not yet written to the sink, which bounds the memory used per pipeline
+     */
+    @Min(value = 1, message = "maxInFlightChunks must be positive")
+    private int maxInFlightChunks = 64;
+
+    /**
+     * Number of bytes read from a document at a time
+     */
+    @Min(value = 1024, message = "readBufferBytes must be at least 1024")
+    private int readBufferBytes = 64 * 1024;
+
+    /**
+     * Whether the embeddings are L2-normalized before being written to the sink, see {@link Embeddings#normalize(float[])}
+     */
+    private boolean normalize = false;
+
+    @AssertTrue(message = "overlapTokens must be less than chunkTokens")
+    public boolean isOverlapValid() {
+        return this.overlapTokens < this.chunkTokens;
+    }
+}
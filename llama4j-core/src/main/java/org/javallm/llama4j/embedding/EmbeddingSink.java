@@ -0,0 +1,9 @@
+package org.javallm.llama4j.embedding;
+
+/**
+ * Receives the embedded chunks as they complete, which may be out of order. Calls are serialized by the pipeline.
+ */
+@FunctionalInterface
+public interface EmbeddingSink {
+    void accept(EmbeddedChunk chunk);
+}
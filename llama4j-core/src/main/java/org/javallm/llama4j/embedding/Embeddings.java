@@ -0,0 +1,189 @@
+package org.javallm.llama4j.embedding;
+
+import com.google.common.base.Preconditions;
+import org.javallm.llama4j.kernels.VectorKernels;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Normalization, compact encodings and dot products of embeddings
+ * <p>
+ * An int8 embedding takes a quarter and an fp16 embedding half the size of a float one. Dot products of int8
+ * embeddings accumulate in integers, and fp16 components are decoded through a lookup table.
+ */
+public final class Embeddings {
+    private Embeddings() {
+    }
+
+    /**
+     * Scale an embedding to unit L2 norm in place, so that dot products are cosine similarities. A zero vector is
+     * left as is.
+     *
+     * @param embedding the embedding
+     * @return the embedding
+     */
+    public static float[] normalize(float[] embedding) {
+        float norm = VectorKernels.dot(embedding, embedding, embedding.length);
+        if (norm > 0) {
+            VectorKernels.scale(embedding, embedding.length, (float) (1 / Math.sqrt(norm)));
+        }
+        return embedding;
+    }
+
+    /**
+     * Quantize an embedding to 8-bit integers with a single scale, the largest magnitude mapping to 127
+     */
+    public static Int8Embedding toInt8(float[] embedding) {
+        float max = 0;
+        for (float v : embedding) {
+            max = Math.max(max, Math.abs(v));
+        }
+        float scale = max > 0 ? max / 127 : 1;
+        byte[] values = new byte[embedding.length];
+        for (int i = 0; i < embedding.length; i++) {
+            values[i] = (byte) Math.round(embedding[i] / scale);
+        }
+        return new Int8Embedding(values, scale);
+    }
+
+    /**
+     * Encode an embedding as IEEE 754 half-precision floats, rounding to nearest even
+     */
+    public static short[] toFp16(float[] embedding) {
+        short[] halves = new short[embedding.length];
+        for (int i = 0; i < embedding.length; i++) {
+            halves[i] = toFp16(embedding[i]);
+        }
+        return halves;
+    }
+
+    public static float[] fromFp16(short[] halves) {
+        float[] floats = new float[halves.length];
+        for (int i = 0; i < halves.length; i++) {
+            floats[i] = Fp16Table.VALUES[halves[i] & 0xffff];
+        }
+        return floats;
+    }
+
+    /**
+     * Write half-precision floats into a buffer, e.g., a direct buffer shared with native code, at its position
+     */
+    public static void putFp16(ByteBuffer buffer, short[] halves) {
+        for (short half : halves) {
+            buffer.putShort(half);
+        }
+    }
+
+    public static float dot(float[] a, float[] b) {
+        Preconditions.checkArgument(a.length == b.length, "dimensions %s and %s differ", a.length, b.length);
+        return VectorKernels.dot(a, b, a.length);
+    }
+
+    /**
+     * @return dot product of the raw int8 values, without scales
+     */
+    public static int dot(byte[] a, byte[] b) {
+        Preconditions.checkArgument(a.length == b.length, "dimensions %s and %s differ", a.length, b.length);
+        return VectorKernels.dot(a, b, a.length);
+    }
+
+    public static float dot(short[] a, short[] b) {
+        Preconditions.checkArgument(a.length == b.length, "dimensions %s and %s differ", a.length, b.length);
+        float[] table = Fp16Table.VALUES;
+        float dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += table[a[i] & 0xffff] * table[b[i] & 0xffff];
+        }
+        return dot;
+    }
+
+    /**
+     * @return dot product of raw int8 values stored in buffers at absolute offsets, without scales
+     */
+    public static int dotInt8(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset, int dimension) {
+        int dot = 0;
+        for (int i = 0; i < dimension; i++) {
+            dot += a.get(aOffset + i) * b.get(bOffset + i);
+        }
+        return dot;
+    }
+
+    /**
+     * @return dot product of fp16 values stored in buffers at absolute offsets, in the byte order of the buffers
+     */
+    public static float dotFp16(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset, int dimension) {
+        float[] table = Fp16Table.VALUES;
+        float dot = 0;
+        for (int i = 0; i < dimension; i++) {
+            dot += table[a.getShort(aOffset + 2 * i) & 0xffff] * table[b.getShort(bOffset + 2 * i) & 0xffff];
+        }
+        return dot;
+    }
+
+    static short toFp16(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int abs = bits & 0x7fffffff;
+        if (abs > 0x7f800000) {
+            // NaN
+            return (short) (sign | 0x7e00);
+        }
+        if (abs >= 0x477ff000) {
+            // rounds to infinity
+            return (short) (sign | 0x7c00);
+        }
+        if (abs < 0x38800000) {
+            // subnormal in half precision
+            if (abs < 0x33000000) {
+                return (short) sign;
+            }
+            int shift = 126 - (abs >>> 23);
+            int mantissa = (abs & 0x7fffff) | 0x800000;
+            int half = mantissa >>> shift;
+            int remainder = mantissa & ((1 << shift) - 1);
+            int halfway = 1 << (shift - 1);
+            if (remainder > halfway || (remainder == halfway && (half & 1) != 0)) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+        int half = (((abs >>> 23) - 112) << 10) | ((abs & 0x7fffff) >>> 13);
+        int remainder = abs & 0x1fff;
+        if (remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0)) {
+            // a carry into the exponent is still correctly rounded
+            half++;
+        }
+        return (short) (sign | half);
+    }
+
+    /**
+     * @return the value of a half-precision float, e.g., the scale of a quantized block of model weights
+     */
+    public static float fromFp16(short half) {
+        int h = half & 0xffff;
+        int sign = (h & 0x8000) << 16;
+        int exponent = (h >>> 10) & 0x1f;
+        int mantissa = h & 0x3ff;
+        if (exponent == 0) {
+            float value = mantissa * 0x1p-24f;
+            return sign != 0 ? -value : value;
+        }
+        if (exponent == 31) {
+            return Float.intBitsToFloat(sign | 0x7f800000 | (mantissa << 13));
+        }
+        return Float.intBitsToFloat(sign | ((exponent + 112) << 23) | (mantissa << 13));
+    }
+
+    /**
+     * Decoded values of all half-precision floats, loaded on first use
+     */
+    private static final class Fp16Table {
+        private static final float[] VALUES = new float[1 << 16];
+
+        static {
+            for (int i = 0; i < VALUES.length; i++) {
+                VALUES[i] = fromFp16((short) i);
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.javallm.llama4j.embedding;
+
+import lombok.Value;
+
+/**
+ * An embedding quantized to 8-bit integers, i.e., component {@code i} is approximately {@code values[i] * scale}
+ */
+@Value
+public class Int8Embedding {
+    byte[] values;
+
+    float scale;
+
+    public float dot(Int8Embedding other) {
+        return Embeddings.dot(values, other.values) * scale * other.scale;
+    }
+
+    public float[] toFloats() {
+        float[] floats = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            floats[i] = values[i] * scale;
+        }
+        return floats;
+    }
+}
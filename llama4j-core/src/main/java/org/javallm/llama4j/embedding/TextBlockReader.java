@@ -0,0 +1,77 @@
+package org.javallm.llama4j.embedding;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads UTF-8 text from a channel in blocks of bounded size, split at spaces where possible so that the blocks can be
+ * tokenized independently
+ */
+final class TextBlockReader {
+    private final ReadableByteChannel channel;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer bytes;
+    private final CharBuffer chars;
+    private final StringBuilder carry = new StringBuilder();
+    private boolean eof = false;
+    // whether all bytes of the channel are decoded
+    private boolean drained = false;
+
+    TextBlockReader(ReadableByteChannel channel, int bufferBytes) {
+        this.channel = channel;
+        this.bytes = ByteBuffer.allocate(bufferBytes);
+        this.chars = CharBuffer.allocate(bufferBytes);
+    }
+
+    /**
+     * @return the next block, or null at the end of the channel
+     */
+    String next() throws IOException {
+        while (!drained && carry.length() < chars.capacity()) {
+            if (!eof) {
+                eof = channel.read(bytes) < 0;
+            }
+            bytes.flip();
+            CoderResult result = decoder.decode(bytes, chars, eof);
+            if (eof && result.isUnderflow()) {
+                decoder.flush(chars);
+                drained = true;
+            }
+            bytes.compact();
+            chars.flip();
+            carry.append(chars);
+            chars.clear();
+        }
+        if (carry.length() == 0) {
+            return null;
+        }
+
+        int end = carry.length();
+        int next = end;
+        if (!drained || end > chars.capacity()) {
+            end = Math.min(end, chars.capacity());
+            int space = carry.lastIndexOf(" ", end - 1);
+            if (space > 0) {
+                // the tokenizer prepends a space to each block
+                end = space;
+                next = space + 1;
+            } else {
+                if (Character.isHighSurrogate(carry.charAt(end - 1))) {
+                    end--;
+                }
+                next = end;
+            }
+        }
+        String block = carry.substring(0, end);
+        carry.delete(0, next);
+        return block;
+    }
+}
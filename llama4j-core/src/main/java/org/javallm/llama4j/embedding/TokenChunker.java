@@ -0,0 +1,53 @@
+package org.javallm.llama4j.embedding;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Cuts a stream of tokens into chunks of at most {@code chunkTokens} tokens, consecutive chunks sharing
+ * {@code overlapTokens} tokens
+ */
+final class TokenChunker {
+    private final int chunkTokens;
+    private final int overlapTokens;
+    private final Consumer<int[]> output;
+    private final int[] buffer;
+    private int size = 0;
+    // whether the buffer holds tokens not emitted yet, rather than only the overlap of the previous chunk
+    private boolean pending = false;
+
+    TokenChunker(int chunkTokens, int overlapTokens, Consumer<int[]> output) {
+        this.chunkTokens = chunkTokens;
+        this.overlapTokens = overlapTokens;
+        this.output = output;
+        this.buffer = new int[chunkTokens];
+    }
+
+    void add(int[] tokens) {
+        for (int token : tokens) {
+            if (size == chunkTokens) {
+                emit();
+            }
+            buffer[size++] = token;
+            pending = true;
+        }
+        if (size == chunkTokens) {
+            emit();
+        }
+    }
+
+    void finish() {
+        if (pending) {
+            output.accept(Arrays.copyOf(buffer, size));
+            pending = false;
+        }
+        size = 0;
+    }
+
+    private void emit() {
+        output.accept(Arrays.copyOf(buffer, size));
+        System.arraycopy(buffer, size - overlapTokens, buffer, 0, overlapTokens);
+        size = overlapTokens;
+        pending = false;
+    }
+}
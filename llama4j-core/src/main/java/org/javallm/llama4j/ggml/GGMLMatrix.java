@@ -0,0 +1,59 @@
+package org.javallm.llama4j.ggml;
+
+import com.google.common.base.Preconditions;
+import org.bytedeco.javacpp.FloatPointer;
+
+/**
+ * Vectors of the same dimension stored contiguously in native memory, so that {@link TensorOps} computes on them
+ * without copying them for each query
+ * <p>
+ * The layout is the one of a GGML F32 tensor of shape {@code [dimension, rows]}, i.e., row-major. Close it to release
+ * the memory; it must not be in use by a computation then.
+ */
+public final class GGMLMatrix implements AutoCloseable {
+    private final int rows;
+    private final int dimension;
+    private final FloatPointer data;
+
+    private GGMLMatrix(int rows, int dimension, FloatPointer data) {
+        this.rows = rows;
+        this.dimension = dimension;
+        this.data = data;
+    }
+
+    /**
+     * @param vectors the vectors, e.g., the embeddings of a corpus
+     * @return the matrix holding a copy of the vectors
+     */
+    public static GGMLMatrix of(float[][] vectors) {
+        Preconditions.checkArgument(vectors.length > 0, "vectors should not be empty");
+        int dimension = vectors[0].length;
+        Preconditions.checkArgument(dimension > 0, "vectors should not be empty");
+        FloatPointer data = new FloatPointer((long) vectors.length * dimension);
+        for (int i = 0; i < vectors.length; i++) {
+            Preconditions.checkArgument(vectors[i].length == dimension,
+                    "vector %s should have %s components rather than %s", i, dimension, vectors[i].length);
+            data.position((long) i * dimension).put(vectors[i], 0, dimension);
+        }
+        // GGML takes the address of the pointer including its position
+        return new GGMLMatrix(vectors.length, dimension, data.position(0));
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    FloatPointer data() {
+        Preconditions.checkState(!data.isNull(), "The matrix is closed");
+        return data;
+    }
+
+    @Override
+    public void close() {
+        data.close();
+    }
+}
@@ -0,0 +1,196 @@
+package org.javallm.llama4j.ggml;
+
+import com.google.common.base.Preconditions;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacpp.FloatPointer;
+import org.javallm.llama4j.utils.ValidationUtils;
+import org.javallm.llamacpp.ggml_cgraph;
+import org.javallm.llamacpp.ggml_context;
+import org.javallm.llamacpp.ggml_init_params;
+import org.javallm.llamacpp.ggml_tensor;
+
+import static org.javallm.llamacpp.global.llama.*;
+
+/**
+ * Batched vector math around the model, e.g., re-ranking stored embeddings against a query, computed by GGML graphs
+ * with its SIMD kernels on {@link TensorOpsParameters#getNThreads() nThreads} threads
+ * <p>
+ * Each call builds a small graph in a GGML context over a single native buffer, which is kept and reused by the next
+ * calls, and only grows when an operation needs more memory. Vectors are row-major, as GGML F32 tensors of shape
+ * {@code [dimension, rows]}. Calls are serialized, since they share the buffer.
+ */
+public class TensorOps implements AutoCloseable {
+    // ggml_tensor_overhead() plus alignment, with a margin
+    private static final long TENSOR_OVERHEAD = 512;
+    // the graph work buffer and the padding of the context
+    private static final long CONTEXT_OVERHEAD = 64 * 1024;
+
+    private final int nThreads;
+    private BytePointer memory;
+
+    public TensorOps(TensorOpsParameters params) {
+        ValidationUtils.validateOrThrow(params);
+        this.nThreads = params.getNThreads();
+        this.memory = new BytePointer(params.getMemoryBytes());
+    }
+
+    /**
+     * Dot products of queries with all the rows of a matrix, i.e., cosine similarities of normalized vectors
+     *
+     * @param matrix  the stored vectors
+     * @param queries the queries, of the dimension of the matrix
+     * @return {@code [queries.length][matrix.getRows()]} dot products
+     */
+    public synchronized float[][] similarity(GGMLMatrix matrix, float[][] queries) {
+        Preconditions.checkArgument(queries.length > 0, "queries should not be empty");
+        int dimension = matrix.getDimension();
+        long bytes = 4L * queries.length * (dimension + matrix.getRows()) + 4 * TENSOR_OVERHEAD;
+        ggml_context context = begin(bytes);
+        try {
+            // the stored vectors are used in place, only the other tensors live in the context
+            ggml_set_no_alloc(context, true);
+            ggml_tensor a = ggml_new_tensor_2d(context, GGML_TYPE_F32, dimension, matrix.getRows());
+            a.data(matrix.data());
+            ggml_set_no_alloc(context, false);
+
+            ggml_tensor b = newTensor(context, queries, dimension);
+            ggml_tensor result = ggml_mul_mat(context, a, b);
+            compute(context, result);
+            return read(result, queries.length, matrix.getRows());
+        } finally {
+            ggml_free(context);
+        }
+    }
+
+    /**
+     * @see #similarity(GGMLMatrix, float[][])
+     */
+    public float[] similarity(GGMLMatrix matrix, float[] query) {
+        return similarity(matrix, new float[][] { query })[0];
+    }
+
+    /**
+     * Mean of vectors, e.g., pooling the embeddings of the tokens of a text into a single one
+     *
+     * @param vectors the vectors, of the same dimension
+     * @return the mean vector
+     */
+    public synchronized float[] meanPool(float[][] vectors) {
+        int dimension = dimension(vectors);
+        // the transposed copy, then the sums and the means
+        long bytes = 4L * (2L * vectors.length * dimension + 2 * dimension + 1) + 8 * TENSOR_OVERHEAD;
+        ggml_context context = begin(bytes);
+        try {
+            ggml_tensor x = newTensor(context, vectors, dimension);
+            // sum_rows sums along the rows, so the vectors become the columns
+            ggml_tensor sums = ggml_sum_rows(context, ggml_cont(context, ggml_transpose(context, x)));
+            ggml_tensor result = ggml_scale(context, sums, ggml_new_f32(context, 1f / vectors.length));
+            compute(context, result);
+            return read(result, 1, dimension)[0];
+        } finally {
+            ggml_free(context);
+        }
+    }
+
+    /**
+     * Scale vectors to unit length, as {@link org.javallm.llama4j.embedding.Embeddings#normalize(float[])}, zero
+     * vectors being left as is
+     *
+     * @param vectors the vectors, of the same dimension
+     * @return the normalized vectors, in new arrays
+     */
+    public synchronized float[][] normalize(float[][] vectors) {
+        int dimension = dimension(vectors);
+        // squares, repeated norms and results, plus the sums and the norms
+        long bytes = 4L * (4L * vectors.length * dimension + 2L * vectors.length) + 8 * TENSOR_OVERHEAD;
+        ggml_context context = begin(bytes);
+        try {
+            ggml_tensor x = newTensor(context, vectors, dimension);
+            ggml_tensor norms = ggml_sqrt(context, ggml_sum_rows(context, ggml_sqr(context, x)));
+            // div needs tensors of the same shape in this GGML version
+            ggml_tensor result = ggml_div(context, x, ggml_repeat(context, norms, x));
+            compute(context, result);
+
+            float[][] normalized = read(result, vectors.length, dimension);
+            float[] lengths = read(norms, 1, vectors.length)[0];
+            for (int i = 0; i < vectors.length; i++) {
+                if (lengths[i] == 0) {
+                    normalized[i] = vectors[i].clone();
+                }
+            }
+            return normalized;
+        } finally {
+            ggml_free(context);
+        }
+    }
+
+    /**
+     * @return bytes of the native buffer of the contexts
+     */
+    public synchronized long memoryBytes() {
+        return memory.capacity();
+    }
+
+    @Override
+    public synchronized void close() {
+        memory.close();
+    }
+
+    /**
+     * Create a context over the buffer, growing it first if it is smaller than {@code bytes} plus the overheads
+     */
+    private ggml_context begin(long bytes) {
+        Preconditions.checkState(!memory.isNull(), "TensorOps is closed");
+        long required = bytes + CONTEXT_OVERHEAD + 64L * nThreads;
+        if (memory.capacity() < required) {
+            long capacity = Math.max(required, 2 * memory.capacity());
+            memory.close();
+            memory = new BytePointer(capacity);
+        }
+        ggml_init_params initParams = new ggml_init_params();
+        initParams.mem_size(memory.capacity());
+        initParams.mem_buffer(memory);
+        initParams.no_alloc(false);
+        try {
+            ggml_context context = ggml_init(initParams);
+            Preconditions.checkState(context != null && !context.isNull(), "Failed to create a GGML context");
+            return context;
+        } finally {
+            initParams.close();
+        }
+    }
+
+    private void compute(ggml_context context, ggml_tensor result) {
+        ggml_cgraph graph = ggml_build_forward(result);
+        try {
+            ggml_graph_compute_with_ctx(context, graph, nThreads);
+        } finally {
+            graph.close();
+        }
+    }
+
+    private static ggml_tensor newTensor(ggml_context context, float[][] vectors, int dimension) {
+        ggml_tensor tensor = ggml_new_tensor_2d(context, GGML_TYPE_F32, dimension, vectors.length);
+        FloatPointer data = new FloatPointer(tensor.data());
+        for (int i = 0; i < vectors.length; i++) {
+            Preconditions.checkArgument(vectors[i].length == dimension,
+                    "vector %s should have %s components rather than %s", i, dimension, vectors[i].length);
+            data.position((long) i * dimension).put(vectors[i], 0, dimension);
+        }
+        return tensor;
+    }
+
+    private static float[][] read(ggml_tensor tensor, int rows, int columns) {
+        FloatPointer data = new FloatPointer(tensor.data());
+        float[][] values = new float[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            data.position((long) i * columns).get(values[i], 0, columns);
+        }
+        return values;
+    }
+
+    private static int dimension(float[][] vectors) {
+        Preconditions.checkArgument(vectors.length > 0 && vectors[0].length > 0, "vectors should not be empty");
+        return vectors[0].length;
+    }
+}
@@ -0,0 +1,22 @@
+package org.javallm.llama4j.ggml;
+
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+@Accessors(chain = true)
+@Data
+public final class TensorOpsParameters {
+    /**
+     * Number of threads computing the graphs (default: number of available processors)
+     */
+    @Min(value = 1, message = "nThreads must be positive")
+    private int nThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Initial size of the GGML context memory, which is reused across calls and grows when an operation needs more
+     * (default: 16 MiB)
+     */
+    @Min(value = 1024 * 1024, message = "memoryBytes must be at least 1 MiB")
+    private long memoryBytes = 16L * 1024 * 1024;
+}
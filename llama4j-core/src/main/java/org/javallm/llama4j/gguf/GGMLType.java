@@ -0,0 +1,65 @@
+package org.javallm.llama4j.gguf;
+
+/**
+ * Tensor types of GGML, with the layout of their blocks
+ */
+public enum GGMLType {
+    F32(0, 1, 4),
+    F16(1, 1, 2),
+    Q4_0(2, 32, 18),
+    Q4_1(3, 32, 20),
+    Q5_0(6, 32, 22),
+    Q5_1(7, 32, 24),
+    Q8_0(8, 32, 34),
+    Q8_1(9, 32, 36),
+    Q2_K(10, 256, 84),
+    Q3_K(11, 256, 110),
+    Q4_K(12, 256, 144),
+    Q5_K(13, 256, 176),
+    Q6_K(14, 256, 210),
+    Q8_K(15, 256, 292);
+
+    private final int id;
+    private final int blockSize;
+    private final int blockBytes;
+
+    GGMLType(int id, int blockSize, int blockBytes) {
+        this.id = id;
+        this.blockSize = blockSize;
+        this.blockBytes = blockBytes;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return number of elements per block
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * @return number of bytes per block
+     */
+    public int getBlockBytes() {
+        return blockBytes;
+    }
+
+    /**
+     * @return number of bytes of {@code nElements} elements, which must be a multiple of the block size
+     */
+    public long bytes(long nElements) {
+        return nElements / blockSize * blockBytes;
+    }
+
+    public static GGMLType of(int id) {
+        for (GGMLType type : values()) {
+            if (type.id == id) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unsupported GGML type: %d", id));
+    }
+}
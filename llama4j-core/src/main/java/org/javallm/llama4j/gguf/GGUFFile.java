@@ -0,0 +1,374 @@
+package org.javallm.llama4j.gguf;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A GGUF model file (versions 1 to 3): its metadata, and its tensors memory-mapped on demand
+ * <p>
+ * Metadata values are boxed scalars ({@link Integer}, {@link Long}, {@link Float}, {@link Double}, {@link Boolean},
+ * {@link String}) or primitive arrays ({@code byte[]}, {@code short[]}, {@code int[]}, {@code long[]},
+ * {@code float[]}, {@code double[]}, {@code boolean[]}, {@code String[]}, {@code Object[]} for nested arrays).
+ * Unsigned integers are widened, e.g., uint32 to {@link Long}. Only the header is read when opening, so even
+ * multi-gigabyte files open quickly, e.g., to load their vocabulary.
+ */
+public class GGUFFile implements AutoCloseable {
+    private static final int MAGIC = 0x46554747; // "GGUF"
+    private static final int DEFAULT_ALIGNMENT = 32;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int version;
+    private final ImmutableMap<String, Object> metadata;
+    private final ImmutableMap<String, GGUFTensorInfo> tensors;
+    private final long dataOffset;
+
+    private GGUFFile(Path path, FileChannel channel, int version, ImmutableMap<String, Object> metadata,
+                     ImmutableMap<String, GGUFTensorInfo> tensors, long dataOffset) {
+        this.path = path;
+        this.channel = channel;
+        this.version = version;
+        this.metadata = metadata;
+        this.tensors = tensors;
+        this.dataOffset = dataOffset;
+    }
+
+    /**
+     * Open a GGUF file and read its header
+     *
+     * @param path the file
+     * @return the file
+     * @throws IllegalArgumentException if the file is not a supported GGUF file
+     */
+    public static GGUFFile open(Path path) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            HeaderReader reader = new HeaderReader(channel);
+            Preconditions.checkArgument(reader.readInt() == MAGIC, "%s is not a GGUF file", path);
+            int version = reader.readInt();
+            Preconditions.checkArgument(version >= 1 && version <= 3, "Unsupported GGUF version: %s", version);
+            reader.wide = version >= 2;
+
+            long nTensors = reader.readCount();
+            long nMetadata = reader.readCount();
+            Map<String, Object> metadata = new LinkedHashMap<>();
+            for (long i = 0; i < nMetadata; i++) {
+                String key = reader.readString();
+                metadata.put(key, reader.readValue(reader.readInt()));
+            }
+
+            Map<String, GGUFTensorInfo> tensors = new LinkedHashMap<>();
+            for (long i = 0; i < nTensors; i++) {
+                String name = reader.readString();
+                long[] shape = new long[reader.readInt()];
+                for (int d = 0; d < shape.length; d++) {
+                    shape[d] = reader.readCount();
+                }
+                GGMLType type = GGMLType.of(reader.readInt());
+                tensors.put(name, new GGUFTensorInfo(name, shape, type, reader.readLong()));
+            }
+
+            Object alignment = metadata.get("general.alignment");
+            long align = alignment != null ? ((Number) alignment).longValue() : DEFAULT_ALIGNMENT;
+            long dataOffset = (reader.position() + align - 1) / align * align;
+            return new GGUFFile(path, channel, version, ImmutableMap.copyOf(metadata), ImmutableMap.copyOf(tensors),
+                    dataOffset);
+        } catch (IOException ex) {
+            closeQuietly(channel);
+            throw new UncheckedIOException(String.format("Failed to read %s", path), ex);
+        } catch (RuntimeException ex) {
+            closeQuietly(channel);
+            throw ex;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return offset of the data section in the file, which tensor offsets are relative to
+     */
+    public long getDataOffset() {
+        return dataOffset;
+    }
+
+    public ImmutableMap<String, Object> getMetadata() {
+        return metadata;
+    }
+
+    public ImmutableMap<String, GGUFTensorInfo> getTensors() {
+        return tensors;
+    }
+
+    public boolean contains(String key) {
+        return metadata.containsKey(key);
+    }
+
+    public String getString(String key) {
+        return get(key, String.class);
+    }
+
+    public int getInt(String key) {
+        return get(key, Number.class).intValue();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        return metadata.containsKey(key) ? getInt(key) : defaultValue;
+    }
+
+    public float getFloat(String key, float defaultValue) {
+        return metadata.containsKey(key) ? get(key, Number.class).floatValue() : defaultValue;
+    }
+
+    /**
+     * @param key  the key
+     * @param type expected type of the value, e.g., {@code String[].class}
+     * @return the value
+     * @throws IllegalArgumentException if the key is absent or its value has another type
+     */
+    public <T> T get(String key, Class<T> type) {
+        Object value = metadata.get(key);
+        Preconditions.checkArgument(value != null, "%s has no metadata %s", path, key);
+        Preconditions.checkArgument(type.isInstance(value), "metadata %s is a %s rather than a %s", key,
+                value.getClass().getSimpleName(), type.getSimpleName());
+        return type.cast(value);
+    }
+
+    /**
+     * Map the data of a tensor, in little-endian order
+     *
+     * @param name name of the tensor
+     * @return read-only buffer over the data
+     * @throws IllegalArgumentException if the tensor is absent or larger than 2 GiB
+     */
+    public ByteBuffer map(String name) {
+        GGUFTensorInfo tensor = tensors.get(name);
+        Preconditions.checkArgument(tensor != null, "%s has no tensor %s", path, name);
+        Preconditions.checkArgument(tensor.bytes() <= Integer.MAX_VALUE, "tensor %s exceeds 2 GiB", name);
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + tensor.getOffset(), tensor.bytes())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(String.format("Failed to map tensor %s of %s", name, path), ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(String.format("Failed to close %s", path), ex);
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // the original failure is more relevant
+            }
+        }
+    }
+
+    /**
+     * Buffered little-endian reader of the header
+     */
+    private static final class HeaderReader {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        private long consumed = 0;
+        // whether counts and lengths are 64-bit, i.e., since version 2
+        private boolean wide = false;
+
+        private HeaderReader(FileChannel channel) {
+            this.channel = channel;
+            buffer.flip();
+        }
+
+        private long position() {
+            return consumed;
+        }
+
+        private void ensure(int n) throws IOException {
+            if (buffer.remaining() >= n) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < n) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Unexpected end of the GGUF header");
+                }
+            }
+            buffer.flip();
+        }
+
+        private byte readByte() throws IOException {
+            ensure(1);
+            consumed += 1;
+            return buffer.get();
+        }
+
+        private short readShort() throws IOException {
+            ensure(2);
+            consumed += 2;
+            return buffer.getShort();
+        }
+
+        private int readInt() throws IOException {
+            ensure(4);
+            consumed += 4;
+            return buffer.getInt();
+        }
+
+        private long readLong() throws IOException {
+            ensure(8);
+            consumed += 8;
+            return buffer.getLong();
+        }
+
+        private long readCount() throws IOException {
+            return wide ? readLong() : readInt() & 0xffffffffL;
+        }
+
+        private String readString() throws IOException {
+            long length = readCount();
+            Preconditions.checkArgument(length <= Integer.MAX_VALUE, "string too long: %s", length);
+            byte[] bytes = new byte[(int) length];
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int n = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.get(bytes, offset, n);
+                offset += n;
+            }
+            consumed += bytes.length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private Object readValue(int type) throws IOException {
+            switch (type) {
+                case 0:
+                    return readByte() & 0xff;
+                case 1:
+                    return (int) readByte();
+                case 2:
+                    return readShort() & 0xffff;
+                case 3:
+                    return (int) readShort();
+                case 4:
+                    return readInt() & 0xffffffffL;
+                case 5:
+                    return readInt();
+                case 6:
+                    return Float.intBitsToFloat(readInt());
+                case 7:
+                    return readByte() != 0;
+                case 8:
+                    return readString();
+                case 9:
+                    return readArray(readInt(), readCount());
+                case 10:
+                case 11:
+                    return readLong();
+                case 12:
+                    return Double.longBitsToDouble(readLong());
+                default:
+                    throw new IllegalArgumentException(String.format("Unsupported metadata type: %d", type));
+            }
+        }
+
+        private Object readArray(int type, long length) throws IOException {
+            Preconditions.checkArgument(length <= Integer.MAX_VALUE, "array too long: %s", length);
+            int n = (int) length;
+            switch (type) {
+                case 0:
+                case 1: {
+                    byte[] values = new byte[n];
+                    for (int i = 0; i < n; i++) {
+                        values[i] = readByte();
+                    }
+                    return values;
+                }
+                case 2:
+                case 3: {
+                    short[] values = new short[n];
+                    for (int i = 0; i < n; i++) {
+                        values[i] = readShort();
+                    }
+                    return values;
+                }
+                case 4:
+                case 5: {
+                    int[] values = new int[n];
+                    for (int i = 0; i < n; i++) {
+                        values[i] = readInt();
+                    }
+                    return values;
+                }
+                case 6: {
+                    float[] values = new float[n];
+                    for (int i = 0; i < n; i++) {
+                        values[i] = Float.intBitsToFloat(readInt());
+                    }
+                    return values;
+                }
+                case 7: {
+                    boolean[] values = new boolean[n];
+                    for (int i = 0; i < n; i++) {
+                        values[i] = readByte() != 0;
+                    }
+                    return values;
+                }
+                case 8: {
+                    String[] values = new String[n];
+                    for (int i = 0; i < n; i++) {
+                        values[i] = readString();
+                    }
+                    return values;
+                }
+                case 10:
+                case 11: {
+                    long[] values = new long[n];
+                    for (int i = 0; i < n; i++) {
+                        values[i] = readLong();
+                    }
+                    return values;
+                }
+                case 12: {
+                    double[] values = new double[n];
+                    for (int i = 0; i < n; i++) {
+                        values[i] = Double.longBitsToDouble(readLong());
+                    }
+                    return values;
+                }
+                default: {
+                    Object[] values = new Object[n];
+                    for (int i = 0; i < n; i++) {
+                        values[i] = readValue(type);
+                    }
+                    return values;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.javallm.llama4j.gguf;
+
+import lombok.Value;
+
+@Value
+public class GGUFTensorInfo {
+    String name;
+
+    /**
+     * Dimensions, innermost (i.e., contiguous) first as in GGML, e.g., {@code [n_in, n_out]} for a weight matrix
+     */
+    long[] shape;
+
+    GGMLType type;
+
+    /**
+     * Offset of the data relative to the data section of the file
+     */
+    long offset;
+
+    public long elements() {
+        long elements = 1;
+        for (long dimension : shape) {
+            elements *= dimension;
+        }
+        return elements;
+    }
+
+    public long bytes() {
+        return type.bytes(elements());
+    }
+}
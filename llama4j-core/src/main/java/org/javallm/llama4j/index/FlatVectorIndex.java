@@ -0,0 +1,281 @@
+package org.javallm.llama4j.index;
+
+import com.google.common.base.Preconditions;
+import org.javallm.llama4j.embedding.Embeddings;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Exact nearest-neighbour search by scanning a matrix of normalized vectors memory-mapped from a file
+ * <p>
+ * The file holds a header, the vectors contiguously up to the capacity, and then their ids. Growing the capacity
+ * remaps the file and moves only the ids. A single mapping is limited to 2 GiB, which is meant for small and medium
+ * corpora. Searches run concurrently, insertions are exclusive.
+ */
+public class FlatVectorIndex implements VectorIndex {
+    private static final int MAGIC = 0x4c344a56; // "L4JV"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int INITIAL_CAPACITY = 1024;
+    static final float I8_SCALE = 127f;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int dimension;
+    private final VectorEncoding encoding;
+    private final int vectorBytes;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private MappedByteBuffer buffer;
+    private int size;
+    private int capacity;
+
+    private FlatVectorIndex(Path path, FileChannel channel, int dimension, VectorEncoding encoding, int size, int capacity) {
+        this.path = path;
+        this.channel = channel;
+        this.dimension = dimension;
+        this.encoding = encoding;
+        this.vectorBytes = dimension * encoding.getBytes();
+        this.size = size;
+        this.capacity = capacity;
+        this.buffer = map(capacity);
+    }
+
+    /**
+     * Create an empty index, replacing the file if it exists
+     *
+     * @param path      the backing file
+     * @param dimension number of components of the vectors, i.e., {@link org.javallm.llama4j.model.LlamaModel#embeddingSize()}
+     * @param encoding  how the components are stored
+     * @return the index
+     */
+    public static FlatVectorIndex create(Path path, int dimension, VectorEncoding encoding) {
+        Preconditions.checkArgument(dimension > 0, "dimension should > 0");
+        Preconditions.checkNotNull(encoding);
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FlatVectorIndex index = new FlatVectorIndex(path, channel, dimension, encoding, 0, INITIAL_CAPACITY);
+            index.writeHeader();
+            return index;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(String.format("Failed to create the index at %s", path), ex);
+        }
+    }
+
+    /**
+     * Open an index previously written to a file
+     *
+     * @param path the backing file
+     * @return the index
+     * @throws IllegalArgumentException if the file is not a vector index
+     */
+    public static FlatVectorIndex open(Path path) {
+        Preconditions.checkArgument(Files.isRegularFile(path), "%s is not a file", path);
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                channel.close();
+                throw new IllegalArgumentException(String.format("%s is not a vector index", path));
+            }
+            return new FlatVectorIndex(path, channel, header.getInt(8), VectorEncoding.values()[header.getInt(12)],
+                    header.getInt(16), header.getInt(20));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(String.format("Failed to open the index at %s", path), ex);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public VectorEncoding getEncoding() {
+        return encoding;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void add(long[] ids, float[][] vectors) {
+        Preconditions.checkArgument(ids.length == vectors.length, "ids and vectors should have the same length");
+        // before writing anything, so that a bad vector leaves both the index and the file header unchanged
+        for (int i = 0; i < vectors.length; i++) {
+            Preconditions.checkArgument(vectors[i].length == dimension, "vector %s should have %s components",
+                    i, dimension);
+        }
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(size + ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                write(size, normalize(vectors[i]));
+                buffer.putLong(idOffset(size), ids[i]);
+                size++;
+            }
+            buffer.putInt(16, size);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<SearchHit> search(float[] query, int k) {
+        Preconditions.checkArgument(query.length == dimension, "query should have %s components", dimension);
+        Preconditions.checkArgument(k > 0, "k should > 0");
+        float[] normalized = normalize(query);
+        lock.readLock().lock();
+        try {
+            TopK top = new TopK(Math.min(k, Math.max(size, 1)));
+            for (int i = 0; i < size; i++) {
+                top.offer(buffer.getLong(idOffset(i)), similarity(normalized, i));
+            }
+            return top.drain();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            buffer.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(String.format("Failed to close the index at %s", path), ex);
+        }
+    }
+
+    /**
+     * @return id of the vector at an insertion index
+     */
+    long id(int index) {
+        return buffer.getLong(idOffset(index));
+    }
+
+    /**
+     * @return cosine similarity between a normalized query and the vector at an insertion index
+     */
+    float similarity(float[] query, int index) {
+        int offset = vectorOffset(index);
+        if (encoding == VectorEncoding.F32) {
+            float dot = 0;
+            for (int i = 0; i < dimension; i++) {
+                dot += query[i] * buffer.getFloat(offset + 4 * i);
+            }
+            return dot;
+        }
+        float dot = 0;
+        for (int i = 0; i < dimension; i++) {
+            dot += query[i] * buffer.get(offset + i);
+        }
+        return dot / I8_SCALE;
+    }
+
+    /**
+     * @return the (normalized, possibly dequantized) vector at an insertion index
+     */
+    float[] vector(int index) {
+        int offset = vectorOffset(index);
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = encoding == VectorEncoding.F32 ? buffer.getFloat(offset + 4 * i)
+                    : buffer.get(offset + i) / I8_SCALE;
+        }
+        return vector;
+    }
+
+    static float[] normalize(float[] vector) {
+        return Embeddings.normalize(vector.clone());
+    }
+
+    private void write(int index, float[] normalized) {
+        int offset = vectorOffset(index);
+        for (int i = 0; i < dimension; i++) {
+            if (encoding == VectorEncoding.F32) {
+                buffer.putFloat(offset + 4 * i, normalized[i]);
+            } else {
+                buffer.put(offset + i, (byte) Math.round(normalized[i] * I8_SCALE));
+            }
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(required, capacity * 2);
+        long[] ids = new long[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = buffer.getLong(idOffset(i));
+        }
+        buffer = map(newCapacity);
+        capacity = newCapacity;
+        for (int i = 0; i < size; i++) {
+            buffer.putLong(idOffset(i), ids[i]);
+        }
+        buffer.putInt(20, capacity);
+    }
+
+    private MappedByteBuffer map(int capacity) {
+        long bytes = HEADER_BYTES + (long) capacity * (vectorBytes + 8);
+        Preconditions.checkState(bytes <= Integer.MAX_VALUE, "the index exceeds 2 GiB");
+        try {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            return mapped;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(String.format("Failed to map the index at %s", path), ex);
+        }
+    }
+
+    private void writeHeader() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, dimension);
+        buffer.putInt(12, encoding.ordinal());
+        buffer.putInt(16, size);
+        buffer.putInt(20, capacity);
+    }
+
+    private int vectorOffset(int index) {
+        return HEADER_BYTES + index * vectorBytes;
+    }
+
+    private int idOffset(int index) {
+        return HEADER_BYTES + capacity * vectorBytes + 8 * index;
+    }
+}
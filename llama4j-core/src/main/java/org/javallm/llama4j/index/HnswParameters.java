@@ -0,0 +1,32 @@
+package org.javallm.llama4j.index;
+
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+@Accessors(chain = true)
+@Data
+public final class HnswParameters {
+    /**
+     * Number of neighbours per node on the upper layers, twice as many on the bottom layer (default: 16)
+     */
+    @Min(value = 2, message = "m must be at least 2")
+    private int m = 16;
+
+    /**
+     * Size of the candidate list while inserting, higher builds a better graph more slowly (default: 100)
+     */
+    @Min(value = 1, message = "efConstruction must be positive")
+    private int efConstruction = 100;
+
+    /**
+     * Size of the candidate list while searching, higher trades speed for recall (default: 64)
+     */
+    @Min(value = 1, message = "efSearch must be positive")
+    private int efSearch = 64;
+
+    /**
+     * Seed for drawing the layers of the nodes
+     */
+    private long seed = 42;
+}
@@ -0,0 +1,338 @@
+package org.javallm.llama4j.index;
+
+import com.google.common.base.Preconditions;
+import org.javallm.llama4j.utils.ValidationUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Approximate nearest-neighbour search over a Hierarchical Navigable Small World graph
+ * <p>
+ * The vectors are stored in a {@link FlatVectorIndex}, and the graph is kept on-heap and persisted next to it, in a
+ * file with the {@code .hnsw} suffix, on {@link #flush()}. Searches run concurrently, insertions are exclusive.
+ */
+public class HnswVectorIndex implements VectorIndex {
+    private static final int MAGIC = 0x4c34484e; // "L4HN"
+
+    private final FlatVectorIndex vectors;
+    private final HnswParameters params;
+    private final double levelMultiplier;
+    private final Random random;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // links.get(node)[level] = neighbours of the node on the level, the first element being their count
+    private final List<int[][]> links = new ArrayList<>();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private HnswVectorIndex(FlatVectorIndex vectors, HnswParameters params) {
+        ValidationUtils.validateOrThrow(params);
+        this.vectors = vectors;
+        this.params = params;
+        this.levelMultiplier = 1 / Math.log(params.getM());
+        this.random = new Random(params.getSeed());
+    }
+
+    /**
+     * Create an empty index, replacing the files if they exist
+     *
+     * @param path      the file of the vectors
+     * @param dimension number of components of the vectors
+     * @param encoding  how the components are stored
+     * @param params    graph parameters
+     * @return the index
+     */
+    public static HnswVectorIndex create(Path path, int dimension, VectorEncoding encoding, HnswParameters params) {
+        return new HnswVectorIndex(FlatVectorIndex.create(path, dimension, encoding), params);
+    }
+
+    /**
+     * Open an index previously written to a file, inserting the vectors missing from the persisted graph (if any)
+     *
+     * @param path   the file of the vectors
+     * @param params graph parameters, of which {@code m} must be the one the graph was built with
+     * @return the index
+     */
+    public static HnswVectorIndex open(Path path, HnswParameters params) {
+        HnswVectorIndex index = new HnswVectorIndex(FlatVectorIndex.open(path), params);
+        Path graph = graphPath(path);
+        if (Files.exists(graph)) {
+            index.readGraph(graph);
+        }
+        for (int node = index.links.size(); node < index.vectors.size(); node++) {
+            index.insert(node);
+        }
+        return index;
+    }
+
+    @Override
+    public int dimension() {
+        return vectors.dimension();
+    }
+
+    @Override
+    public int size() {
+        return vectors.size();
+    }
+
+    @Override
+    public void add(long[] ids, float[][] vectors) {
+        lock.writeLock().lock();
+        try {
+            int first = this.vectors.size();
+            this.vectors.add(ids, vectors);
+            for (int node = first; node < this.vectors.size(); node++) {
+                insert(node);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<SearchHit> search(float[] query, int k) {
+        Preconditions.checkArgument(query.length == dimension(), "query should have %s components", dimension());
+        Preconditions.checkArgument(k > 0, "k should > 0");
+        float[] normalized = FlatVectorIndex.normalize(query);
+        lock.readLock().lock();
+        try {
+            TopK top = new TopK(k);
+            if (entryPoint < 0) {
+                return top.drain();
+            }
+            int current = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                current = greedy(normalized, current, level);
+            }
+            for (Candidate candidate : searchLayer(normalized, current, Math.max(params.getEfSearch(), k), 0)) {
+                top.offer(vectors.id(candidate.node), candidate.score);
+            }
+            return top.drain();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            vectors.flush();
+            writeGraph(graphPath(vectors.getPath()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        vectors.close();
+    }
+
+    private void insert(int node) {
+        float[] vector = vectors.vector(node);
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        int[][] nodeLinks = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            nodeLinks[l] = new int[maxLinks(l) + 1];
+        }
+        links.add(nodeLinks);
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedy(vector, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Candidate> candidates = searchLayer(vector, current, params.getEfConstruction(), l);
+            candidates.sort((a, b) -> Float.compare(b.score, a.score));
+            int m = Math.min(params.getM(), candidates.size());
+            for (int i = 0; i < m; i++) {
+                int neighbour = candidates.get(i).node;
+                link(node, neighbour, l);
+                link(neighbour, node, l);
+            }
+            current = candidates.get(0).node;
+        }
+
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    /**
+     * Add a directed link, keeping only the closest neighbours once the node has too many
+     */
+    private void link(int from, int to, int level) {
+        int[] neighbours = links.get(from)[level];
+        int count = neighbours[0];
+        if (count < neighbours.length - 1) {
+            neighbours[++count] = to;
+            neighbours[0] = count;
+            return;
+        }
+
+        // replace the farthest neighbour if the new one is closer
+        float[] vector = vectors.vector(from);
+        int farthest = -1;
+        float farthestScore = vectors.similarity(vector, to);
+        for (int i = 1; i <= count; i++) {
+            float score = vectors.similarity(vector, neighbours[i]);
+            if (score < farthestScore) {
+                farthest = i;
+                farthestScore = score;
+            }
+        }
+        if (farthest > 0) {
+            neighbours[farthest] = to;
+        }
+    }
+
+    private int greedy(float[] query, int entry, int level) {
+        int current = entry;
+        float currentScore = vectors.similarity(query, current);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] neighbours = links.get(current)[level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                float score = vectors.similarity(query, neighbours[i]);
+                if (score > currentScore) {
+                    current = neighbours[i];
+                    currentScore = score;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return up to {@code ef} nodes close to the query on a level, in no particular order
+     */
+    private List<Candidate> searchLayer(float[] query, int entry, int ef, int level) {
+        BitSet visited = new BitSet(links.size());
+        // candidates to expand, closest first; results found, farthest first
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>((a, b) -> Float.compare(b.score, a.score));
+        PriorityQueue<Candidate> results = new PriorityQueue<>((a, b) -> Float.compare(a.score, b.score));
+
+        Candidate start = new Candidate(entry, vectors.similarity(query, entry));
+        visited.set(entry);
+        candidates.add(start);
+        results.add(start);
+        while (!candidates.isEmpty()) {
+            Candidate candidate = candidates.poll();
+            if (results.size() >= ef && candidate.score < results.peek().score) {
+                break;
+            }
+            int[][] nodeLinks = links.get(candidate.node);
+            if (level >= nodeLinks.length) {
+                continue;
+            }
+            int[] neighbours = nodeLinks[level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float score = vectors.similarity(query, neighbour);
+                if (results.size() < ef || score > results.peek().score) {
+                    Candidate next = new Candidate(neighbour, score);
+                    candidates.add(next);
+                    results.add(next);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(results);
+    }
+
+    private int maxLinks(int level) {
+        return level == 0 ? 2 * params.getM() : params.getM();
+    }
+
+    private static Path graphPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".hnsw");
+    }
+
+    private void writeGraph(Path path) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(params.getM());
+            out.writeInt(links.size());
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            for (int[][] nodeLinks : links) {
+                out.writeInt(nodeLinks.length);
+                for (int[] neighbours : nodeLinks) {
+                    out.writeInt(neighbours[0]);
+                    for (int i = 1; i <= neighbours[0]; i++) {
+                        out.writeInt(neighbours[i]);
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(String.format("Failed to write the graph to %s", path), ex);
+        }
+    }
+
+    private void readGraph(Path path) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            Preconditions.checkArgument(in.readInt() == MAGIC, "%s is not an HNSW graph", path);
+            int m = in.readInt();
+            Preconditions.checkArgument(m == params.getM(), "the graph was built with m = %s", m);
+            int size = in.readInt();
+            Preconditions.checkArgument(size <= vectors.size(), "the graph has more nodes than vectors");
+            entryPoint = in.readInt();
+            maxLevel = in.readInt();
+            for (int node = 0; node < size; node++) {
+                int[][] nodeLinks = new int[in.readInt()][];
+                for (int level = 0; level < nodeLinks.length; level++) {
+                    nodeLinks[level] = new int[maxLinks(level) + 1];
+                    int count = in.readInt();
+                    nodeLinks[level][0] = count;
+                    for (int i = 1; i <= count; i++) {
+                        nodeLinks[level][i] = in.readInt();
+                    }
+                }
+                links.add(nodeLinks);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(String.format("Failed to read the graph from %s", path), ex);
+        }
+    }
+
+    private static final class Candidate {
+        private final int node;
+        private final float score;
+
+        private Candidate(int node, float score) {
+            this.node = node;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package org.javallm.llama4j.index;
+
+import lombok.Value;
+
+@Value
+public class SearchHit {
+    long id;
+
+    /**
+     * Cosine similarity to the query
+     */
+    float score;
+}
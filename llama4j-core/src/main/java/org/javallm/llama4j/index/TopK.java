@@ -0,0 +1,77 @@
+package org.javallm.llama4j.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the k hits with the highest scores in a bounded min-heap
+ */
+final class TopK {
+    private final int k;
+    private final float[] scores;
+    private final long[] ids;
+    private int size = 0;
+
+    TopK(int k) {
+        this.k = k;
+        this.scores = new float[k];
+        this.ids = new long[k];
+    }
+
+    void offer(long id, float score) {
+        if (size < k) {
+            int index = size++;
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (scores[parent] <= score) {
+                    break;
+                }
+                scores[index] = scores[parent];
+                ids[index] = ids[parent];
+                index = parent;
+            }
+            scores[index] = score;
+            ids[index] = id;
+        } else if (k > 0 && score > scores[0]) {
+            siftDown(id, score);
+        }
+    }
+
+    /**
+     * @return the hits in descending order of score, emptying the heap
+     */
+    List<SearchHit> drain() {
+        List<SearchHit> hits = new ArrayList<>(size);
+        while (size > 0) {
+            hits.add(new SearchHit(ids[0], scores[0]));
+            size--;
+            if (size > 0) {
+                siftDown(ids[size], scores[size]);
+            }
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    private void siftDown(long id, float score) {
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && scores[child + 1] < scores[child]) {
+                child++;
+            }
+            if (scores[child] >= score) {
+                break;
+            }
+            scores[index] = scores[child];
+            ids[index] = ids[child];
+            index = child;
+        }
+        scores[index] = score;
+        ids[index] = id;
+    }
+}
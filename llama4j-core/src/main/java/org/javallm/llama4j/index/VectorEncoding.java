@@ -0,0 +1,25 @@
+package org.javallm.llama4j.index;
+
+/**
+ * How the components of the (normalized) vectors are stored
+ */
+public enum VectorEncoding {
+    /**
+     * 32-bit floats
+     */
+    F32(4),
+    /**
+     * 8-bit integers scaled by 127, i.e., a quarter of the size at a small loss of precision
+     */
+    I8(1);
+
+    private final int bytes;
+
+    VectorEncoding(int bytes) {
+        this.bytes = bytes;
+    }
+
+    public int getBytes() {
+        return bytes;
+    }
+}
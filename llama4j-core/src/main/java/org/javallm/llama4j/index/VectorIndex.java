@@ -0,0 +1,38 @@
+package org.javallm.llama4j.index;
+
+import java.util.List;
+
+/**
+ * A nearest-neighbour index of vectors, e.g., outputs of {@link org.javallm.llama4j.model.LlamaModel#embed(String)},
+ * by cosine similarity
+ */
+public interface VectorIndex extends AutoCloseable {
+    int dimension();
+
+    int size();
+
+    /**
+     * Insert vectors in a batch
+     *
+     * @param ids     ids of the vectors, returned by searches
+     * @param vectors vectors of {@link #dimension()} components, which are normalized for storage
+     */
+    void add(long[] ids, float[][] vectors);
+
+    /**
+     * Find the vectors most similar to a query
+     *
+     * @param query the query vector
+     * @param k     maximum number of hits
+     * @return hits in descending order of similarity
+     */
+    List<SearchHit> search(float[] query, int k);
+
+    /**
+     * Write pending changes to the backing file
+     */
+    void flush();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,29 @@
+package org.javallm.llama4j.jfr;
+
+/**
+ * The context swapped out to make room for more tokens
+ * <p>
+ * This is the Java 8 variant, which records nothing. The Java 17+ variant is a JDK Flight Recorder event.
+ */
+public final class ContextShiftEvent {
+    private static final ContextShiftEvent DISABLED = new ContextShiftEvent();
+
+    private ContextShiftEvent() {
+    }
+
+    /**
+     * @return the event, timed from now
+     */
+    public static ContextShiftEvent start() {
+        return DISABLED;
+    }
+
+    /**
+     * End the event and commit it if enabled
+     *
+     * @param nPastTokensBefore number of past tokens before the shift
+     * @param nPastTokensAfter number of past tokens kept
+     */
+    public void finish(int nPastTokensBefore, int nPastTokensAfter) {
+    }
+}
@@ -0,0 +1,29 @@
+package org.javallm.llama4j.jfr;
+
+/**
+ * Tokens converted back to text
+ * <p>
+ * This is the Java 8 variant, which records nothing. The Java 17+ variant is a JDK Flight Recorder event.
+ */
+public final class DetokenizeEvent {
+    private static final DetokenizeEvent DISABLED = new DetokenizeEvent();
+
+    private DetokenizeEvent() {
+    }
+
+    /**
+     * @return the event, timed from now
+     */
+    public static DetokenizeEvent start() {
+        return DISABLED;
+    }
+
+    /**
+     * End the event and commit it if enabled
+     *
+     * @param nTokens number of tokens
+     * @param nBytes number of resulting UTF-8 bytes
+     */
+    public void finish(int nTokens, int nBytes) {
+    }
+}
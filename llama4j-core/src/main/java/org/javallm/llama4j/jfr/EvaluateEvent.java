@@ -0,0 +1,30 @@
+package org.javallm.llama4j.jfr;
+
+/**
+ * A batch of tokens evaluated by the model
+ * <p>
+ * This is the Java 8 variant, which records nothing. The Java 17+ variant is a JDK Flight Recorder event.
+ */
+public final class EvaluateEvent {
+    private static final EvaluateEvent DISABLED = new EvaluateEvent();
+
+    private EvaluateEvent() {
+    }
+
+    /**
+     * @return the event, timed from now
+     */
+    public static EvaluateEvent start() {
+        return DISABLED;
+    }
+
+    /**
+     * End the event and commit it if enabled
+     *
+     * @param nTokens number of tokens of the batch
+     * @param nPastTokens number of tokens already in the KV cache
+     * @param nThreads number of threads of the evaluation
+     */
+    public void finish(int nTokens, int nPastTokens, int nThreads) {
+    }
+}
@@ -0,0 +1,31 @@
+package org.javallm.llama4j.jfr;
+
+/**
+ * A completion generated by SimpleCasualLM
+ * <p>
+ * This is the Java 8 variant, which records nothing. The Java 17+ variant is a JDK Flight Recorder event.
+ */
+public final class GenerationEvent {
+    private static final GenerationEvent DISABLED = new GenerationEvent();
+
+    private GenerationEvent() {
+    }
+
+    /**
+     * @return the event, timed from now
+     */
+    public static GenerationEvent start() {
+        return DISABLED;
+    }
+
+    /**
+     * End the event and commit it if enabled
+     *
+     * @param nPromptTokens number of tokens of the prompt
+     * @param nGeneratedTokens number of generated tokens
+     * @param maxTokens upper bound of generated tokens
+     * @param cached whether the completion was replayed from the completion cache
+     */
+    public void finish(int nPromptTokens, int nGeneratedTokens, int maxTokens, boolean cached) {
+    }
+}
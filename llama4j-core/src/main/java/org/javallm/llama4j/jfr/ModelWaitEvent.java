@@ -0,0 +1,28 @@
+package org.javallm.llama4j.jfr;
+
+/**
+ * A request waiting for an idle model context
+ * <p>
+ * This is the Java 8 variant, which records nothing. The Java 17+ variant is a JDK Flight Recorder event.
+ */
+public final class ModelWaitEvent {
+    private static final ModelWaitEvent DISABLED = new ModelWaitEvent();
+
+    private ModelWaitEvent() {
+    }
+
+    /**
+     * @return the event, timed from now
+     */
+    public static ModelWaitEvent start() {
+        return DISABLED;
+    }
+
+    /**
+     * End the event and commit it if enabled
+     *
+     * @param acquired whether a context was acquired before the deadline
+     */
+    public void finish(boolean acquired) {
+    }
+}
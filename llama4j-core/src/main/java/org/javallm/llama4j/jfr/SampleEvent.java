@@ -0,0 +1,29 @@
+package org.javallm.llama4j.jfr;
+
+/**
+ * A token sampled from the logits
+ * <p>
+ * This is the Java 8 variant, which records nothing. The Java 17+ variant is a JDK Flight Recorder event.
+ */
+public final class SampleEvent {
+    private static final SampleEvent DISABLED = new SampleEvent();
+
+    private SampleEvent() {
+    }
+
+    /**
+     * @return the event, timed from now
+     */
+    public static SampleEvent start() {
+        return DISABLED;
+    }
+
+    /**
+     * End the event and commit it if enabled
+     *
+     * @param strategy GREEDY, TEMPERATURE, V1 or V2, i.e., mirostat
+     * @param token the sampled token
+     */
+    public void finish(String strategy, int token) {
+    }
+}
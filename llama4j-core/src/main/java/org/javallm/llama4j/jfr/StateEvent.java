@@ -0,0 +1,30 @@
+package org.javallm.llama4j.jfr;
+
+/**
+ * The model state saved or loaded
+ * <p>
+ * This is the Java 8 variant, which records nothing. The Java 17+ variant is a JDK Flight Recorder event.
+ */
+public final class StateEvent {
+    private static final StateEvent DISABLED = new StateEvent();
+
+    private StateEvent() {
+    }
+
+    /**
+     * @return the event, timed from now
+     */
+    public static StateEvent start() {
+        return DISABLED;
+    }
+
+    /**
+     * End the event and commit it if enabled
+     *
+     * @param operation SAVE or LOAD
+     * @param nBytes size of the state
+     * @param nTokens number of input tokens, or -1 if unknown
+     */
+    public void finish(String operation, int nBytes, int nTokens) {
+    }
+}
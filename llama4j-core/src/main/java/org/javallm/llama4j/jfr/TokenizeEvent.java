@@ -0,0 +1,29 @@
+package org.javallm.llama4j.jfr;
+
+/**
+ * A text converted to tokens
+ * <p>
+ * This is the Java 8 variant, which records nothing. The Java 17+ variant is a JDK Flight Recorder event.
+ */
+public final class TokenizeEvent {
+    private static final TokenizeEvent DISABLED = new TokenizeEvent();
+
+    private TokenizeEvent() {
+    }
+
+    /**
+     * @return the event, timed from now
+     */
+    public static TokenizeEvent start() {
+        return DISABLED;
+    }
+
+    /**
+     * End the event and commit it if enabled
+     *
+     * @param textLength number of UTF-16 chars of the text
+     * @param nTokens number of resulting tokens
+     */
+    public void finish(int textLength, int nTokens) {
+    }
+}
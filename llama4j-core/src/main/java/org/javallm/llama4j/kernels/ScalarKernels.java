@@ -0,0 +1,49 @@
+package org.javallm.llama4j.kernels;
+
+/**
+ * Scalar implementations of {@link VectorKernels}, used on runtimes without the Vector API
+ */
+final class ScalarKernels {
+    private ScalarKernels() {
+    }
+
+    static float dot(float[] a, float[] b, int n) {
+        float dot = 0;
+        for (int i = 0; i < n; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    static int dot(byte[] a, byte[] b, int n) {
+        int dot = 0;
+        for (int i = 0; i < n; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    static float max(float[] a, int n) {
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            if (a[i] > max) {
+                max = a[i];
+            }
+        }
+        return max;
+    }
+
+    static double sumExp(float[] a, int n, float shift) {
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += Math.exp(a[i] - shift);
+        }
+        return sum;
+    }
+
+    static void scale(float[] a, int n, float factor) {
+        for (int i = 0; i < n; i++) {
+            a[i] *= factor;
+        }
+    }
+}
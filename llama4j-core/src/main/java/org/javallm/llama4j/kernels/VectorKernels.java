@@ -0,0 +1,55 @@
+package org.javallm.llama4j.kernels;
+
+/**
+ * Numeric kernels of the Java-side per-token and similarity math, e.g., over the logits of the whole vocabulary
+ * <p>
+ * This is the scalar variant for Java 8. The multi-release JAR carries a variant for Java 17+ under
+ * {@code META-INF/versions/17} which uses the incubating Vector API when {@code --add-modules jdk.incubator.vector} is
+ * given, and falls back to the scalar code otherwise.
+ */
+public final class VectorKernels {
+    private VectorKernels() {
+    }
+
+    /**
+     * @return whether the kernels use SIMD instructions through the Vector API
+     */
+    public static boolean isVectorized() {
+        return false;
+    }
+
+    /**
+     * @return dot product of the first {@code n} components
+     */
+    public static float dot(float[] a, float[] b, int n) {
+        return ScalarKernels.dot(a, b, n);
+    }
+
+    /**
+     * @return dot product of the first {@code n} components, accumulated in integers
+     */
+    public static int dot(byte[] a, byte[] b, int n) {
+        return ScalarKernels.dot(a, b, n);
+    }
+
+    /**
+     * @return maximum of the first {@code n} values, negative infinity if none
+     */
+    public static float max(float[] a, int n) {
+        return ScalarKernels.max(a, n);
+    }
+
+    /**
+     * @return sum of {@code exp(a[i] - shift)} over the first {@code n} values, e.g., the normalizer of a softmax
+     */
+    public static double sumExp(float[] a, int n, float shift) {
+        return ScalarKernels.sumExp(a, n, shift);
+    }
+
+    /**
+     * Multiply the first {@code n} values by a factor in place
+     */
+    public static void scale(float[] a, int n, float factor) {
+        ScalarKernels.scale(a, n, factor);
+    }
+}
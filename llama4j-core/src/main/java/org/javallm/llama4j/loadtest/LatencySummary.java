@@ -0,0 +1,29 @@
+package org.javallm.llama4j.loadtest;
+
+import lombok.Value;
+
+/**
+ * Percentiles of a latency, in microseconds
+ */
+@Value
+public class LatencySummary {
+    long count;
+
+    double mean;
+
+    long p50;
+
+    long p90;
+
+    long p99;
+
+    long p999;
+
+    long max;
+
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.2fms p50=%.2fms p90=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms", count,
+                mean / 1000, p50 / 1000.0, p90 / 1000.0, p99 / 1000.0, p999 / 1000.0, max / 1000.0);
+    }
+}
@@ -0,0 +1,235 @@
+package org.javallm.llama4j.loadtest;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import org.javallm.llama4j.SimpleCasualLM;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.utils.ValidationUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a prompt corpus against concurrent sessions, i.e., model contexts each driven by its own thread through
+ * {@link SimpleCasualLM}, and measures the latencies a client would observe
+ * <p>
+ * In a closed-loop test each session sends its next request as soon as the previous one completes, which measures the
+ * capacity. In an open-loop test requests arrive as a Poisson process regardless of the progress of the sessions, and
+ * latencies are measured from the scheduled arrival, so that a stalled session does not hide the queueing it causes
+ * (i.e., no coordinated omission).
+ */
+public class LoadGenerator {
+    private static final Path PROC_STATUS = Paths.get("/proc/self/status");
+
+    private final List<? extends LlamaModel> sessions;
+    private final List<String> prompts;
+    private final LoadTestParameters params;
+
+    /**
+     * @param sessions contexts of the model under test, owned by the caller
+     * @param prompts  the prompt corpus
+     * @param params   load test parameters
+     */
+    public LoadGenerator(List<? extends LlamaModel> sessions, List<String> prompts, LoadTestParameters params) {
+        Preconditions.checkArgument(!sessions.isEmpty(), "sessions should not be empty");
+        Preconditions.checkArgument(!prompts.isEmpty(), "prompts should not be empty");
+        ValidationUtils.validateOrThrow(params);
+        this.sessions = sessions;
+        this.prompts = ImmutableList.copyOf(prompts);
+        this.params = params;
+    }
+
+    /**
+     * Run the warm-up requests, then the measured ones
+     *
+     * @return the report of the measured requests
+     * @throws InterruptedException if interrupted while waiting for the sessions
+     */
+    public LoadTestReport run() throws InterruptedException {
+        if (params.getWarmUpRequests() > 0) {
+            runPhase(params.getWarmUpRequests(), null);
+        }
+
+        Recorder recorder = new Recorder();
+        List<MemorySample> memory = Collections.synchronizedList(new ArrayList<>());
+        long start = System.nanoTime();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "llama4j-loadtest-memory");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(() -> memory.add(sampleMemory(start)), 0, params.getMemorySampleMillis(),
+                TimeUnit.MILLISECONDS);
+        try {
+            runPhase(params.getRequests(), recorder);
+        } finally {
+            sampler.shutdownNow();
+            sampler.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        memory.add(sampleMemory(start));
+
+        return new LoadTestReport(sessions.size(), params.getRequestsPerSecond(), recorder.completed.get(),
+                recorder.failed.get(), recorder.tokens.get(), elapsedMillis, recorder.timeToFirstToken.summary(),
+                recorder.interTokenLatency.summary(), recorder.endToEnd.summary(), ImmutableList.copyOf(memory));
+    }
+
+    /**
+     * Run requests on all sessions until {@code nRequests} are done
+     *
+     * @param recorder receives the measurements, null to discard them
+     */
+    private void runPhase(int nRequests, Recorder recorder) throws InterruptedException {
+        BlockingQueue<Arrival> arrivals = new LinkedBlockingQueue<>();
+        AtomicInteger nextIndex = new AtomicInteger();
+        boolean openLoop = params.isOpenLoop() && recorder != null;
+        ExecutorService executor = Executors.newFixedThreadPool(sessions.size() + 1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            if (openLoop) {
+                futures.add(executor.submit(() -> dispatch(nRequests, arrivals)));
+            }
+            for (LlamaModel session : sessions) {
+                futures.add(executor.submit(() -> {
+                    SimpleCasualLM lm = new SimpleCasualLM(session);
+                    while (true) {
+                        Arrival arrival;
+                        if (openLoop) {
+                            arrival = arrivals.take();
+                            if (arrival.index < 0) {
+                                return null;
+                            }
+                        } else {
+                            int index = nextIndex.getAndIncrement();
+                            if (index >= nRequests) {
+                                return null;
+                            }
+                            arrival = new Arrival(index, System.nanoTime());
+                        }
+                        serve(lm, arrival, recorder);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                Futures.getUnchecked(future);
+            }
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Schedule Poisson arrivals, followed by one end marker per session
+     */
+    private Void dispatch(int nRequests, BlockingQueue<Arrival> arrivals) throws InterruptedException {
+        Random random = new Random(params.getSeed());
+        double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / params.getRequestsPerSecond();
+        long arrivalNanos = System.nanoTime();
+        for (int index = 0; index < nRequests; index++) {
+            long delay;
+            while ((delay = arrivalNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            arrivals.put(new Arrival(index, arrivalNanos));
+            arrivalNanos += (long) (-Math.log(1 - random.nextDouble()) * meanIntervalNanos);
+        }
+        for (int i = 0; i < sessions.size(); i++) {
+            arrivals.put(new Arrival(-1, 0));
+        }
+        return null;
+    }
+
+    private void serve(SimpleCasualLM lm, Arrival arrival, Recorder recorder) {
+        String prompt = prompts.get(arrival.index % prompts.size());
+        lm.getModel().setRandomSeed(params.getSeed() + arrival.index);
+        long[] last = { arrival.nanos };
+        boolean[] first = { true };
+        try {
+            int nTokens = lm.infer(prompt, params.getSamplingParams(), params.getPenalizeParams(), params.getMaxTokens(),
+                    piece -> {
+                        long now = System.nanoTime();
+                        if (recorder != null) {
+                            (first[0] ? recorder.timeToFirstToken : recorder.interTokenLatency)
+                                    .record(TimeUnit.NANOSECONDS.toMicros(now - last[0]));
+                        }
+                        first[0] = false;
+                        last[0] = now;
+                        return true;
+                    });
+            if (recorder != null) {
+                recorder.endToEnd.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - arrival.nanos));
+                recorder.tokens.addAndGet(nTokens);
+                recorder.completed.incrementAndGet();
+            }
+        } catch (RuntimeException ex) {
+            if (recorder != null) {
+                recorder.failed.incrementAndGet();
+            }
+        }
+    }
+
+    private static MemorySample sampleMemory(long startNanos) {
+        Runtime runtime = Runtime.getRuntime();
+        return new MemorySample(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), rssBytes(),
+                runtime.totalMemory() - runtime.freeMemory());
+    }
+
+    /**
+     * @return the resident set size of this process, or -1 if it is not available, e.g., on other systems than Linux
+     */
+    static long rssBytes() {
+        if (!Files.isReadable(PROC_STATUS)) {
+            return -1;
+        }
+        try {
+            for (String line : Files.readAllLines(PROC_STATUS, StandardCharsets.UTF_8)) {
+                if (line.startsWith("VmRSS:")) {
+                    // e.g., "VmRSS:     123456 kB"
+                    String[] fields = line.trim().split("\\s+");
+                    return Long.parseLong(fields[1]) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            return -1;
+        }
+        return -1;
+    }
+
+    private static final class Arrival {
+        private final int index;
+        private final long nanos;
+
+        private Arrival(int index, long nanos) {
+            this.index = index;
+            this.nanos = nanos;
+        }
+    }
+
+    private static final class Recorder {
+        private final LatencyHistogram timeToFirstToken = new LatencyHistogram();
+        private final LatencyHistogram interTokenLatency = new LatencyHistogram();
+        private final LatencyHistogram endToEnd = new LatencyHistogram();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong tokens = new AtomicLong();
+    }
+}
@@ -0,0 +1,68 @@
+package org.javallm.llama4j.loadtest;
+
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.impl.JavaLlamaModel;
+import org.javallm.llama4j.model.impl.LlamaModelImpl;
+import org.javallm.llama4j.model.params.ModelParameters;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Command line entry of {@link LoadGenerator}
+ * <p>
+ * Usage: {@code LoadTestCli <model.gguf> <prompts.txt> <sessions> <requests> [requestsPerSecond] [maxTokens]
+ * [native|java]}, with one prompt per line, and a closed-loop test when {@code requestsPerSecond} is 0, e.g.,
+ * {@code LoadTestCli tinyllamas-stories-260k-f32.gguf prompts.txt 4 200 20 64 java}
+ */
+public final class LoadTestCli {
+    private LoadTestCli() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 4 || args.length > 7) {
+            System.err.println("Usage: LoadTestCli <model.gguf> <prompts.txt> <sessions> <requests> "
+                    + "[requestsPerSecond] [maxTokens] [native|java]");
+            System.exit(1);
+        }
+
+        List<String> prompts = Files.readAllLines(Paths.get(args[1]), StandardCharsets.UTF_8).stream()
+                .filter(line -> !line.trim().isEmpty())
+                .collect(Collectors.toList());
+        int nSessions = Integer.parseInt(args[2]);
+        LoadTestParameters params = new LoadTestParameters()
+                .setRequests(Integer.parseInt(args[3]))
+                .setWarmUpRequests(nSessions)
+                .setRequestsPerSecond(args.length > 4 ? Double.parseDouble(args[4]) : 0)
+                .setMaxTokens(args.length > 5 ? Integer.parseInt(args[5]) : 64);
+        boolean java = args.length > 6 && "java".equalsIgnoreCase(args[6]);
+
+        // split the cores among the sessions, as a serving node would
+        int nThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / nSessions);
+        List<LlamaModel> sessions = new ArrayList<>();
+        try {
+            for (int i = 0; i < nSessions; i++) {
+                ModelParameters modelParams = new ModelParameters()
+                        .setModelPath(args[0])
+                        .setNThreads(nThreads)
+                        .setSeed(params.getSeed());
+                sessions.add(java ? new JavaLlamaModel(modelParams) : new LlamaModelImpl(modelParams));
+            }
+            LoadTestReport report = new LoadGenerator(sessions, prompts, params).run();
+            System.out.print(report.format());
+        } finally {
+            for (LlamaModel session : sessions) {
+                try {
+                    session.close();
+                } catch (Exception ex) {
+                    System.err.printf("Failed to close a session: %s%n", ex);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.javallm.llama4j.loadtest;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.javallm.llama4j.model.params.PenalizeParameters;
+import org.javallm.llama4j.model.params.SamplingParameters;
+
+@Accessors(chain = true)
+@Data
+public final class LoadTestParameters {
+    /**
+     * Number of requests to complete after the warm-up, cycling through the prompt corpus (default: 100)
+     */
+    @Min(value = 1, message = "requests must be positive")
+    private int requests = 100;
+
+    /**
+     * Number of requests run before measuring, e.g., to let the JIT and page cache settle (default: 0)
+     */
+    @Min(value = 0, message = "warmUpRequests must not be negative")
+    private int warmUpRequests = 0;
+
+    /**
+     * Arrival rate of an open-loop test in requests per second, requests wait for a free session and their latencies
+     * include the wait. Set to 0 for a closed-loop test, in which each session sends its next request as soon as the
+     * previous one completes (default: 0).
+     */
+    @Min(value = 0, message = "requestsPerSecond must not be negative")
+    private double requestsPerSecond = 0;
+
+    /**
+     * Seed of the Poisson arrivals of an open-loop test and of the sampling
+     */
+    private int seed = 42;
+
+    /**
+     * Maximum number of tokens to generate per request (default: 64)
+     */
+    @Min(value = 1, message = "maxTokens must be positive")
+    private int maxTokens = 64;
+
+    /**
+     * Interval between samples of the process memory (default: 1000)
+     */
+    @Min(value = 1, message = "memorySampleMillis must be positive")
+    private long memorySampleMillis = 1000;
+
+    @NotNull(message = "samplingParams must be provided")
+    private SamplingParameters samplingParams = new SamplingParameters();
+
+    @NotNull(message = "penalizeParams must be provided")
+    private PenalizeParameters penalizeParams = new PenalizeParameters();
+
+    public boolean isOpenLoop() {
+        return requestsPerSecond > 0;
+    }
+}
@@ -0,0 +1,76 @@
+package org.javallm.llama4j.loadtest;
+
+import com.google.common.collect.ImmutableList;
+import lombok.Value;
+
+@Value
+public class LoadTestReport {
+    int sessions;
+
+    /**
+     * Arrival rate of an open-loop test, 0 for a closed-loop test
+     */
+    double requestsPerSecond;
+
+    long completedRequests;
+
+    long failedRequests;
+
+    long generatedTokens;
+
+    long elapsedMillis;
+
+    /**
+     * Time to first token, from the arrival of the request, i.e., including the queueing of an open-loop test
+     */
+    LatencySummary timeToFirstToken;
+
+    /**
+     * Time between consecutive pieces of a completion
+     */
+    LatencySummary interTokenLatency;
+
+    /**
+     * Time from the arrival of the request to its completion
+     */
+    LatencySummary endToEnd;
+
+    ImmutableList<MemorySample> memory;
+
+    public double tokensPerSecond() {
+        return elapsedMillis == 0 ? 0 : generatedTokens * 1000.0 / elapsedMillis;
+    }
+
+    public double completedRequestsPerSecond() {
+        return elapsedMillis == 0 ? 0 : completedRequests * 1000.0 / elapsedMillis;
+    }
+
+    /**
+     * @return the peak resident set size, or -1 if the platform does not report it
+     */
+    public long peakRssBytes() {
+        return memory.stream().mapToLong(MemorySample::getRssBytes).max().orElse(-1);
+    }
+
+    /**
+     * @return a human-readable report
+     */
+    public String format() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("sessions=%d arrival=%s%n", sessions,
+                requestsPerSecond > 0 ? String.format("open-loop %.2f req/s", requestsPerSecond) : "closed-loop"));
+        text.append(String.format("completed=%d failed=%d tokens=%d elapsed=%dms%n", completedRequests, failedRequests,
+                generatedTokens, elapsedMillis));
+        text.append(String.format("throughput: %.2f tok/s, %.2f req/s%n", tokensPerSecond(),
+                completedRequestsPerSecond()));
+        text.append(String.format("ttft: %s%n", timeToFirstToken));
+        text.append(String.format("itl:  %s%n", interTokenLatency));
+        text.append(String.format("e2e:  %s%n", endToEnd));
+        text.append("memory (elapsed ms, rss MiB, heap MiB):");
+        for (MemorySample sample : memory) {
+            text.append(String.format(" (%d, %.1f, %.1f)", sample.getElapsedMillis(), sample.getRssBytes() / 1048576.0,
+                    sample.getHeapUsedBytes() / 1048576.0));
+        }
+        return text.append(System.lineSeparator()).toString();
+    }
+}
@@ -0,0 +1,18 @@
+package org.javallm.llama4j.loadtest;
+
+import lombok.Value;
+
+/**
+ * Memory of the process at some point of a load test
+ */
+@Value
+public class MemorySample {
+    long elapsedMillis;
+
+    /**
+     * Resident set size, i.e., including the native memory of the models, or -1 if the platform does not report it
+     */
+    long rssBytes;
+
+    long heapUsedBytes;
+}
@@ -0,0 +1,24 @@
+package org.javallm.llama4j.lora;
+
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import javax.annotation.Nullable;
+
+@Accessors(chain = true)
+@Data
+public final class AdapterCacheParameters {
+    /**
+     * Upper bound of the memory held by the cached models, beyond which the least recently used idle ones are closed
+     */
+    @Min(value = 0, message = "memoryBudgetBytes must not be negative")
+    private long memoryBudgetBytes = 8L << 30;
+
+    /**
+     * Directory of the merged GGUF models, which are reused by later loads instead of merging again (default: null, to
+     * let llama.cpp merge the adapter on every load)
+     */
+    @Nullable
+    private String mergedModelDirectory;
+}
@@ -0,0 +1,31 @@
+package org.javallm.llama4j.lora;
+
+import lombok.Value;
+
+@Value
+public class AdapterCacheStats {
+    /**
+     * Times a model was found in the cache
+     */
+    long hits;
+
+    /**
+     * Times a model was loaded
+     */
+    long loads;
+
+    /**
+     * Times an adapter was merged into a new GGUF model
+     */
+    long merges;
+
+    /**
+     * Times an idle model was closed to stay within the memory budget
+     */
+    long evictions;
+
+    /**
+     * Memory held by the cached models
+     */
+    long usedBytes;
+}
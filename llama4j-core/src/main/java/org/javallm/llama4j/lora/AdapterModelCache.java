@@ -0,0 +1,304 @@
+package org.javallm.llama4j.lora;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import org.apache.commons.lang3.StringUtils;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.impl.LlamaModelImpl;
+import org.javallm.llama4j.model.params.ModelParameters;
+import org.javallm.llama4j.utils.ValidationUtils;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Caches one model per LoRA adapter of a base model, so that switching adapters does not load and patch the base
+ * model again
+ * <p>
+ * Models are loaded on first use. With a {@link AdapterCacheParameters#getMergedModelDirectory() merged model
+ * directory}, an adapter is merged once by {@link LoRAMerger} into a GGUF model kept in that directory, and later loads
+ * of the adapter, even by other processes, load that model without merging. Otherwise llama.cpp merges the adapter on
+ * each load. Either way, the adapter is added to the weights of the {@link ModelParameters#getLoraBase() LoRA base}
+ * of the base model if it has one. Beyond the memory budget, the least recently used idle models are closed.
+ */
+public class AdapterModelCache implements AutoCloseable {
+    private final ModelParameters baseParams;
+    private final AdapterCacheParameters params;
+    private final Function<ModelParameters, ? extends LlamaModel> factory;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long clock = 0;
+    private long usedBytes = 0;
+
+    private long hits = 0;
+    private long loads = 0;
+    private long merges = 0;
+    private long evictions = 0;
+
+    /**
+     * @param baseParams parameters of the base model, without adapter
+     * @param params     cache parameters
+     */
+    public AdapterModelCache(ModelParameters baseParams, AdapterCacheParameters params) {
+        this(baseParams, params, LlamaModelImpl::new);
+    }
+
+    /**
+     * @param baseParams parameters of the base model, without adapter
+     * @param params     cache parameters
+     * @param factory    creates a model from its parameters, e.g., another implementation of {@link LlamaModel}
+     */
+    public AdapterModelCache(ModelParameters baseParams, AdapterCacheParameters params,
+                             Function<ModelParameters, ? extends LlamaModel> factory) {
+        ValidationUtils.validateOrThrow(baseParams);
+        ValidationUtils.validateOrThrow(params);
+        Preconditions.checkArgument(StringUtils.isBlank(baseParams.getLoraPath()),
+                "baseParams should not have an adapter");
+        this.baseParams = baseParams.copy();
+        this.params = params;
+        this.factory = Preconditions.checkNotNull(factory);
+    }
+
+    /**
+     * Run an action on the model of an adapter, with the model exclusively owned by the action and reset afterwards
+     *
+     * @param adapterPath the adapter, null for the base model
+     * @param action      the action, e.g., generating a completion
+     * @return result of the action
+     */
+    public <T> T withAdapter(@Nullable String adapterPath, Function<LlamaModel, T> action) {
+        Preconditions.checkNotNull(action);
+        Entry entry = acquire(adapterPath);
+        try {
+            return action.apply(entry.model);
+        } finally {
+            try {
+                entry.model.reset();
+            } finally {
+                release(entry);
+            }
+        }
+    }
+
+    public synchronized AdapterCacheStats stats() {
+        return new AdapterCacheStats(hits, loads, merges, evictions, usedBytes);
+    }
+
+    /**
+     * @return number of cached models
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Close all cached models, which must not be in use anymore
+     */
+    @Override
+    public void close() throws Exception {
+        List<LlamaModel> models = new ArrayList<>();
+        synchronized (this) {
+            for (Entry entry : entries.values()) {
+                if (entry.model != null) {
+                    models.add(entry.model);
+                }
+            }
+            entries.clear();
+            usedBytes = 0;
+        }
+        closeAll(models);
+    }
+
+    private Entry acquire(@Nullable String adapterPath) {
+        String key = adapterPath == null ? "" : Paths.get(adapterPath).toAbsolutePath().normalize().toString();
+        Entry entry;
+        synchronized (this) {
+            while (true) {
+                entry = entries.get(key);
+                if (entry == null) {
+                    // load it outside the lock, others asking for the same adapter wait for it
+                    entry = new Entry(key);
+                    entry.busy = true;
+                    entries.put(key, entry);
+                    break;
+                }
+                if (!entry.busy) {
+                    entry.busy = true;
+                    hits++;
+                    return entry;
+                }
+                waitQuietly();
+            }
+        }
+
+        List<LlamaModel> evicted;
+        try {
+            ModelParameters modelParams = modelParameters(adapterPath == null ? null : key);
+            LlamaModel model = factory.apply(modelParams);
+            long bytes = memoryBytes(model, modelParams.getModelPath());
+            synchronized (this) {
+                entry.model = model;
+                entry.bytes = bytes;
+                usedBytes += bytes;
+                loads++;
+                evicted = evict();
+            }
+        } catch (RuntimeException ex) {
+            synchronized (this) {
+                entries.remove(key);
+                notifyAll();
+            }
+            throw ex;
+        }
+        try {
+            closeAll(evicted);
+        } catch (RuntimeException ex) {
+            release(entry);
+            throw ex;
+        }
+        return entry;
+    }
+
+    private void release(Entry entry) {
+        List<LlamaModel> evicted;
+        synchronized (this) {
+            entry.busy = false;
+            entry.lastUsed = ++clock;
+            evicted = evict();
+            notifyAll();
+        }
+        closeAll(evicted);
+    }
+
+    /**
+     * Remove the least recently used idle models until the cache fits the budget
+     *
+     * @return the removed models, to be closed outside the lock
+     */
+    private List<LlamaModel> evict() {
+        List<LlamaModel> evicted = new ArrayList<>();
+        while (usedBytes > params.getMemoryBudgetBytes()) {
+            Entry victim = null;
+            for (Entry entry : entries.values()) {
+                if (!entry.busy && (victim == null || entry.lastUsed < victim.lastUsed)) {
+                    victim = entry;
+                }
+            }
+            if (victim == null) {
+                break;
+            }
+            entries.remove(victim.key);
+            usedBytes -= victim.bytes;
+            evictions++;
+            evicted.add(victim.model);
+        }
+        return evicted;
+    }
+
+    /**
+     * @return parameters of the model of an adapter, merging the adapter first if needed
+     */
+    private ModelParameters modelParameters(@Nullable String adapterPath) {
+        if (adapterPath == null) {
+            return baseParams.copy();
+        }
+        if (params.getMergedModelDirectory() == null) {
+            return baseParams.copy().setLoraPath(adapterPath);
+        }
+
+        Path merged = mergedModelPath(adapterPath);
+        if (!Files.exists(merged)) {
+            Path loraBase = StringUtils.isBlank(baseParams.getLoraBase()) ? null : Paths.get(baseParams.getLoraBase());
+            LoRAMerger.merge(Paths.get(baseParams.getModelPath()), loraBase, LoRAAdapter.read(Paths.get(adapterPath)),
+                    merged);
+            synchronized (this) {
+                merges++;
+            }
+        }
+        // the adapter base is merged in already
+        return baseParams.copy().setModelPath(merged.toString()).setLoraBase(null);
+    }
+
+    /**
+     * @return path of the merged model, which changes with the base model, the adapter base or the adapter files
+     */
+    private Path mergedModelPath(String adapterPath) {
+        File base = new File(baseParams.getModelPath()).getAbsoluteFile();
+        File adapter = new File(adapterPath);
+        String identity = String.format("%s|%d|%d|%s|%d|%d", base, base.length(), base.lastModified(), adapter,
+                adapter.length(), adapter.lastModified());
+        if (StringUtils.isNotBlank(baseParams.getLoraBase())) {
+            File loraBase = new File(baseParams.getLoraBase()).getAbsoluteFile();
+            identity += String.format("|%s|%d|%d", loraBase, loraBase.length(), loraBase.lastModified());
+        }
+        String hash = Hashing.sha256().hashString(identity, StandardCharsets.UTF_8).toString().substring(0, 16);
+        Path directory = Paths.get(params.getMergedModelDirectory());
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(String.format("Failed to create %s", directory), ex);
+        }
+        String name = adapter.getName().replaceAll("\\.[^.]*$", "");
+        return directory.resolve(String.format("%s-%s.gguf", name, hash));
+    }
+
+    /**
+     * @return native memory of the model, or the size of its file if it does not account its native memory
+     */
+    private static long memoryBytes(LlamaModel model, String modelPath) {
+        try {
+            return model.nativeMemoryUsage().total();
+        } catch (UnsupportedOperationException ex) {
+            return new File(modelPath).length();
+        }
+    }
+
+    private static void closeAll(List<LlamaModel> models) {
+        RuntimeException failure = null;
+        for (LlamaModel model : models) {
+            try {
+                model.close();
+            } catch (Exception ex) {
+                if (failure == null) {
+                    failure = new IllegalStateException("Failed to close a cached model", ex);
+                } else {
+                    failure.addSuppressed(ex);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void waitQuietly() {
+        try {
+            wait();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a cached model", ex);
+        }
+    }
+
+    private static final class Entry {
+        private final String key;
+        private LlamaModel model;
+        private long bytes;
+        private boolean busy = false;
+        private long lastUsed = 0;
+
+        private Entry(String key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.javallm.llama4j.lora;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.javallm.llama4j.embedding.Embeddings;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A LoRA adapter in the GGML format of llama.cpp, i.e., as written by {@code convert-lora-to-ggml.py}
+ * <p>
+ * An adapted weight {@code W} of shape {@code [n_in, n_out]} comes with the tensors {@code <name>.loraA} of shape
+ * {@code [r, n_in]} and {@code <name>.loraB} of shape {@code [r, n_out]}, and is merged as
+ * {@code W + alpha / r * B A}, like {@code llama_model_apply_lora_from_file} does.
+ */
+public final class LoRAAdapter {
+    private static final int MAGIC = 0x67676c61; // "ggla"
+    private static final int ALIGNMENT = 32;
+
+    private final Path path;
+    private final int rank;
+    private final int alpha;
+    private final ImmutableMap<String, Matrix> loraA;
+    private final ImmutableMap<String, Matrix> loraB;
+
+    private LoRAAdapter(Path path, int rank, int alpha, ImmutableMap<String, Matrix> loraA,
+                        ImmutableMap<String, Matrix> loraB) {
+        this.path = path;
+        this.rank = rank;
+        this.alpha = alpha;
+        this.loraA = loraA;
+        this.loraB = loraB;
+    }
+
+    /**
+     * Read an adapter into memory, adapters being small compared to their base models
+     *
+     * @param path the adapter file
+     * @return the adapter
+     * @throws IllegalArgumentException if the file is not a supported adapter
+     */
+    public static LoRAAdapter read(Path path) {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Preconditions.checkArgument(channel.size() <= Integer.MAX_VALUE, "%s exceeds 2 GiB", path);
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(String.format("Failed to read %s", path), ex);
+        }
+
+        Preconditions.checkArgument(buffer.remaining() >= 16 && buffer.getInt() == MAGIC, "%s is not a LoRA adapter",
+                path);
+        int version = buffer.getInt();
+        Preconditions.checkArgument(version == 1, "Unsupported LoRA adapter version: %s", version);
+        int rank = buffer.getInt();
+        int alpha = buffer.getInt();
+        Preconditions.checkArgument(rank > 0, "Invalid LoRA rank: %s", rank);
+
+        Map<String, Matrix> loraA = new HashMap<>();
+        Map<String, Matrix> loraB = new HashMap<>();
+        while (buffer.remaining() > 0) {
+            int nDims = buffer.getInt();
+            int nameLength = buffer.getInt();
+            int type = buffer.getInt();
+            Preconditions.checkArgument(nDims == 2, "LoRA tensors should have 2 dimensions rather than %s", nDims);
+            Preconditions.checkArgument(type == 0 || type == 1, "Unsupported LoRA tensor type: %s", type);
+            int cols = buffer.getInt();
+            int rows = buffer.getInt();
+            byte[] nameBytes = new byte[nameLength];
+            buffer.get(nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+            buffer.position((buffer.position() + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT);
+
+            float[] values = new float[rows * cols];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = type == 0 ? buffer.getFloat() : Embeddings.fromFp16(buffer.getShort());
+            }
+            Preconditions.checkArgument(cols == rank, "LoRA tensor %s has rank %s rather than %s", name, cols, rank);
+            if (name.endsWith(".loraA")) {
+                loraA.put(name.substring(0, name.length() - ".loraA".length()), new Matrix(rows, values));
+            } else if (name.endsWith(".loraB")) {
+                loraB.put(name.substring(0, name.length() - ".loraB".length()), new Matrix(rows, values));
+            } else {
+                throw new IllegalArgumentException(String.format("Unexpected LoRA tensor: %s", name));
+            }
+        }
+        Preconditions.checkArgument(loraA.keySet().equals(loraB.keySet()), "%s has unpaired LoRA tensors", path);
+        return new LoRAAdapter(path, rank, alpha, ImmutableMap.copyOf(loraA), ImmutableMap.copyOf(loraB));
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public int getAlpha() {
+        return alpha;
+    }
+
+    public float scale() {
+        return (float) alpha / rank;
+    }
+
+    /**
+     * @return names of the adapted tensors of the base model
+     */
+    public ImmutableSet<String> getTensorNames() {
+        return loraA.keySet();
+    }
+
+    /**
+     * @return {@code [n_in, n_out]} of an adapted tensor
+     */
+    public int[] shape(String name) {
+        return new int[] { tensor(loraA, name).rows, tensor(loraB, name).rows };
+    }
+
+    /**
+     * Add {@code alpha / r * B A} to a weight
+     *
+     * @param name    name of the adapted tensor
+     * @param weights the weight, row-major of shape {@code [n_out][n_in]}, updated in place
+     */
+    public void addTo(String name, float[] weights) {
+        Matrix a = tensor(loraA, name);
+        Matrix b = tensor(loraB, name);
+        int nIn = a.rows;
+        int nOut = b.rows;
+        Preconditions.checkArgument(weights.length == nIn * nOut, "weights of %s should have %s elements", name,
+                nIn * nOut);
+        float scale = scale();
+        float[] row = new float[rank];
+        for (int out = 0; out < nOut; out++) {
+            for (int k = 0; k < rank; k++) {
+                row[k] = scale * b.values[out * rank + k];
+            }
+            for (int in = 0; in < nIn; in++) {
+                float sum = 0;
+                for (int k = 0; k < rank; k++) {
+                    sum += row[k] * a.values[in * rank + k];
+                }
+                weights[out * nIn + in] += sum;
+            }
+        }
+    }
+
+    private static Matrix tensor(Map<String, Matrix> tensors, String name) {
+        Matrix matrix = tensors.get(name);
+        Preconditions.checkArgument(matrix != null, "No LoRA tensors for %s", name);
+        return matrix;
+    }
+
+    /**
+     * A row-major matrix with rows of {@code rank} elements
+     */
+    private static final class Matrix {
+        private final int rows;
+        private final float[] values;
+
+        private Matrix(int rows, float[] values) {
+            this.rows = rows;
+            this.values = values;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.javallm.llama4j.lora;
+
+import com.google.common.base.Preconditions;
+import org.javallm.llama4j.embedding.Embeddings;
+import org.javallm.llama4j.gguf.GGMLType;
+import org.javallm.llama4j.gguf.GGUFFile;
+import org.javallm.llama4j.gguf.GGUFTensorInfo;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Merges a LoRA adapter into a copy of its base GGUF model, so that loading the merged model skips the merge
+ * <p>
+ * Adapted tensors keep their type, hence their size, so the copy keeps the header of the base model as is and only
+ * the data of the adapted tensors is rewritten. F32, F16 and Q8_0 tensors are supported; Q8_0 ones are dequantized,
+ * merged and quantized again, like llama.cpp does when merging into a quantized model.
+ */
+public final class LoRAMerger {
+    private LoRAMerger() {
+    }
+
+    /**
+     * @param baseModel the base GGUF model
+     * @param adapter   the adapter
+     * @param output    the merged GGUF model, written atomically
+     * @throws IllegalArgumentException if the adapter does not fit the base model
+     */
+    public static void merge(Path baseModel, LoRAAdapter adapter, Path output) {
+        merge(baseModel, null, adapter, output);
+    }
+
+    /**
+     * Merge with the adapted weights taken from another model, like the {@code lora_base} of llama.cpp, e.g., the
+     * F16 model a quantized base model was made from
+     *
+     * @param baseModel the base GGUF model, giving the header, the other tensors and the types of the merged tensors
+     * @param loraBase  the GGUF model whose weights the adapter is added to, null for the base model
+     * @param adapter   the adapter
+     * @param output    the merged GGUF model, written atomically
+     * @throws IllegalArgumentException if the adapter does not fit the models
+     */
+    public static void merge(Path baseModel, @Nullable Path loraBase, LoRAAdapter adapter, Path output) {
+        Path temporary = null;
+        try (GGUFFile base = GGUFFile.open(baseModel);
+             GGUFFile weightsSource = loraBase == null ? null : GGUFFile.open(loraBase)) {
+            GGUFFile source = weightsSource == null ? base : weightsSource;
+            for (String name : adapter.getTensorNames()) {
+                checkCompatible(base, adapter, name);
+                checkCompatible(source, adapter, name);
+            }
+
+            // a unique file, so that concurrent merges of the same adapter do not write over each other
+            Path directory = output.toAbsolutePath().getParent();
+            temporary = Files.createTempFile(directory, output.getFileName().toString(), ".tmp");
+            Files.copy(baseModel, temporary, StandardCopyOption.REPLACE_EXISTING);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                for (String name : adapter.getTensorNames()) {
+                    GGUFTensorInfo tensor = base.getTensors().get(name);
+                    GGUFTensorInfo sourceTensor = source.getTensors().get(name);
+                    float[] weights = decode(source.map(name), sourceTensor.getType(), (int) sourceTensor.elements());
+                    adapter.addTo(name, weights);
+                    ByteBuffer data = encode(weights, tensor.getType());
+                    long position = base.getDataOffset() + tensor.getOffset();
+                    while (data.hasRemaining()) {
+                        position += channel.write(data, position);
+                    }
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(String.format("Failed to merge %s into %s", adapter.getPath(), baseModel),
+                    ex);
+        } finally {
+            try {
+                if (temporary != null) {
+                    Files.deleteIfExists(temporary);
+                }
+            } catch (IOException ignored) {
+                // the original outcome is more relevant
+            }
+        }
+    }
+
+    private static void checkCompatible(GGUFFile base, LoRAAdapter adapter, String name) {
+        GGUFTensorInfo tensor = base.getTensors().get(name);
+        Preconditions.checkArgument(tensor != null, "%s has no tensor %s to adapt", base.getPath(), name);
+        int[] shape = adapter.shape(name);
+        Preconditions.checkArgument(tensor.getShape().length == 2 && tensor.getShape()[0] == shape[0]
+                        && tensor.getShape()[1] == shape[1], "LoRA tensors of %s do not match its shape", name);
+        GGMLType type = tensor.getType();
+        Preconditions.checkArgument(type == GGMLType.F32 || type == GGMLType.F16 || type == GGMLType.Q8_0,
+                "Merging LoRA into %s tensors is not supported: %s", type, name);
+    }
+
+    static float[] decode(ByteBuffer data, GGMLType type, int nElements) {
+        float[] values = new float[nElements];
+        switch (type) {
+            case F32:
+                data.asFloatBuffer().get(values);
+                break;
+            case F16:
+                for (int i = 0; i < nElements; i++) {
+                    values[i] = Embeddings.fromFp16(data.getShort(i * 2));
+                }
+                break;
+            case Q8_0:
+                for (int block = 0; block < nElements / 32; block++) {
+                    int offset = block * 34;
+                    float scale = Embeddings.fromFp16(data.getShort(offset));
+                    for (int i = 0; i < 32; i++) {
+                        values[block * 32 + i] = scale * data.get(offset + 2 + i);
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Unsupported tensor type: %s", type));
+        }
+        return values;
+    }
+
+    static ByteBuffer encode(float[] values, GGMLType type) {
+        ByteBuffer data = ByteBuffer.allocate((int) type.bytes(values.length)).order(ByteOrder.LITTLE_ENDIAN);
+        switch (type) {
+            case F32:
+                data.asFloatBuffer().put(values);
+                break;
+            case F16:
+                Embeddings.putFp16(data, Embeddings.toFp16(values));
+                break;
+            case Q8_0:
+                // as quantize_row_q8_0_reference of GGML
+                for (int block = 0; block < values.length / 32; block++) {
+                    float max = 0;
+                    for (int i = 0; i < 32; i++) {
+                        max = Math.max(max, Math.abs(values[block * 32 + i]));
+                    }
+                    float scale = max / 127;
+                    float inverse = scale != 0 ? 1 / scale : 0;
+                    data.putShort(Embeddings.toFp16(new float[] { scale })[0]);
+                    for (int i = 0; i < 32; i++) {
+                        // round half away from zero, as roundf
+                        float value = values[block * 32 + i] * inverse;
+                        data.put((byte) (value < 0 ? -Math.round(-value) : Math.round(value)));
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Unsupported tensor type: %s", type));
+        }
+        data.rewind();
+        return data;
+    }
+}
@@ -0,0 +1,23 @@
+package org.javallm.llama4j.memory;
+
+/**
+ * Categories of native memory held by a model
+ */
+public enum NativeMemoryCategory {
+    /**
+     * Model weights, which are memory-mapped from the model file (plus merged LoRA adapters, if any)
+     */
+    WEIGHTS,
+    /**
+     * The context state, i.e., the KV cache plus the logits and embedding outputs
+     */
+    KV_CACHE,
+    /**
+     * Buffers allocated once per model and reused across calls, e.g., the sampling candidates
+     */
+    SCRATCH,
+    /**
+     * Short-lived buffers allocated within a single call, which must be released before the call returns
+     */
+    TEMPORARIES
+}
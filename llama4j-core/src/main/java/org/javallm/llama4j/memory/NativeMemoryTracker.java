@@ -0,0 +1,88 @@
+package org.javallm.llama4j.memory;
+
+import com.google.common.base.Preconditions;
+import org.bytedeco.javacpp.Pointer;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accounts the native memory held by a single model, by {@link NativeMemoryCategory}
+ * <p>
+ * In leak-check mode, {@link #checkNoLiveTemporaries()} throws as soon as a temporary buffer outlives its scope. Only
+ * the buffers allocated through a {@link NativeScope} are checked: the ones of a model all are, but neither the
+ * allocations inside llama.cpp nor pointers created elsewhere, e.g., by {@code TensorOps}, are seen.
+ */
+public class NativeMemoryTracker {
+    /**
+     * System property to turn leak-check mode on for all models, e.g., in tests
+     */
+    public static final String LEAK_CHECK_PROPERTY = "llama4j.leakCheck";
+
+    private final Map<NativeMemoryCategory, AtomicLong> bytes = new EnumMap<>(NativeMemoryCategory.class);
+    private final AtomicLong allocations = new AtomicLong();
+    private final boolean leakCheck;
+
+    public NativeMemoryTracker(boolean leakCheck) {
+        for (NativeMemoryCategory category : NativeMemoryCategory.values()) {
+            bytes.put(category, new AtomicLong());
+        }
+        this.leakCheck = leakCheck || Boolean.getBoolean(LEAK_CHECK_PROPERTY);
+    }
+
+    public void allocate(NativeMemoryCategory category, long nBytes) {
+        Preconditions.checkArgument(nBytes >= 0, "nBytes should >= 0");
+        bytes.get(category).addAndGet(nBytes);
+        allocations.incrementAndGet();
+    }
+
+    public void release(NativeMemoryCategory category, long nBytes) {
+        Preconditions.checkArgument(nBytes >= 0, "nBytes should >= 0");
+        long remaining = bytes.get(category).addAndGet(-nBytes);
+        Preconditions.checkState(remaining >= 0, "Released more %s bytes than allocated", category);
+    }
+
+    /**
+     * Open a scope for temporary buffers, which are released when the scope is closed
+     *
+     * @return the scope
+     */
+    public NativeScope scope() {
+        return new NativeScope(this);
+    }
+
+    public boolean isLeakCheck() {
+        return leakCheck;
+    }
+
+    /**
+     * Check that no temporary buffer is alive, a no-op unless leak-check mode is on
+     *
+     * @throws IllegalStateException if any temporary buffer is alive
+     */
+    public void checkNoLiveTemporaries() {
+        if (!leakCheck) {
+            return;
+        }
+        long live = bytes.get(NativeMemoryCategory.TEMPORARIES).get();
+        if (live != 0) {
+            throw new IllegalStateException(String.format("Native memory leak detected: %d Bytes of temporaries are alive", live));
+        }
+    }
+
+    public NativeMemoryUsage snapshot() {
+        Map<NativeMemoryCategory, Long> result = new EnumMap<>(NativeMemoryCategory.class);
+        for (Map.Entry<NativeMemoryCategory, AtomicLong> entry : bytes.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().get());
+        }
+        return new NativeMemoryUsage(result, allocations.get(), Pointer.totalBytes(), Pointer.physicalBytes());
+    }
+
+    /**
+     * @return the number of bytes a pointer refers to, i.e., {@code capacity * sizeof}
+     */
+    static long sizeOf(Pointer pointer) {
+        return Math.max(pointer.capacity(), 1) * pointer.sizeof();
+    }
+}
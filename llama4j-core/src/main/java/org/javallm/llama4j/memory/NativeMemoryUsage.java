@@ -0,0 +1,52 @@
+package org.javallm.llama4j.memory;
+
+import lombok.Value;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * A point-in-time snapshot of the native memory held by a model
+ */
+@Value
+public class NativeMemoryUsage {
+    /**
+     * Live native bytes of the model, by category
+     */
+    Map<NativeMemoryCategory, Long> bytes;
+
+    /**
+     * Number of native allocations accounted to the model since it was created, over all categories
+     */
+    long allocations;
+
+    /**
+     * Bytes currently allocated through JavaCPP by the whole process, see {@link org.bytedeco.javacpp.Pointer#totalBytes()}
+     */
+    long javaCppTotalBytes;
+
+    /**
+     * Physical memory (i.e., RSS) of the process, see {@link org.bytedeco.javacpp.Pointer#physicalBytes()}
+     */
+    long physicalBytes;
+
+    public NativeMemoryUsage(Map<NativeMemoryCategory, Long> bytes, long allocations, long javaCppTotalBytes,
+                             long physicalBytes) {
+        this.bytes = Collections.unmodifiableMap(new EnumMap<>(bytes));
+        this.allocations = allocations;
+        this.javaCppTotalBytes = javaCppTotalBytes;
+        this.physicalBytes = physicalBytes;
+    }
+
+    public long get(NativeMemoryCategory category) {
+        return bytes.getOrDefault(category, 0L);
+    }
+
+    /**
+     * @return live native bytes of the model over all categories
+     */
+    public long total() {
+        return bytes.values().stream().mapToLong(Long::longValue).sum();
+    }
+}
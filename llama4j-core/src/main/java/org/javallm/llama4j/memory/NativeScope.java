@@ -0,0 +1,51 @@
+package org.javallm.llama4j.memory;
+
+import org.bytedeco.javacpp.Pointer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Owns temporary native buffers and releases them deterministically on {@link #close()}, instead of leaving
+ * them to the GC, e.g.,
+ * <pre>{@code
+ * try (NativeScope scope = tracker.scope()) {
+ *     BytePointer input = scope.attach(new BytePointer(nBytes));
+ *     ...
+ * }
+ * }</pre>
+ * Not thread-safe.
+ */
+public final class NativeScope implements AutoCloseable {
+    private final NativeMemoryTracker tracker;
+    private final List<Pointer> pointers = new ArrayList<>();
+    private long nBytes = 0;
+
+    NativeScope(NativeMemoryTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    /**
+     * Attach a freshly allocated pointer to this scope
+     *
+     * @param pointer the pointer
+     * @return the same pointer
+     */
+    public <P extends Pointer> P attach(P pointer) {
+        long size = NativeMemoryTracker.sizeOf(pointer);
+        pointers.add(pointer);
+        nBytes += size;
+        tracker.allocate(NativeMemoryCategory.TEMPORARIES, size);
+        return pointer;
+    }
+
+    @Override
+    public void close() {
+        for (Pointer pointer : pointers) {
+            pointer.close();
+        }
+        pointers.clear();
+        tracker.release(NativeMemoryCategory.TEMPORARIES, nBytes);
+        nBytes = 0;
+    }
+}
@@ -1,5 +1,6 @@
 package org.javallm.llama4j.model;
 
+import org.javallm.llama4j.memory.NativeMemoryUsage;
 import org.javallm.llama4j.model.params.PenalizeParameters;
 import org.javallm.llama4j.model.params.SamplingParameters;
 
@@ -32,6 +33,14 @@ public interface LlamaModel extends AutoCloseable {
 
     void reset(int nPastTokens);
 
+    /**
+     * Keep only the first {@code nTokens} input tokens, so that the next evaluation continues right after them and
+     * reuses the KV cache of the kept prefix
+     *
+     * @param nTokens number of tokens to keep
+     */
+    void truncate(int nTokens);
+
     /**
      * Evaluate tokens
      * @param tokens tokens to be evaluated
@@ -45,6 +54,50 @@ public interface LlamaModel extends AutoCloseable {
      */
     int sample(SamplingParameters samplingParams, PenalizeParameters penalizeParameters);
 
+    /**
+     * Perform sampling like {@link #sample(SamplingParameters, PenalizeParameters)}, also reporting log-probabilities,
+     * e.g., as confidence scores
+     * @param samplingParams parameters related to sampling
+     * @param penalizeParameters parameter related to penalization
+     * @param topLogProbs number of the most probable tokens to report
+     * @return the sampled token with its log-probability and the top alternatives
+     */
+    SampledToken sample(SamplingParameters samplingParams, PenalizeParameters penalizeParameters, int topLogProbs);
+
+    /**
+     * Perform sampling like {@link #sample(SamplingParameters, PenalizeParameters)} with classifier-free guidance, i.e.,
+     * the log-probabilities are pushed away from the ones of the guidance context by
+     * {@code guidance + guidanceScale * (logits - guidance)}
+     * @param samplingParams parameters related to sampling
+     * @param penalizeParameters parameter related to penalization
+     * @param guidance another context of the same model and implementation, which has evaluated the negative prompt
+     *                 followed by the same generated tokens
+     * @param guidanceScale strength of the guidance, 1 for none
+     * @throws UnsupportedOperationException if the model does not support guidance
+     */
+    default int sample(SamplingParameters samplingParams, PenalizeParameters penalizeParameters, LlamaModel guidance,
+                       float guidanceScale) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Reseed the random number generator used by sampling, e.g., so that contexts restored from the same state sample
+     * independently. Note that the generator is part of the state, so reseed after {@link #loadState(byte[])}.
+     *
+     * @param seed the seed
+     */
+    void setRandomSeed(int seed);
+
+    /**
+     * Identify the model file and the parameters affecting its outputs, e.g., to key cached completions
+     *
+     * @return the identity, equal for contexts producing the same outputs
+     * @throws UnsupportedOperationException if the underlying model cannot identify itself
+     */
+    default String identity() {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * Embed an input string with the model
      * @param input the input string
@@ -56,7 +109,18 @@ public interface LlamaModel extends AutoCloseable {
     }
 
     /**
-     * Get the model state data, useful for persisting model state
+     * Embed a token sequence with the model, e.g., a chunk of a longer document
+     * @param tokens the tokens, including the <BOS> token if desired
+     * @return the embedding
+     * @throws UnsupportedOperationException if the underlying model does not support embedding
+     */
+    default float[] embed(int[] tokens) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Get the model state data, useful for persisting model state. Only the populated part of the KV cache is included,
+     * so the size grows with {@link #nPastTokens()}.
      *
      * @return the model state data in bytes
      */
@@ -69,6 +133,25 @@ public interface LlamaModel extends AutoCloseable {
      */
     void loadState(byte[] state);
 
+    /**
+     * Load the model state together with the tokens it was computed from, e.g., to resume a generation parked by
+     * {@link #getState()} and {@link #inputTokens()}, possibly on another context of the same model
+     *
+     * @param state       model state data
+     * @param inputTokens the input tokens at the time the state was taken
+     */
+    void loadState(byte[] state, int[] inputTokens);
+
+    /**
+     * Get the native memory held by the model, which is invisible to the Java heap metrics
+     *
+     * @return live native bytes by category
+     * @throws UnsupportedOperationException if the underlying model does not track its native memory
+     */
+    default NativeMemoryUsage nativeMemoryUsage() {
+        throw new UnsupportedOperationException();
+    }
+
     int bosToken();
 
     /**
@@ -0,0 +1,20 @@
+package org.javallm.llama4j.model;
+
+import com.google.common.collect.ImmutableList;
+import lombok.Value;
+
+/**
+ * A sampled token with its log-probability and the most probable alternatives, according to the distribution of the
+ * logits after the logit bias and penalties, i.e., before temperature and truncation samplers
+ */
+@Value
+public class SampledToken {
+    int token;
+
+    float logProb;
+
+    /**
+     * The most probable tokens in descending order of probability, which may or may not include the sampled token
+     */
+    ImmutableList<TokenLogProb> topLogProbs;
+}
@@ -0,0 +1,13 @@
+package org.javallm.llama4j.model;
+
+import lombok.Value;
+
+@Value
+public class TokenLogProb {
+    int token;
+
+    /**
+     * Natural logarithm of the probability of the token
+     */
+    float logProb;
+}
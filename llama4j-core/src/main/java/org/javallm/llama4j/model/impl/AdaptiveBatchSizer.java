@@ -0,0 +1,90 @@
+package org.javallm.llama4j.model.impl;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Picks the size of the next prompt batch from the evaluation throughput measured so far
+ * <p>
+ * Batch sizes are bucketed by powers of two from {@value #MIN_BATCH_SIZE} up to the limit, and each bucket keeps a
+ * moving average of its throughput in tokens per nanosecond. Every bucket that fits the remaining tokens is tried a few
+ * times first; then the best one is used, or all the remaining tokens (up to the limit) when the best one is the
+ * largest that fits, since a larger batch was not slower so far. Not thread-safe, like the models using it.
+ */
+final class AdaptiveBatchSizer {
+    static final int MIN_BATCH_SIZE = 8;
+    private static final int WARM_UP_SAMPLES = 2;
+    private static final double SMOOTHING = 0.25;
+
+    private final int maxBatchSize;
+    private final int[] sizes;
+    private final double[] throughput;
+    private final int[] samples;
+
+    /**
+     * @param maxBatchSize the largest batch, e.g., the native {@code n_batch}
+     */
+    AdaptiveBatchSizer(int maxBatchSize) {
+        Preconditions.checkArgument(maxBatchSize > 0, "maxBatchSize should > 0");
+        this.maxBatchSize = maxBatchSize;
+        int nBuckets = 0;
+        for (int size = MIN_BATCH_SIZE; size < maxBatchSize; size *= 2) {
+            nBuckets++;
+        }
+        this.sizes = new int[nBuckets + 1];
+        for (int i = 0; i < nBuckets; i++) {
+            sizes[i] = MIN_BATCH_SIZE << i;
+        }
+        sizes[nBuckets] = maxBatchSize;
+        this.throughput = new double[sizes.length];
+        this.samples = new int[sizes.length];
+    }
+
+    /**
+     * @param nRemaining number of tokens left to evaluate
+     * @return size of the next batch
+     */
+    int next(int nRemaining) {
+        Preconditions.checkArgument(nRemaining > 0, "nRemaining should > 0");
+        int largest = bucketOf(nRemaining);
+        if (largest < 0) {
+            return nRemaining;
+        }
+        int best = 0;
+        for (int i = 0; i <= largest; i++) {
+            if (samples[i] < WARM_UP_SAMPLES) {
+                return sizes[i];
+            }
+            if (throughput[i] > throughput[best]) {
+                best = i;
+            }
+        }
+        return best == largest ? Math.min(nRemaining, maxBatchSize) : sizes[best];
+    }
+
+    /**
+     * Record the time of a batch evaluation
+     *
+     * @param batchSize number of tokens of the batch
+     * @param nanos     time taken
+     */
+    void record(int batchSize, long nanos) {
+        int bucket = bucketOf(batchSize);
+        if (bucket < 0 || nanos <= 0) {
+            return;
+        }
+        double value = (double) batchSize / nanos;
+        throughput[bucket] = samples[bucket] == 0 ? value : SMOOTHING * value + (1 - SMOOTHING) * throughput[bucket];
+        samples[bucket]++;
+    }
+
+    /**
+     * @return the largest bucket not larger than {@code batchSize}, or -1 if there is none
+     */
+    private int bucketOf(int batchSize) {
+        int bucket = -1;
+        while (bucket + 1 < sizes.length && sizes[bucket + 1] <= batchSize) {
+            bucket++;
+        }
+        return bucket;
+    }
+}
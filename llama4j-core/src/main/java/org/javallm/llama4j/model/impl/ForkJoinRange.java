@@ -0,0 +1,50 @@
+package org.javallm.llama4j.model.impl;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a loop body over {@code [0, count)} in a fork-join pool, halving the range until it is at most {@code grain}
+ * iterations, which run in the calling thread when the whole range is that small
+ */
+final class ForkJoinRange extends RecursiveAction {
+    /**
+     * A slice of the loop
+     */
+    interface Body {
+        void run(int from, int to);
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    private final Body body;
+    private final int from;
+    private final int to;
+    private final int grain;
+
+    private ForkJoinRange(Body body, int from, int to, int grain) {
+        this.body = body;
+        this.from = from;
+        this.to = to;
+        this.grain = grain;
+    }
+
+    static void run(ForkJoinPool pool, int count, int grain, Body body) {
+        grain = Math.max(grain, 1);
+        if (count <= grain) {
+            body.run(0, count);
+        } else {
+            pool.invoke(new ForkJoinRange(body, 0, count, grain));
+        }
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= grain) {
+            body.run(from, to);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(new ForkJoinRange(body, from, middle, grain), new ForkJoinRange(body, middle, to, grain));
+    }
+}
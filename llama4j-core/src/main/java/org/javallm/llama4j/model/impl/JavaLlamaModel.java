@@ -0,0 +1,580 @@
+package org.javallm.llama4j.model.impl;
+
+import com.google.common.base.Preconditions;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.javallm.llama4j.gguf.GGUFFile;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.SampledToken;
+import org.javallm.llama4j.model.params.ModelParameters;
+import org.javallm.llama4j.model.params.PenalizeParameters;
+import org.javallm.llama4j.model.params.SamplingParameters;
+import org.javallm.llama4j.tokenizer.SentencePieceTokenizer;
+import org.javallm.llama4j.utils.ValidationUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A LLaMA model evaluated in pure Java, without the native library
+ * <p>
+ * The weights (F32, F16 or Q8_0) are memory-mapped from the GGUF file and dequantized on the fly, and the matrix
+ * multiplications of a batch are split by rows across a fork-join pool of {@link ModelParameters#getNThreads()}
+ * threads. It is meant for small models, e.g., tests, classifiers and edge devices without the native library, and as
+ * a reference for the numbers of {@link LlamaModelImpl}. Tokenization, sampling, context swapping and the state
+ * follow the semantics of {@link LlamaModelImpl}, with the exception of the state format and random numbers.
+ */
+public class JavaLlamaModel implements LlamaModel {
+    private static final int STATE_MAGIC = 0x4c344a53; // "L4JS"
+    // elements of attention per fork-join task
+    private static final int MIN_ATTENTION_ELEMENTS = 1 << 12;
+
+    private final ModelParameters modelParams;
+    private final GGUFFile file;
+    private final SentencePieceTokenizer tokenizer;
+    private final ForkJoinPool pool;
+
+    /******************** Hyperparameters ***********************/
+    private final int nCtx;
+    private final int nVocab;
+    private final int nEmbed;
+    private final int nLayers;
+    private final int nHeads;
+    private final int nKvHeads;
+    private final int headSize;
+    private final int kvSize;
+    private final int ffnSize;
+    private final int nRot;
+    private final float rmsEpsilon;
+    private final float ropeFreqBase;
+    private final float ropeFreqScale;
+
+    /******************** Weights ***********************/
+    private final WeightMatrix tokenEmbedding;
+    private final float[][] attentionNorm;
+    private final WeightMatrix[] wq;
+    private final WeightMatrix[] wk;
+    private final WeightMatrix[] wv;
+    private final WeightMatrix[] wo;
+    private final float[][] ffnNorm;
+    private final WeightMatrix[] ffnGate;
+    private final WeightMatrix[] ffnUp;
+    private final WeightMatrix[] ffnDown;
+    private final float[] outputNorm;
+    private final WeightMatrix output;
+
+    /******************** State ***********************/
+    private int nPastTokens = 0;
+    private final int[] inputTokens;
+    private final PenaltyWindow penaltyWindow;
+    // picks the prompt batch sizes in adaptive mode, null otherwise
+    private final AdaptiveBatchSizer batchSizer;
+    private boolean penaltyWindowValid = false;
+    private final float[][] keyCache;
+    private final float[][] valueCache;
+    private final float[] logits;
+    private final float[] embedding;
+    private final JavaSampler sampler;
+
+    /**
+     * Constructor to load a LLaMA model
+     *
+     * @param modelParams model parameters, of which the LoRA and GPU options are not supported
+     * @throws IllegalArgumentException when the passed arguments are invalid or the model is not a LLaMA model
+     * @throws UnsupportedOperationException when the weights are quantized to other types than Q8_0
+     */
+    public JavaLlamaModel(ModelParameters modelParams) {
+        Preconditions.checkNotNull(modelParams);
+        ValidationUtils.validateOrThrow(modelParams);
+        Preconditions.checkArgument(StringUtils.isBlank(modelParams.getLoraPath()),
+                "LoRA adapters are not supported by %s", getClass().getSimpleName());
+
+        this.modelParams = modelParams;
+        this.file = GGUFFile.open(Paths.get(modelParams.getModelPath()));
+        try {
+            String architecture = file.getString("general.architecture");
+            Preconditions.checkArgument("llama".equals(architecture), "Unsupported architecture: %s", architecture);
+            this.tokenizer = SentencePieceTokenizer.fromGGUF(file);
+
+            this.nCtx = modelParams.getContextSize();
+            this.nVocab = tokenizer.vocabSize();
+            this.nEmbed = file.getInt("llama.embedding_length");
+            this.nLayers = file.getInt("llama.block_count");
+            this.nHeads = file.getInt("llama.attention.head_count");
+            this.nKvHeads = file.getInt("llama.attention.head_count_kv", nHeads);
+            this.headSize = nEmbed / nHeads;
+            this.kvSize = headSize * nKvHeads;
+            this.ffnSize = file.getInt("llama.feed_forward_length");
+            this.nRot = file.getInt("llama.rope.dimension_count", headSize);
+            this.rmsEpsilon = file.getFloat("llama.attention.layer_norm_rms_epsilon", 1e-5f);
+            this.ropeFreqBase = modelParams.getRopeFreqBase();
+            this.ropeFreqScale = modelParams.getRopeFreqScale();
+            Preconditions.checkArgument(nHeads % nKvHeads == 0, "head_count %s should be a multiple of head_count_kv %s",
+                    nHeads, nKvHeads);
+
+            this.tokenEmbedding = WeightMatrix.of(file, "token_embd.weight");
+            this.attentionNorm = new float[nLayers][];
+            this.wq = new WeightMatrix[nLayers];
+            this.wk = new WeightMatrix[nLayers];
+            this.wv = new WeightMatrix[nLayers];
+            this.wo = new WeightMatrix[nLayers];
+            this.ffnNorm = new float[nLayers][];
+            this.ffnGate = new WeightMatrix[nLayers];
+            this.ffnUp = new WeightMatrix[nLayers];
+            this.ffnDown = new WeightMatrix[nLayers];
+            for (int l = 0; l < nLayers; l++) {
+                String prefix = "blk." + l + ".";
+                attentionNorm[l] = WeightMatrix.of(file, prefix + "attn_norm.weight").toFloats();
+                wq[l] = WeightMatrix.of(file, prefix + "attn_q.weight");
+                wk[l] = WeightMatrix.of(file, prefix + "attn_k.weight");
+                wv[l] = WeightMatrix.of(file, prefix + "attn_v.weight");
+                wo[l] = WeightMatrix.of(file, prefix + "attn_output.weight");
+                ffnNorm[l] = WeightMatrix.of(file, prefix + "ffn_norm.weight").toFloats();
+                ffnGate[l] = WeightMatrix.of(file, prefix + "ffn_gate.weight");
+                ffnUp[l] = WeightMatrix.of(file, prefix + "ffn_up.weight");
+                ffnDown[l] = WeightMatrix.of(file, prefix + "ffn_down.weight");
+            }
+            this.outputNorm = WeightMatrix.of(file, "output_norm.weight").toFloats();
+            // models with tied embeddings have no output weight
+            this.output = file.getTensors().containsKey("output.weight") ? WeightMatrix.of(file, "output.weight")
+                    : tokenEmbedding;
+        } catch (RuntimeException ex) {
+            file.close();
+            throw ex;
+        }
+
+        int nThreads = modelParams.getNThreads() > 0 ? modelParams.getNThreads()
+                : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(nThreads);
+
+        this.inputTokens = new int[nCtx];
+        this.penaltyWindow = new PenaltyWindow(nVocab);
+        this.batchSizer = modelParams.isAdaptiveBatchSize() ? new AdaptiveBatchSizer(modelParams.getBatchSize()) : null;
+        this.keyCache = new float[nLayers][nCtx * kvSize];
+        this.valueCache = new float[nLayers][nCtx * kvSize];
+        this.logits = new float[nVocab];
+        this.embedding = new float[nEmbed];
+        this.sampler = new JavaSampler(nVocab, modelParams.getSeed() >= 0 ? modelParams.getSeed() : System.nanoTime());
+    }
+
+    @Override
+    public int[] tokenize(String text, boolean addBos) {
+        return tokenizer.tokenize(text, addBos);
+    }
+
+    @Override
+    public String detokenize(int[] tokens) {
+        return tokenizer.detokenize(tokens);
+    }
+
+    @Override
+    public void reset(int nPastTokens) {
+        Preconditions.checkState(nPastTokens >= 0, "nPastToken should >= 0");
+        Preconditions.checkState(nPastTokens <= this.contextSize() && nPastTokens <= this.nPastTokens,
+                "nPastToken is too large!");
+
+        // keep the last nPastTokens tokens, moving their keys back to their new positions
+        int shift = this.nPastTokens - nPastTokens;
+        ArrayUtils.shift(this.inputTokens, -shift);
+        if (shift > 0 && nPastTokens > 0) {
+            for (int l = 0; l < nLayers; l++) {
+                System.arraycopy(keyCache[l], shift * kvSize, keyCache[l], 0, nPastTokens * kvSize);
+                System.arraycopy(valueCache[l], shift * kvSize, valueCache[l], 0, nPastTokens * kvSize);
+                for (int pos = 0; pos < nPastTokens; pos++) {
+                    rope(keyCache[l], pos * kvSize, nKvHeads, -shift);
+                }
+            }
+        }
+
+        this.nPastTokens = nPastTokens;
+        this.penaltyWindowValid = false;
+    }
+
+    @Override
+    public void truncate(int nTokens) {
+        Preconditions.checkArgument(nTokens >= 0 && nTokens <= this.nPastTokens,
+                "nTokens should be within [0, %s]", this.nPastTokens);
+        // the KV cache after nTokens is overwritten by the next evaluation
+        this.nPastTokens = nTokens;
+        this.penaltyWindowValid = false;
+    }
+
+    @Override
+    public void evaluate(int[] tokens) {
+        int nTokens = tokens.length;
+        for (int token : tokens) {
+            Preconditions.checkArgument(token >= 0 && token < nVocab, "token %s is out of the vocabulary", token);
+        }
+
+        // batch evaluation
+        for (int i = 0, actualBatchSize; i < nTokens; i += actualBatchSize) {
+            actualBatchSize = nextBatchSize(nTokens - i);
+
+            // Infinite text generation via context swapping, like LlamaModelImpl
+            if (this.nPastTokens + actualBatchSize >= contextSize()) {
+                int nPastTokens = contextSize() - Math.max(actualBatchSize, contextSize() / 2);
+                reset(nPastTokens);
+            }
+
+            int[] batch = ArrayUtils.subarray(tokens, i, i + actualBatchSize);
+            long start = System.nanoTime();
+            forward(batch, this.nPastTokens);
+            if (batchSizer != null) {
+                batchSizer.record(actualBatchSize, System.nanoTime() - start);
+            }
+
+            // save tokens
+            System.arraycopy(batch, 0, this.inputTokens, this.nPastTokens, actualBatchSize);
+            if (this.penaltyWindowValid) {
+                this.penaltyWindow.append(this.inputTokens, this.nPastTokens, this.nPastTokens + actualBatchSize);
+            }
+            this.nPastTokens += actualBatchSize;
+        }
+    }
+
+    /**
+     * @return size of the next prompt batch, either picked adaptively or the configured one
+     */
+    private int nextBatchSize(int nRemaining) {
+        return batchSizer != null ? batchSizer.next(nRemaining) : Math.min(modelParams.getBatchSize(), nRemaining);
+    }
+
+    /**
+     * Run the transformer over a batch of tokens at consecutive positions, filling the KV cache, and the logits and
+     * embedding of the last token
+     */
+    private void forward(int[] batch, int position) {
+        int n = batch.length;
+        float[] x = new float[n * nEmbed];
+        float[] xb = new float[n * nEmbed];
+        float[] q = new float[n * nEmbed];
+        float[] k = new float[n * kvSize];
+        float[] v = new float[n * kvSize];
+        float[] attention = new float[n * nEmbed];
+        float[] out = new float[n * nEmbed];
+        float[] gate = new float[n * ffnSize];
+        float[] up = new float[n * ffnSize];
+
+        for (int t = 0; t < n; t++) {
+            tokenEmbedding.row(batch[t], x, t * nEmbed);
+        }
+
+        for (int l = 0; l < nLayers; l++) {
+            // self-attention
+            for (int t = 0; t < n; t++) {
+                rmsNorm(xb, x, t * nEmbed, attentionNorm[l]);
+            }
+            wq[l].matmul(xb, n, q, pool);
+            wk[l].matmul(xb, n, k, pool);
+            wv[l].matmul(xb, n, v, pool);
+            for (int t = 0; t < n; t++) {
+                rope(q, t * nEmbed, nHeads, position + t);
+                rope(k, t * kvSize, nKvHeads, position + t);
+            }
+            System.arraycopy(k, 0, keyCache[l], position * kvSize, n * kvSize);
+            System.arraycopy(v, 0, valueCache[l], position * kvSize, n * kvSize);
+            attend(l, q, attention, n, position);
+            wo[l].matmul(attention, n, out, pool);
+            add(x, out);
+
+            // feed-forward, SwiGLU
+            for (int t = 0; t < n; t++) {
+                rmsNorm(xb, x, t * nEmbed, ffnNorm[l]);
+            }
+            ffnGate[l].matmul(xb, n, gate, pool);
+            ffnUp[l].matmul(xb, n, up, pool);
+            for (int i = 0; i < gate.length; i++) {
+                gate[i] = gate[i] / (1.0f + (float) Math.exp(-gate[i])) * up[i];
+            }
+            ffnDown[l].matmul(gate, n, out, pool);
+            add(x, out);
+        }
+
+        // only the last token is needed for sampling and embedding
+        float[] last = new float[nEmbed];
+        System.arraycopy(x, (n - 1) * nEmbed, last, 0, nEmbed);
+        rmsNorm(embedding, last, 0, outputNorm);
+        output.matmul(embedding, 1, logits, pool);
+    }
+
+    /**
+     * Causal attention of every head of every token of the batch over the KV cache
+     */
+    private void attend(int layer, float[] q, float[] attention, int n, int position) {
+        float[] keys = keyCache[layer];
+        float[] values = valueCache[layer];
+        int group = nHeads / nKvHeads;
+        float scale = (float) (1.0 / Math.sqrt(headSize));
+        int grain = MIN_ATTENTION_ELEMENTS / Math.max(1, (position + n) * headSize);
+        ForkJoinRange.run(pool, n * nHeads, grain, (from, to) -> {
+            float[] scores = new float[position + n];
+            for (int task = from; task < to; task++) {
+                int t = task / nHeads;
+                int h = task % nHeads;
+                int nKeys = position + t + 1;
+                int qOffset = t * nEmbed + h * headSize;
+                int kvOffset = (h / group) * headSize;
+
+                float max = Float.NEGATIVE_INFINITY;
+                for (int s = 0; s < nKeys; s++) {
+                    float dot = 0;
+                    int kOffset = s * kvSize + kvOffset;
+                    for (int i = 0; i < headSize; i++) {
+                        dot += q[qOffset + i] * keys[kOffset + i];
+                    }
+                    scores[s] = dot * scale;
+                    max = Math.max(max, scores[s]);
+                }
+                float sum = 0;
+                for (int s = 0; s < nKeys; s++) {
+                    scores[s] = (float) Math.exp(scores[s] - max);
+                    sum += scores[s];
+                }
+
+                for (int i = 0; i < headSize; i++) {
+                    attention[qOffset + i] = 0;
+                }
+                for (int s = 0; s < nKeys; s++) {
+                    float weight = scores[s] / sum;
+                    int vOffset = s * kvSize + kvOffset;
+                    for (int i = 0; i < headSize; i++) {
+                        attention[qOffset + i] += weight * values[vOffset + i];
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Rotate consecutive pairs of the first {@code nRot} components of each head, like GGML's RoPE in mode 0
+     */
+    private void rope(float[] vector, int offset, int heads, int position) {
+        double thetaScale = Math.pow(ropeFreqBase, -2.0 / nRot);
+        for (int h = 0; h < heads; h++) {
+            int base = offset + h * headSize;
+            double theta = ropeFreqScale * (double) position;
+            for (int i = 0; i < nRot; i += 2) {
+                float cos = (float) Math.cos(theta);
+                float sin = (float) Math.sin(theta);
+                float x0 = vector[base + i];
+                float x1 = vector[base + i + 1];
+                vector[base + i] = x0 * cos - x1 * sin;
+                vector[base + i + 1] = x0 * sin + x1 * cos;
+                theta *= thetaScale;
+            }
+        }
+    }
+
+    private void rmsNorm(float[] out, float[] x, int offset, float[] weight) {
+        double sum = 0;
+        for (int i = 0; i < nEmbed; i++) {
+            sum += x[offset + i] * x[offset + i];
+        }
+        float scale = (float) (1.0 / Math.sqrt(sum / nEmbed + rmsEpsilon));
+        for (int i = 0; i < nEmbed; i++) {
+            out[offset + i] = x[offset + i] * scale * weight[i];
+        }
+    }
+
+    private static void add(float[] x, float[] delta) {
+        for (int i = 0; i < x.length; i++) {
+            x[i] += delta[i];
+        }
+    }
+
+    @Override
+    public int sample(SamplingParameters samplingParams, PenalizeParameters penalizeParameters) {
+        float[] logits = new float[this.vocabSize()];
+        return sample(samplingParams, penalizeParameters, logits);
+    }
+
+    @Override
+    public SampledToken sample(SamplingParameters samplingParams, PenalizeParameters penalizeParameters, int topLogProbs) {
+        Preconditions.checkArgument(topLogProbs >= 0, "topLogProbs should >= 0");
+        float[] logits = new float[this.vocabSize()];
+        int token = sample(samplingParams, penalizeParameters, logits);
+        return LogProbs.of(logits, token, topLogProbs);
+    }
+
+    @Override
+    public int sample(SamplingParameters samplingParams, PenalizeParameters penalizeParameters, LlamaModel guidance,
+                      float guidanceScale) {
+        Preconditions.checkArgument(guidance instanceof JavaLlamaModel && guidance != this,
+                "guidance should be another JavaLlamaModel");
+        Preconditions.checkArgument(guidance.vocabSize() == vocabSize(), "guidance should be of the same model");
+        float[] logits = new float[this.vocabSize()];
+        return sample(samplingParams, penalizeParameters, logits, (JavaLlamaModel) guidance, guidanceScale);
+    }
+
+    private int sample(SamplingParameters samplingParams, PenalizeParameters penalizeParameters, float[] logits) {
+        return sample(samplingParams, penalizeParameters, logits, null, 1.0f);
+    }
+
+    private int sample(SamplingParameters samplingParams, PenalizeParameters penalizeParameters, float[] logits,
+                       JavaLlamaModel guidance, float guidanceScale) {
+        Preconditions.checkNotNull(penalizeParameters);
+        System.arraycopy(this.logits, 0, logits, 0, nVocab);
+
+        // Apply the logit bias before penalties, so that banned tokens stay at negative infinity
+        samplingParams.compiledLogitBias().apply(logits);
+
+        // Apply the guidance before penalties as well, like llama.cpp does
+        if (guidance != null) {
+            JavaSampler.classifierFreeGuidance(logits, guidance.logits, guidanceScale);
+        }
+
+        // Apply penalties, except to the new line token if it is not penalized
+        float newLineLogit = logits[newLineToken()];
+        int windowSize = penalizeParameters.getRepeatLastTokensCount() < 0 ? contextSize()
+                : Math.min(penalizeParameters.getRepeatLastTokensCount(), contextSize());
+        if (!this.penaltyWindowValid || this.penaltyWindow.windowSize() != windowSize) {
+            this.penaltyWindow.rebuild(this.inputTokens, this.nPastTokens, windowSize);
+            this.penaltyWindowValid = true;
+        }
+        this.penaltyWindow.apply(logits, penalizeParameters.getRepeatPenalty(), penalizeParameters.getAlphaFrequency(),
+                penalizeParameters.getAlphaPresence());
+        if (!penalizeParameters.isPenalizeNewLine()) {
+            logits[newLineToken()] = newLineLogit;
+        }
+
+        return sampler.sample(logits, samplingParams);
+    }
+
+    @Override
+    public void setRandomSeed(int seed) {
+        sampler.setSeed(seed);
+    }
+
+    @Override
+    public String identity() {
+        return ModelIdentity.of("java", modelParams, this.nCtx);
+    }
+
+    @Override
+    public float[] embed(String input) {
+        return embed(tokenize(input, true));
+    }
+
+    @Override
+    public float[] embed(int[] tokens) {
+        if (!this.modelParams.isEmbeddingMode()) {
+            throw new UnsupportedOperationException(
+                    "Llama model must be called with parameter `embeddingMode=True` to call this method!");
+        }
+        reset();
+        evaluate(tokens);
+        return embedding.clone();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The state holds the random number generator, the logits, the embedding and the KV cache of the past tokens.
+     */
+    @Override
+    public byte[] getState() {
+        ByteBuffer state = ByteBuffer.allocate(stateSize(nPastTokens)).order(ByteOrder.LITTLE_ENDIAN);
+        state.putInt(STATE_MAGIC);
+        state.putInt(nPastTokens);
+        state.putLong(sampler.getSeedState());
+        state.asFloatBuffer().put(logits).put(embedding);
+        state.position(state.position() + 4 * (nVocab + nEmbed));
+        for (int l = 0; l < nLayers; l++) {
+            state.asFloatBuffer().put(keyCache[l], 0, nPastTokens * kvSize)
+                    .put(valueCache[l], 0, nPastTokens * kvSize);
+            state.position(state.position() + 8 * nPastTokens * kvSize);
+        }
+        return state.array();
+    }
+
+    @Override
+    public void loadState(byte[] state) {
+        Preconditions.checkNotNull(state);
+        if (state.length > stateSize(nCtx)) {
+            throw new IllegalArgumentException(String
+                    .format("stateSize too large! expected <= %d Bytes, actual = %d Bytes", stateSize(nCtx), state.length));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(state).order(ByteOrder.LITTLE_ENDIAN);
+        Preconditions.checkArgument(state.length >= 16 && buffer.getInt() == STATE_MAGIC,
+                "state is not a state of %s", getClass().getSimpleName());
+        int nTokens = buffer.getInt();
+        Preconditions.checkArgument(nTokens >= 0 && state.length == stateSize(nTokens),
+                "state is truncated or of another model");
+        sampler.setSeedState(buffer.getLong());
+        buffer.asFloatBuffer().get(logits).get(embedding);
+        buffer.position(buffer.position() + 4 * (nVocab + nEmbed));
+        for (int l = 0; l < nLayers; l++) {
+            buffer.asFloatBuffer().get(keyCache[l], 0, nTokens * kvSize).get(valueCache[l], 0, nTokens * kvSize);
+            buffer.position(buffer.position() + 8 * nTokens * kvSize);
+        }
+    }
+
+    @Override
+    public void loadState(byte[] state, int[] inputTokens) {
+        Preconditions.checkNotNull(inputTokens);
+        Preconditions.checkArgument(inputTokens.length < contextSize(),
+                "inputTokens (%s) must be fewer than contextSize (%s)", inputTokens.length, contextSize());
+        loadState(state);
+
+        System.arraycopy(inputTokens, 0, this.inputTokens, 0, inputTokens.length);
+        this.nPastTokens = inputTokens.length;
+        this.penaltyWindowValid = false;
+    }
+
+    private int stateSize(int nTokens) {
+        return 16 + 4 * (nVocab + nEmbed) + nLayers * 8 * nTokens * kvSize;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+        file.close();
+    }
+
+    @Override
+    public int bosToken() {
+        return tokenizer.bosToken();
+    }
+
+    @Override
+    public int eosToken() {
+        return tokenizer.eosToken();
+    }
+
+    @Override
+    public int newLineToken() {
+        return tokenizer.newLineToken();
+    }
+
+    @Override
+    public int embeddingSize() {
+        return nEmbed;
+    }
+
+    @Override
+    public int contextSize() {
+        return nCtx;
+    }
+
+    @Override
+    public int vocabSize() {
+        return nVocab;
+    }
+
+    @Override
+    public int nPastTokens() {
+        return nPastTokens;
+    }
+
+    @Override
+    public int[] inputTokens() {
+        return ArrayUtils.subarray(this.inputTokens, 0, this.nPastTokens);
+    }
+
+    @Override
+    public float[][] inputLogits() {
+        return null;
+    }
+}
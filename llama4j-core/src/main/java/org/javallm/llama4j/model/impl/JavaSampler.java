@@ -0,0 +1,300 @@
+package org.javallm.llama4j.model.impl;
+
+import org.javallm.llama4j.model.params.SamplingParameters;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * The samplers of LLaMA.cpp ({@code llama_sample_*}) over Java arrays, for {@link JavaLlamaModel}
+ * <p>
+ * The random number generator is the 48-bit linear congruential one of {@link java.util.Random}, kept as a plain
+ * {@code long} so that it can be saved with the model state. Not thread-safe.
+ */
+final class JavaSampler {
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long MASK = (1L << 48) - 1;
+    private static final int MIROSTAT_M = 100;
+
+    private final Integer[] order;
+    private final int[] ids;
+    private final float[] logits;
+    private final float[] p;
+    private int size;
+    private long seed;
+
+    JavaSampler(int vocabSize, long seed) {
+        this.order = new Integer[vocabSize];
+        this.ids = new int[vocabSize];
+        this.logits = new float[vocabSize];
+        this.p = new float[vocabSize];
+        setSeed(seed);
+    }
+
+    void setSeed(long seed) {
+        this.seed = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    long getSeedState() {
+        return seed;
+    }
+
+    void setSeedState(long state) {
+        this.seed = state & MASK;
+    }
+
+    /**
+     * Sample a token with the same strategy as {@code LlamaModelImpl}
+     *
+     * @param candidates biased and penalized logits, indexed by token id, which are not modified
+     * @param params     sampling parameters
+     * @return the token
+     */
+    int sample(float[] candidates, SamplingParameters params) {
+        if (params.getTemperature() <= 0) {
+            int best = 0;
+            for (int id = 1; id < candidates.length; id++) {
+                if (candidates[id] > candidates[best]) {
+                    best = id;
+                }
+            }
+            return best;
+        }
+
+        size = candidates.length;
+        for (int id = 0; id < size; id++) {
+            ids[id] = id;
+            logits[id] = candidates[id];
+        }
+        boolean sorted = false;
+        float mu = 2.0f * params.getMiroStatTau();
+        switch (params.getMiroStatStrategy()) {
+            case V1: {
+                temperature(params.getTemperature());
+                softmax(sorted);
+                // estimate the Zipf exponent from the top tokens
+                double sumTiBi = 0;
+                double sumTiSq = 0;
+                for (int i = 0; i < Math.min(MIROSTAT_M, size) - 1; i++) {
+                    double ti = Math.log((i + 2) / (double) (i + 1));
+                    double bi = Math.log(p[i] / p[i + 1]);
+                    sumTiBi += ti * bi;
+                    sumTiSq += ti * ti;
+                }
+                double sHat = sumTiBi / sumTiSq;
+                double epsilonHat = sHat - 1;
+                double k = Math.pow(epsilonHat * Math.pow(2, mu) / (1 - Math.pow(size, -epsilonHat)), 1 / sHat);
+                topK((int) k, true);
+                return sampleDistribution(true);
+            }
+            case V2: {
+                temperature(params.getTemperature());
+                softmax(sorted);
+                int kept = 0;
+                while (kept < size && -log2(p[kept]) <= mu) {
+                    kept++;
+                }
+                size = Math.max(kept, 1);
+                return sampleDistribution(true);
+            }
+            case DISABLE:
+            default:
+                sorted = topK(params.getTopK(), sorted);
+                sorted = tailFree(params.getTsfZ(), sorted);
+                sorted = typical(params.getTypicalP(), sorted);
+                sorted = topP(params.getTopP(), sorted);
+                temperature(params.getTemperature());
+                return sampleDistribution(sorted);
+        }
+    }
+
+    private boolean topK(int k, boolean sorted) {
+        if (k <= 0) {
+            k = size;
+        }
+        k = Math.min(Math.max(k, 1), size);
+        if (!sorted) {
+            sortByLogit();
+        }
+        size = k;
+        return true;
+    }
+
+    private boolean tailFree(float z, boolean sorted) {
+        if (z >= 1.0f || size <= 2) {
+            return sorted;
+        }
+        softmax(sorted);
+        float[] second = new float[size - 2];
+        float sum = 0;
+        for (int i = 0; i < second.length; i++) {
+            float first0 = p[i] - p[i + 1];
+            float first1 = p[i + 1] - p[i + 2];
+            second[i] = Math.abs(first0 - first1);
+            sum += second[i];
+        }
+        int last = size;
+        float cumulative = 0;
+        for (int i = 0; i < second.length; i++) {
+            cumulative += second[i] / sum;
+            if (cumulative > z && i >= 1) {
+                last = i;
+                break;
+            }
+        }
+        size = last;
+        return true;
+    }
+
+    private boolean typical(float typicalP, boolean sorted) {
+        if (typicalP >= 1.0f) {
+            return sorted;
+        }
+        softmax(sorted);
+        float entropy = 0;
+        for (int i = 0; i < size; i++) {
+            entropy += -p[i] * (float) Math.log(p[i]);
+        }
+        float[] shifted = new float[size];
+        for (int i = 0; i < size; i++) {
+            shifted[i] = Math.abs((float) -Math.log(p[i]) - entropy);
+        }
+        Integer[] indices = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            indices[i] = i;
+        }
+        Arrays.sort(indices, Comparator.comparingDouble(i -> shifted[i]));
+
+        int last = size;
+        float cumulative = 0;
+        for (int i = 0; i < size; i++) {
+            cumulative += p[indices[i]];
+            if (cumulative > typicalP) {
+                last = i + 1;
+                break;
+            }
+        }
+        int[] keptIds = new int[last];
+        float[] keptLogits = new float[last];
+        for (int i = 0; i < last; i++) {
+            keptIds[i] = ids[indices[i]];
+            keptLogits[i] = logits[indices[i]];
+        }
+        System.arraycopy(keptIds, 0, ids, 0, last);
+        System.arraycopy(keptLogits, 0, logits, 0, last);
+        size = last;
+        return false;
+    }
+
+    private boolean topP(float topP, boolean sorted) {
+        if (topP >= 1.0f) {
+            return sorted;
+        }
+        softmax(sorted);
+        float cumulative = 0;
+        int last = size;
+        for (int i = 0; i < size; i++) {
+            cumulative += p[i];
+            if (cumulative >= topP) {
+                last = i + 1;
+                break;
+            }
+        }
+        size = last;
+        return true;
+    }
+
+    private void temperature(float temperature) {
+        for (int i = 0; i < size; i++) {
+            logits[i] /= temperature;
+        }
+    }
+
+    /**
+     * Sort the candidates by descending logit unless they are already, then compute their probabilities
+     */
+    private void softmax(boolean sorted) {
+        if (!sorted) {
+            sortByLogit();
+        }
+        float max = logits[0];
+        float sum = 0;
+        for (int i = 0; i < size; i++) {
+            p[i] = (float) Math.exp(logits[i] - max);
+            sum += p[i];
+        }
+        for (int i = 0; i < size; i++) {
+            p[i] /= sum;
+        }
+    }
+
+    private void sortByLogit() {
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, 0, size, (a, b) -> Float.compare(logits[b], logits[a]));
+        int[] sortedIds = new int[size];
+        float[] sortedLogits = new float[size];
+        for (int i = 0; i < size; i++) {
+            sortedIds[i] = ids[order[i]];
+            sortedLogits[i] = logits[order[i]];
+        }
+        System.arraycopy(sortedIds, 0, ids, 0, size);
+        System.arraycopy(sortedLogits, 0, logits, 0, size);
+    }
+
+    private int sampleDistribution(boolean sorted) {
+        softmax(sorted);
+        double target = nextDouble();
+        double cumulative = 0;
+        for (int i = 0; i < size; i++) {
+            cumulative += p[i];
+            if (target < cumulative) {
+                return ids[i];
+            }
+        }
+        return ids[size - 1];
+    }
+
+    private double nextDouble() {
+        return (((long) next(26) << 27) + next(27)) * 0x1.0p-53;
+    }
+
+    private int next(int bits) {
+        seed = (seed * MULTIPLIER + 0xBL) & MASK;
+        return (int) (seed >>> (48 - bits));
+    }
+
+    /**
+     * Classifier-free guidance of {@code llama_sample_classifier_free_guidance}, i.e., replace the logits by
+     * {@code scale * (logSoftmax(logits) - logSoftmax(guidance)) + logSoftmax(guidance)}
+     *
+     * @param logits   logits, replaced in place
+     * @param guidance raw logits of the guidance context, which are not modified
+     * @param scale    strength of the guidance, 1 for none
+     */
+    static void classifierFreeGuidance(float[] logits, float[] guidance, float scale) {
+        float logitsLogSum = logSumExp(logits);
+        float guidanceLogSum = logSumExp(guidance);
+        for (int id = 0; id < logits.length; id++) {
+            float g = guidance[id] - guidanceLogSum;
+            logits[id] = scale * (logits[id] - logitsLogSum - g) + g;
+        }
+    }
+
+    private static float logSumExp(float[] logits) {
+        float max = Float.NEGATIVE_INFINITY;
+        for (float logit : logits) {
+            max = Math.max(max, logit);
+        }
+        float sum = 0;
+        for (float logit : logits) {
+            sum += (float) Math.exp(logit - max);
+        }
+        return max + (float) Math.log(sum);
+    }
+
+    private static float log2(float x) {
+        return (float) (Math.log(x) / Math.log(2));
+    }
+}
@@ -5,7 +5,20 @@ import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.bytedeco.javacpp.BytePointer;
 import org.bytedeco.javacpp.FloatPointer;
+import org.bytedeco.javacpp.Pointer;
+import org.javallm.llama4j.jfr.ContextShiftEvent;
+import org.javallm.llama4j.jfr.DetokenizeEvent;
+import org.javallm.llama4j.jfr.EvaluateEvent;
+import org.javallm.llama4j.jfr.SampleEvent;
+import org.javallm.llama4j.jfr.StateEvent;
+import org.javallm.llama4j.jfr.TokenizeEvent;
+import org.javallm.llama4j.memory.NativeMemoryCategory;
+import org.javallm.llama4j.memory.NativeMemoryTracker;
+import org.javallm.llama4j.memory.NativeMemoryUsage;
+import org.javallm.llama4j.memory.NativeScope;
 import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.SampledToken;
+import org.javallm.llama4j.model.params.MirostatStrategy;
 import org.javallm.llama4j.model.params.ModelParameters;
 import org.javallm.llama4j.model.params.PenalizeParameters;
 import org.javallm.llama4j.model.params.SamplingParameters;
@@ -13,7 +26,7 @@ import org.javallm.llama4j.utils.ValidationUtils;
 import org.javallm.llamacpp.*;
 
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
@@ -28,11 +41,17 @@ public class LlamaModelImpl implements LlamaModel {
     /******************** State ***********************/
     private int nPastTokens = 0;
     private final int[] inputTokens;
+    // token counts of the penalty window, only kept in sync with inputTokens while valid
+    private final PenaltyWindow penaltyWindow;
+    // picks the prompt batch sizes in adaptive mode, null otherwise
+    private final AdaptiveBatchSizer batchSizer;
+    private boolean penaltyWindowValid = false;
 
     /******************** LLaMA.cpp internal ***********************/
-    private final llama_context_params _params;
-    private final llama_context _context;
-    private final llama_model _model;
+    // nulled on close
+    private llama_context_params _params;
+    private llama_context _context;
+    private llama_model _model;
     private final int _n_ctx;
     private final int _n_vocab;
     private final int _n_embed;
@@ -40,6 +59,17 @@ public class LlamaModelImpl implements LlamaModel {
     private final int _token_eos;
     private final int _token_nl;
 
+    /******************** Native memory ***********************/
+    private final NativeMemoryTracker memoryTracker;
+    private final long _weights_bytes;
+    private final long _state_bytes;
+    // scratch buffers, allocated once and reused across calls
+    private llama_token_data _candidates_data;
+    private llama_token_data_array _candidates;
+    private FloatPointer _mirostat_mu;
+    private BytePointer _piece_buffer;
+    private boolean closed = false;
+
     /**
      * Constructor to initialize a Llama model
      *
@@ -51,6 +81,7 @@ public class LlamaModelImpl implements LlamaModel {
         ValidationUtils.validateOrThrow(modelParams);
 
         this.modelParams = modelParams;
+        this.memoryTracker = new NativeMemoryTracker(modelParams.isLeakCheck());
 
         this._params = initLLaMAContextParams(modelParams);
         Preconditions.checkNotNull(this._params);
@@ -76,6 +107,17 @@ public class LlamaModelImpl implements LlamaModel {
 
         applyLoRA();
 
+        // weights are memory-mapped from the model file
+        this._weights_bytes = new File(modelParams.getModelPath()).length();
+        this.memoryTracker.allocate(NativeMemoryCategory.WEIGHTS, this._weights_bytes);
+        this._state_bytes = llama_get_state_size(this._context);
+        this.memoryTracker.allocate(NativeMemoryCategory.KV_CACHE, this._state_bytes);
+
+        this._candidates_data = trackScratch(new llama_token_data(this._n_vocab));
+        this._candidates = trackScratch(new llama_token_data_array());
+        this._mirostat_mu = trackScratch(new FloatPointer(1));
+        this._piece_buffer = trackScratch(new BytePointer(8));
+
         if (modelParams.isVerbose()) {
             try (BytePointer info = llama_print_system_info()) {
                 System.out.println(new String(info.getStringBytes(), StandardCharsets.UTF_8));
@@ -84,6 +126,8 @@ public class LlamaModelImpl implements LlamaModel {
 
         // pre-allocate arrays for storing input tokens and the corresponding logits
         this.inputTokens = new int[contextSize()];
+        this.penaltyWindow = new PenaltyWindow(vocabSize());
+        this.batchSizer = modelParams.isAdaptiveBatchSize() ? new AdaptiveBatchSizer(modelParams.getBatchSize()) : null;
 
         // warming up the model
         warmUp();
@@ -116,29 +160,60 @@ public class LlamaModelImpl implements LlamaModel {
 
     @Override
     public byte[] getState() {
+        StateEvent event = StateEvent.start();
         int stateSize = (int) llama_get_state_size(_context);
         if (stateSize <= 0) {
             return null;
         }
 
-        byte[] state = new byte[stateSize];
-        llama_copy_state_data(_context, state);
+        // llama_get_state_size is an upper bound, only the populated part of the KV cache is actually written
+        byte[] state;
+        try (NativeScope scope = memoryTracker.scope()) {
+            BytePointer buffer = scope.attach(new BytePointer(stateSize));
+            int nWritten = (int) llama_copy_state_data(_context, buffer);
+            Preconditions.checkState(nWritten > 0 && nWritten <= stateSize);
+            state = new byte[nWritten];
+            buffer.get(state);
+        }
+        memoryTracker.checkNoLiveTemporaries();
+        event.finish("SAVE", state.length, this.nPastTokens);
         return state;
     }
 
     @Override
     public void loadState(byte[] state) {
+        StateEvent event = StateEvent.start();
+        loadStateData(state);
+        event.finish("LOAD", state.length, -1);
+    }
+
+    private void loadStateData(byte[] state) {
         Preconditions.checkNotNull(state);
         int stateSize = (int) llama_get_state_size(_context);
-        if (state.length != stateSize) {
+        if (state.length > stateSize) {
             throw new IllegalArgumentException(String
-                    .format("stateSize not match! expected = %d Bytes, actual = %d Bytes", stateSize, state.length));
+                    .format("stateSize too large! expected <= %d Bytes, actual = %d Bytes", stateSize, state.length));
         }
         llama_set_state_data(_context, state);
     }
 
+    @Override
+    public void loadState(byte[] state, int[] inputTokens) {
+        Preconditions.checkNotNull(inputTokens);
+        Preconditions.checkArgument(inputTokens.length < contextSize(),
+                "inputTokens (%s) must be fewer than contextSize (%s)", inputTokens.length, contextSize());
+        StateEvent event = StateEvent.start();
+        loadStateData(state);
+
+        System.arraycopy(inputTokens, 0, this.inputTokens, 0, inputTokens.length);
+        this.nPastTokens = inputTokens.length;
+        this.penaltyWindowValid = false;
+        event.finish("LOAD", state.length, inputTokens.length);
+    }
+
     @Override
     public int[] tokenize(String text, boolean addBos) {
+        TokenizeEvent event = TokenizeEvent.start();
         int offset = addBos ? 1 : 0;
 
         // The String should be encoded into UTF-8 format before tokenization
@@ -146,63 +221,80 @@ public class LlamaModelImpl implements LlamaModel {
         int nBytes = content.length;
         int[] tokens = new int[nBytes + offset + 4];
 
-        BytePointer input = new BytePointer(nBytes);
-        input.put(content);
-
-        int nTokens = llama_tokenize(
-                this._context,
-                input,
-                nBytes,
-                tokens,
-                contextSize(),
-                addBos);
-        if (nTokens < 0) {
-            nTokens = Math.abs(nTokens);
-            tokens = new int[nBytes + offset];
+        int nTokens;
+        try (NativeScope scope = memoryTracker.scope()) {
+            BytePointer input = scope.attach(new BytePointer(nBytes));
+            input.put(content);
+
             nTokens = llama_tokenize(
                     this._context,
                     input,
                     nBytes,
                     tokens,
-                    nTokens,
+                    contextSize(),
                     addBos);
             if (nTokens < 0) {
-                throw new RuntimeException("Error happened during tokenization!");
+                nTokens = Math.abs(nTokens);
+                tokens = new int[nBytes + offset];
+                nTokens = llama_tokenize(
+                        this._context,
+                        input,
+                        nBytes,
+                        tokens,
+                        nTokens,
+                        addBos);
+                if (nTokens < 0) {
+                    throw new RuntimeException("Error happened during tokenization!");
+                }
             }
         }
+        memoryTracker.checkNoLiveTemporaries();
         Preconditions.checkState(nTokens <= tokens.length);
 
+        event.finish(text.length(), nTokens);
         // Only take the first N tokens
         return ArrayUtils.subarray(tokens, 0, nTokens);
     }
 
     @Override
     public String detokenize(int[] tokens) {
+        DetokenizeEvent event = DetokenizeEvent.start();
         ByteArrayOutputStream stream = new ByteArrayOutputStream();
         // We must detokenize all bytes at once, since a word can be represented by more
         // than one byte
+        // The piece buffer is reused across tokens and calls, and only grows when a piece does not fit
         for (int token : tokens) {
-            int bufferSize = 8;
-            BytePointer buffer = new BytePointer(bufferSize);
-            int n = llama_token_to_piece(_context, token, buffer, bufferSize);
+            int n = llama_token_to_piece(_context, token, _piece_buffer, (int) _piece_buffer.capacity());
             if (n < 0) {
-                buffer.close();
-                buffer = new BytePointer(-n);
-                int check = llama_token_to_piece(_context, token, buffer, -n);
+                growPieceBuffer(-n);
+                int check = llama_token_to_piece(_context, token, _piece_buffer, -n);
                 Preconditions.checkState(check == -n);
             }
 
-            byte[] data = Arrays.copyOf(buffer.getStringBytes(), Math.abs(n));
-            try {
-                stream.write(data);
-            } catch (IOException ex) {
-                throw new RuntimeException(String.format("Failed to detokenize: %s", Arrays.toString(tokens)), ex);
-            }
+            byte[] data = new byte[Math.abs(n)];
+            _piece_buffer.position(0).get(data);
+            stream.write(data, 0, data.length);
         }
         byte[] bytes = stream.toByteArray();
+        event.finish(tokens.length, bytes.length);
         return convertToUtf8String(bytes);
     }
 
+    private void growPieceBuffer(int capacity) {
+        releaseScratch(this._piece_buffer);
+        this._piece_buffer = trackScratch(new BytePointer(capacity));
+    }
+
+    private <P extends Pointer> P trackScratch(P pointer) {
+        memoryTracker.allocate(NativeMemoryCategory.SCRATCH, Math.max(pointer.capacity(), 1) * pointer.sizeof());
+        return pointer;
+    }
+
+    private void releaseScratch(Pointer pointer) {
+        memoryTracker.release(NativeMemoryCategory.SCRATCH, Math.max(pointer.capacity(), 1) * pointer.sizeof());
+        pointer.close();
+    }
+
     /**
      * Convert bytes to UTF-8 String. If the byte array contains incomplete code
      * point, discard it
@@ -227,29 +319,58 @@ public class LlamaModelImpl implements LlamaModel {
 
         // update nPastTokens
         this.nPastTokens = nPastTokens;
+        this.penaltyWindowValid = false;
 
         // reset timings
         llama_reset_timings(this._context);
     }
 
+    @Override
+    public void truncate(int nTokens) {
+        Preconditions.checkArgument(nTokens >= 0 && nTokens <= this.nPastTokens,
+                "nTokens should be within [0, %s]", this.nPastTokens);
+        if (nTokens == this.nPastTokens) {
+            return;
+        }
+        this.penaltyWindowValid = false;
+        if (nTokens == 0) {
+            // the next evaluation starts over at n_past = 0, and sets the native KV token count then
+            this.nPastTokens = 0;
+            return;
+        }
+        // the native context only tracks its KV token count through llama_eval, so re-evaluate the last kept token at
+        // n_past = nTokens - 1: getState then writes nTokens cached tokens, and the logits follow the kept prefix
+        this.nPastTokens = nTokens - 1;
+        evaluate(new int[]{this.inputTokens[nTokens - 1]});
+    }
+
     @Override
     public void evaluate(int[] tokens) {
         int nTokens = tokens.length;
 
         // batch evaluation
-        for (int i = 0; i < nTokens; i += modelParams.getBatchSize()) {
-            int actualBatchSize = Math.min(modelParams.getBatchSize(), nTokens - i);
+        for (int i = 0, actualBatchSize; i < nTokens; i += actualBatchSize) {
+            actualBatchSize = nextBatchSize(nTokens - i);
 
             // Infinite text generation via context swapping
             // i.e., when the context window runs out, only retain (approximately) half of
             // the tokens
             if (this.nPastTokens + actualBatchSize >= contextSize()) {
+                ContextShiftEvent shift = ContextShiftEvent.start();
+                int nPastTokensBefore = this.nPastTokens;
                 int nPastTokens = contextSize() - Math.max(actualBatchSize, contextSize() / 2);
                 reset(nPastTokens);
+                shift.finish(nPastTokensBefore, nPastTokens);
             }
 
             int[] batch = ArrayUtils.subarray(tokens, i, i + actualBatchSize);
+            EvaluateEvent event = EvaluateEvent.start();
+            long start = System.nanoTime();
             int returnCode = llama_eval(_context, batch, actualBatchSize, this.nPastTokens, modelParams.getNThreads());
+            if (batchSizer != null) {
+                batchSizer.record(actualBatchSize, System.nanoTime() - start);
+            }
+            event.finish(actualBatchSize, this.nPastTokens, modelParams.getNThreads());
             if (returnCode != 0) {
                 throw new RuntimeException(String.format("Fail to eval tokens: %s", Arrays.toString(tokens)));
             }
@@ -259,68 +380,139 @@ public class LlamaModelImpl implements LlamaModel {
 
             // save tokens
             System.arraycopy(batch, 0, this.inputTokens, this.nPastTokens, actualBatchSize);
+            if (this.penaltyWindowValid) {
+                this.penaltyWindow.append(this.inputTokens, this.nPastTokens, this.nPastTokens + actualBatchSize);
+            }
 
             // update nPastTokens
             this.nPastTokens += actualBatchSize;
         }
     }
 
+    /**
+     * @return size of the next prompt batch, either picked adaptively or the configured one
+     */
+    private int nextBatchSize(int nRemaining) {
+        return batchSizer != null ? batchSizer.next(nRemaining) : Math.min(modelParams.getBatchSize(), nRemaining);
+    }
+
+    @Override
+    public String identity() {
+        // the KV cache type is fixed by llama_context_default_params, hence by the backend
+        return ModelIdentity.of("native", modelParams, this._n_ctx);
+    }
+
+    @Override
+    public void setRandomSeed(int seed) {
+        llama_set_rng_seed(this._context, seed);
+    }
+
     @Override
     public int sample(SamplingParameters samplingParams, PenalizeParameters penalizeParameters) {
         float[] logits = new float[this.vocabSize()];
+        return sample(samplingParams, penalizeParameters, logits);
+    }
+
+    @Override
+    public SampledToken sample(SamplingParameters samplingParams, PenalizeParameters penalizeParameters, int topLogProbs) {
+        Preconditions.checkArgument(topLogProbs >= 0, "topLogProbs should >= 0");
+        float[] logits = new float[this.vocabSize()];
+        int token = sample(samplingParams, penalizeParameters, logits);
+        // the samplers only modify the candidates, logits still hold the biased and penalized values
+        return LogProbs.of(logits, token, topLogProbs);
+    }
+
+    @Override
+    public int sample(SamplingParameters samplingParams, PenalizeParameters penalizeParameters, LlamaModel guidance,
+                      float guidanceScale) {
+        Preconditions.checkArgument(guidance instanceof LlamaModelImpl && guidance != this,
+                "guidance should be another LlamaModelImpl");
+        Preconditions.checkArgument(guidance.vocabSize() == vocabSize(), "guidance should be of the same model");
+        float[] logits = new float[this.vocabSize()];
+        return sample(samplingParams, penalizeParameters, logits, (LlamaModelImpl) guidance, guidanceScale);
+    }
+
+    private int sample(SamplingParameters samplingParams, PenalizeParameters penalizeParameters, float[] logits) {
+        return sample(samplingParams, penalizeParameters, logits, null, 1.0f);
+    }
+
+    private int sample(SamplingParameters samplingParams, PenalizeParameters penalizeParameters, float[] logits,
+                       LlamaModelImpl guidance, float guidanceScale) {
+        SampleEvent event = SampleEvent.start();
+        int token = sampleToken(samplingParams, penalizeParameters, logits, guidance, guidanceScale);
+        event.finish(samplingParams.getTemperature() <= 0 ? "GREEDY"
+                : samplingParams.getMiroStatStrategy() == MirostatStrategy.DISABLE ? "TEMPERATURE"
+                : samplingParams.getMiroStatStrategy().name(), token);
+        return token;
+    }
+
+    private int sampleToken(SamplingParameters samplingParams, PenalizeParameters penalizeParameters, float[] logits,
+                            LlamaModelImpl guidance, float guidanceScale) {
         llama_get_logits(this._context).get(logits);
 
-        // TODO: Apply logit processors
+        // Apply the logit bias before penalties, so that banned tokens stay at negative infinity
+        samplingParams.compiledLogitBias().apply(logits);
 
-        // Apply penalty
-        try (llama_token_data_array candidates = penalize(penalizeParameters, logits)) {
-            // Greedy sampling
-            if (samplingParams.getTemperature() <= 0) {
-                return llama_sample_token_greedy(_context, candidates);
+        // Apply the guidance before penalties as well, like llama.cpp does
+        if (guidance != null) {
+            llama_token_data_array candidates = candidates(logits);
+            llama_sample_classifier_free_guidance(_context, candidates, guidance._context, guidanceScale);
+            for (int tokenId = 0; tokenId < vocabSize(); tokenId++) {
+                logits[tokenId] = _candidates_data.getPointer(tokenId).logit();
             }
+        }
 
-            // Miro State Sample Algorithm
-            float mu = 2.0f * samplingParams.getMiroStatTau();
-            FloatPointer miroStatMu = new FloatPointer(1);
-            miroStatMu.put(mu);
-
-            switch (samplingParams.getMiroStatStrategy()) {
-                // micro state sampling algorithm v1
-                case V1:
-                    int miroStatM = 100;
-                    llama_sample_temperature(_context, candidates, samplingParams.getTemperature());
-                    return llama_sample_token_mirostat(_context, candidates, samplingParams.getMiroStatTau(),
-                            samplingParams.getMiroStatEta(), miroStatM, miroStatMu);
-                // micro state sampling algorithm v2
-                case V2:
-                    llama_sample_temperature(_context, candidates, samplingParams.getTemperature());
-                    return llama_sample_token_mirostat_v2(_context, candidates, samplingParams.getMiroStatTau(),
-                            samplingParams.getMiroStatEta(), miroStatMu);
-                case DISABLE:
-                default:
-                    // Temperature sampling
-                    llama_sample_top_k(_context, candidates, samplingParams.getTopK(), 1);
-                    llama_sample_tail_free(_context, candidates, samplingParams.getTsfZ(), 1);
-                    llama_sample_typical(_context, candidates, samplingParams.getTypicalP(), 1);
-                    llama_sample_top_p(_context, candidates, samplingParams.getTopP(), 1);
-                    llama_sample_temperature(_context, candidates, samplingParams.getTemperature());
-
-                    return llama_sample_token(_context, candidates);
-            }
+        // Apply penalty
+        llama_token_data_array candidates = penalize(penalizeParameters, logits);
+
+        // Greedy sampling
+        if (samplingParams.getTemperature() <= 0) {
+            return llama_sample_token_greedy(_context, candidates);
+        }
+
+        // Miro State Sample Algorithm
+        float mu = 2.0f * samplingParams.getMiroStatTau();
+        FloatPointer miroStatMu = this._mirostat_mu.put(mu);
+
+        switch (samplingParams.getMiroStatStrategy()) {
+            // micro state sampling algorithm v1
+            case V1:
+                int miroStatM = 100;
+                llama_sample_temperature(_context, candidates, samplingParams.getTemperature());
+                return llama_sample_token_mirostat(_context, candidates, samplingParams.getMiroStatTau(),
+                        samplingParams.getMiroStatEta(), miroStatM, miroStatMu);
+            // micro state sampling algorithm v2
+            case V2:
+                llama_sample_temperature(_context, candidates, samplingParams.getTemperature());
+                return llama_sample_token_mirostat_v2(_context, candidates, samplingParams.getMiroStatTau(),
+                        samplingParams.getMiroStatEta(), miroStatMu);
+            case DISABLE:
+            default:
+                // Temperature sampling
+                llama_sample_top_k(_context, candidates, samplingParams.getTopK(), 1);
+                llama_sample_tail_free(_context, candidates, samplingParams.getTsfZ(), 1);
+                llama_sample_typical(_context, candidates, samplingParams.getTypicalP(), 1);
+                llama_sample_top_p(_context, candidates, samplingParams.getTopP(), 1);
+                llama_sample_temperature(_context, candidates, samplingParams.getTemperature());
+
+                return llama_sample_token(_context, candidates);
         }
     }
 
     @Override
     public float[] embed(String input) {
+        return embed(tokenize(input, true));
+    }
+
+    @Override
+    public float[] embed(int[] tokens) {
         if (!this.modelParams.isEmbeddingMode()) {
             throw new UnsupportedOperationException(
                     "Llama model must be called with parameter `embeddingMode=True` to call this method!");
         }
-
         debug(() -> llama_reset_timings(this._context));
 
         float[] embedding = new float[embeddingSize()];
-        int[] tokens = tokenize(input, true);
 
         // reset model state
         reset();
@@ -343,8 +535,31 @@ public class LlamaModelImpl implements LlamaModel {
         Preconditions.checkNotNull(params);
         Preconditions.checkState(logits != null && logits.length == vocabSize());
 
-        // Collect token candidates
-        llama_token_data dataArray = new llama_token_data(vocabSize());
+        // Save the logit for the new line token before applying penalty
+        float newLineLogit = logits[newLineToken()];
+
+        // Apply penalties in place to the tokens within the last `repeatLastTokensCount` tokens only
+        int windowSize = params.getRepeatLastTokensCount() < 0 ? contextSize()
+                : Math.min(params.getRepeatLastTokensCount(), contextSize());
+        if (!this.penaltyWindowValid || this.penaltyWindow.windowSize() != windowSize) {
+            this.penaltyWindow.rebuild(this.inputTokens, this.nPastTokens, windowSize);
+            this.penaltyWindowValid = true;
+        }
+        this.penaltyWindow.apply(logits, params.getRepeatPenalty(), params.getAlphaFrequency(), params.getAlphaPresence());
+
+        // If the new line token is not penalized, restore its logit value
+        if (!params.isPenalizeNewLine()) {
+            logits[newLineToken()] = newLineLogit;
+        }
+
+        return candidates(logits);
+    }
+
+    /**
+     * Collect token candidates into the scratch buffer, since the native samplers sort and truncate it in place
+     */
+    private llama_token_data_array candidates(float[] logits) {
+        llama_token_data dataArray = _candidates_data;
         for (int tokenId = 0; tokenId < vocabSize(); tokenId++) {
             llama_token_data tokenData = dataArray.getPointer(tokenId);
             tokenData.id(tokenId);
@@ -352,59 +567,57 @@ public class LlamaModelImpl implements LlamaModel {
             tokenData.p(.0f);
         }
 
-        llama_token_data_array candidates = new llama_token_data_array();
+        llama_token_data_array candidates = _candidates;
         candidates.data(dataArray);
         candidates.size(vocabSize());
         candidates.sorted(false);
 
-        // Save the logit for the new line token before applying penalty
-        float newLineLogit = logits[newLineToken()];
-
-        // Retain the last `lastNRepeat` tokensToBePenalized only
-        int[] pastTokens = this.inputTokens();
-        int N = pastTokens.length;
-        int lastNRepeat = Math.min(Math.min(N, params.getRepeatLastTokensCount()), modelParams.getContextSize());
-        int[] tokensToBePenalized = ArrayUtils.subarray(pastTokens, N - lastNRepeat, N);
-
-        // Apply penalties
-        llama_sample_repetition_penalty(
-                _context,
-                candidates,
-                tokensToBePenalized,
-                lastNRepeat,
-                params.getRepeatPenalty());
-
-        llama_sample_frequency_and_presence_penalties(
-                _context,
-                candidates,
-                tokensToBePenalized,
-                lastNRepeat,
-                params.getAlphaFrequency(),
-                params.getAlphaPresence());
-
-        // If the new line token is not penalized, restore its logit value
-        if (!params.isPenalizeNewLine()) {
-            candidates.data().getPointer(this.newLineToken()).logit(newLineLogit);
-        }
-
         return candidates;
     }
 
+    @Override
+    public NativeMemoryUsage nativeMemoryUsage() {
+        return memoryTracker.snapshot();
+    }
+
     @Override
     public void close() {
+        // the handles must not be freed twice
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        releaseScratch(this._candidates);
+        releaseScratch(this._candidates_data);
+        releaseScratch(this._mirostat_mu);
+        releaseScratch(this._piece_buffer);
+        this._candidates = null;
+        this._candidates_data = null;
+        this._mirostat_mu = null;
+        this._piece_buffer = null;
+
         if (this._context != null) {
             llama_free(this._context);
             this._context.close();
+            this._context = null;
         }
 
         if (this._model != null) {
             llama_free_model(this._model);
             this._model.close();
+            this._model = null;
         }
 
         if (this._params != null) {
             this._params.close();
+            this._params = null;
         }
+
+        memoryTracker.release(NativeMemoryCategory.KV_CACHE, this._state_bytes);
+        memoryTracker.release(NativeMemoryCategory.WEIGHTS, this._weights_bytes);
+        // after freeing, so that a leak does not keep the context alive too
+        memoryTracker.checkNoLiveTemporaries();
     }
 
     @Override
@@ -0,0 +1,93 @@
+package org.javallm.llama4j.model.impl;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import org.javallm.llama4j.kernels.VectorKernels;
+import org.javallm.llama4j.model.SampledToken;
+import org.javallm.llama4j.model.TokenLogProb;
+
+/**
+ * Log-probabilities from logits, with the top-k tokens picked by a bounded min-heap, i.e., in O(n log k) rather than
+ * by sorting or normalizing the whole vocabulary
+ */
+final class LogProbs {
+    private LogProbs() {
+    }
+
+    /**
+     * @param logits logits indexed by token id
+     * @param token  the sampled token
+     * @param k      number of the most probable tokens to report
+     * @return the sampled token with its log-probability and the top-k ones
+     */
+    static SampledToken of(float[] logits, int token, int k) {
+        Preconditions.checkArgument(k >= 0, "k should >= 0");
+        int n = logits.length;
+        k = Math.min(k, n);
+
+        // the top-k
+        int[] heap = new int[k];
+        int size = 0;
+        for (int id = 0; id < n; id++) {
+            float logit = logits[id];
+            if (size < k) {
+                heap[size] = id;
+                siftUp(heap, size++, logits);
+            } else if (k > 0 && logit > logits[heap[0]]) {
+                heap[0] = id;
+                siftDown(heap, size, logits);
+            }
+        }
+
+        // log-sum-exp, shifted by the maximum for numerical stability
+        float max = VectorKernels.max(logits, n);
+        double sum = VectorKernels.sumExp(logits, n, max);
+        float logNormalizer = (float) (max + Math.log(sum));
+
+        // pop in ascending order, fill from the end
+        TokenLogProb[] top = new TokenLogProb[size];
+        for (int i = size - 1; i >= 0; i--) {
+            int id = heap[0];
+            top[i] = new TokenLogProb(id, logits[id] - logNormalizer);
+            heap[0] = heap[--size];
+            siftDown(heap, size, logits);
+        }
+        return new SampledToken(token, logits[token] - logNormalizer, ImmutableList.copyOf(top));
+    }
+
+    private static void siftUp(int[] heap, int index, float[] logits) {
+        int id = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (logits[heap[parent]] <= logits[id]) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = id;
+    }
+
+    private static void siftDown(int[] heap, int size, float[] logits) {
+        if (size == 0) {
+            return;
+        }
+        int id = heap[0];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && logits[heap[child + 1]] < logits[heap[child]]) {
+                child++;
+            }
+            if (logits[heap[child]] >= logits[id]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = id;
+    }
+}
@@ -0,0 +1,59 @@
+package org.javallm.llama4j.model.impl;
+
+import com.google.common.hash.Hashing;
+import org.apache.commons.lang3.StringUtils;
+import org.javallm.llama4j.model.params.ModelParameters;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Builds {@link org.javallm.llama4j.model.LlamaModel#identity()} from the model files and every parameter affecting
+ * the outputs, i.e., all of them but the ones only affecting speed or logging (threads, seed, verbosity, leak check)
+ */
+final class ModelIdentity {
+    private ModelIdentity() {
+    }
+
+    /**
+     * @param backend the implementation, whose kernels give slightly different outputs
+     * @param params  the model parameters
+     * @param nCtx    the actual context size
+     * @return the model path followed by a digest of the canonical description of the files and parameters
+     */
+    static String of(String backend, ModelParameters params, int nCtx) {
+        File model = new File(params.getModelPath()).getAbsoluteFile();
+        StringBuilder canonical = new StringBuilder()
+                .append("backend=").append(backend)
+                .append("|model=").append(describe(model.getPath()))
+                .append("|lora=").append(describe(params.getLoraPath()))
+                .append("|loraBase=").append(describe(params.getLoraBase()))
+                .append("|ctx=").append(nCtx)
+                .append("|batch=").append(params.getBatchSize())
+                .append("|adaptiveBatch=").append(params.isAdaptiveBatchSize())
+                // Float.toString is canonical, e.g., 1.0 and 1.00f alike
+                .append("|ropeFreqBase=").append(Float.toString(params.getRopeFreqBase()))
+                .append("|ropeFreqScale=").append(Float.toString(params.getRopeFreqScale()))
+                .append("|embedding=").append(params.isEmbeddingMode());
+        // backend specific settings, e.g., n_gpu_layers, in a stable order
+        for (Map.Entry<String, String> entry : new TreeMap<>(params.getExtra()).entrySet()) {
+            canonical.append("|extra.").append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        String digest = Hashing.sha256().hashString(canonical, StandardCharsets.UTF_8).toString();
+        return String.format("%s|%s", model.getPath(), digest);
+    }
+
+    /**
+     * @return the absolute path, size and modification time of a file, or an empty string for none
+     */
+    private static String describe(@Nullable String path) {
+        if (StringUtils.isBlank(path)) {
+            return "";
+        }
+        File file = new File(path).getAbsoluteFile();
+        return String.format("%s:%d:%d", file.getPath(), file.length(), file.lastModified());
+    }
+}
@@ -0,0 +1,123 @@
+package org.javallm.llama4j.model.impl;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Occurrence counts of the tokens within the last {@code windowSize} input tokens, maintained incrementally as tokens
+ * enter and leave the window, so that the repetition, frequency and presence penalties only touch the distinct tokens
+ * in the window instead of rescanning it for every sampled token
+ * <p>
+ * Not thread-safe.
+ */
+final class PenaltyWindow {
+    /**
+     * Occurrences in the window, indexed by token id
+     */
+    private final int[] counts;
+    /**
+     * Sparse set of the token ids with a non-zero count, i.e., distinct[0, nDistinct) ...
+     */
+    private final int[] distinct;
+    /**
+     * ... and the index of each of them in distinct
+     */
+    private final int[] positions;
+    private int nDistinct = 0;
+    private int windowSize = 0;
+
+    PenaltyWindow(int vocabSize) {
+        this.counts = new int[vocabSize];
+        this.distinct = new int[vocabSize];
+        this.positions = new int[vocabSize];
+    }
+
+    int windowSize() {
+        return windowSize;
+    }
+
+    int distinctCount() {
+        return nDistinct;
+    }
+
+    int count(int token) {
+        return counts[token];
+    }
+
+    /**
+     * Recount the window from scratch
+     *
+     * @param history    the input tokens
+     * @param length     number of valid tokens in history
+     * @param windowSize number of the last tokens to count
+     */
+    void rebuild(int[] history, int length, int windowSize) {
+        Preconditions.checkArgument(windowSize >= 0, "windowSize should >= 0");
+        for (int i = 0; i < nDistinct; i++) {
+            counts[distinct[i]] = 0;
+        }
+        nDistinct = 0;
+
+        this.windowSize = windowSize;
+        for (int i = Math.max(0, length - windowSize); i < length; i++) {
+            add(history[i]);
+        }
+    }
+
+    /**
+     * Slide the window over tokens appended to the history
+     *
+     * @param history the input tokens, including the appended ones
+     * @param from    index of the first appended token
+     * @param to      index after the last appended token
+     */
+    void append(int[] history, int from, int to) {
+        if (windowSize == 0) {
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            add(history[i]);
+            int leaving = i - windowSize;
+            if (leaving >= 0) {
+                remove(history[leaving]);
+            }
+        }
+    }
+
+    /**
+     * Apply the penalties in place, with the same semantics as {@code llama_sample_repetition_penalty} followed by
+     * {@code llama_sample_frequency_and_presence_penalties}
+     */
+    void apply(float[] logits, float repeatPenalty, float alphaFrequency, float alphaPresence) {
+        boolean repeat = repeatPenalty != 1.0f;
+        boolean frequencyOrPresence = alphaFrequency != .0f || alphaPresence != .0f;
+        if (!repeat && !frequencyOrPresence) {
+            return;
+        }
+
+        for (int i = 0; i < nDistinct; i++) {
+            int token = distinct[i];
+            float logit = logits[token];
+            if (repeat) {
+                logit = logit <= 0 ? logit * repeatPenalty : logit / repeatPenalty;
+            }
+            logits[token] = logit - (counts[token] * alphaFrequency + alphaPresence);
+        }
+    }
+
+    private void add(int token) {
+        if (counts[token]++ == 0) {
+            positions[token] = nDistinct;
+            distinct[nDistinct++] = token;
+        }
+    }
+
+    private void remove(int token) {
+        if (--counts[token] == 0) {
+            // move the last distinct token into the freed slot
+            int last = distinct[--nDistinct];
+            int position = positions[token];
+            distinct[position] = last;
+            positions[last] = position;
+        }
+    }
+}
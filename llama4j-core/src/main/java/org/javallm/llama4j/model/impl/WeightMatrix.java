@@ -0,0 +1,197 @@
+package org.javallm.llama4j.model.impl;
+
+import com.google.common.base.Preconditions;
+import org.javallm.llama4j.embedding.Embeddings;
+import org.javallm.llama4j.gguf.GGMLType;
+import org.javallm.llama4j.gguf.GGUFFile;
+import org.javallm.llama4j.gguf.GGUFTensorInfo;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A weight tensor memory-mapped from a GGUF file, seen as a matrix of {@code rows} rows of {@code cols} elements
+ * (i.e., GGML's {@code ne1} and {@code ne0}), and dequantized on the fly
+ * <p>
+ * Quantized elements are addressed as one flat sequence of blocks, so rows need not start at block boundaries.
+ */
+abstract class WeightMatrix {
+    // elements per fork-join task, below which splitting costs more than it saves
+    private static final int MIN_TASK_ELEMENTS = 1 << 14;
+
+    protected final ByteBuffer data;
+    protected final int rows;
+    protected final int cols;
+
+    private WeightMatrix(ByteBuffer data, int rows, int cols) {
+        this.data = data;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     * @param file the file
+     * @param name name of a 1-d or 2-d tensor
+     * @return the tensor
+     * @throws UnsupportedOperationException if the tensor type is neither F32, F16 nor Q8_0
+     */
+    static WeightMatrix of(GGUFFile file, String name) {
+        GGUFTensorInfo tensor = file.getTensors().get(name);
+        Preconditions.checkArgument(tensor != null, "%s has no tensor %s", file.getPath(), name);
+        long[] shape = tensor.getShape();
+        Preconditions.checkArgument(shape.length <= 2, "tensor %s should have at most 2 dimensions", name);
+        int cols = (int) shape[0];
+        int rows = shape.length == 2 ? (int) shape[1] : 1;
+        ByteBuffer data = file.map(name);
+        switch (tensor.getType()) {
+            case F32:
+                return new F32(data, rows, cols);
+            case F16:
+                return new F16(data, rows, cols);
+            case Q8_0:
+                return new Q80(data, rows, cols);
+            default:
+                throw new UnsupportedOperationException(String.format("Tensor %s has unsupported type %s", name,
+                        tensor.getType()));
+        }
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    int cols() {
+        return cols;
+    }
+
+    /**
+     * @return dot product of a row with {@code x[offset, offset + cols)}
+     */
+    abstract float dot(int row, float[] x, int offset);
+
+    /**
+     * Dequantize a row into {@code out[offset, offset + cols)}
+     */
+    abstract void row(int row, float[] out, int offset);
+
+    /**
+     * @return the whole tensor dequantized, e.g., a normalization weight
+     */
+    float[] toFloats() {
+        float[] values = new float[rows * cols];
+        for (int r = 0; r < rows; r++) {
+            row(r, values, r * cols);
+        }
+        return values;
+    }
+
+    /**
+     * Multiply the matrix by a batch of vectors, i.e., {@code out[b * rows + r] = row r · x[b * cols, (b + 1) * cols)},
+     * splitting the rows across the pool. Each row is loaded once for the whole batch.
+     *
+     * @param x     the vectors, contiguously
+     * @param batch number of vectors
+     * @param out   the products, contiguously
+     * @param pool  the pool
+     */
+    void matmul(float[] x, int batch, float[] out, ForkJoinPool pool) {
+        ForkJoinRange.run(pool, rows, MIN_TASK_ELEMENTS / Math.max(1, cols * batch), (from, to) -> {
+            for (int r = from; r < to; r++) {
+                for (int b = 0; b < batch; b++) {
+                    out[b * rows + r] = dot(r, x, b * cols);
+                }
+            }
+        });
+    }
+
+    private static final class F32 extends WeightMatrix {
+        private F32(ByteBuffer data, int rows, int cols) {
+            super(data, rows, cols);
+        }
+
+        @Override
+        float dot(int row, float[] x, int offset) {
+            int base = row * cols * 4;
+            float sum = 0;
+            for (int i = 0; i < cols; i++) {
+                sum += data.getFloat(base + 4 * i) * x[offset + i];
+            }
+            return sum;
+        }
+
+        @Override
+        void row(int row, float[] out, int offset) {
+            int base = row * cols * 4;
+            for (int i = 0; i < cols; i++) {
+                out[offset + i] = data.getFloat(base + 4 * i);
+            }
+        }
+    }
+
+    private static final class F16 extends WeightMatrix {
+        private F16(ByteBuffer data, int rows, int cols) {
+            super(data, rows, cols);
+        }
+
+        @Override
+        float dot(int row, float[] x, int offset) {
+            int base = row * cols * 2;
+            float sum = 0;
+            for (int i = 0; i < cols; i++) {
+                sum += Embeddings.fromFp16(data.getShort(base + 2 * i)) * x[offset + i];
+            }
+            return sum;
+        }
+
+        @Override
+        void row(int row, float[] out, int offset) {
+            int base = row * cols * 2;
+            for (int i = 0; i < cols; i++) {
+                out[offset + i] = Embeddings.fromFp16(data.getShort(base + 2 * i));
+            }
+        }
+    }
+
+    /**
+     * Blocks of a half-precision scale followed by 32 signed bytes
+     */
+    private static final class Q80 extends WeightMatrix {
+        private static final int BLOCK_SIZE = GGMLType.Q8_0.getBlockSize();
+        private static final int BLOCK_BYTES = GGMLType.Q8_0.getBlockBytes();
+
+        private Q80(ByteBuffer data, int rows, int cols) {
+            super(data, rows, cols);
+        }
+
+        @Override
+        float dot(int row, float[] x, int offset) {
+            int element = row * cols;
+            int end = element + cols;
+            float sum = 0;
+            while (element < end) {
+                int block = element / BLOCK_SIZE;
+                int first = element % BLOCK_SIZE;
+                int n = Math.min(BLOCK_SIZE - first, end - element);
+                int base = block * BLOCK_BYTES + 2 + first;
+                int xOffset = offset + element - row * cols;
+                float blockDot = 0;
+                for (int i = 0; i < n; i++) {
+                    blockDot += data.get(base + i) * x[xOffset + i];
+                }
+                sum += Embeddings.fromFp16(data.getShort(block * BLOCK_BYTES)) * blockDot;
+                element += n;
+            }
+            return sum;
+        }
+
+        @Override
+        void row(int row, float[] out, int offset) {
+            int first = row * cols;
+            for (int i = 0; i < cols; i++) {
+                int block = (first + i) / BLOCK_SIZE;
+                int base = block * BLOCK_BYTES;
+                out[offset + i] = Embeddings.fromFp16(data.getShort(base)) * data.get(base + 2 + (first + i) % BLOCK_SIZE);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.javallm.llama4j.model.params;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Map;
+
+/**
+ * A sparse logit bias compiled into primitive arrays, so that applying it costs O(number of biased tokens)
+ */
+public final class LogitBias {
+    static final LogitBias EMPTY = new LogitBias(new int[0], new float[0]);
+
+    private final int[] tokens;
+    private final float[] biases;
+
+    private LogitBias(int[] tokens, float[] biases) {
+        this.tokens = tokens;
+        this.biases = biases;
+    }
+
+    /**
+     * @param bias token id to additive bias, {@link Float#NEGATIVE_INFINITY} bans the token
+     * @return the compiled bias
+     */
+    public static LogitBias compile(Map<Integer, Float> bias) {
+        if (bias == null || bias.isEmpty()) {
+            return EMPTY;
+        }
+        int[] tokens = new int[bias.size()];
+        float[] biases = new float[bias.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Float> entry : bias.entrySet()) {
+            Preconditions.checkArgument(entry.getKey() != null && entry.getKey() >= 0, "token id should >= 0");
+            Preconditions.checkArgument(entry.getValue() != null && !entry.getValue().isNaN(), "bias should not be NaN");
+            tokens[i] = entry.getKey();
+            biases[i] = entry.getValue();
+            i++;
+        }
+        return new LogitBias(tokens, biases);
+    }
+
+    public boolean isEmpty() {
+        return tokens.length == 0;
+    }
+
+    /**
+     * Add the biases to the logits in place
+     *
+     * @param logits logits indexed by token id
+     * @throws IllegalArgumentException if a biased token is out of the vocabulary
+     */
+    public void apply(float[] logits) {
+        for (int i = 0; i < tokens.length; i++) {
+            int token = tokens[i];
+            Preconditions.checkArgument(token < logits.length, "token %s is out of the vocabulary", token);
+            logits[token] += biases[i];
+        }
+    }
+}
@@ -28,6 +28,12 @@ public final class ModelParameters {
     @Min(value = 0, message = "batchSize for prompt processing must larger than 0")
     private int batchSize = 64;
 
+    /**
+     * Whether prompts are split into batches of a size picked by measuring the evaluation throughput on this machine,
+     * up to batchSize, which is then the native n_batch limit (default: false, always batches of batchSize)
+     */
+    private boolean adaptiveBatchSize = false;
+
     /**
      * The random seed
      */
@@ -71,8 +77,35 @@ public final class ModelParameters {
      */
     private boolean embeddingMode = false;
 
+    /**
+     * Leak-check mode: fail fast when a temporary native buffer outlives the call that allocated it, see
+     * {@link org.javallm.llama4j.memory.NativeMemoryTracker} for what is covered
+     */
+    private boolean leakCheck = false;
+
     private Map<String, String> extra = new HashMap<>();
 
+    /**
+     * @return a copy of these parameters, unaffected by later changes to this instance
+     */
+    public ModelParameters copy() {
+        return new ModelParameters()
+                .setVerbose(verbose)
+                .setContextSize(contextSize)
+                .setBatchSize(batchSize)
+                .setAdaptiveBatchSize(adaptiveBatchSize)
+                .setSeed(seed)
+                .setModelPath(modelPath)
+                .setNThreads(nThreads)
+                .setRopeFreqBase(ropeFreqBase)
+                .setRopeFreqScale(ropeFreqScale)
+                .setLoraPath(loraPath)
+                .setLoraBase(loraBase)
+                .setEmbeddingMode(embeddingMode)
+                .setLeakCheck(leakCheck)
+                .setExtra(new HashMap<>(extra));
+    }
+
     @AssertTrue(message = "modelPath cannot be resolved, please check")
     public boolean isModelPathValid() {
         File f = new File(this.modelPath);
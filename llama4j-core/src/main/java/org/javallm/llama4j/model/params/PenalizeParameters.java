@@ -25,4 +25,15 @@ public final class PenalizeParameters {
 
     private float alphaPresence = .0f;
 
+    /**
+     * @return a copy of these parameters, unaffected by later changes to this instance
+     */
+    public PenalizeParameters copy() {
+        return new PenalizeParameters()
+                .setRepeatPenalty(repeatPenalty)
+                .setRepeatLastTokensCount(repeatLastTokensCount)
+                .setPenalizeNewLine(penalizeNewLine)
+                .setAlphaFrequency(alphaFrequency)
+                .setAlphaPresence(alphaPresence);
+    }
 }
@@ -2,9 +2,15 @@ package org.javallm.llama4j.model.params;
 
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
+import lombok.ToString;
 import lombok.experimental.Accessors;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 @Accessors(chain = true)
 @Data
 public final class SamplingParameters {
@@ -68,4 +74,75 @@ public final class SamplingParameters {
      * Note: The target entropy represents the desired perplexity value for the generated text. Adjusting the target entropy allows you to control the balance between coherence and diversity in the generated text. A lower value will result in more focused and coherent text, while a higher value will lead to more diverse and potentially less coherent text. The default value is 5.0.
      */
     private float miroStatTau = 5.0f;
+
+    // -------------------- Logit Bias --------------------
+    /**
+     * Additive bias on the logits of specific tokens before penalties and sampling, by token id (default: empty).
+     * <p>
+     * Note: A positive bias favours a token (e.g., the label tokens of a classification prompt), a negative one
+     * suppresses it, and {@link Float#NEGATIVE_INFINITY} bans it completely (e.g., special tokens). Only the biased
+     * tokens are touched, so the cost is proportional to the size of this map rather than to the vocabulary.
+     */
+    private Map<Integer, Float> logitBias = new HashMap<>();
+
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient LogitBias compiledLogitBias;
+
+    /**
+     * @return a read-only view of the bias, which is changed through the setter or {@link #banTokens(int...)} so that
+     * {@link #compiledLogitBias()} stays in sync
+     */
+    public Map<Integer, Float> getLogitBias() {
+        return Collections.unmodifiableMap(this.logitBias);
+    }
+
+    public SamplingParameters setLogitBias(Map<Integer, Float> logitBias) {
+        this.logitBias = logitBias != null ? new HashMap<>(logitBias) : new HashMap<>();
+        this.compiledLogitBias = null;
+        return this;
+    }
+
+    /**
+     * Ban tokens, i.e., set their logit bias to negative infinity
+     *
+     * @param tokens ids of the tokens to ban
+     * @return this
+     */
+    public SamplingParameters banTokens(int... tokens) {
+        for (int token : tokens) {
+            this.logitBias.put(token, Float.NEGATIVE_INFINITY);
+        }
+        this.compiledLogitBias = null;
+        return this;
+    }
+
+    /**
+     * @return a copy of these parameters, unaffected by later changes to this instance
+     */
+    public SamplingParameters copy() {
+        return new SamplingParameters()
+                .setTemperature(temperature)
+                .setTopK(topK)
+                .setTopP(topP)
+                .setTsfZ(tsfZ)
+                .setTypicalP(typicalP)
+                .setMiroStatStrategy(miroStatStrategy)
+                .setMiroStatEta(miroStatEta)
+                .setMiroStatTau(miroStatTau)
+                .setLogitBias(logitBias);
+    }
+
+    /**
+     * @return {@link #logitBias} compiled into primitive arrays, cached until the bias is replaced via the setter
+     * or {@link #banTokens(int...)}
+     */
+    public LogitBias compiledLogitBias() {
+        LogitBias compiled = this.compiledLogitBias;
+        if (compiled == null) {
+            compiled = LogitBias.compile(this.logitBias);
+            this.compiledLogitBias = compiled;
+        }
+        return compiled;
+    }
 }
@@ -0,0 +1,121 @@
+package org.javallm.llama4j.quantize;
+
+import com.google.common.base.Preconditions;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.impl.LlamaModelImpl;
+import org.javallm.llama4j.model.params.ModelParameters;
+import org.javallm.llama4j.utils.ValidationUtils;
+import org.javallm.llamacpp.llama_model_quantize_params;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+import static org.javallm.llamacpp.global.llama.*;
+
+/**
+ * Quantize GGUF models (e.g., f32/f16 -> q4_0/q8_0) with {@code llama_model_quantize}
+ */
+public final class ModelQuantizer {
+    /**
+     * "GGUF" in little endian
+     */
+    private static final int GGUF_MAGIC = 0x46554747;
+
+    private ModelQuantizer() {
+    }
+
+    public static QuantizationResult quantize(QuantizationParameters params) {
+        return quantize(params, stage -> {
+        });
+    }
+
+    /**
+     * Quantize a model
+     *
+     * @param params   quantization parameters
+     * @param callback invoked each time the quantization enters a new {@link QuantizationStage}
+     * @return summary of the quantization
+     * @throws IllegalArgumentException when the passed arguments are invalid
+     * @throws RuntimeException         when the native quantization fails or the output model is not usable
+     */
+    public static QuantizationResult quantize(QuantizationParameters params, Consumer<QuantizationStage> callback) {
+        Preconditions.checkNotNull(params);
+        Preconditions.checkNotNull(callback);
+
+        callback.accept(QuantizationStage.VALIDATING_INPUT);
+        ValidationUtils.validateOrThrow(params);
+        if (!isGGUF(params.getInputPath())) {
+            throw new IllegalArgumentException(
+                    String.format("inputPath is not a GGUF model: %s", params.getInputPath()));
+        }
+
+        File input = new File(params.getInputPath());
+        File output = new File(params.getOutputPath());
+        long start = System.currentTimeMillis();
+
+        callback.accept(QuantizationStage.QUANTIZING);
+        try (llama_model_quantize_params quantizeParams = llama_model_quantize_default_params()) {
+            quantizeParams.nthread(params.getNThreads());
+            quantizeParams.ftype(params.getType().getFtype());
+            quantizeParams.allow_requantize(params.isAllowRequantize());
+            quantizeParams.quantize_output_tensor(params.isQuantizeOutputTensor());
+
+            int returnCode = llama_model_quantize(input.getAbsolutePath(), output.getAbsolutePath(), quantizeParams);
+            if (returnCode != 0) {
+                deleteQuietly(output);
+                throw new RuntimeException(String.format("Failed to quantize %s to %s with type=%s",
+                        params.getInputPath(), params.getOutputPath(), params.getType()));
+            }
+        }
+
+        if (params.isValidateOutput()) {
+            callback.accept(QuantizationStage.VALIDATING_OUTPUT);
+            validateOutput(output);
+        }
+
+        QuantizationResult result = new QuantizationResult(output.getAbsolutePath(), params.getType(),
+                input.length(), output.length(), System.currentTimeMillis() - start);
+        callback.accept(QuantizationStage.DONE);
+        return result;
+    }
+
+    /**
+     * Make sure that the quantized model is a GGUF file that can be loaded and evaluated
+     */
+    private static void validateOutput(File output) {
+        if (!isGGUF(output.getAbsolutePath())) {
+            deleteQuietly(output);
+            throw new RuntimeException(String.format("Quantized model is not a valid GGUF file: %s", output));
+        }
+
+        // The constructor warms the model up with a <BOS><EOS> evaluation
+        ModelParameters modelParams = new ModelParameters()
+                .setModelPath(output.getAbsolutePath())
+                .setContextSize(64)
+                .setBatchSize(8)
+                .setNThreads(1);
+        try (LlamaModel model = new LlamaModelImpl(modelParams)) {
+            Preconditions.checkState(model.vocabSize() > 0 && model.embeddingSize() > 0);
+        } catch (Exception ex) {
+            deleteQuietly(output);
+            throw new RuntimeException(String.format("Quantized model cannot be loaded: %s", output), ex);
+        }
+    }
+
+    private static boolean isGGUF(String path) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(path))) {
+            return Integer.reverseBytes(in.readInt()) == GGUF_MAGIC;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file.exists() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.javallm.llama4j.quantize;
+
+import java.util.Arrays;
+
+/**
+ * Command line entry of {@link ModelQuantizer}
+ * <p>
+ * Usage: {@code ModelQuantizerCli <input.gguf> <output.gguf> <type> [nThreads]}, e.g.,
+ * {@code ModelQuantizerCli model-f32.gguf model-q8_0.gguf q8_0 8}
+ */
+public final class ModelQuantizerCli {
+    private ModelQuantizerCli() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3 || args.length > 4) {
+            System.err.println("Usage: ModelQuantizerCli <input.gguf> <output.gguf> <type> [nThreads]");
+            System.err.printf("Supported types: %s%n", Arrays.toString(QuantizationType.values()));
+            System.exit(1);
+        }
+
+        QuantizationParameters params = new QuantizationParameters()
+                .setInputPath(args[0])
+                .setOutputPath(args[1])
+                .setType(QuantizationType.of(args[2]))
+                .setNThreads(args.length == 4 ? Integer.parseInt(args[3]) : 0);
+
+        QuantizationResult result = ModelQuantizer.quantize(params, stage -> System.out.printf("[%s]%n", stage));
+        System.out.printf("Quantized %s -> %s (%s): %d Bytes -> %d Bytes (%.2f), took %d ms%n",
+                args[0], result.getOutputPath(), result.getType(), result.getInputBytes(), result.getOutputBytes(),
+                result.compressionRatio(), result.getElapsedMillis());
+    }
+}
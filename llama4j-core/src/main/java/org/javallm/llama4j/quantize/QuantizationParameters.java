@@ -0,0 +1,74 @@
+package org.javallm.llama4j.quantize;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.File;
+
+@Accessors(chain = true)
+@Data
+public final class QuantizationParameters {
+    /**
+     * The path to the model to be quantized
+     */
+    @NotBlank(message = "inputPath must be provided")
+    private String inputPath;
+
+    /**
+     * The path to write the quantized model to
+     */
+    @NotBlank(message = "outputPath must be provided")
+    private String outputPath;
+
+    /**
+     * The target quantization type (default: Q8_0)
+     */
+    @NotNull(message = "type must be provided")
+    private QuantizationType type = QuantizationType.Q8_0;
+
+    /**
+     * Number of threads used for quantization, set to 0 to use all available cores
+     */
+    @Min(value = 0, message = "nThreads must not be negative")
+    private int nThreads = 0;
+
+    /**
+     * Whether non-f32/f16 tensors may be re-quantized
+     */
+    private boolean allowRequantize = false;
+
+    /**
+     * Whether the output tensor (output.weight) should be quantized as well
+     */
+    private boolean quantizeOutputTensor = true;
+
+    /**
+     * Whether the quantized model should be loaded after quantization to make sure that it is usable
+     */
+    private boolean validateOutput = true;
+
+    /**
+     * Whether an existing file at outputPath may be overwritten
+     */
+    private boolean overwrite = false;
+
+    @AssertTrue(message = "inputPath cannot be resolved, please check")
+    public boolean isInputPathValid() {
+        return this.inputPath != null && new File(this.inputPath).isFile();
+    }
+
+    @AssertTrue(message = "outputPath already exists and overwrite is disabled")
+    public boolean isOutputPathWritable() {
+        return this.outputPath == null || this.overwrite || !new File(this.outputPath).exists();
+    }
+
+    @AssertTrue(message = "inputPath and outputPath must be different")
+    public boolean isOutputPathDifferent() {
+        return this.inputPath == null || this.outputPath == null
+                || !new File(this.inputPath).getAbsoluteFile().equals(new File(this.outputPath).getAbsoluteFile());
+    }
+}
@@ -0,0 +1,26 @@
+package org.javallm.llama4j.quantize;
+
+import lombok.Value;
+
+/**
+ * Summary of a finished quantization
+ */
+@Value
+public class QuantizationResult {
+    String outputPath;
+
+    QuantizationType type;
+
+    long inputBytes;
+
+    long outputBytes;
+
+    long elapsedMillis;
+
+    /**
+     * @return the size of the quantized model relative to the input model
+     */
+    public double compressionRatio() {
+        return inputBytes == 0 ? 0 : (double) outputBytes / inputBytes;
+    }
+}
@@ -0,0 +1,23 @@
+package org.javallm.llama4j.quantize;
+
+/**
+ * Stages reported to the progress callback of {@link ModelQuantizer}
+ */
+public enum QuantizationStage {
+    /**
+     * The quantization parameters and the input model are being checked
+     */
+    VALIDATING_INPUT,
+    /**
+     * The native quantization is running
+     */
+    QUANTIZING,
+    /**
+     * The quantized model is being loaded to make sure that it is usable
+     */
+    VALIDATING_OUTPUT,
+    /**
+     * Everything is done
+     */
+    DONE
+}
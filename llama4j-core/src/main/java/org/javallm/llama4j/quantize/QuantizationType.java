@@ -0,0 +1,57 @@
+package org.javallm.llama4j.quantize;
+
+import static org.javallm.llamacpp.global.llama.*;
+
+/**
+ * Target weight formats supported by {@code llama_model_quantize}, i.e., the {@code llama_ftype} values
+ */
+public enum QuantizationType {
+    F32(LLAMA_FTYPE_ALL_F32),
+    F16(LLAMA_FTYPE_MOSTLY_F16),
+    Q4_0(LLAMA_FTYPE_MOSTLY_Q4_0),
+    Q4_1(LLAMA_FTYPE_MOSTLY_Q4_1),
+    Q5_0(LLAMA_FTYPE_MOSTLY_Q5_0),
+    Q5_1(LLAMA_FTYPE_MOSTLY_Q5_1),
+    Q8_0(LLAMA_FTYPE_MOSTLY_Q8_0),
+    /**
+     * The k-quants below require the tensor rows to be a multiple of 256
+     */
+    Q2_K(LLAMA_FTYPE_MOSTLY_Q2_K),
+    Q3_K_S(LLAMA_FTYPE_MOSTLY_Q3_K_S),
+    Q3_K_M(LLAMA_FTYPE_MOSTLY_Q3_K_M),
+    Q3_K_L(LLAMA_FTYPE_MOSTLY_Q3_K_L),
+    Q4_K_S(LLAMA_FTYPE_MOSTLY_Q4_K_S),
+    Q4_K_M(LLAMA_FTYPE_MOSTLY_Q4_K_M),
+    Q5_K_S(LLAMA_FTYPE_MOSTLY_Q5_K_S),
+    Q5_K_M(LLAMA_FTYPE_MOSTLY_Q5_K_M),
+    Q6_K(LLAMA_FTYPE_MOSTLY_Q6_K);
+
+    private final int ftype;
+
+    QuantizationType(int ftype) {
+        this.ftype = ftype;
+    }
+
+    /**
+     * @return the native {@code llama_ftype} value
+     */
+    public int getFtype() {
+        return ftype;
+    }
+
+    /**
+     * Resolve a quantization type by its name, case-insensitive (e.g., "q8_0")
+     *
+     * @param name name of the quantization type
+     * @return the quantization type
+     * @throws IllegalArgumentException if no such type exists
+     */
+    public static QuantizationType of(String name) {
+        for (QuantizationType type : values()) {
+            if (type.name().equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown quantization type: %s", name));
+    }
+}
@@ -0,0 +1,23 @@
+package org.javallm.llama4j.scheduler;
+
+/**
+ * Why a generation ended
+ */
+public enum FinishReason {
+    /**
+     * The model produced the <EOS> token
+     */
+    STOP,
+    /**
+     * maxTokens tokens were generated
+     */
+    LENGTH,
+    /**
+     * The deadline of the request passed
+     */
+    DEADLINE,
+    /**
+     * The callback asked to stop, or the future was cancelled
+     */
+    CANCELLED
+}
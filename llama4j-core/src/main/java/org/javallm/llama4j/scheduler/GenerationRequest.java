@@ -0,0 +1,52 @@
+package org.javallm.llama4j.scheduler;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.javallm.llama4j.model.params.PenalizeParameters;
+import org.javallm.llama4j.model.params.SamplingParameters;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+@Accessors(chain = true)
+@Data
+public final class GenerationRequest {
+    private String prompt;
+
+    private SamplingParameters samplingParams = new SamplingParameters();
+
+    private PenalizeParameters penalizeParams = new PenalizeParameters();
+
+    /**
+     * Maximum number of tokens to generate (default: 256)
+     */
+    private int maxTokens = 256;
+
+    /**
+     * Larger value means more urgent, e.g., interactive traffic over batch traffic (default: 0)
+     */
+    private int priority = 0;
+
+    /**
+     * The deadline in terms of {@link System#nanoTime()}, requests of the same priority are served earliest deadline
+     * first (default: no deadline)
+     */
+    private long deadlineNanos = Long.MAX_VALUE;
+
+    /**
+     * Receives each decoded piece, returns false to stop the generation
+     */
+    private Predicate<String> callback = piece -> true;
+
+    /**
+     * Set the deadline relative to now
+     *
+     * @param timeout timeout
+     * @param unit    unit of the timeout
+     * @return this
+     */
+    public GenerationRequest setTimeout(long timeout, TimeUnit unit) {
+        this.deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+        return this;
+    }
+}
@@ -0,0 +1,22 @@
+package org.javallm.llama4j.scheduler;
+
+import lombok.Value;
+
+@Value
+public class GenerationResult {
+    String text;
+
+    int nTokens;
+
+    FinishReason finishReason;
+
+    /**
+     * Total time spent in the queue, including the waits after being preempted
+     */
+    long queueWaitNanos;
+
+    /**
+     * How many times the generation was parked in favour of a more urgent one
+     */
+    int preemptions;
+}
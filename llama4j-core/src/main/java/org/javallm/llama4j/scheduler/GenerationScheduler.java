@@ -0,0 +1,250 @@
+package org.javallm.llama4j.scheduler;
+
+import com.google.common.base.Preconditions;
+import org.apache.commons.lang3.StringUtils;
+import org.javallm.llama4j.model.LlamaModel;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schedules generations over a fixed set of model contexts by priority, then by earliest deadline
+ * <p>
+ * Each context is driven by a worker thread which runs one generation at a time. At every token boundary, a running
+ * generation is preempted as soon as a request of higher priority is waiting, and after {@code timeSliceTokens}
+ * tokens it yields to a waiting request of the same priority with an earlier (or equal) deadline. A preempted
+ * generation is parked with {@link LlamaModel#getState()} and later resumed with
+ * {@link LlamaModel#loadState(byte[], int[])} on whichever context becomes free, without re-evaluating its prompt.
+ * <p>
+ * All models must be contexts of the same model file with the same parameters, since parked states move among them.
+ */
+public class GenerationScheduler implements AutoCloseable {
+    private static final Comparator<Task> ORDER = Comparator
+            .comparingInt((Task task) -> -task.request.getPriority())
+            .thenComparingLong(task -> task.request.getDeadlineNanos())
+            .thenComparingLong(task -> task.sequence);
+
+    private final int timeSliceTokens;
+    private final PriorityBlockingQueue<Task> queue = new PriorityBlockingQueue<>(16, ORDER);
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong totalQueueWaitNanos = new AtomicLong();
+    private final AtomicLong nCompleted = new AtomicLong();
+    private volatile boolean closed = false;
+
+    /**
+     * @param models          model contexts to schedule over, owned by the caller
+     * @param timeSliceTokens number of tokens a generation may run before yielding to a peer of the same priority
+     */
+    public GenerationScheduler(List<? extends LlamaModel> models, int timeSliceTokens) {
+        Preconditions.checkArgument(!models.isEmpty(), "models should not be empty");
+        Preconditions.checkArgument(timeSliceTokens > 0, "timeSliceTokens should > 0");
+        for (LlamaModel model : models) {
+            Preconditions.checkArgument(model.contextSize() == models.get(0).contextSize()
+                    && model.vocabSize() == models.get(0).vocabSize(), "models must share the same shape");
+        }
+
+        this.timeSliceTokens = timeSliceTokens;
+        for (int i = 0; i < models.size(); i++) {
+            LlamaModel model = models.get(i);
+            Thread worker = new Thread(() -> work(model), "llama4j-scheduler-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Submit a generation
+     *
+     * @param request the request
+     * @return the future of the result, which completes exceptionally with {@link TimeoutException} if the deadline
+     * passes before the generation starts. Cancelling the future stops the generation at the next token.
+     */
+    public CompletableFuture<GenerationResult> submit(GenerationRequest request) {
+        Preconditions.checkNotNull(request);
+        Preconditions.checkArgument(StringUtils.isNotEmpty(request.getPrompt()), "prompt must be provided");
+        Preconditions.checkArgument(request.getMaxTokens() > 0, "maxTokens should > 0");
+        Preconditions.checkState(!closed, "scheduler is closed");
+
+        Task task = new Task(request);
+        enqueue(task);
+        return task.future;
+    }
+
+    /**
+     * @return number of requests waiting for a context, including parked ones
+     */
+    public int queueLength() {
+        return queue.size();
+    }
+
+    /**
+     * @return mean queue wait time of the completed requests, in nanoseconds
+     */
+    public long meanQueueWaitNanos() {
+        long n = nCompleted.get();
+        return n == 0 ? 0 : totalQueueWaitNanos.get() / n;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Task task;
+        while ((task = queue.poll()) != null) {
+            task.future.completeExceptionally(new CancellationException("scheduler is closed"));
+        }
+    }
+
+    private void enqueue(Task task) {
+        task.sequence = sequence.incrementAndGet();
+        task.enqueuedAt = System.nanoTime();
+        queue.add(task);
+    }
+
+    private void work(LlamaModel model) {
+        while (!closed) {
+            Task task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException ex) {
+                break;
+            }
+
+            long now = System.nanoTime();
+            task.queueWaitNanos += now - task.enqueuedAt;
+            if (task.future.isDone()) {
+                continue;
+            }
+            if (now >= task.request.getDeadlineNanos() && !task.started) {
+                task.future.completeExceptionally(new TimeoutException("Deadline exceeded while waiting for a model context"));
+                continue;
+            }
+
+            try {
+                run(model, task);
+            } catch (Exception ex) {
+                model.reset();
+                task.future.completeExceptionally(ex);
+            }
+        }
+    }
+
+    /**
+     * Run a task until it finishes or is preempted
+     */
+    private void run(LlamaModel model, Task task) {
+        GenerationRequest request = task.request;
+        if (task.started) {
+            model.loadState(task.parkedState, task.parkedTokens);
+            task.parkedState = null;
+            task.parkedTokens = null;
+        } else {
+            model.reset();
+            model.evaluate(model.tokenize(request.getPrompt(), true));
+            task.started = true;
+        }
+
+        int nSliceTokens = 0;
+        while (true) {
+            FinishReason reason = closed ? FinishReason.CANCELLED : task.checkFinished();
+            if (reason != null) {
+                finish(model, task, reason);
+                return;
+            }
+
+            int id = model.sample(request.getSamplingParams(), request.getPenalizeParams());
+            if (id == model.eosToken()) {
+                finish(model, task, FinishReason.STOP);
+                return;
+            }
+            task.nTokens++;
+            task.pending.add(id);
+            String piece = model.detokenize(task.pending.stream().mapToInt(i -> i).toArray());
+            if (StringUtils.isNotBlank(piece)) {
+                task.pending.clear();
+                task.text.append(piece);
+                if (!request.getCallback().test(piece)) {
+                    finish(model, task, FinishReason.CANCELLED);
+                    return;
+                }
+            }
+            model.evaluate(new int[]{id});
+            nSliceTokens++;
+
+            Task head = queue.peek();
+            if (head != null && task.nTokens < request.getMaxTokens() && shouldYield(task, head, nSliceTokens)) {
+                // park the generation, the logits of the last evaluated token are part of the state
+                task.parkedState = model.getState();
+                task.parkedTokens = model.inputTokens();
+                task.preemptions++;
+                model.reset();
+                enqueue(task);
+                return;
+            }
+        }
+    }
+
+    private boolean shouldYield(Task running, Task waiting, int nSliceTokens) {
+        int runningPriority = running.request.getPriority();
+        int waitingPriority = waiting.request.getPriority();
+        if (waitingPriority != runningPriority) {
+            return waitingPriority > runningPriority;
+        }
+        return nSliceTokens >= timeSliceTokens
+                && waiting.request.getDeadlineNanos() <= running.request.getDeadlineNanos();
+    }
+
+    private void finish(LlamaModel model, Task task, FinishReason reason) {
+        model.reset();
+        totalQueueWaitNanos.addAndGet(task.queueWaitNanos);
+        nCompleted.incrementAndGet();
+        task.future.complete(new GenerationResult(task.text.toString(), task.nTokens, reason, task.queueWaitNanos,
+                task.preemptions));
+    }
+
+    private static final class Task {
+        private final GenerationRequest request;
+        private final CompletableFuture<GenerationResult> future = new CompletableFuture<>();
+
+        // scheduling
+        private long sequence;
+        private long enqueuedAt;
+        private long queueWaitNanos = 0;
+        private int preemptions = 0;
+
+        // generation progress
+        private boolean started = false;
+        private byte[] parkedState;
+        private int[] parkedTokens;
+        private int nTokens = 0;
+        private final List<Integer> pending = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+
+        private Task(GenerationRequest request) {
+            this.request = request;
+        }
+
+        private FinishReason checkFinished() {
+            if (future.isCancelled()) {
+                return FinishReason.CANCELLED;
+            }
+            if (System.nanoTime() >= request.getDeadlineNanos()) {
+                return FinishReason.DEADLINE;
+            }
+            return nTokens >= request.getMaxTokens() ? FinishReason.LENGTH : null;
+        }
+    }
+}
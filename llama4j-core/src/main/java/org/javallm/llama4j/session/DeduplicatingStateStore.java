@@ -0,0 +1,59 @@
+package org.javallm.llama4j.session;
+
+import com.google.common.base.Preconditions;
+import org.javallm.llama4j.state.SnapshotStore;
+import org.javallm.llama4j.state.StateSnapshot;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An in-memory {@link StateStore} backed by a {@link SnapshotStore}, so that sessions sharing a prompt prefix share
+ * the compressed chunks of its KV cache
+ */
+public class DeduplicatingStateStore implements StateStore {
+    private final SnapshotStore snapshots;
+    private final Map<String, StateSnapshot> sessions = new HashMap<>();
+
+    public DeduplicatingStateStore() {
+        this(new SnapshotStore());
+    }
+
+    public DeduplicatingStateStore(SnapshotStore snapshots) {
+        this.snapshots = Preconditions.checkNotNull(snapshots);
+    }
+
+    @Override
+    public synchronized void put(String sessionId, PagedState state) {
+        Preconditions.checkNotNull(sessionId);
+        Preconditions.checkNotNull(state);
+        StateSnapshot previous = sessions.put(sessionId, snapshots.save(state.getTokens(), state.getState()));
+        if (previous != null) {
+            snapshots.release(previous);
+        }
+    }
+
+    @Override
+    public synchronized PagedState get(String sessionId) {
+        StateSnapshot snapshot = sessions.get(sessionId);
+        return snapshot == null ? null : new PagedState(snapshot.getTokens(), snapshots.restore(snapshot));
+    }
+
+    @Override
+    public synchronized void remove(String sessionId) {
+        StateSnapshot snapshot = sessions.remove(sessionId);
+        if (snapshot != null) {
+            snapshots.release(snapshot);
+        }
+    }
+
+    public SnapshotStore getSnapshots() {
+        return snapshots;
+    }
+
+    @Override
+    public synchronized void close() {
+        sessions.clear();
+        snapshots.close();
+    }
+}
@@ -0,0 +1,19 @@
+package org.javallm.llama4j.session;
+
+import lombok.Value;
+
+/**
+ * The state of a session which is not resident in any context
+ */
+@Value
+public class PagedState {
+    /**
+     * The input tokens the state was computed from
+     */
+    int[] tokens;
+
+    /**
+     * The raw model state, see {@link org.javallm.llama4j.model.LlamaModel#getState()}
+     */
+    byte[] state;
+}
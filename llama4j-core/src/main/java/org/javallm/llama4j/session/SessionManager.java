@@ -0,0 +1,254 @@
+package org.javallm.llama4j.session;
+
+import com.google.common.base.Preconditions;
+import org.apache.commons.lang3.ArrayUtils;
+import org.javallm.llama4j.model.LlamaModel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Maps many logical chat sessions onto a small pool of model contexts
+ * <p>
+ * A session stays resident in a context until the context is needed by another session; the least recently used idle
+ * context is then taken over and its session is paged out to a {@link StateStore}. Paging a session back in restores
+ * its KV cache with {@link LlamaModel#loadState(byte[], int[])}, which is much cheaper than re-evaluating its history.
+ * When a session has no paged state, the KV cache of the shared prefix (e.g., a common system prompt) left in the
+ * context is reused, so only the remaining tokens are evaluated.
+ * <p>
+ * All models must be contexts of the same model file with the same parameters, since states move among them.
+ */
+public class SessionManager implements AutoCloseable {
+    private final List<Slot> slots = new ArrayList<>();
+    private final StateStore store;
+    private final Map<String, Slot> resident = new HashMap<>();
+    private final Set<String> pagingOut = new HashSet<>();
+    private long clock = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong pageIns = new AtomicLong();
+    private final AtomicLong pageOuts = new AtomicLong();
+    private final AtomicLong reusedTokens = new AtomicLong();
+    private final AtomicLong evaluatedTokens = new AtomicLong();
+
+    /**
+     * @param models model contexts, owned by the caller
+     * @param store  where to page idle sessions out to, owned by the manager
+     */
+    public SessionManager(List<? extends LlamaModel> models, StateStore store) {
+        Preconditions.checkArgument(!models.isEmpty(), "models should not be empty");
+        Preconditions.checkNotNull(store);
+        for (LlamaModel model : models) {
+            slots.add(new Slot(model));
+        }
+        this.store = store;
+    }
+
+    /**
+     * Run an action on the context of a session, with the context exclusively owned by the action
+     *
+     * @param sessionId the session id
+     * @param tokens    the full token history of the session, which the context is aligned to before the action by
+     *                  evaluating only the tokens that are not in the KV cache yet; null to leave the context as is
+     * @param action    the action, e.g., sampling the next reply
+     * @return result of the action
+     */
+    public <T> T withSession(String sessionId, int[] tokens, Function<LlamaModel, T> action) {
+        Preconditions.checkNotNull(sessionId);
+        Preconditions.checkNotNull(action);
+
+        Slot slot = acquire(sessionId, tokens != null);
+        try {
+            if (tokens != null) {
+                align(slot.model, tokens);
+            }
+            return action.apply(slot.model);
+        } finally {
+            release(slot);
+        }
+    }
+
+    /**
+     * Forget a session, both its resident context and its paged state
+     *
+     * @param sessionId the session id
+     */
+    public void remove(String sessionId) {
+        Slot slot = acquireIfResident(sessionId);
+        if (slot != null) {
+            try {
+                slot.model.reset();
+            } finally {
+                synchronized (this) {
+                    resident.remove(sessionId);
+                    slot.sessionId = null;
+                }
+                release(slot);
+            }
+        }
+        store.remove(sessionId);
+    }
+
+    public SessionStats stats() {
+        return new SessionStats(hits.get(), pageIns.get(), pageOuts.get(), reusedTokens.get(), evaluatedTokens.get());
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    /**
+     * @param keepPrefix whether the KV cache left by another session may be kept for prefix reuse
+     */
+    private Slot acquire(String sessionId, boolean keepPrefix) {
+        Slot slot;
+        String evicted;
+        synchronized (this) {
+            while (true) {
+                slot = resident.get(sessionId);
+                if (slot != null) {
+                    if (!slot.busy) {
+                        slot.busy = true;
+                        hits.incrementAndGet();
+                        return slot;
+                    }
+                } else if (!pagingOut.contains(sessionId)) {
+                    slot = leastRecentlyUsedIdleSlot();
+                    if (slot != null) {
+                        break;
+                    }
+                }
+                waitQuietly();
+            }
+
+            // take the context over, its current session (if any) must be paged out before being resumed elsewhere
+            slot.busy = true;
+            evicted = slot.sessionId;
+            if (evicted != null) {
+                resident.remove(evicted);
+                pagingOut.add(evicted);
+            }
+            slot.sessionId = sessionId;
+            resident.put(sessionId, slot);
+        }
+
+        try {
+            if (evicted != null) {
+                try {
+                    store.put(evicted, new PagedState(slot.model.inputTokens(), slot.model.getState()));
+                    pageOuts.incrementAndGet();
+                } finally {
+                    synchronized (this) {
+                        pagingOut.remove(evicted);
+                        notifyAll();
+                    }
+                }
+            }
+
+            PagedState paged = store.get(sessionId);
+            if (paged != null) {
+                slot.model.loadState(paged.getState(), paged.getTokens());
+                store.remove(sessionId);
+                pageIns.incrementAndGet();
+            } else if (!keepPrefix) {
+                slot.model.reset();
+            }
+        } catch (RuntimeException ex) {
+            synchronized (this) {
+                resident.remove(sessionId);
+                slot.sessionId = null;
+            }
+            slot.model.reset();
+            release(slot);
+            throw ex;
+        }
+        return slot;
+    }
+
+    /**
+     * @return the slot of the session, or null if it is not resident once its page-out (if any) is done
+     */
+    private synchronized Slot acquireIfResident(String sessionId) {
+        while (true) {
+            Slot slot = resident.get(sessionId);
+            if (slot == null) {
+                // a page-out in progress would store the state after it is removed
+                if (!pagingOut.contains(sessionId)) {
+                    return null;
+                }
+            } else if (!slot.busy) {
+                slot.busy = true;
+                return slot;
+            }
+            waitQuietly();
+        }
+    }
+
+    private synchronized void release(Slot slot) {
+        slot.busy = false;
+        slot.lastUsed = ++clock;
+        notifyAll();
+    }
+
+    private Slot leastRecentlyUsedIdleSlot() {
+        Slot result = null;
+        for (Slot slot : slots) {
+            if (!slot.busy && (result == null || slot.lastUsed < result.lastUsed)) {
+                result = slot;
+            }
+        }
+        return result;
+    }
+
+    private void waitQuietly() {
+        try {
+            wait();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a model context", ex);
+        }
+    }
+
+    /**
+     * Make the input tokens of the model equal to {@code tokens}, reusing the KV cache of their common prefix
+     */
+    private void align(LlamaModel model, int[] tokens) {
+        Preconditions.checkArgument(tokens.length > 0, "tokens should not be empty");
+        int[] current = model.inputTokens();
+        int common = 0;
+        int limit = Math.min(current.length, tokens.length);
+        while (common < limit && current[common] == tokens[common]) {
+            common++;
+        }
+        if (common == tokens.length && current.length == tokens.length) {
+            // the logits of the last token are still there
+            reusedTokens.addAndGet(common);
+            return;
+        }
+        // re-evaluate at least the last token to get its logits
+        common = Math.min(common, tokens.length - 1);
+
+        model.truncate(common);
+        model.evaluate(ArrayUtils.subarray(tokens, common, tokens.length));
+        reusedTokens.addAndGet(common);
+        evaluatedTokens.addAndGet(tokens.length - common);
+    }
+
+    private static final class Slot {
+        private final LlamaModel model;
+        private String sessionId;
+        private boolean busy = false;
+        private long lastUsed = 0;
+
+        private Slot(LlamaModel model) {
+            this.model = model;
+        }
+    }
+}
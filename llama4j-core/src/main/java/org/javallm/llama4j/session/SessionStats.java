@@ -0,0 +1,31 @@
+package org.javallm.llama4j.session;
+
+import lombok.Value;
+
+@Value
+public class SessionStats {
+    /**
+     * Times a session was found resident in a context
+     */
+    long hits;
+
+    /**
+     * Times a session was paged in from the store
+     */
+    long pageIns;
+
+    /**
+     * Times a session was paged out to the store
+     */
+    long pageOuts;
+
+    /**
+     * Tokens whose KV cache was reused instead of being evaluated
+     */
+    long reusedTokens;
+
+    /**
+     * Tokens evaluated to align contexts with their sessions
+     */
+    long evaluatedTokens;
+}
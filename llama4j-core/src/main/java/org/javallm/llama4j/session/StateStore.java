@@ -0,0 +1,19 @@
+package org.javallm.llama4j.session;
+
+/**
+ * Where {@link SessionManager} pages the states of idle sessions out to
+ */
+public interface StateStore extends AutoCloseable {
+    void put(String sessionId, PagedState state);
+
+    /**
+     * @param sessionId the session id
+     * @return the paged state, or null if the session has no paged state
+     */
+    PagedState get(String sessionId);
+
+    void remove(String sessionId);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,200 @@
+package org.javallm.llama4j.session;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A two-tier {@link StateStore}: states are deflated into off-heap (direct) buffers first, and the least recently
+ * used ones are spilled to files under {@code spillDirectory} once the off-heap tier exceeds its budget
+ * <p>
+ * The states live as long as the store: closing it deletes the files it spilled.
+ */
+public class TieredStateStore implements StateStore {
+    private final long offHeapBudgetBytes;
+    private final Path spillDirectory;
+
+    // access-ordered, i.e., the eldest entry is the least recently used one
+    private final LinkedHashMap<String, ByteBuffer> offHeap = new LinkedHashMap<>(16, 0.75f, true);
+    private long offHeapBytes = 0;
+    private final Set<String> spilled = new HashSet<>();
+
+    /**
+     * @param offHeapBudgetBytes maximum number of compressed bytes kept off-heap
+     * @param spillDirectory     the directory to spill states to, which is created if absent
+     */
+    public TieredStateStore(long offHeapBudgetBytes, Path spillDirectory) {
+        Preconditions.checkArgument(offHeapBudgetBytes >= 0, "offHeapBudgetBytes should >= 0");
+        Preconditions.checkNotNull(spillDirectory);
+        this.offHeapBudgetBytes = offHeapBudgetBytes;
+        this.spillDirectory = spillDirectory;
+        try {
+            Files.createDirectories(spillDirectory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(String.format("Failed to create spillDirectory: %s", spillDirectory), ex);
+        }
+    }
+
+    @Override
+    public synchronized void put(String sessionId, PagedState state) {
+        Preconditions.checkNotNull(sessionId);
+        Preconditions.checkNotNull(state);
+        remove(sessionId);
+
+        byte[] compressed = compress(state);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(compressed.length);
+        buffer.put(compressed).flip();
+        offHeap.put(sessionId, buffer);
+        offHeapBytes += compressed.length;
+
+        spillIfNeeded();
+    }
+
+    @Override
+    public synchronized PagedState get(String sessionId) {
+        ByteBuffer buffer = offHeap.get(sessionId);
+        if (buffer != null) {
+            byte[] compressed = new byte[buffer.remaining()];
+            buffer.duplicate().get(compressed);
+            return decompress(compressed);
+        }
+
+        if (!spilled.contains(sessionId)) {
+            return null;
+        }
+        try {
+            return decompress(Files.readAllBytes(spillFile(sessionId)));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(String.format("Failed to read the state of session %s", sessionId), ex);
+        }
+    }
+
+    @Override
+    public synchronized void remove(String sessionId) {
+        ByteBuffer buffer = offHeap.remove(sessionId);
+        if (buffer != null) {
+            offHeapBytes -= buffer.capacity();
+        }
+        if (spilled.remove(sessionId)) {
+            try {
+                Files.deleteIfExists(spillFile(sessionId));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(String.format("Failed to remove the state of session %s", sessionId), ex);
+            }
+        }
+    }
+
+    /**
+     * @return number of compressed bytes held off-heap
+     */
+    public synchronized long offHeapBytes() {
+        return offHeapBytes;
+    }
+
+    /**
+     * @return number of sessions held off-heap
+     */
+    public synchronized int offHeapSize() {
+        return offHeap.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        offHeap.clear();
+        offHeapBytes = 0;
+        UncheckedIOException failure = null;
+        for (String sessionId : spilled) {
+            try {
+                Files.deleteIfExists(spillFile(sessionId));
+            } catch (IOException ex) {
+                // delete the other files anyway
+                if (failure == null) {
+                    failure = new UncheckedIOException("Failed to delete the spilled states", ex);
+                } else {
+                    failure.addSuppressed(ex);
+                }
+            }
+        }
+        spilled.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void spillIfNeeded() {
+        Iterator<Map.Entry<String, ByteBuffer>> iterator = offHeap.entrySet().iterator();
+        while (offHeapBytes > offHeapBudgetBytes && iterator.hasNext()) {
+            Map.Entry<String, ByteBuffer> eldest = iterator.next();
+            ByteBuffer buffer = eldest.getValue();
+            byte[] compressed = new byte[buffer.remaining()];
+            buffer.duplicate().get(compressed);
+            try {
+                Files.write(spillFile(eldest.getKey()), compressed);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(String.format("Failed to spill the state of session %s", eldest.getKey()), ex);
+            }
+            spilled.add(eldest.getKey());
+            offHeapBytes -= buffer.capacity();
+            iterator.remove();
+        }
+    }
+
+    private Path spillFile(String sessionId) {
+        return spillDirectory.resolve(Hashing.sha256().hashString(sessionId, StandardCharsets.UTF_8) + ".state");
+    }
+
+    private static byte[] compress(PagedState state) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(state.getState().length / 2);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater, 64 * 1024))) {
+            out.writeInt(state.getTokens().length);
+            for (int token : state.getTokens()) {
+                out.writeInt(token);
+            }
+            out.writeInt(state.getState().length);
+            out.write(state.getState());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static PagedState decompress(byte[] compressed) {
+        Inflater inflater = new Inflater();
+        try (DataInputStream in = new DataInputStream(
+                new InflaterInputStream(new ByteArrayInputStream(compressed), inflater, 64 * 1024))) {
+            int[] tokens = new int[in.readInt()];
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] = in.readInt();
+            }
+            byte[] state = new byte[in.readInt()];
+            in.readFully(state);
+            return new PagedState(tokens, state);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.javallm.llama4j.state;
+
+import com.google.common.base.Preconditions;
+
+import java.util.SplittableRandom;
+
+/**
+ * Splits bytes into chunks at content-defined boundaries with a gear rolling hash, so that a region shared by two
+ * buffers is split into the same chunks even if it starts at different offsets
+ */
+final class ContentDefinedChunker {
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // fixed seed: boundaries must be stable across runs for persisted snapshots to deduplicate
+        SplittableRandom random = new SplittableRandom(0x6c6c616d61346aL);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private final int minSize;
+    private final int maxSize;
+    private final long mask;
+
+    /**
+     * @param minSize minimum chunk size
+     * @param avgSize expected chunk size, must be a power of 2
+     * @param maxSize maximum chunk size
+     */
+    ContentDefinedChunker(int minSize, int avgSize, int maxSize) {
+        Preconditions.checkArgument(Integer.bitCount(avgSize) == 1, "avgSize must be a power of 2");
+        Preconditions.checkArgument(0 < minSize && minSize <= avgSize && avgSize <= maxSize,
+                "chunk sizes should satisfy 0 < minSize <= avgSize <= maxSize");
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        // test the high bits, which depend on the last 64 bytes, rather than the low bits, which depend on the last few
+        int bits = Integer.numberOfTrailingZeros(avgSize);
+        this.mask = bits == 0 ? 0 : -1L << (64 - bits);
+    }
+
+    /**
+     * @param data   the data
+     * @param offset start of the chunk
+     * @return end (exclusive) of the chunk starting at offset
+     */
+    int nextBoundary(byte[] data, int offset) {
+        int end = Math.min(data.length, offset + maxSize);
+        int i = Math.min(end, offset + minSize);
+        long hash = 0;
+        for (; i < end; i++) {
+            hash = (hash << 1) + GEAR[data[i] & 0xff];
+            if ((hash & mask) == 0) {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+}
@@ -0,0 +1,188 @@
+package org.javallm.llama4j.state;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores model states as compressed, content-addressed chunks shared among snapshots
+ * <p>
+ * A state is split into content-defined chunks; each distinct chunk is deflated and stored once, keyed by its
+ * SHA-256, and reference-counted by the snapshots using it. States of sessions sharing a prefix (e.g., the same system
+ * prompt) have identical K cache slabs for that prefix, which are stored only once. Combined with
+ * {@link org.javallm.llama4j.model.LlamaModel#getState()} including only the populated part of the KV cache, the
+ * stored size scales with the distinct tokens rather than with the context size.
+ */
+public class SnapshotStore implements AutoCloseable {
+    private static final int DEFAULT_MIN_CHUNK = 4 * 1024;
+    private static final int DEFAULT_AVG_CHUNK = 16 * 1024;
+    private static final int DEFAULT_MAX_CHUNK = 64 * 1024;
+
+    private static final HashFunction HASH = Hashing.sha256();
+
+    private final ContentDefinedChunker chunker;
+    private final Map<HashCode, Chunk> chunks = new HashMap<>();
+    private final Deflater deflater;
+    private final Inflater inflater = new Inflater();
+    private byte[] compressBuffer = new byte[DEFAULT_MAX_CHUNK];
+
+    private long logicalBytes = 0;
+    private long storedBytes = 0;
+
+    public SnapshotStore() {
+        this(DEFAULT_MIN_CHUNK, DEFAULT_AVG_CHUNK, DEFAULT_MAX_CHUNK, Deflater.BEST_SPEED);
+    }
+
+    /**
+     * @param minChunk minimum chunk size
+     * @param avgChunk expected chunk size, must be a power of 2. Smaller chunks deduplicate more but cost more metadata.
+     * @param maxChunk maximum chunk size
+     * @param level    the {@link Deflater} compression level
+     */
+    public SnapshotStore(int minChunk, int avgChunk, int maxChunk, int level) {
+        this.chunker = new ContentDefinedChunker(minChunk, avgChunk, maxChunk);
+        this.deflater = new Deflater(level);
+    }
+
+    /**
+     * Save a state
+     *
+     * @param tokens the input tokens the state was computed from
+     * @param state  the state, see {@link org.javallm.llama4j.model.LlamaModel#getState()}
+     * @return the snapshot, which must be {@link #release(StateSnapshot) released} once no longer needed
+     */
+    public synchronized StateSnapshot save(int[] tokens, byte[] state) {
+        Preconditions.checkNotNull(tokens);
+        Preconditions.checkNotNull(state);
+
+        ImmutableList.Builder<HashCode> hashes = ImmutableList.builder();
+        int offset = 0;
+        while (offset < state.length) {
+            int end = chunker.nextBoundary(state, offset);
+            HashCode hash = HASH.hashBytes(state, offset, end - offset);
+            Chunk chunk = chunks.get(hash);
+            if (chunk == null) {
+                chunk = new Chunk(compress(state, offset, end - offset), end - offset);
+                chunks.put(hash, chunk);
+                storedBytes += chunk.data.length;
+            }
+            chunk.references++;
+            hashes.add(hash);
+            offset = end;
+        }
+        logicalBytes += state.length;
+        return new StateSnapshot(tokens.clone(), hashes.build(), state.length);
+    }
+
+    /**
+     * Restore the state of a snapshot
+     *
+     * @param snapshot the snapshot
+     * @return the state
+     * @throws IllegalArgumentException if the snapshot was released, or saved to another store
+     */
+    public synchronized byte[] restore(StateSnapshot snapshot) {
+        Preconditions.checkNotNull(snapshot);
+
+        byte[] state = new byte[snapshot.getRawLength()];
+        int offset = 0;
+        for (HashCode hash : snapshot.getChunks()) {
+            Chunk chunk = chunks.get(hash);
+            Preconditions.checkArgument(chunk != null, "chunk %s is missing, the snapshot may be released", hash);
+            decompress(chunk, state, offset);
+            offset += chunk.rawLength;
+        }
+        Preconditions.checkState(offset == state.length, "snapshot is corrupted");
+        return state;
+    }
+
+    /**
+     * Release a snapshot, chunks no longer referenced by any snapshot are dropped
+     *
+     * @param snapshot the snapshot
+     */
+    public synchronized void release(StateSnapshot snapshot) {
+        Preconditions.checkNotNull(snapshot);
+        for (HashCode hash : snapshot.getChunks()) {
+            Chunk chunk = chunks.get(hash);
+            if (chunk != null && --chunk.references == 0) {
+                chunks.remove(hash);
+                storedBytes -= chunk.data.length;
+            }
+        }
+        logicalBytes -= snapshot.getRawLength();
+    }
+
+    /**
+     * @return total size of the live snapshots before compression and deduplication
+     */
+    public synchronized long logicalBytes() {
+        return logicalBytes;
+    }
+
+    /**
+     * @return total size of the stored chunks
+     */
+    public synchronized long storedBytes() {
+        return storedBytes;
+    }
+
+    public synchronized int chunkCount() {
+        return chunks.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        chunks.clear();
+        logicalBytes = 0;
+        storedBytes = 0;
+        deflater.end();
+        inflater.end();
+    }
+
+    private byte[] compress(byte[] data, int offset, int length) {
+        // deflate never expands by more than a few bytes per 16 KiB block
+        int bound = length + (length >> 12) + 64;
+        if (compressBuffer.length < bound) {
+            compressBuffer = new byte[bound];
+        }
+        deflater.reset();
+        deflater.setInput(data, offset, length);
+        deflater.finish();
+        int n = deflater.deflate(compressBuffer);
+        Preconditions.checkState(deflater.finished(), "compressBuffer is too small");
+        byte[] compressed = new byte[n];
+        System.arraycopy(compressBuffer, 0, compressed, 0, n);
+        return compressed;
+    }
+
+    private void decompress(Chunk chunk, byte[] output, int offset) {
+        inflater.reset();
+        inflater.setInput(chunk.data);
+        try {
+            int n = inflater.inflate(output, offset, chunk.rawLength);
+            Preconditions.checkState(n == chunk.rawLength && inflater.finished(), "chunk is corrupted");
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException("chunk is corrupted", ex);
+        }
+    }
+
+    private static final class Chunk {
+        private final byte[] data;
+        private final int rawLength;
+        private int references = 0;
+
+        private Chunk(byte[] data, int rawLength) {
+            this.data = data;
+            this.rawLength = rawLength;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.javallm.llama4j.state;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import lombok.Value;
+
+/**
+ * A handle of a model state saved in a {@link SnapshotStore}, which holds the actual (deduplicated) content
+ */
+@Value
+public class StateSnapshot {
+    /**
+     * The input tokens the state was computed from
+     */
+    int[] tokens;
+
+    /**
+     * Content hashes of the chunks of the state, in order
+     */
+    ImmutableList<HashCode> chunks;
+
+    /**
+     * Size of the uncompressed state
+     */
+    int rawLength;
+}
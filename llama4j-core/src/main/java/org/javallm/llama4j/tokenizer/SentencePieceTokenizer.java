@@ -0,0 +1,278 @@
+package org.javallm.llama4j.tokenizer;
+
+import com.google.common.base.Preconditions;
+import org.javallm.llama4j.gguf.GGUFFile;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * The SentencePiece tokenizer of LLaMA models, built from the vocabulary of a GGUF file
+ * <p>
+ * It replicates {@code llama_tokenize} and {@code llama_token_to_piece} of LLaMA.cpp token for token: the text is
+ * split into UTF-8 characters, which are merged pair by pair in the order of the scores of the merged pieces, and
+ * pieces missing from the vocabulary fall back to byte tokens. Instances are immutable and thread-safe.
+ */
+public final class SentencePieceTokenizer implements Tokenizer {
+    private static final int TYPE_NORMAL = 1;
+    private static final int TYPE_UNKNOWN = 2;
+    private static final int TYPE_CONTROL = 3;
+    private static final int TYPE_BYTE = 6;
+    private static final String SPACE = "▁";
+    private static final byte[] UNKNOWN_PIECE = "▅".getBytes(StandardCharsets.UTF_8);
+
+    private final String[] tokens;
+    private final float[] scores;
+    private final int[] types;
+    private final Map<String, Integer> ids;
+    private final int[] byteTokens;
+    private final int bos;
+    private final int eos;
+
+    private SentencePieceTokenizer(String[] tokens, float[] scores, int[] types, int bos, int eos) {
+        Preconditions.checkArgument(tokens.length == scores.length && tokens.length == types.length,
+                "tokens, scores and token types should have the same length");
+        this.tokens = tokens;
+        this.scores = scores;
+        this.types = types;
+        this.ids = new HashMap<>(tokens.length * 2);
+        for (int id = 0; id < tokens.length; id++) {
+            this.ids.put(tokens[id], id);
+        }
+        this.byteTokens = new int[256];
+        for (int b = 0; b < 256; b++) {
+            this.byteTokens[b] = this.ids.getOrDefault(String.format("<0x%02X>", b), 0);
+        }
+        this.bos = bos;
+        this.eos = eos;
+    }
+
+    /**
+     * Read the vocabulary of a GGUF model, without loading the model
+     *
+     * @param modelPath the GGUF model
+     * @return the tokenizer
+     * @throws IllegalArgumentException if the model has no SentencePiece vocabulary
+     */
+    public static SentencePieceTokenizer open(Path modelPath) {
+        try (GGUFFile file = GGUFFile.open(modelPath)) {
+            return fromGGUF(file);
+        }
+    }
+
+    /**
+     * @param file a GGUF file with a SentencePiece ({@code tokenizer.ggml.model = llama}) vocabulary
+     * @return the tokenizer
+     * @throws IllegalArgumentException if the file has no SentencePiece vocabulary
+     */
+    public static SentencePieceTokenizer fromGGUF(GGUFFile file) {
+        String model = file.getString("tokenizer.ggml.model");
+        Preconditions.checkArgument("llama".equals(model), "Unsupported tokenizer model: %s", model);
+        String[] tokens = file.get("tokenizer.ggml.tokens", String[].class);
+        float[] scores = file.contains("tokenizer.ggml.scores") ? file.get("tokenizer.ggml.scores", float[].class)
+                : new float[tokens.length];
+        int[] types = file.get("tokenizer.ggml.token_type", int[].class);
+        return new SentencePieceTokenizer(tokens, scores, types, file.getInt("tokenizer.ggml.bos_token_id", 1),
+                file.getInt("tokenizer.ggml.eos_token_id", 2));
+    }
+
+    @Override
+    public int[] tokenize(String text, boolean addBos) {
+        List<Integer> output = new ArrayList<>();
+        if (addBos) {
+            output.add(bos);
+        }
+        if (!text.isEmpty()) {
+            // a leading space, as the original tokenizer does
+            new Session((" " + text).replace(" ", SPACE).getBytes(StandardCharsets.UTF_8)).tokenize(output);
+        }
+        int[] result = new int[output.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = output.get(i);
+        }
+        return result;
+    }
+
+    @Override
+    public String detokenize(int[] tokens) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int token : tokens) {
+            byte[] piece = piece(token);
+            stream.write(piece, 0, piece.length);
+        }
+        byte[] bytes = stream.toByteArray();
+        String result = new String(bytes, StandardCharsets.UTF_8);
+        return bytes.length == result.getBytes(StandardCharsets.UTF_8).length ? result : null;
+    }
+
+    @Override
+    public byte[] piece(int token) {
+        Preconditions.checkArgument(token >= 0 && token < tokens.length, "token %s is out of the vocabulary", token);
+        switch (types[token]) {
+            case TYPE_NORMAL:
+                return tokens[token].replace(SPACE, " ").getBytes(StandardCharsets.UTF_8);
+            case TYPE_UNKNOWN:
+                return UNKNOWN_PIECE.clone();
+            case TYPE_BYTE:
+                return new byte[] { (byte) Integer.parseInt(tokens[token].substring(3, 5), 16) };
+            case TYPE_CONTROL:
+            default:
+                return new byte[0];
+        }
+    }
+
+    @Override
+    public int bosToken() {
+        return bos;
+    }
+
+    @Override
+    public int eosToken() {
+        return eos;
+    }
+
+    /**
+     * @return the id of the new line (i.e., \n) token, which is its byte token
+     */
+    @Override
+    public int newLineToken() {
+        return byteTokens['\n'];
+    }
+
+    @Override
+    public int vocabSize() {
+        return tokens.length;
+    }
+
+    /**
+     * The merge state of a single text
+     */
+    private final class Session {
+        private final byte[] text;
+        // symbols as a linked list over text[start, start + length), length 0 once merged into the previous one
+        private final int[] start;
+        private final int[] length;
+        private final int[] prev;
+        private final int[] next;
+        private final PriorityQueue<Bigram> queue = new PriorityQueue<>();
+        private final Map<String, int[]> revMerge = new HashMap<>();
+
+        private Session(byte[] text) {
+            this.text = text;
+            int capacity = text.length;
+            this.start = new int[capacity];
+            this.length = new int[capacity];
+            this.prev = new int[capacity];
+            this.next = new int[capacity];
+        }
+
+        private void tokenize(List<Integer> output) {
+            // split into UTF-8 characters
+            int nSymbols = 0;
+            for (int offset = 0; offset < text.length; ) {
+                int n = Math.min(utf8Length(text[offset]), text.length - offset);
+                start[nSymbols] = offset;
+                length[nSymbols] = n;
+                prev[nSymbols] = nSymbols - 1;
+                offset += n;
+                next[nSymbols] = offset == text.length ? -1 : nSymbols + 1;
+                nSymbols++;
+            }
+
+            for (int i = 1; i < nSymbols; i++) {
+                tryAddBigram(i - 1, i);
+            }
+
+            // merge the pair of the highest score until none is left
+            while (!queue.isEmpty()) {
+                Bigram bigram = queue.poll();
+                int left = bigram.left;
+                int right = bigram.right;
+                // skip bigrams made outdated by earlier merges
+                if (length[left] == 0 || length[right] == 0 || length[left] + length[right] != bigram.size) {
+                    continue;
+                }
+                length[left] += length[right];
+                length[right] = 0;
+                next[left] = next[right];
+                if (next[right] >= 0) {
+                    prev[next[right]] = left;
+                }
+                tryAddBigram(prev[left], left);
+                tryAddBigram(left, next[left]);
+            }
+
+            for (int i = 0; i != -1 && nSymbols > 0; i = next[i]) {
+                resegment(i, output);
+            }
+        }
+
+        private void tryAddBigram(int left, int right) {
+            if (left == -1 || right == -1) {
+                return;
+            }
+            String piece = new String(text, start[left], length[left] + length[right], StandardCharsets.UTF_8);
+            Integer id = ids.get(piece);
+            if (id == null) {
+                return;
+            }
+            queue.add(new Bigram(left, right, scores[id], length[left] + length[right]));
+            revMerge.put(piece, new int[] { left, right });
+        }
+
+        private void resegment(int symbol, List<Integer> output) {
+            String piece = new String(text, start[symbol], length[symbol], StandardCharsets.UTF_8);
+            Integer id = ids.get(piece);
+            if (id != null) {
+                output.add(id);
+                return;
+            }
+            int[] merge = revMerge.get(piece);
+            if (merge == null) {
+                for (int i = 0; i < length[symbol]; i++) {
+                    output.add(byteTokens[text[start[symbol] + i] & 0xff]);
+                }
+                return;
+            }
+            resegment(merge[0], output);
+            resegment(merge[1], output);
+        }
+    }
+
+    private static int utf8Length(byte first) {
+        int highBits = (first & 0xff) >>> 4;
+        return highBits < 0xc ? 1 : highBits < 0xe ? 2 : highBits == 0xe ? 3 : 4;
+    }
+
+    /**
+     * A candidate merge, ordered by descending score and then by ascending position
+     */
+    private static final class Bigram implements Comparable<Bigram> {
+        private final int left;
+        private final int right;
+        private final float score;
+        private final int size;
+
+        private Bigram(int left, int right, float score, int size) {
+            this.left = left;
+            this.right = right;
+            this.score = score;
+            this.size = size;
+        }
+
+        @Override
+        public int compareTo(Bigram other) {
+            // not Float.compare, which orders -0.0 before 0.0 unlike LLaMA.cpp
+            if (score != other.score) {
+                return score > other.score ? -1 : 1;
+            }
+            return Integer.compare(left, other.left);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.javallm.llama4j.tokenizer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Tokenizes a range of texts, halving it until it holds a single text or about {@value #GRAIN_CHARS} characters
+ */
+final class TokenizeTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    // enough work per task to amortize forking it
+    private static final int GRAIN_CHARS = 16 * 1024;
+
+    private final Tokenizer tokenizer;
+    private final List<String> texts;
+    private final boolean addBos;
+    private final int[][] results;
+    // cumulative lengths of the texts, to split the work rather than the number of texts in halves
+    private final long[] offsets;
+    private final int from;
+    private final int to;
+
+    private TokenizeTask(Tokenizer tokenizer, List<String> texts, boolean addBos, int[][] results, long[] offsets,
+                         int from, int to) {
+        this.tokenizer = tokenizer;
+        this.texts = texts;
+        this.addBos = addBos;
+        this.results = results;
+        this.offsets = offsets;
+        this.from = from;
+        this.to = to;
+    }
+
+    static void run(Tokenizer tokenizer, List<String> texts, boolean addBos, int[][] results, ForkJoinPool pool) {
+        long[] offsets = new long[texts.size() + 1];
+        for (int i = 0; i < texts.size(); i++) {
+            offsets[i + 1] = offsets[i] + texts.get(i).length();
+        }
+        TokenizeTask task = new TokenizeTask(tokenizer, texts, addBos, results, offsets, 0, texts.size());
+        if (offsets[texts.size()] <= GRAIN_CHARS) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= 1 || offsets[to] - offsets[from] <= GRAIN_CHARS) {
+            for (int i = from; i < to; i++) {
+                results[i] = tokenizer.tokenize(texts.get(i), addBos);
+            }
+            return;
+        }
+        // the first text past half of the characters, keeping both halves non-empty
+        int index = Arrays.binarySearch(offsets, from + 1, to, (offsets[from] + offsets[to]) >>> 1);
+        int middle = Math.min(Math.max(index >= 0 ? index : -index - 1, from + 1), to - 1);
+        invokeAll(new TokenizeTask(tokenizer, texts, addBos, results, offsets, from, middle),
+                new TokenizeTask(tokenizer, texts, addBos, results, offsets, middle, to));
+    }
+}
@@ -0,0 +1,61 @@
+package org.javallm.llama4j.tokenizer;
+
+import com.google.common.base.Preconditions;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Converts between texts and the tokens of a model without a model context, hence without competing with inference
+ * <p>
+ * Implementations are immutable and thread-safe, so a single instance can be shared, e.g., by token counting and
+ * chunking services.
+ */
+public interface Tokenizer {
+    /**
+     * Convert a text to a sequence of tokens, like {@link org.javallm.llama4j.model.LlamaModel#tokenize(String, boolean)}
+     */
+    int[] tokenize(String text, boolean addBos);
+
+    /**
+     * Recover text from tokens, return null if the tokens do not contain a valid UTF-8 String
+     */
+    String detokenize(int[] tokens);
+
+    /**
+     * @return the bytes a token stands for
+     */
+    byte[] piece(int token);
+
+    int bosToken();
+
+    int eosToken();
+
+    int newLineToken();
+
+    int vocabSize();
+
+    /**
+     * Tokenize texts in parallel on the common fork-join pool
+     *
+     * @see #tokenizeAll(List, boolean, ForkJoinPool)
+     */
+    default int[][] tokenizeAll(List<String> texts, boolean addBos) {
+        return tokenizeAll(texts, addBos, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Tokenize texts in parallel, splitting them into tasks of similar total length
+     *
+     * @param texts  the texts
+     * @param addBos whether to prepend the BOS token to each sequence
+     * @param pool   the pool running the tasks
+     * @return the tokens of each text, in the order of the texts
+     */
+    default int[][] tokenizeAll(List<String> texts, boolean addBos, ForkJoinPool pool) {
+        Preconditions.checkNotNull(pool);
+        int[][] results = new int[texts.size()][];
+        TokenizeTask.run(this, texts, addBos, results, pool);
+        return results;
+    }
+}
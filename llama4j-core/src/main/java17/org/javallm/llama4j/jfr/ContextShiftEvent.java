@@ -0,0 +1,54 @@
+package org.javallm.llama4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The context swapped out to make room for more tokens
+ * <p>
+ * This is the Java 17+ variant, a JDK Flight Recorder event named {@code org.javallm.llama4j.ContextShift}.
+ */
+@Name("org.javallm.llama4j.ContextShift")
+@Label("Context Shift")
+@Category("llama4j")
+@Description("The context swapped out to make room for more tokens")
+@StackTrace(false)
+public final class ContextShiftEvent extends Event {
+    @Label("Past Tokens Before")
+    @Description("Number of past tokens before the shift")
+    private int nPastTokensBefore;
+
+    @Label("Past Tokens After")
+    @Description("Number of past tokens kept")
+    private int nPastTokensAfter;
+
+    private ContextShiftEvent() {
+    }
+
+    /**
+     * @return the event, timed from now
+     */
+    public static ContextShiftEvent start() {
+        ContextShiftEvent event = new ContextShiftEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * End the event and commit it if enabled
+     *
+     * @param nPastTokensBefore number of past tokens before the shift
+     * @param nPastTokensAfter number of past tokens kept
+     */
+    public void finish(int nPastTokensBefore, int nPastTokensAfter) {
+        if (shouldCommit()) {
+            this.nPastTokensBefore = nPastTokensBefore;
+            this.nPastTokensAfter = nPastTokensAfter;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.javallm.llama4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Tokens converted back to text
+ * <p>
+ * This is the Java 17+ variant, a JDK Flight Recorder event named {@code org.javallm.llama4j.Detokenize}.
+ */
+@Name("org.javallm.llama4j.Detokenize")
+@Label("Detokenize")
+@Category("llama4j")
+@Description("Tokens converted back to text")
+@StackTrace(false)
+public final class DetokenizeEvent extends Event {
+    @Label("Tokens")
+    @Description("Number of tokens")
+    private int nTokens;
+
+    @Label("Bytes")
+    @Description("Number of resulting UTF-8 bytes")
+    private int nBytes;
+
+    private DetokenizeEvent() {
+    }
+
+    /**
+     * @return the event, timed from now
+     */
+    public static DetokenizeEvent start() {
+        DetokenizeEvent event = new DetokenizeEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * End the event and commit it if enabled
+     *
+     * @param nTokens number of tokens
+     * @param nBytes number of resulting UTF-8 bytes
+     */
+    public void finish(int nTokens, int nBytes) {
+        if (shouldCommit()) {
+            this.nTokens = nTokens;
+            this.nBytes = nBytes;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.javallm.llama4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A batch of tokens evaluated by the model
+ * <p>
+ * This is the Java 17+ variant, a JDK Flight Recorder event named {@code org.javallm.llama4j.Evaluate}.
+ */
+@Name("org.javallm.llama4j.Evaluate")
+@Label("Evaluate")
+@Category("llama4j")
+@Description("A batch of tokens evaluated by the model")
+@StackTrace(false)
+public final class EvaluateEvent extends Event {
+    @Label("Tokens")
+    @Description("Number of tokens of the batch")
+    private int nTokens;
+
+    @Label("Past Tokens")
+    @Description("Number of tokens already in the KV cache")
+    private int nPastTokens;
+
+    @Label("Threads")
+    @Description("Number of threads of the evaluation")
+    private int nThreads;
+
+    private EvaluateEvent() {
+    }
+
+    /**
+     * @return the event, timed from now
+     */
+    public static EvaluateEvent start() {
+        EvaluateEvent event = new EvaluateEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * End the event and commit it if enabled
+     *
+     * @param nTokens number of tokens of the batch
+     * @param nPastTokens number of tokens already in the KV cache
+     * @param nThreads number of threads of the evaluation
+     */
+    public void finish(int nTokens, int nPastTokens, int nThreads) {
+        if (shouldCommit()) {
+            this.nTokens = nTokens;
+            this.nPastTokens = nPastTokens;
+            this.nThreads = nThreads;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.javallm.llama4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A completion generated by SimpleCasualLM
+ * <p>
+ * This is the Java 17+ variant, a JDK Flight Recorder event named {@code org.javallm.llama4j.Generation}.
+ */
+@Name("org.javallm.llama4j.Generation")
+@Label("Generation")
+@Category("llama4j")
+@Description("A completion generated by SimpleCasualLM")
+@StackTrace(false)
+public final class GenerationEvent extends Event {
+    @Label("Prompt Tokens")
+    @Description("Number of tokens of the prompt")
+    private int nPromptTokens;
+
+    @Label("Generated Tokens")
+    @Description("Number of generated tokens")
+    private int nGeneratedTokens;
+
+    @Label("Max Tokens")
+    @Description("Upper bound of generated tokens")
+    private int maxTokens;
+
+    @Label("Cached")
+    @Description("Whether the completion was replayed from the completion cache")
+    private boolean cached;
+
+    private GenerationEvent() {
+    }
+
+    /**
+     * @return the event, timed from now
+     */
+    public static GenerationEvent start() {
+        GenerationEvent event = new GenerationEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * End the event and commit it if enabled
+     *
+     * @param nPromptTokens number of tokens of the prompt
+     * @param nGeneratedTokens number of generated tokens
+     * @param maxTokens upper bound of generated tokens
+     * @param cached whether the completion was replayed from the completion cache
+     */
+    public void finish(int nPromptTokens, int nGeneratedTokens, int maxTokens, boolean cached) {
+        if (shouldCommit()) {
+            this.nPromptTokens = nPromptTokens;
+            this.nGeneratedTokens = nGeneratedTokens;
+            this.maxTokens = maxTokens;
+            this.cached = cached;
+            commit();
+        }
+    }
+}
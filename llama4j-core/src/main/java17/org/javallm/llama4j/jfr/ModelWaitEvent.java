@@ -0,0 +1,48 @@
+package org.javallm.llama4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A request waiting for an idle model context
+ * <p>
+ * This is the Java 17+ variant, a JDK Flight Recorder event named {@code org.javallm.llama4j.ModelWait}.
+ */
+@Name("org.javallm.llama4j.ModelWait")
+@Label("Model Wait")
+@Category("llama4j")
+@Description("A request waiting for an idle model context")
+@StackTrace(false)
+public final class ModelWaitEvent extends Event {
+    @Label("Acquired")
+    @Description("Whether a context was acquired before the deadline")
+    private boolean acquired;
+
+    private ModelWaitEvent() {
+    }
+
+    /**
+     * @return the event, timed from now
+     */
+    public static ModelWaitEvent start() {
+        ModelWaitEvent event = new ModelWaitEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * End the event and commit it if enabled
+     *
+     * @param acquired whether a context was acquired before the deadline
+     */
+    public void finish(boolean acquired) {
+        if (shouldCommit()) {
+            this.acquired = acquired;
+            commit();
+        }
+    }
+}
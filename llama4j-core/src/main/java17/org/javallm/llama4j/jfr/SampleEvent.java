@@ -0,0 +1,54 @@
+package org.javallm.llama4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A token sampled from the logits
+ * <p>
+ * This is the Java 17+ variant, a JDK Flight Recorder event named {@code org.javallm.llama4j.Sample}.
+ */
+@Name("org.javallm.llama4j.Sample")
+@Label("Sample")
+@Category("llama4j")
+@Description("A token sampled from the logits")
+@StackTrace(false)
+public final class SampleEvent extends Event {
+    @Label("Strategy")
+    @Description("GREEDY, TEMPERATURE, V1 or V2, i.e., mirostat")
+    private String strategy;
+
+    @Label("Token")
+    @Description("The sampled token")
+    private int token;
+
+    private SampleEvent() {
+    }
+
+    /**
+     * @return the event, timed from now
+     */
+    public static SampleEvent start() {
+        SampleEvent event = new SampleEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * End the event and commit it if enabled
+     *
+     * @param strategy GREEDY, TEMPERATURE, V1 or V2, i.e., mirostat
+     * @param token the sampled token
+     */
+    public void finish(String strategy, int token) {
+        if (shouldCommit()) {
+            this.strategy = strategy;
+            this.token = token;
+            commit();
+        }
+    }
+}
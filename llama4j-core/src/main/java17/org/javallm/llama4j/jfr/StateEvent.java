@@ -0,0 +1,60 @@
+package org.javallm.llama4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The model state saved or loaded
+ * <p>
+ * This is the Java 17+ variant, a JDK Flight Recorder event named {@code org.javallm.llama4j.State}.
+ */
+@Name("org.javallm.llama4j.State")
+@Label("State")
+@Category("llama4j")
+@Description("The model state saved or loaded")
+@StackTrace(false)
+public final class StateEvent extends Event {
+    @Label("Operation")
+    @Description("SAVE or LOAD")
+    private String operation;
+
+    @Label("Bytes")
+    @Description("Size of the state")
+    private int nBytes;
+
+    @Label("Tokens")
+    @Description("Number of input tokens, or -1 if unknown")
+    private int nTokens;
+
+    private StateEvent() {
+    }
+
+    /**
+     * @return the event, timed from now
+     */
+    public static StateEvent start() {
+        StateEvent event = new StateEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * End the event and commit it if enabled
+     *
+     * @param operation SAVE or LOAD
+     * @param nBytes size of the state
+     * @param nTokens number of input tokens, or -1 if unknown
+     */
+    public void finish(String operation, int nBytes, int nTokens) {
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.nBytes = nBytes;
+            this.nTokens = nTokens;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.javallm.llama4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A text converted to tokens
+ * <p>
+ * This is the Java 17+ variant, a JDK Flight Recorder event named {@code org.javallm.llama4j.Tokenize}.
+ */
+@Name("org.javallm.llama4j.Tokenize")
+@Label("Tokenize")
+@Category("llama4j")
+@Description("A text converted to tokens")
+@StackTrace(false)
+public final class TokenizeEvent extends Event {
+    @Label("Text Length")
+    @Description("Number of UTF-16 chars of the text")
+    private int textLength;
+
+    @Label("Tokens")
+    @Description("Number of resulting tokens")
+    private int nTokens;
+
+    private TokenizeEvent() {
+    }
+
+    /**
+     * @return the event, timed from now
+     */
+    public static TokenizeEvent start() {
+        TokenizeEvent event = new TokenizeEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * End the event and commit it if enabled
+     *
+     * @param textLength number of UTF-16 chars of the text
+     * @param nTokens number of resulting tokens
+     */
+    public void finish(int textLength, int nTokens) {
+        if (shouldCommit()) {
+            this.textLength = textLength;
+            this.nTokens = nTokens;
+            commit();
+        }
+    }
+}
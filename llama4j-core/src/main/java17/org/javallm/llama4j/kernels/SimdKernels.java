@@ -0,0 +1,93 @@
+package org.javallm.llama4j.kernels;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API implementations of {@link VectorKernels}, only loaded when the {@code jdk.incubator.vector} module is
+ * present. Only the array-based API is used, which is stable across Java 17 to 21.
+ */
+final class SimdKernels {
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    // as many bytes as ints per vector, so that they are widened lane by lane, but at least the 64-bit shape, the
+    // smallest one, e.g., 8 bytes widened in 2 parts of 4 ints with 128-bit vectors
+    private static final VectorSpecies<Byte> BYTES = VectorSpecies.of(byte.class,
+            VectorShape.forBitSize(Math.max(INTS.length() * Byte.SIZE, VectorShape.S_64_BIT.vectorBitSize())));
+    private static final int BYTE_PARTS = BYTES.length() / INTS.length();
+
+    private SimdKernels() {
+    }
+
+    static float dot(float[] a, float[] b, int n) {
+        FloatVector sum = FloatVector.zero(FLOATS);
+        int i = 0;
+        for (int bound = FLOATS.loopBound(n); i < bound; i += FLOATS.length()) {
+            sum = FloatVector.fromArray(FLOATS, a, i).fma(FloatVector.fromArray(FLOATS, b, i), sum);
+        }
+        float dot = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    static int dot(byte[] a, byte[] b, int n) {
+        IntVector sum = IntVector.zero(INTS);
+        int i = 0;
+        for (int bound = BYTES.loopBound(n); i < bound; i += BYTES.length()) {
+            ByteVector va = ByteVector.fromArray(BYTES, a, i);
+            ByteVector vb = ByteVector.fromArray(BYTES, b, i);
+            for (int part = 0; part < BYTE_PARTS; part++) {
+                sum = sum.add(((IntVector) va.castShape(INTS, part)).mul((IntVector) vb.castShape(INTS, part)));
+            }
+        }
+        int dot = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    static float max(float[] a, int n) {
+        FloatVector max = FloatVector.broadcast(FLOATS, Float.NEGATIVE_INFINITY);
+        int i = 0;
+        for (int bound = FLOATS.loopBound(n); i < bound; i += FLOATS.length()) {
+            max = max.max(FloatVector.fromArray(FLOATS, a, i));
+        }
+        float result = max.reduceLanes(VectorOperators.MAX);
+        for (; i < n; i++) {
+            if (a[i] > result) {
+                result = a[i];
+            }
+        }
+        return result;
+    }
+
+    static double sumExp(float[] a, int n, float shift) {
+        FloatVector sum = FloatVector.zero(FLOATS);
+        int i = 0;
+        for (int bound = FLOATS.loopBound(n); i < bound; i += FLOATS.length()) {
+            sum = sum.add(FloatVector.fromArray(FLOATS, a, i).sub(shift).lanewise(VectorOperators.EXP));
+        }
+        double result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            result += Math.exp(a[i] - shift);
+        }
+        return result;
+    }
+
+    static void scale(float[] a, int n, float factor) {
+        int i = 0;
+        for (int bound = FLOATS.loopBound(n); i < bound; i += FLOATS.length()) {
+            FloatVector.fromArray(FLOATS, a, i).mul(factor).intoArray(a, i);
+        }
+        for (; i < n; i++) {
+            a[i] *= factor;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.javallm.llama4j.kernels;
+
+/**
+ * Numeric kernels of the Java-side per-token and similarity math, e.g., over the logits of the whole vocabulary
+ * <p>
+ * This is the Java 17+ variant, which uses the incubating Vector API when the {@code jdk.incubator.vector} module is
+ * present (i.e., with {@code --add-modules jdk.incubator.vector}), and the scalar code otherwise.
+ */
+public final class VectorKernels {
+    private static final boolean VECTORIZED = vectorized();
+
+    private VectorKernels() {
+    }
+
+    /**
+     * @return whether the Vector API is present, enabled and usable with the vector shapes of this CPU
+     */
+    private static boolean vectorized() {
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+                || Boolean.getBoolean("llama4j.disableVectorKernels")) {
+            return false;
+        }
+        try {
+            // initializes the species, which fails if a shape is not supported
+            SimdKernels.dot(new byte[1], new byte[1], 1);
+            return true;
+        } catch (RuntimeException | LinkageError ex) {
+            return false;
+        }
+    }
+
+    /**
+     * @return whether the kernels use SIMD instructions through the Vector API
+     */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * @return dot product of the first {@code n} components
+     */
+    public static float dot(float[] a, float[] b, int n) {
+        return VECTORIZED ? SimdKernels.dot(a, b, n) : ScalarKernels.dot(a, b, n);
+    }
+
+    /**
+     * @return dot product of the first {@code n} components, accumulated in integers
+     */
+    public static int dot(byte[] a, byte[] b, int n) {
+        return VECTORIZED ? SimdKernels.dot(a, b, n) : ScalarKernels.dot(a, b, n);
+    }
+
+    /**
+     * @return maximum of the first {@code n} values, negative infinity if none
+     */
+    public static float max(float[] a, int n) {
+        return VECTORIZED ? SimdKernels.max(a, n) : ScalarKernels.max(a, n);
+    }
+
+    /**
+     * @return sum of {@code exp(a[i] - shift)} over the first {@code n} values, e.g., the normalizer of a softmax
+     */
+    public static double sumExp(float[] a, int n, float shift) {
+        return VECTORIZED ? SimdKernels.sumExp(a, n, shift) : ScalarKernels.sumExp(a, n, shift);
+    }
+
+    /**
+     * Multiply the first {@code n} values by a factor in place
+     */
+    public static void scale(float[] a, int n, float factor) {
+        if (VECTORIZED) {
+            SimdKernels.scale(a, n, factor);
+        } else {
+            ScalarKernels.scale(a, n, factor);
+        }
+    }
+}
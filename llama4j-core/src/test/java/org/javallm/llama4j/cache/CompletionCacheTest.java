@@ -0,0 +1,67 @@
+package org.javallm.llama4j.cache;
+
+import com.google.common.collect.ImmutableMap;
+import org.javallm.llama4j.model.params.PenalizeParameters;
+import org.javallm.llama4j.model.params.SamplingParameters;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompletionCacheTest {
+    @Test
+    public void test_key_and_replay() {
+        CompletionCache cache = new CompletionCache(1 << 20, 1, TimeUnit.HOURS);
+        SamplingParameters samplingParams = new SamplingParameters().setTemperature(0)
+                .setLogitBias(ImmutableMap.of(3, -1f));
+        PenalizeParameters penalizeParams = new PenalizeParameters();
+        int[] prompt = {1, 2, 3};
+        CompletionKey key = CompletionKey.of("model", prompt, samplingParams, penalizeParams, 16);
+
+        CachedCompletion.Recorder recorder = new CachedCompletion.Recorder();
+        recorder.token(10);
+        recorder.piece("Once");
+        recorder.token(11);
+        recorder.token(12);
+        recorder.piece(" upon");
+        cache.put(key, recorder.build());
+
+        // the key is a snapshot of its arguments
+        prompt[0] = 100;
+        samplingParams.banTokens(4);
+        penalizeParams.setRepeatPenalty(2f);
+        assertThat(cache.get(key)).isNotNull();
+        assertThat(cache.get(CompletionKey.of("model", prompt, samplingParams, penalizeParams, 16))).isNull();
+        assertThat(cache.get(CompletionKey.of("model", new int[]{1, 2, 3}, new SamplingParameters().setTemperature(0)
+                .setLogitBias(ImmutableMap.of(3, -1f)), new PenalizeParameters(), 16))).isNotNull();
+        assertThat(cache.get(CompletionKey.of("other", new int[]{1, 2, 3}, new SamplingParameters().setTemperature(0)
+                .setLogitBias(ImmutableMap.of(3, -1f)), new PenalizeParameters(), 16))).isNull();
+
+        List<String> pieces = new ArrayList<>();
+        assertThat(cache.get(key).replay(pieces::add)).isEqualTo(3);
+        assertThat(pieces).containsExactly("Once", " upon");
+        assertThat(cache.get(key).replay(piece -> false)).isEqualTo(1);
+
+        assertThat(CompletionCache.isCacheable(new SamplingParameters())).isFalse();
+        assertThat(CompletionCache.isCacheable(new SamplingParameters().setTemperature(0))).isTrue();
+    }
+
+    @Test
+    public void test_bounded_memory() {
+        CompletionCache cache = new CompletionCache(64 * 1024, 1, TimeUnit.HOURS);
+        for (int i = 0; i < 1000; i++) {
+            CachedCompletion.Recorder recorder = new CachedCompletion.Recorder();
+            for (int j = 0; j < 100; j++) {
+                recorder.token(j);
+                recorder.piece("piece");
+            }
+            cache.put(CompletionKey.of("model", new int[]{i}, new SamplingParameters().setTemperature(0),
+                    new PenalizeParameters(), 100), recorder.build());
+        }
+        assertThat(cache.size()).isBetween(1L, 100L);
+        assertThat(cache.stats().evictionCount()).isGreaterThan(0);
+    }
+}
@@ -0,0 +1,48 @@
+package org.javallm.llama4j.chat;
+
+import org.javallm.llama4j.TestUtils;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.impl.LlamaModelImpl;
+import org.javallm.llama4j.model.params.ModelParameters;
+import org.javallm.llama4j.model.params.PenalizeParameters;
+import org.javallm.llama4j.model.params.SamplingParameters;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConversationTest {
+    private static final String MODEL_PATH = TestUtils.getResourceAbsolutePath("tinyllamas-stories-260k-f32.gguf");
+
+    @Test
+    public void test_delta_evaluation() throws Exception {
+        ModelParameters params = new ModelParameters()
+                .setModelPath(MODEL_PATH)
+                .setContextSize(512);
+        try (LlamaModel model = new LlamaModelImpl(params)) {
+            for (ChatTemplate template : new ChatTemplate[]{new Llama2ChatTemplate(), new ChatMLTemplate()}) {
+                Conversation conversation = new Conversation(model, template)
+                        .system("You tell short stories.")
+                        .user("Tell me a story about a cat.");
+                SamplingParameters samplingParams = new SamplingParameters().setTemperature(0);
+                PenalizeParameters penalizeParams = new PenalizeParameters();
+
+                conversation.reply(samplingParams, penalizeParams, 16);
+                assertThat(conversation.reusedTokens()).isZero();
+                long evaluated = conversation.evaluatedTokens();
+
+                conversation.user("And a dog?");
+                conversation.reply(samplingParams, penalizeParams, 16);
+                // only the new message and reply are evaluated
+                assertThat(conversation.reusedTokens()).isEqualTo(evaluated);
+                assertThat(conversation.messages()).hasSize(4);
+
+                int[] inputTokens = model.inputTokens();
+                int[] tokens = conversation.tokens();
+                assertThat(inputTokens.length).isLessThanOrEqualTo(tokens.length);
+                assertThat(Arrays.copyOf(tokens, inputTokens.length)).isEqualTo(inputTokens);
+            }
+        }
+    }
+}
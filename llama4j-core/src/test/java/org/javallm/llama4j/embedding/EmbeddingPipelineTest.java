@@ -0,0 +1,121 @@
+package org.javallm.llama4j.embedding;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.javallm.llama4j.TestUtils;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.impl.JavaLlamaModel;
+import org.javallm.llama4j.model.impl.LlamaModelImpl;
+import org.javallm.llama4j.model.params.ModelParameters;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class EmbeddingPipelineTest {
+    private static final String MODEL_PATH = TestUtils.getResourceAbsolutePath("tinyllamas-stories-260k-f32.gguf");
+
+    @Test
+    public void test_token_chunker() {
+        List<int[]> chunks = new ArrayList<>();
+        TokenChunker chunker = new TokenChunker(4, 1, chunks::add);
+        chunker.add(new int[]{1, 2, 3});
+        chunker.add(new int[]{4, 5, 6, 7, 8});
+        chunker.finish();
+        assertThat(chunks).containsExactly(new int[]{1, 2, 3, 4}, new int[]{4, 5, 6, 7}, new int[]{7, 8});
+
+        chunks.clear();
+        chunker.add(new int[]{1, 2, 3, 4});
+        chunker.finish();
+        // no trailing chunk made of the overlap only
+        assertThat(chunks).containsExactly(new int[]{1, 2, 3, 4});
+    }
+
+    @Test
+    public void test_text_block_reader() throws Exception {
+        String text = IntStream.range(0, 2000).mapToObj(i -> "wörd" + i).collect(Collectors.joining(" "));
+        TextBlockReader reader = new TextBlockReader(
+                Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))), 1024);
+        List<String> blocks = new ArrayList<>();
+        String block;
+        while ((block = reader.next()) != null) {
+            assertThat(block.length()).isLessThanOrEqualTo(1024);
+            blocks.add(block);
+        }
+        assertThat(blocks.size()).isGreaterThan(1);
+        assertThat(String.join(" ", blocks)).isEqualTo(text);
+    }
+
+    @Test
+    public void test_chunk_tokens_bound() throws Exception {
+        ModelParameters params = new ModelParameters()
+                .setModelPath(MODEL_PATH)
+                .setContextSize(64)
+                .setBatchSize(32)
+                .setEmbeddingMode(true);
+        try (LlamaModel tokenizer = new JavaLlamaModel(params);
+             LlamaModel model = new JavaLlamaModel(params)) {
+            // <BOS> plus 63 tokens would fill the context
+            assertThatThrownBy(() -> new EmbeddingPipeline(tokenizer, Arrays.asList(model),
+                    new EmbeddingPipelineParameters().setChunkTokens(63).setOverlapTokens(8)))
+                    .isInstanceOf(IllegalArgumentException.class);
+
+            EmbeddingPipeline pipeline = new EmbeddingPipeline(tokenizer, Arrays.asList(model),
+                    new EmbeddingPipelineParameters().setChunkTokens(62).setOverlapTokens(8));
+            String text = IntStream.range(0, 20).mapToObj(i -> "Lily went to the park with her mom.")
+                    .collect(Collectors.joining(" "));
+            List<EmbeddedChunk> chunks = new ArrayList<>();
+            pipeline.embed("doc", Channels.newChannel(
+                    new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))), chunks::add);
+            // a full chunk is embedded as is, without swapping the context
+            assertThat(chunks.get(0).getTokens()).hasSize(62);
+            assertThat(chunks.get(0).getEmbedding()).isEqualTo(model.embed(
+                    ArrayUtils.insert(0, chunks.get(0).getTokens(), model.bosToken())));
+
+            pipeline.close();
+            assertThatThrownBy(() -> pipeline.embed("doc", Channels.newChannel(
+                    new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))), chunks::add))
+                    .isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    public void test_embed_document() throws Exception {
+        ModelParameters params = new ModelParameters()
+                .setModelPath(MODEL_PATH)
+                .setContextSize(128)
+                .setEmbeddingMode(true);
+        String text = IntStream.range(0, 200).mapToObj(i -> "Lily went to the park with her mom.")
+                .collect(Collectors.joining(" "));
+        EmbeddingPipelineParameters pipelineParams = new EmbeddingPipelineParameters()
+                .setChunkTokens(64)
+                .setOverlapTokens(8)
+                .setMaxInFlightChunks(4)
+                .setReadBufferBytes(1024);
+
+        try (LlamaModel tokenizer = new LlamaModelImpl(params);
+             LlamaModel first = new LlamaModelImpl(params);
+             LlamaModel second = new LlamaModelImpl(params);
+             EmbeddingPipeline pipeline = new EmbeddingPipeline(tokenizer, Arrays.asList(first, second), pipelineParams)) {
+            List<EmbeddedChunk> chunks = new ArrayList<>();
+            int nChunks = pipeline.embed("doc", Channels.newChannel(
+                    new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))), chunks::add);
+
+            assertThat(nChunks).isGreaterThan(1).isEqualTo(chunks.size());
+            assertThat(chunks.stream().mapToInt(EmbeddedChunk::getIndex).sorted().toArray())
+                    .isEqualTo(IntStream.range(0, nChunks).toArray());
+            for (EmbeddedChunk chunk : chunks) {
+                assertThat(chunk.getTokens().length).isLessThanOrEqualTo(64);
+                assertThat(chunk.getEmbedding()).hasSize(first.embeddingSize());
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.javallm.llama4j.embedding;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class EmbeddingsTest {
+    @Test
+    public void test_fp16() {
+        assertThat(Embeddings.toFp16(1.0f)).isEqualTo((short) 0x3c00);
+        assertThat(Embeddings.toFp16(-2.0f)).isEqualTo((short) 0xc000);
+        assertThat(Embeddings.toFp16(65504f)).isEqualTo((short) 0x7bff);
+        assertThat(Embeddings.toFp16(1e6f)).isEqualTo((short) 0x7c00);
+        assertThat(Embeddings.toFp16(0x1p-24f)).isEqualTo((short) 0x0001);
+        assertThat(Embeddings.toFp16(Float.NaN) & 0x7fff).isGreaterThan(0x7c00);
+        // ties round to even
+        assertThat(Embeddings.toFp16(1.0f + 0x1p-11f)).isEqualTo((short) 0x3c00);
+        assertThat(Embeddings.toFp16(1.0f + 0x3p-11f)).isEqualTo((short) 0x3c02);
+
+        // every finite half survives a round trip
+        for (int h = 0; h < 0x7c00; h++) {
+            assertThat(Embeddings.toFp16(Embeddings.fromFp16((short) h))).isEqualTo((short) h);
+            assertThat(Embeddings.toFp16(Embeddings.fromFp16((short) (h | 0x8000)))).isEqualTo((short) (h | 0x8000));
+        }
+    }
+
+    @Test
+    public void test_dot_products() {
+        Random random = new Random(5);
+        float[] a = new float[512];
+        float[] b = new float[512];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = (float) random.nextGaussian();
+            b[i] = (float) random.nextGaussian() + a[i];
+        }
+        Embeddings.normalize(a);
+        Embeddings.normalize(b);
+        assertThat((double) Embeddings.dot(a, a)).isCloseTo(1, within(1e-5));
+
+        float expected = Embeddings.dot(a, b);
+        assertThat((double) Embeddings.toInt8(a).dot(Embeddings.toInt8(b))).isCloseTo(expected, within(1e-2));
+        short[] ha = Embeddings.toFp16(a);
+        short[] hb = Embeddings.toFp16(b);
+        assertThat((double) Embeddings.dot(ha, hb)).isCloseTo(expected, within(1e-3));
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4 * a.length).order(ByteOrder.nativeOrder());
+        Embeddings.putFp16(buffer, ha);
+        Embeddings.putFp16(buffer, hb);
+        assertThat(Embeddings.dotFp16(buffer, 0, buffer, 2 * a.length, a.length)).isEqualTo(Embeddings.dot(ha, hb));
+
+        ByteBuffer bytes = ByteBuffer.allocateDirect(2 * a.length);
+        bytes.put(Embeddings.toInt8(a).getValues()).put(Embeddings.toInt8(b).getValues());
+        assertThat(Embeddings.dotInt8(bytes, 0, bytes, a.length, a.length))
+                .isEqualTo(Embeddings.dot(Embeddings.toInt8(a).getValues(), Embeddings.toInt8(b).getValues()));
+    }
+}
@@ -0,0 +1,86 @@
+package org.javallm.llama4j.ggml;
+
+import org.javallm.llama4j.embedding.Embeddings;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class TensorOpsTest {
+    private static final int DIMENSION = 64;
+
+    @Test
+    public void test_similarity() {
+        float[][] vectors = random(2000, new Random(1));
+        float[][] queries = random(3, new Random(2));
+        try (TensorOps ops = new TensorOps(new TensorOpsParameters().setNThreads(4));
+             GGMLMatrix matrix = GGMLMatrix.of(vectors)) {
+            long memoryBytes = ops.memoryBytes();
+            for (int round = 0; round < 3; round++) {
+                float[][] similarities = ops.similarity(matrix, queries);
+                assertThat(similarities).hasDimensions(queries.length, vectors.length);
+                for (int q = 0; q < queries.length; q++) {
+                    for (int i = 0; i < vectors.length; i++) {
+                        assertThat(similarities[q][i]).isCloseTo(Embeddings.dot(queries[q], vectors[i]),
+                                within(1e-4f));
+                    }
+                }
+            }
+            assertThat(ops.similarity(matrix, queries[1])).isEqualTo(ops.similarity(matrix, queries)[1]);
+            // the context memory is reused
+            assertThat(ops.memoryBytes()).isEqualTo(memoryBytes);
+
+            assertThatThrownBy(() -> ops.similarity(matrix, new float[DIMENSION + 1]))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    public void test_mean_pool_and_normalize() {
+        float[][] vectors = random(100, new Random(3));
+        vectors[7] = new float[DIMENSION];
+        try (TensorOps ops = new TensorOps(new TensorOpsParameters().setNThreads(2))) {
+            float[] mean = ops.meanPool(vectors);
+            for (int j = 0; j < DIMENSION; j++) {
+                float sum = 0;
+                for (float[] vector : vectors) {
+                    sum += vector[j];
+                }
+                assertThat(mean[j]).isCloseTo(sum / vectors.length, within(1e-5f));
+            }
+
+            float[][] normalized = ops.normalize(vectors);
+            for (int i = 0; i < vectors.length; i++) {
+                float[] expected = Embeddings.normalize(vectors[i].clone());
+                for (int j = 0; j < DIMENSION; j++) {
+                    assertThat(normalized[i][j]).isCloseTo(expected[j], within(1e-5f));
+                }
+            }
+            assertThat(normalized[7]).containsOnly(0f);
+        }
+    }
+
+    @Test
+    public void test_memory_grows() {
+        float[][] vectors = random(100_000, new Random(4));
+        try (TensorOps ops = new TensorOps(new TensorOpsParameters().setNThreads(4))) {
+            long memoryBytes = ops.memoryBytes();
+            float[] mean = ops.meanPool(vectors);
+            assertThat(ops.memoryBytes()).isGreaterThan(memoryBytes);
+            assertThat(ops.meanPool(vectors)).isEqualTo(mean);
+        }
+    }
+
+    private static float[][] random(int n, Random random) {
+        float[][] vectors = new float[n][DIMENSION];
+        for (float[] vector : vectors) {
+            for (int j = 0; j < DIMENSION; j++) {
+                vector[j] = (float) random.nextGaussian();
+            }
+        }
+        return vectors;
+    }
+}
@@ -0,0 +1,61 @@
+package org.javallm.llama4j.gguf;
+
+import org.javallm.llama4j.TestUtils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GGUFFileTest {
+    private static final String MODEL_PATH = TestUtils.getResourceAbsolutePath("tinyllamas-stories-260k-f32.gguf");
+    private static final String Q8_0_MODEL_PATH = TestUtils.getResourceAbsolutePath("tinyllamas-stories-260k-q8_0.gguf");
+
+    @Test
+    public void test_read_metadata() {
+        try (GGUFFile file = GGUFFile.open(Paths.get(MODEL_PATH))) {
+            assertThat(file.getString("general.architecture")).isEqualTo("llama");
+            assertThat(file.getInt("llama.embedding_length")).isEqualTo(64);
+            assertThat(file.getInt("llama.attention.head_count_kv", 8)).isEqualTo(4);
+            assertThat(file.getInt("missing.key", 7)).isEqualTo(7);
+            assertThat(file.get("tokenizer.ggml.tokens", String[].class)).hasSize(512).startsWith("<unk>", "<s>", "</s>");
+            assertThat(file.get("tokenizer.ggml.scores", float[].class)).hasSize(512);
+
+            assertThatThrownBy(() -> file.getString("missing.key")).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> file.getString("llama.block_count")).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    public void test_map_tensors_across_versions() {
+        try (GGUFFile f32 = GGUFFile.open(Paths.get(MODEL_PATH));
+             GGUFFile q80 = GGUFFile.open(Paths.get(Q8_0_MODEL_PATH))) {
+            // the bundled files are of different versions, with 32-bit and 64-bit counts respectively
+            assertThat(f32.getVersion()).isNotEqualTo(q80.getVersion());
+            assertThat(q80.getTensors().keySet()).isEqualTo(f32.getTensors().keySet());
+
+            GGUFTensorInfo embedding = q80.getTensors().get("token_embd.weight");
+            assertThat(embedding.getType()).isEqualTo(GGMLType.Q8_0);
+            assertThat(embedding.getShape()).containsExactly(64, 512);
+            assertThat(q80.map("token_embd.weight").capacity()).isEqualTo(embedding.bytes());
+
+            // the norm weights are not quantized, so both files hold the same values
+            ByteBuffer a = f32.map("output_norm.weight");
+            ByteBuffer b = q80.map("output_norm.weight");
+            assertThat(a.capacity()).isEqualTo(64 * 4);
+            for (int i = 0; i < 64; i++) {
+                assertThat(a.getFloat(4 * i)).isEqualTo(b.getFloat(4 * i));
+            }
+
+            assertThatThrownBy(() -> f32.map("missing.weight")).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    public void test_open_non_gguf_file() {
+        String path = TestUtils.getResourceAbsolutePath("tinyllamas-stories-260k-f32.gguf");
+        assertThatThrownBy(() -> GGUFFile.open(Paths.get(path).getParent())).isInstanceOf(RuntimeException.class);
+    }
+}
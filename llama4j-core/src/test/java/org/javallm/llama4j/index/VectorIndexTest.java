@@ -0,0 +1,112 @@
+package org.javallm.llama4j.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class VectorIndexTest {
+    private static final int DIMENSION = 32;
+    private static final int SIZE = 3000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void test_flat_index() {
+        float[][] vectors = randomVectors(SIZE, 1);
+        Path path = tempDir.resolve("flat.index");
+        for (VectorEncoding encoding : VectorEncoding.values()) {
+            try (FlatVectorIndex index = FlatVectorIndex.create(path, DIMENSION, encoding)) {
+                addInBatches(index, vectors);
+                assertThat(index.size()).isEqualTo(SIZE);
+
+                List<SearchHit> hits = index.search(vectors[123], 5);
+                assertThat(hits).hasSize(5);
+                assertThat(hits.get(0).getId()).isEqualTo(1123);
+                assertThat((double) hits.get(0).getScore()).isCloseTo(1, within(encoding == VectorEncoding.F32 ? 1e-5 : 2e-2));
+                for (int i = 1; i < hits.size(); i++) {
+                    assertThat(hits.get(i).getScore()).isLessThanOrEqualTo(hits.get(i - 1).getScore());
+                }
+            }
+
+            try (FlatVectorIndex index = FlatVectorIndex.open(path)) {
+                assertThat(index.size()).isEqualTo(SIZE);
+                assertThat(index.getEncoding()).isEqualTo(encoding);
+                assertThat(index.search(vectors[2999], 1).get(0).getId()).isEqualTo(3999);
+
+                // a single bad vector rejects the whole batch
+                float[][] batch = {vectors[0], new float[DIMENSION + 1]};
+                assertThatThrownBy(() -> index.add(new long[]{1, 2}, batch))
+                        .isInstanceOf(IllegalArgumentException.class);
+                assertThat(index.size()).isEqualTo(SIZE);
+            }
+
+            try (FlatVectorIndex index = FlatVectorIndex.open(path)) {
+                assertThat(index.size()).isEqualTo(SIZE);
+            }
+        }
+    }
+
+    @Test
+    public void test_hnsw_recall() {
+        float[][] vectors = randomVectors(SIZE, 2);
+        float[][] queries = randomVectors(50, 3);
+        HnswParameters params = new HnswParameters();
+
+        try (FlatVectorIndex exact = FlatVectorIndex.create(tempDir.resolve("exact.index"), DIMENSION, VectorEncoding.F32);
+             HnswVectorIndex hnsw = HnswVectorIndex.create(tempDir.resolve("hnsw.index"), DIMENSION, VectorEncoding.F32, params)) {
+            addInBatches(exact, vectors);
+            addInBatches(hnsw, vectors);
+            assertThat(recall(exact, hnsw, queries)).isGreaterThan(0.9);
+        }
+
+        // the graph is persisted next to the vectors
+        try (FlatVectorIndex exact = FlatVectorIndex.open(tempDir.resolve("exact.index"));
+             HnswVectorIndex hnsw = HnswVectorIndex.open(tempDir.resolve("hnsw.index"), params)) {
+            assertThat(hnsw.size()).isEqualTo(SIZE);
+            assertThat(recall(exact, hnsw, queries)).isGreaterThan(0.9);
+        }
+    }
+
+    private static double recall(VectorIndex exact, VectorIndex approximate, float[][] queries) {
+        int found = 0;
+        for (float[] query : queries) {
+            Set<Long> expected = exact.search(query, 10).stream().map(SearchHit::getId).collect(Collectors.toSet());
+            found += (int) approximate.search(query, 10).stream().filter(hit -> expected.contains(hit.getId())).count();
+        }
+        return found / (10.0 * queries.length);
+    }
+
+    private static void addInBatches(VectorIndex index, float[][] vectors) {
+        for (int from = 0; from < vectors.length; from += 500) {
+            int n = Math.min(500, vectors.length - from);
+            long[] ids = new long[n];
+            float[][] batch = new float[n][];
+            for (int i = 0; i < n; i++) {
+                ids[i] = 1000 + from + i;
+                batch[i] = vectors[from + i];
+            }
+            index.add(ids, batch);
+        }
+    }
+
+    private static float[][] randomVectors(int n, long seed) {
+        Random random = new Random(seed);
+        float[][] vectors = new float[n][DIMENSION];
+        for (float[] vector : vectors) {
+            for (int i = 0; i < DIMENSION; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+        }
+        return vectors;
+    }
+}
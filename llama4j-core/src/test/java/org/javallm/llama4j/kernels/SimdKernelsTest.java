@@ -0,0 +1,89 @@
+package org.javallm.llama4j.kernels;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks the Java 17+ {@code SimdKernels} against {@link ScalarKernels}
+ * <p>
+ * The tests load classes from {@code target/classes}, which is not read as a multi-release JAR, so the Java 17+
+ * variants under {@code META-INF/versions/17} are loaded directly by a class loader. The test is skipped without the
+ * {@code jdk.incubator.vector} module; the {@code java17} profile runs it with 128-bit and 256-bit vectors.
+ */
+public class SimdKernelsTest {
+    @Test
+    public void test_simd_kernels_match_scalar() throws Exception {
+        assumeTrue(vectorModulePresent(), "needs --add-modules jdk.incubator.vector");
+        Path classes = Paths.get(ScalarKernels.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        Path java17 = classes.resolve("META-INF/versions/17");
+        assumeTrue(Files.isDirectory(java17), "needs the classes of the java17 profile");
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { java17.toUri().toURL(), classes.toUri().toURL() },
+                ClassLoader.getSystemClassLoader().getParent())) {
+            Class<?> simd = loader.loadClass("org.javallm.llama4j.kernels.SimdKernels");
+            Method floatDot = method(simd, "dot", float[].class, float[].class, int.class);
+            Method byteDot = method(simd, "dot", byte[].class, byte[].class, int.class);
+            Method max = method(simd, "max", float[].class, int.class);
+            Method sumExp = method(simd, "sumExp", float[].class, int.class, float.class);
+            Method scale = method(simd, "scale", float[].class, int.class, float.class);
+            Class<?> kernels = loader.loadClass("org.javallm.llama4j.kernels.VectorKernels");
+            assertThat(kernels.getMethod("isVectorized").invoke(null)).isEqualTo(true);
+
+            Random random = new Random(3);
+            // odd lengths exercise the scalar tails, and 3 x 64 + 1 the loops of every vector size
+            for (int n : new int[] { 0, 1, 7, 33, 193, 32000 }) {
+                float[] a = new float[n];
+                float[] b = new float[n];
+                byte[] x = new byte[n];
+                byte[] y = new byte[n];
+                for (int i = 0; i < n; i++) {
+                    a[i] = (float) random.nextGaussian() * 4;
+                    b[i] = (float) random.nextGaussian();
+                    x[i] = (byte) random.nextInt(256);
+                    y[i] = (byte) random.nextInt(256);
+                }
+
+                assertThat((double) (float) floatDot.invoke(null, a, b, n))
+                        .isCloseTo(ScalarKernels.dot(a, b, n), within(1e-3 * Math.max(1, n)));
+                assertThat(byteDot.invoke(null, x, y, n)).isEqualTo(ScalarKernels.dot(x, y, n));
+                assertThat(max.invoke(null, a, n)).isEqualTo(ScalarKernels.max(a, n));
+                float shift = ScalarKernels.max(a, n);
+                double expected = ScalarKernels.sumExp(a, n, shift);
+                assertThat((double) sumExp.invoke(null, a, n, shift))
+                        .isCloseTo(expected, within(1e-5 * Math.max(1, expected)));
+
+                float[] scaled = a.clone();
+                scale.invoke(null, scaled, n, 0.5f);
+                for (int i = 0; i < n; i++) {
+                    assertThat(scaled[i]).isEqualTo(a[i] * 0.5f);
+                }
+            }
+        }
+    }
+
+    private static boolean vectorModulePresent() {
+        try {
+            Class.forName("jdk.incubator.vector.IntVector");
+            return true;
+        } catch (ClassNotFoundException ex) {
+            return false;
+        }
+    }
+
+    private static Method method(Class<?> type, String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+        Method method = type.getDeclaredMethod(name, parameterTypes);
+        method.setAccessible(true);
+        return method;
+    }
+}
@@ -0,0 +1,41 @@
+package org.javallm.llama4j.kernels;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class VectorKernelsTest {
+    @Test
+    public void test_kernels_match_scalar() {
+        Random random = new Random(3);
+        // odd lengths exercise the scalar tails
+        for (int n : new int[]{0, 1, 7, 33, 32000}) {
+            float[] a = new float[n];
+            float[] b = new float[n];
+            byte[] x = new byte[n];
+            byte[] y = new byte[n];
+            for (int i = 0; i < n; i++) {
+                a[i] = (float) random.nextGaussian() * 4;
+                b[i] = (float) random.nextGaussian();
+                x[i] = (byte) random.nextInt(256);
+                y[i] = (byte) random.nextInt(256);
+            }
+
+            assertThat((double) VectorKernels.dot(a, b, n)).isCloseTo(ScalarKernels.dot(a, b, n), within(1e-3 * Math.max(1, n)));
+            assertThat(VectorKernels.dot(x, y, n)).isEqualTo(ScalarKernels.dot(x, y, n));
+            assertThat(VectorKernels.max(a, n)).isEqualTo(ScalarKernels.max(a, n));
+            float max = ScalarKernels.max(a, n);
+            double expected = ScalarKernels.sumExp(a, n, max);
+            assertThat(VectorKernels.sumExp(a, n, max)).isCloseTo(expected, within(1e-5 * Math.max(1, expected)));
+
+            float[] scaled = a.clone();
+            VectorKernels.scale(scaled, n, 0.5f);
+            for (int i = 0; i < n; i++) {
+                assertThat(scaled[i]).isEqualTo(a[i] * 0.5f);
+            }
+        }
+    }
+}
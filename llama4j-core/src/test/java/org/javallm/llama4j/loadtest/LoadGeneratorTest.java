@@ -0,0 +1,85 @@
+package org.javallm.llama4j.loadtest;
+
+import org.javallm.llama4j.TestUtils;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.impl.JavaLlamaModel;
+import org.javallm.llama4j.model.params.ModelParameters;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoadGeneratorTest {
+    private static final String MODEL_PATH = TestUtils.getResourceAbsolutePath("tinyllamas-stories-260k-f32.gguf");
+    private static final List<String> PROMPTS = Arrays.asList(
+            "Once upon a time, there was a little girl named Lily.",
+            "Tom had a big red ball.",
+            "The sun was shining and the birds were singing.");
+
+    @Test
+    public void test_histogram_percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.percentile(99)).isZero();
+
+        Random random = new Random(42);
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) (Math.abs(random.nextGaussian()) * 100_000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[] { 50, 90, 99, 99.9 }) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            assertThat((double) histogram.percentile(percentile)).isBetween((double) exact, exact * 1.01);
+        }
+        assertThat(histogram.percentile(100)).isEqualTo(values[values.length - 1]);
+        assertThat(histogram.count()).isEqualTo(values.length);
+
+        // values below the sub-bucket count are exact
+        for (long value = 0; value < 1024; value++) {
+            int index = LatencyHistogram.indexOf(value);
+            assertThat(LatencyHistogram.highestEquivalentValue(index)).isGreaterThanOrEqualTo(value);
+            assertThat(LatencyHistogram.indexOf(LatencyHistogram.highestEquivalentValue(index))).isEqualTo(index);
+        }
+    }
+
+    @Test
+    public void test_closed_and_open_loop() throws Exception {
+        List<LlamaModel> sessions = new ArrayList<>();
+        try {
+            for (int i = 0; i < 2; i++) {
+                sessions.add(new JavaLlamaModel(new ModelParameters().setModelPath(MODEL_PATH).setNThreads(1)));
+            }
+
+            LoadTestReport closed = new LoadGenerator(sessions, PROMPTS, new LoadTestParameters()
+                    .setRequests(6)
+                    .setWarmUpRequests(2)
+                    .setMaxTokens(16)
+                    .setMemorySampleMillis(10)).run();
+            System.out.print(closed.format());
+            assertThat(closed.getCompletedRequests()).isEqualTo(6);
+            assertThat(closed.getFailedRequests()).isZero();
+            assertThat(closed.getGeneratedTokens()).isPositive();
+            assertThat(closed.getTimeToFirstToken().getCount()).isEqualTo(6);
+            assertThat(closed.getEndToEnd().getP99()).isGreaterThanOrEqualTo(closed.getTimeToFirstToken().getP50());
+            assertThat(closed.tokensPerSecond()).isPositive();
+            assertThat(closed.getMemory()).isNotEmpty();
+
+            LoadTestReport open = new LoadGenerator(sessions, PROMPTS, new LoadTestParameters()
+                    .setRequests(6)
+                    .setRequestsPerSecond(50)
+                    .setMaxTokens(16)).run();
+            System.out.print(open.format());
+            assertThat(open.getCompletedRequests()).isEqualTo(6);
+            assertThat(open.getInterTokenLatency().getCount()).isPositive();
+        } finally {
+            for (LlamaModel session : sessions) {
+                session.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package org.javallm.llama4j.lora;
+
+import org.javallm.llama4j.SimpleCasualLM;
+import org.javallm.llama4j.TestUtils;
+import org.javallm.llama4j.gguf.GGMLType;
+import org.javallm.llama4j.gguf.GGUFFile;
+import org.javallm.llama4j.gguf.GGUFTensorInfo;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.impl.JavaLlamaModel;
+import org.javallm.llama4j.model.params.ModelParameters;
+import org.javallm.llama4j.model.params.PenalizeParameters;
+import org.javallm.llama4j.model.params.SamplingParameters;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class AdapterModelCacheTest {
+    private static final String MODEL_PATH = TestUtils.getResourceAbsolutePath("tinyllamas-stories-260k-f32.gguf");
+    private static final String Q8_0_MODEL_PATH = TestUtils.getResourceAbsolutePath("tinyllamas-stories-260k-q8_0.gguf");
+    private static final String PROMPT = "Once upon a time, there was a little girl named Lily.";
+    private static final int RANK = 4;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void test_merge() throws IOException {
+        Path adapterPath = writeAdapter(tempDir.resolve("adapter.bin"), 1.0f);
+        LoRAAdapter adapter = LoRAAdapter.read(adapterPath);
+        assertThat(adapter.getTensorNames()).containsExactlyInAnyOrder("blk.0.attn_q.weight", "blk.1.ffn_down.weight");
+
+        for (String modelPath : new String[] { MODEL_PATH, Q8_0_MODEL_PATH }) {
+            Path merged = tempDir.resolve("merged.gguf");
+            LoRAMerger.merge(Paths.get(modelPath), adapter, merged);
+            assertThat(Files.size(merged)).isEqualTo(Files.size(Paths.get(modelPath)));
+
+            try (GGUFFile base = GGUFFile.open(Paths.get(modelPath)); GGUFFile result = GGUFFile.open(merged)) {
+                assertThat(result.getMetadata().keySet()).isEqualTo(base.getMetadata().keySet());
+                for (GGUFTensorInfo tensor : base.getTensors().values()) {
+                    float[] expected = LoRAMerger.decode(base.map(tensor.getName()), tensor.getType(),
+                            (int) tensor.elements());
+                    float[] actual = LoRAMerger.decode(result.map(tensor.getName()), tensor.getType(),
+                            (int) tensor.elements());
+                    if (!adapter.getTensorNames().contains(tensor.getName())) {
+                        assertThat(actual).isEqualTo(expected);
+                        continue;
+                    }
+                    adapter.addTo(tensor.getName(), expected);
+                    // Q8_0 blocks are quantized again, with an error of half a step of at most 1/127 of the block range
+                    float tolerance = modelPath.equals(MODEL_PATH) ? 1e-6f : maxAbs(expected) / 127;
+                    for (int i = 0; i < expected.length; i++) {
+                        assertThat(actual[i]).isCloseTo(expected[i], within(tolerance));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_merge_lora_base() throws IOException {
+        LoRAAdapter adapter = LoRAAdapter.read(writeAdapter(tempDir.resolve("adapter.bin"), 1.0f));
+        Path merged = tempDir.resolve("merged.gguf");
+        // the adapter goes onto the f32 weights, and the result is quantized as the q8_0 base model
+        LoRAMerger.merge(Paths.get(Q8_0_MODEL_PATH), Paths.get(MODEL_PATH), adapter, merged);
+
+        try (GGUFFile weights = GGUFFile.open(Paths.get(MODEL_PATH)); GGUFFile result = GGUFFile.open(merged)) {
+            for (String name : adapter.getTensorNames()) {
+                GGUFTensorInfo tensor = result.getTensors().get(name);
+                assertThat(tensor.getType()).isEqualTo(GGMLType.Q8_0);
+                float[] expected = LoRAMerger.decode(weights.map(name), GGMLType.F32, (int) tensor.elements());
+                adapter.addTo(name, expected);
+                float[] quantized = LoRAMerger.decode(LoRAMerger.encode(expected, GGMLType.Q8_0), GGMLType.Q8_0,
+                        expected.length);
+                assertThat(LoRAMerger.decode(result.map(name), GGMLType.Q8_0, expected.length)).isEqualTo(quantized);
+            }
+        }
+    }
+
+    @Test
+    public void test_concurrent_merges() throws Exception {
+        LoRAAdapter adapter = LoRAAdapter.read(writeAdapter(tempDir.resolve("adapter.bin"), 1.0f));
+        Path merged = tempDir.resolve("merged").resolve("merged.gguf");
+        Files.createDirectories(merged.getParent());
+        Path expected = tempDir.resolve("expected.gguf");
+        LoRAMerger.merge(Paths.get(MODEL_PATH), adapter, expected);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> LoRAMerger.merge(Paths.get(MODEL_PATH), adapter, merged)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(Files.readAllBytes(merged)).isEqualTo(Files.readAllBytes(expected));
+        // no temporary file is left behind
+        try (Stream<Path> files = Files.list(merged.getParent())) {
+            assertThat(files).containsExactly(merged);
+        }
+    }
+
+    @Test
+    public void test_cache() throws Exception {
+        Path adapter = writeAdapter(tempDir.resolve("adapter.bin"), 4.0f);
+        AdapterCacheParameters params = new AdapterCacheParameters()
+                .setMergedModelDirectory(tempDir.resolve("merged").toString());
+        ModelParameters baseParams = new ModelParameters().setModelPath(MODEL_PATH).setNThreads(1);
+
+        String base;
+        String adapted;
+        try (AdapterModelCache cache = new AdapterModelCache(baseParams, params, JavaLlamaModel::new)) {
+            base = cache.withAdapter(null, AdapterModelCacheTest::complete);
+            adapted = cache.withAdapter(adapter.toString(), AdapterModelCacheTest::complete);
+            assertThat(cache.withAdapter(adapter.toString(), AdapterModelCacheTest::complete)).isEqualTo(adapted);
+            System.out.printf("Base -> %s%nAdapted -> %s%n", base, adapted);
+            assertThat(adapted).isNotEqualTo(base);
+
+            AdapterCacheStats stats = cache.stats();
+            assertThat(stats.getLoads()).isEqualTo(2);
+            assertThat(stats.getMerges()).isEqualTo(1);
+            assertThat(stats.getHits()).isEqualTo(1);
+            assertThat(stats.getUsedBytes()).isPositive();
+            assertThat(cache.size()).isEqualTo(2);
+        }
+
+        // the merged model is reused, and the idle models beyond the budget are closed
+        params.setMemoryBudgetBytes(Files.size(Paths.get(MODEL_PATH)));
+        try (AdapterModelCache cache = new AdapterModelCache(baseParams, params, JavaLlamaModel::new)) {
+            assertThat(cache.withAdapter(adapter.toString(), AdapterModelCacheTest::complete)).isEqualTo(adapted);
+            assertThat(cache.withAdapter(null, AdapterModelCacheTest::complete)).isEqualTo(base);
+            AdapterCacheStats stats = cache.stats();
+            assertThat(stats.getMerges()).isZero();
+            assertThat(stats.getEvictions()).isEqualTo(1);
+            assertThat(cache.size()).isEqualTo(1);
+        }
+
+        assertThatThrownBy(() -> new AdapterModelCache(baseParams.copy().setLoraPath(adapter.toString()), params,
+                JavaLlamaModel::new))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String complete(LlamaModel model) {
+        StringBuilder text = new StringBuilder();
+        new SimpleCasualLM(model).infer(PROMPT, new SamplingParameters().setTemperature(0), new PenalizeParameters(),
+                16, piece -> {
+                    text.append(piece);
+                    return true;
+                });
+        return text.toString();
+    }
+
+    private static float maxAbs(float[] values) {
+        float max = 0;
+        for (float value : values) {
+            max = Math.max(max, Math.abs(value));
+        }
+        return max;
+    }
+
+    /**
+     * Write an adapter of random weights for two tensors in the layout of {@code convert-lora-to-ggml.py}
+     */
+    private static Path writeAdapter(Path path, float magnitude) throws IOException {
+        Random random = new Random(42);
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("algg".getBytes(StandardCharsets.US_ASCII));
+        buffer.putInt(1).putInt(RANK).putInt(2 * RANK);
+        // [n_in, n_out] of the adapted tensors
+        writeTensorPair(buffer, "blk.0.attn_q.weight", 64, 64, magnitude, random);
+        writeTensorPair(buffer, "blk.1.ffn_down.weight", 172, 64, magnitude, random);
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return Files.write(path, bytes);
+    }
+
+    private static void writeTensorPair(ByteBuffer buffer, String name, int nIn, int nOut, float magnitude,
+                                        Random random) {
+        writeTensor(buffer, name + ".loraA", nIn, magnitude, random);
+        writeTensor(buffer, name + ".loraB", nOut, magnitude, random);
+    }
+
+    private static void writeTensor(ByteBuffer buffer, String name, int rows, float magnitude, Random random) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(2).putInt(nameBytes.length).putInt(0);
+        buffer.putInt(RANK).putInt(rows);
+        buffer.put(nameBytes);
+        buffer.position((buffer.position() + 31) / 32 * 32);
+        for (int i = 0; i < rows * RANK; i++) {
+            buffer.putFloat((float) random.nextGaussian() * magnitude / RANK);
+        }
+    }
+}
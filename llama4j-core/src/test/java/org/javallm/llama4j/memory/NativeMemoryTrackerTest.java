@@ -0,0 +1,81 @@
+package org.javallm.llama4j.memory;
+
+import org.bytedeco.javacpp.BytePointer;
+import org.javallm.llama4j.TestUtils;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.impl.LlamaModelImpl;
+import org.javallm.llama4j.model.params.ModelParameters;
+import org.javallm.llama4j.model.params.PenalizeParameters;
+import org.javallm.llama4j.model.params.SamplingParameters;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class NativeMemoryTrackerTest {
+    private static final String MODEL_PATH = TestUtils.getResourceAbsolutePath("tinyllamas-stories-260k-f32.gguf");
+
+    @Test
+    public void test_scope_releases_temporaries() {
+        NativeMemoryTracker tracker = new NativeMemoryTracker(true);
+        BytePointer pointer;
+        try (NativeScope scope = tracker.scope()) {
+            pointer = scope.attach(new BytePointer(1024));
+            assertThat(tracker.snapshot().get(NativeMemoryCategory.TEMPORARIES)).isEqualTo(1024);
+        }
+        assertThat(pointer.isNull()).isTrue();
+        assertThat(tracker.snapshot().get(NativeMemoryCategory.TEMPORARIES)).isZero();
+        assertThat(tracker.snapshot().getAllocations()).isEqualTo(1);
+        tracker.checkNoLiveTemporaries();
+    }
+
+    @Test
+    public void test_leak_check() {
+        NativeMemoryTracker tracker = new NativeMemoryTracker(true);
+        NativeScope leaked = tracker.scope();
+        leaked.attach(new BytePointer(16));
+        assertThatThrownBy(tracker::checkNoLiveTemporaries).isInstanceOf(IllegalStateException.class);
+        leaked.close();
+        tracker.checkNoLiveTemporaries();
+    }
+
+    @Test
+    public void test_model_memory_usage() throws Exception {
+        ModelParameters params = new ModelParameters()
+                .setModelPath(MODEL_PATH)
+                .setNThreads(4)
+                .setLeakCheck(true);
+        try (LlamaModel model = new LlamaModelImpl(params)) {
+            NativeMemoryUsage before = model.nativeMemoryUsage();
+            System.out.printf("Native memory usage -> %s%n", before);
+            assertThat(before.get(NativeMemoryCategory.WEIGHTS)).isEqualTo(new File(MODEL_PATH).length());
+            assertThat(before.get(NativeMemoryCategory.KV_CACHE)).isPositive();
+            assertThat(before.get(NativeMemoryCategory.SCRATCH)).isPositive();
+
+            SamplingParameters samplingParams = new SamplingParameters();
+            PenalizeParameters penalizeParams = new PenalizeParameters();
+            model.evaluate(model.tokenize("Once upon a time", true));
+            for (int i = 0; i < 64; i++) {
+                int id = model.sample(samplingParams, penalizeParams);
+                model.detokenize(new int[]{id});
+                model.evaluate(new int[]{id});
+            }
+
+            // no temporaries survive a call, and the scratch buffers are reused instead of re-allocated per token
+            NativeMemoryUsage after = model.nativeMemoryUsage();
+            assertThat(after.get(NativeMemoryCategory.TEMPORARIES)).isZero();
+            assertThat(after.get(NativeMemoryCategory.SCRATCH)).isLessThan(before.get(NativeMemoryCategory.SCRATCH) + 1024);
+        }
+    }
+
+    @Test
+    public void test_close_twice() throws Exception {
+        LlamaModel model = new LlamaModelImpl(new ModelParameters().setModelPath(MODEL_PATH).setLeakCheck(true));
+        model.close();
+        // the second close neither frees the handles again nor releases the tracked memory twice
+        model.close();
+        assertThat(model.nativeMemoryUsage().get(NativeMemoryCategory.SCRATCH)).isZero();
+    }
+}
@@ -0,0 +1,86 @@
+package org.javallm.llama4j.model.impl;
+
+import org.javallm.llama4j.TestUtils;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.params.ModelParameters;
+import org.javallm.llama4j.model.params.PenalizeParameters;
+import org.javallm.llama4j.model.params.SamplingParameters;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveBatchSizerTest {
+    private static final String MODEL_PATH = TestUtils.getResourceAbsolutePath("tinyllamas-stories-260k-f32.gguf");
+    private static final String PROMPT = "Once upon a time, there was a little girl named Lily. She loved to play "
+            + "outside in the park with her friends, and one day she found a shiny red ball under a big tree.";
+
+    @Test
+    public void test_warm_up() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(48);
+        // buckets 8, 16, 32 and 48 are each tried twice, smallest first
+        for (int size : new int[] { 8, 16, 32, 48 }) {
+            for (int i = 0; i < 2; i++) {
+                assertThat(sizer.next(1000)).isEqualTo(size);
+                sizer.record(size, size * 1000L);
+            }
+        }
+        // less than the smallest bucket, or only the smaller buckets fit
+        assertThat(sizer.next(5)).isEqualTo(5);
+        assertThat(sizer.next(20)).isIn(8, 16);
+    }
+
+    @Test
+    public void test_picks_fastest() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(64);
+        for (int i = 0; i < 8; i++) {
+            int size = sizer.next(1000);
+            // 16 tokens per batch is the sweet spot, e.g., for the cache
+            sizer.record(size, size == 16 ? 1000L : size * 1000L);
+        }
+        assertThat(sizer.next(1000)).isEqualTo(16);
+        // only the smallest bucket fits, so the remaining tokens go at once
+        assertThat(sizer.next(12)).isEqualTo(12);
+
+        // the throughput follows the measurements
+        for (int i = 0; i < 16; i++) {
+            sizer.record(16, 64_000L);
+        }
+        assertThat(sizer.next(1000)).isNotEqualTo(16);
+    }
+
+    @Test
+    public void test_largest_takes_remaining() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(64);
+        for (int i = 0; i < 8; i++) {
+            int size = sizer.next(1000);
+            // larger batches are faster
+            sizer.record(size, 1000L);
+        }
+        assertThat(sizer.next(1000)).isEqualTo(64);
+        assertThat(sizer.next(40)).isEqualTo(40);
+        assertThat(sizer.next(3)).isEqualTo(3);
+    }
+
+    @Test
+    public void test_same_generation() throws Exception {
+        SamplingParameters greedy = new SamplingParameters().setTemperature(0);
+        PenalizeParameters penalize = new PenalizeParameters();
+        ModelParameters params = new ModelParameters().setModelPath(MODEL_PATH).setNThreads(1).setBatchSize(64);
+        try (LlamaModel fixed = new JavaLlamaModel(params);
+             LlamaModel adaptive = new JavaLlamaModel(params.copy().setAdaptiveBatchSize(true))) {
+            int[] prompt = fixed.tokenize(PROMPT, true);
+            for (int round = 0; round < 3; round++) {
+                fixed.reset();
+                adaptive.reset();
+                fixed.evaluate(prompt);
+                adaptive.evaluate(prompt);
+                for (int i = 0; i < 8; i++) {
+                    int token = fixed.sample(greedy, penalize);
+                    assertThat(adaptive.sample(greedy, penalize)).isEqualTo(token);
+                    fixed.evaluate(new int[] { token });
+                    adaptive.evaluate(new int[] { token });
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.javallm.llama4j.model.impl;
+
+import org.javallm.llama4j.ClassifierFreeGuidanceLM;
+import org.javallm.llama4j.SimpleCasualLM;
+import org.javallm.llama4j.TestUtils;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.params.ModelParameters;
+import org.javallm.llama4j.model.params.PenalizeParameters;
+import org.javallm.llama4j.model.params.SamplingParameters;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class ClassifierFreeGuidanceLMTest {
+    private static final String MODEL_PATH = TestUtils.getResourceAbsolutePath("tinyllamas-stories-260k-f32.gguf");
+    private static final String PROMPT = "Once upon a time, there was a little girl named Lily.";
+    private static final String NEGATIVE_PROMPT = "Once upon a time, there was a big dog named Max.";
+
+    @Test
+    public void test_guidance_formula() {
+        float[] logits = { 1.0f, 2.0f, 3.0f, Float.NEGATIVE_INFINITY };
+        float[] guidance = { 3.0f, 2.0f, 1.0f, 0.0f };
+        float[] guided = logits.clone();
+        JavaSampler.classifierFreeGuidance(guided, guidance, 2.0f);
+
+        double logitsLogSum = Math.log(Math.exp(1) + Math.exp(2) + Math.exp(3));
+        double guidanceLogSum = Math.log(Math.exp(3) + Math.exp(2) + Math.exp(1) + Math.exp(0));
+        for (int id = 0; id < 3; id++) {
+            double g = guidance[id] - guidanceLogSum;
+            assertThat((double) guided[id]).isCloseTo(2.0 * (logits[id] - logitsLogSum - g) + g, within(1e-5));
+        }
+        // banned tokens stay banned
+        assertThat(guided[3]).isEqualTo(Float.NEGATIVE_INFINITY);
+
+        // a scale of 1 only normalizes the logits
+        guided = logits.clone();
+        JavaSampler.classifierFreeGuidance(guided, guidance, 1.0f);
+        assertThat((double) guided[2]).isCloseTo(3.0 - logitsLogSum, within(1e-5));
+    }
+
+    @Test
+    public void test_infer() throws Exception {
+        SamplingParameters samplingParams = new SamplingParameters().setTemperature(0);
+        // the guidance normalizes the logits before the repetition penalty, which scales them depending on their sign
+        PenalizeParameters penalizeParams = new PenalizeParameters().setRepeatPenalty(1.0f);
+        try (LlamaModel model = new JavaLlamaModel(params());
+             LlamaModel guidance = new JavaLlamaModel(params());
+             ClassifierFreeGuidanceLM lm = new ClassifierFreeGuidanceLM(model, guidance)) {
+            StringBuilder unguided = new StringBuilder();
+            new SimpleCasualLM(model).infer(PROMPT, samplingParams, penalizeParams, 32, collect(unguided));
+
+            // without guidance, the completion is the same as an unguided one
+            StringBuilder neutral = new StringBuilder();
+            lm.infer(PROMPT, NEGATIVE_PROMPT, 1.0f, samplingParams, penalizeParams, 32, collect(neutral));
+            assertThat(neutral.toString()).isEqualTo(unguided.toString());
+            assertThat(model.nPastTokens()).isZero();
+            assertThat(guidance.nPastTokens()).isZero();
+
+            StringBuilder guided = new StringBuilder();
+            int nGenerated = lm.infer(PROMPT, NEGATIVE_PROMPT, 3.0f, samplingParams, penalizeParams, 32, collect(guided));
+            System.out.printf("Unguided -> %s%nGuided -> %s%n", unguided, guided);
+            assertThat(nGenerated).isPositive();
+            assertThat(guided.toString()).isNotEqualTo(unguided.toString());
+
+            assertThatThrownBy(() -> model.sample(samplingParams, penalizeParams, model, 2.0f))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    private static Predicate<String> collect(StringBuilder text) {
+        return piece -> {
+            text.append(piece);
+            return true;
+        };
+    }
+
+    private static ModelParameters params() {
+        return new ModelParameters()
+                .setModelPath(MODEL_PATH)
+                .setNThreads(1);
+    }
+}
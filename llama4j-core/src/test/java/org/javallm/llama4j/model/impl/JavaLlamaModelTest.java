@@ -0,0 +1,144 @@
+package org.javallm.llama4j.model.impl;
+
+import org.javallm.llama4j.TestUtils;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.params.ModelParameters;
+import org.javallm.llama4j.model.params.PenalizeParameters;
+import org.javallm.llama4j.model.params.SamplingParameters;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class JavaLlamaModelTest {
+    private static final String MODEL_PATH = TestUtils.getResourceAbsolutePath("tinyllamas-stories-260k-f32.gguf");
+    private static final String Q8_0_MODEL_PATH = TestUtils.getResourceAbsolutePath("tinyllamas-stories-260k-q8_0.gguf");
+    private static final String PROMPT = "Once upon a time, there was a little girl named Lily.";
+
+    @Test
+    public void test_tokenize() throws Exception {
+        try (LlamaModel model = new JavaLlamaModel(new ModelParameters().setModelPath(MODEL_PATH))) {
+            int[] tokens = model.tokenize(PROMPT, true);
+            assertThat(tokens[0]).isEqualTo(model.bosToken());
+            assertThat(model.detokenize(tokens)).isEqualTo(" " + PROMPT);
+            assertThat(model.detokenize(model.tokenize("new\nline", false))).isEqualTo(" new\nline");
+            assertThat(model.detokenize(new int[] { model.newLineToken() })).isEqualTo("\n");
+            assertThat(model.tokenize("", true)).containsExactly(model.bosToken());
+        }
+    }
+
+    @Test
+    public void test_identity() throws Exception {
+        ModelParameters params = new ModelParameters().setModelPath(MODEL_PATH).setNThreads(1);
+        try (LlamaModel a = new JavaLlamaModel(params);
+             LlamaModel b = new JavaLlamaModel(params.copy().setNThreads(2).setSeed(7));
+             LlamaModel scaled = new JavaLlamaModel(params.copy().setRopeFreqScale(0.5f));
+             LlamaModel rebased = new JavaLlamaModel(params.copy().setRopeFreqBase(20000f))) {
+            // threads and seed do not affect the outputs, RoPE settings do
+            assertThat(b.identity()).isEqualTo(a.identity());
+            assertThat(scaled.identity()).isNotEqualTo(a.identity());
+            assertThat(rebased.identity()).isNotEqualTo(a.identity()).isNotEqualTo(scaled.identity());
+        }
+        ModelParameters offloaded = params.copy().setExtra(Collections.singletonMap("n_gpu_layers", "8"));
+        assertThat(ModelIdentity.of("java", offloaded, 512))
+                .isNotEqualTo(ModelIdentity.of("java", params, 512))
+                .isNotEqualTo(ModelIdentity.of("native", params, 512));
+    }
+
+    @Test
+    public void test_greedy_generation() throws Exception {
+        SamplingParameters greedy = new SamplingParameters().setTemperature(0);
+        PenalizeParameters penalize = new PenalizeParameters();
+        try (LlamaModel f32 = new JavaLlamaModel(new ModelParameters().setModelPath(MODEL_PATH));
+             LlamaModel q80 = new JavaLlamaModel(new ModelParameters().setModelPath(Q8_0_MODEL_PATH).setNThreads(1))) {
+            int[] prompt = f32.tokenize(PROMPT, true);
+            int[] a = generate(f32, prompt, greedy, penalize, 32);
+            int[] b = generate(q80, prompt, greedy, penalize, 32);
+            System.out.println(f32.detokenize(a));
+            assertThat(f32.detokenize(a)).startsWith(" She loved to play");
+            // quantization only perturbs the logits slightly
+            assertThat(b).startsWith(Arrays.copyOf(a, 16));
+
+            // evaluating the prompt token by token gives the same result as in a batch
+            f32.reset();
+            for (int token : prompt) {
+                f32.evaluate(new int[] { token });
+            }
+            assertThat(f32.sample(greedy, penalize)).isEqualTo(a[0]);
+        }
+    }
+
+    @Test
+    public void test_seeded_sampling() throws Exception {
+        SamplingParameters sampling = new SamplingParameters().setTemperature(0.9f);
+        PenalizeParameters penalize = new PenalizeParameters();
+        try (LlamaModel model = new JavaLlamaModel(new ModelParameters().setModelPath(MODEL_PATH).setSeed(7))) {
+            int[] prompt = model.tokenize(PROMPT, true);
+            model.setRandomSeed(42);
+            int[] a = generate(model, prompt, sampling, penalize, 24);
+            model.setRandomSeed(42);
+            int[] b = generate(model, prompt, sampling, penalize, 24);
+            assertThat(b).containsExactly(a);
+        }
+    }
+
+    @Test
+    public void test_state_and_context_swap() throws Exception {
+        SamplingParameters greedy = new SamplingParameters().setTemperature(0);
+        PenalizeParameters penalize = new PenalizeParameters();
+        try (LlamaModel model = new JavaLlamaModel(new ModelParameters().setModelPath(MODEL_PATH).setContextSize(64)
+                .setBatchSize(16))) {
+            model.evaluate(model.tokenize(PROMPT, true));
+            byte[] state = model.getState();
+            int[] tokens = model.inputTokens();
+            int expected = model.sample(greedy, penalize);
+
+            model.reset();
+            model.evaluate(model.tokenize("Tom had a red ball.", true));
+            model.loadState(state, tokens);
+            assertThat(model.nPastTokens()).isEqualTo(tokens.length);
+            assertThat(model.sample(greedy, penalize)).isEqualTo(expected);
+
+            // generating beyond the context keeps going after the swap
+            int[] generated = generate(model, new int[0], greedy, penalize, 100);
+            assertThat(model.nPastTokens()).isLessThan(model.contextSize());
+            assertThat(model.detokenize(generated)).isNotBlank();
+
+            assertThatThrownBy(() -> model.loadState(new byte[] { 1, 2, 3 })).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    public void test_embed() throws Exception {
+        try (LlamaModel model = new JavaLlamaModel(new ModelParameters().setModelPath(MODEL_PATH)
+                .setEmbeddingMode(true))) {
+            float[] a = model.embed(PROMPT);
+            float[] b = model.embed(PROMPT);
+            assertThat(a).hasSize(model.embeddingSize());
+            for (int i = 0; i < a.length; i++) {
+                assertThat(b[i]).isCloseTo(a[i], within(1e-6f));
+            }
+        }
+        try (LlamaModel model = new JavaLlamaModel(new ModelParameters().setModelPath(MODEL_PATH))) {
+            assertThatThrownBy(() -> model.embed(PROMPT)).isInstanceOf(UnsupportedOperationException.class);
+        }
+    }
+
+    private static int[] generate(LlamaModel model, int[] prompt, SamplingParameters sampling,
+                                  PenalizeParameters penalize, int maxTokens) {
+        if (prompt.length > 0) {
+            model.reset();
+            model.evaluate(prompt);
+        }
+        int[] tokens = new int[maxTokens];
+        for (int i = 0; i < maxTokens; i++) {
+            tokens[i] = model.sample(sampling, penalize);
+            model.evaluate(new int[] { tokens[i] });
+        }
+        return tokens;
+    }
+}
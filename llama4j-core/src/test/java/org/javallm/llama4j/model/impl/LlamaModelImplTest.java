@@ -281,6 +281,56 @@ public class LlamaModelImplTest {
         System.out.printf("Context Window = %s\n", decoded);
     }
 
+    @Test
+    public void test_logit_bias() throws Exception {
+        ModelParameters params = new ModelParameters()
+                .setModelPath(MODEL_PATH)
+                .setNThreads(4)
+                .setContextSize(64);
+        try (LlamaModel model = new LlamaModelImpl(params)) {
+            model.evaluate(model.tokenize("Once upon a time", true));
+
+            PenalizeParameters penalizeParams = new PenalizeParameters();
+            int greedy = model.sample(new SamplingParameters().setTemperature(0), penalizeParams);
+
+            // a banned token is never sampled
+            int next = model.sample(new SamplingParameters().setTemperature(0).banTokens(greedy), penalizeParams);
+            assertThat(next).isNotEqualTo(greedy);
+
+            // a large bias forces the token
+            int forced = greedy == 1 ? 2 : 1;
+            SamplingParameters biased = new SamplingParameters().setLogitBias(ImmutableMap.of(forced, 1000f));
+            assertThat(model.sample(biased, penalizeParams)).isEqualTo(forced);
+
+            SamplingParameters outOfVocab = new SamplingParameters().banTokens(model.vocabSize());
+            assertThatThrownBy(() -> model.sample(outOfVocab, penalizeParams))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    public void test_truncate() throws Exception {
+        ModelParameters params = new ModelParameters()
+                .setModelPath(MODEL_PATH)
+                .setNThreads(4)
+                .setContextSize(64);
+        try (LlamaModel model = new LlamaModelImpl(params)) {
+            int[] prefix = model.tokenize("Once upon a time", true);
+            model.evaluate(prefix);
+            byte[] expectedState = model.getState();
+            SamplingParameters greedy = new SamplingParameters().setTemperature(0);
+            int expected = model.sample(greedy, new PenalizeParameters());
+
+            model.evaluate(model.tokenize(" there was a little girl", false));
+            model.truncate(prefix.length);
+
+            // the native KV cache and the logits are back to the ones of the prefix
+            assertThat(model.inputTokens()).isEqualTo(prefix);
+            assertThat(model.getState().length).isEqualTo(expectedState.length);
+            assertThat(model.sample(greedy, new PenalizeParameters())).isEqualTo(expected);
+        }
+    }
+
     private int[] toArray(ArrayList<Integer> list) {
         return list.stream().mapToInt(i -> i).toArray();
     }
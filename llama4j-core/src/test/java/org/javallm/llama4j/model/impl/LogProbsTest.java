@@ -0,0 +1,45 @@
+package org.javallm.llama4j.model.impl;
+
+import org.javallm.llama4j.model.SampledToken;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class LogProbsTest {
+    @Test
+    public void test_top_k_matches_full_sort() {
+        Random random = new Random(11);
+        float[] logits = new float[1000];
+        for (int i = 0; i < logits.length; i++) {
+            logits[i] = (float) random.nextGaussian() * 5;
+        }
+        logits[17] = Float.NEGATIVE_INFINITY;
+
+        double sum = 0;
+        for (float logit : logits) {
+            sum += Math.exp(logit);
+        }
+        double logNormalizer = Math.log(sum);
+        int[] sorted = IntStream.range(0, logits.length).boxed()
+                .sorted(Comparator.comparingDouble((Integer id) -> logits[id]).reversed())
+                .mapToInt(Integer::intValue).toArray();
+
+        SampledToken sampled = LogProbs.of(logits, 42, 5);
+        assertThat(sampled.getToken()).isEqualTo(42);
+        assertThat((double) sampled.getLogProb()).isCloseTo(logits[42] - logNormalizer, within(1e-4));
+        assertThat(sampled.getTopLogProbs()).hasSize(5);
+        for (int i = 0; i < 5; i++) {
+            assertThat(sampled.getTopLogProbs().get(i).getToken()).isEqualTo(sorted[i]);
+            assertThat((double) sampled.getTopLogProbs().get(i).getLogProb())
+                    .isCloseTo(logits[sorted[i]] - logNormalizer, within(1e-4));
+        }
+
+        assertThat(LogProbs.of(logits, 17, 0).getLogProb()).isEqualTo(Float.NEGATIVE_INFINITY);
+        assertThat(LogProbs.of(new float[]{1f, 2f}, 0, 10).getTopLogProbs()).hasSize(2);
+    }
+}
@@ -0,0 +1,241 @@
+package org.javallm.llama4j.model.impl;
+
+import org.javallm.llama4j.TestUtils;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.params.ModelParameters;
+import org.javallm.llama4j.model.params.PenalizeParameters;
+import org.javallm.llama4j.model.params.SamplingParameters;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Performance regression gate, excluded from the default build, run with {@code mvn test -Pperformance}
+ * <p>
+ * Each test decodes a fixed workload on one thread and checks the budgets in {@code performance-budgets.properties},
+ * measured over the decoding only, i.e., not the prompt evaluation: heap bytes allocated per generated token over all
+ * threads, native allocations per generated token accounted by
+ * {@link org.javallm.llama4j.memory.NativeMemoryTracker}, and tokens per second relative to a single-threaded
+ * calibration loop, so that the throughput budget holds across machines. The measured values are printed in the format
+ * of the budgets file, to update it on purpose; a backend without budgets yet is skipped after printing them.
+ */
+@Tag("performance")
+public class ModelPerformanceTest {
+    private static final String F32_MODEL_PATH = TestUtils.getResourceAbsolutePath("tinyllamas-stories-260k-f32.gguf");
+    private static final String Q8_0_MODEL_PATH = TestUtils.getResourceAbsolutePath("tinyllamas-stories-260k-q8_0.gguf");
+    private static final String PROMPT = "Once upon a time, there was a little girl named Lily. She loved to play outside.";
+    private static final int DECODE_TOKENS = 64;
+    private static final int ROUNDS = 10;
+
+    /**
+     * Fail when throughput drops below this share of its baseline, which leaves room for noisy CI machines
+     */
+    private static final double MIN_THROUGHPUT_RATIO = 0.6;
+
+    private static final Properties BUDGETS = loadBudgets();
+
+    @Test
+    public void test_java_f32() throws Exception {
+        try (LlamaModel model = new JavaLlamaModel(params(F32_MODEL_PATH))) {
+            check("java.f32", model);
+        }
+    }
+
+    @Test
+    public void test_java_q8_0() throws Exception {
+        try (LlamaModel model = new JavaLlamaModel(params(Q8_0_MODEL_PATH))) {
+            check("java.q8_0", model);
+        }
+    }
+
+    @Test
+    public void test_native_f32() throws Exception {
+        try (LlamaModel model = new LlamaModelImpl(params(F32_MODEL_PATH))) {
+            check("native.f32", model);
+        }
+    }
+
+    @Test
+    public void test_native_q8_0() throws Exception {
+        try (LlamaModel model = new LlamaModelImpl(params(Q8_0_MODEL_PATH))) {
+            check("native.q8_0", model);
+        }
+    }
+
+    private static ModelParameters params(String modelPath) {
+        return new ModelParameters()
+                .setModelPath(modelPath)
+                .setNThreads(1)
+                .setSeed(42);
+    }
+
+    private static void check(String key, LlamaModel model) {
+        // tokenized once, and evaluated before each round outside of the measurements
+        int[] prompt = model.tokenize(PROMPT, true);
+        // warm up the JIT and the lazily allocated buffers before measuring
+        for (int i = 0; i < 3; i++) {
+            prefill(model, prompt);
+            decode(model);
+        }
+
+        long heapBytes = 0;
+        long nativeAllocations = 0;
+        boolean nativeAccounted = nativeAllocations(model) >= 0;
+        int nTokens = 0;
+        long bestRoundNanos = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            prefill(model, prompt);
+            long heapBefore = allocatedBytes();
+            long nativeBefore = nativeAllocations(model);
+            long start = System.nanoTime();
+            nTokens += decode(model);
+            bestRoundNanos = Math.min(bestRoundNanos, System.nanoTime() - start);
+            nativeAllocations += nativeAllocations(model) - nativeBefore;
+            heapBytes += allocatedBytes() - heapBefore;
+        }
+        double heapBytesPerToken = (double) heapBytes / nTokens;
+        // the best round and a calibration right after it are the least disturbed by other load on the machine
+        double tokensPerSecond = DECODE_TOKENS / (bestRoundNanos / 1e9);
+        double calibrationMflops = calibrate();
+        double tokensPerMflop = tokensPerSecond / calibrationMflops;
+
+        System.out.printf("%s: %.1f tok/s, calibration %.1f MFLOP/s%n", key, tokensPerSecond, calibrationMflops);
+        System.out.printf("%s.heapBytesPerToken=%.0f%n", key, heapBytesPerToken);
+        System.out.printf("%s.tokensPerCalibrationMflop=%.4f%n", key, tokensPerMflop);
+        double nativeAllocationsPerToken = (double) nativeAllocations / nTokens;
+        if (nativeAccounted) {
+            System.out.printf("%s.nativeAllocationsPerToken=%.3f%n", key, nativeAllocationsPerToken);
+        }
+
+        assumeTrue(BUDGETS.getProperty(key + ".heapBytesPerToken") != null,
+                () -> String.format("No budgets of %s yet, record the values printed above", key));
+        assertThat(heapBytesPerToken)
+                .as("heap bytes allocated per token of %s", key)
+                .isLessThanOrEqualTo(budget(key + ".heapBytesPerToken"));
+        if (nativeAccounted) {
+            assertThat(nativeAllocationsPerToken)
+                    .as("native allocations per token of %s", key)
+                    .isLessThanOrEqualTo(budget(key + ".nativeAllocationsPerToken"));
+        }
+
+        String baseline = BUDGETS.getProperty(key + ".tokensPerCalibrationMflop");
+        assumeTrue(baseline != null, () -> String.format("No throughput baseline of %s yet", key));
+        assertThat(tokensPerMflop)
+                .as("tokens per second per calibration MFLOP/s of %s", key)
+                .isGreaterThanOrEqualTo(Double.parseDouble(baseline) * MIN_THROUGHPUT_RATIO);
+    }
+
+    private static void prefill(LlamaModel model, int[] prompt) {
+        model.reset();
+        model.evaluate(prompt);
+    }
+
+    /**
+     * Greedily decode a fixed number of tokens after the prompt, regardless of EOS
+     *
+     * @return the number of generated tokens
+     */
+    private static int decode(LlamaModel model) {
+        SamplingParameters samplingParams = new SamplingParameters().setTemperature(0);
+        PenalizeParameters penalizeParams = new PenalizeParameters();
+        for (int i = 0; i < DECODE_TOKENS; i++) {
+            int id = model.sample(samplingParams, penalizeParams);
+            model.evaluate(new int[] { id });
+        }
+        return DECODE_TOKENS;
+    }
+
+    /**
+     * @return heap bytes allocated by all live threads so far, e.g., including the workers of a model
+     */
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            total += Math.max(allocated, 0);
+        }
+        return total;
+    }
+
+    /**
+     * @return native allocations of the model so far, or -1 if the model does not account them
+     */
+    private static long nativeAllocations(LlamaModel model) {
+        try {
+            return model.nativeMemoryUsage().getAllocations();
+        } catch (UnsupportedOperationException ex) {
+            return -1;
+        }
+    }
+
+    private static double budget(String key) {
+        String value = BUDGETS.getProperty(key);
+        assertThat(value).as("budget %s", key).isNotNull();
+        return Double.parseDouble(value);
+    }
+
+    /**
+     * Measure the single-threaded floating point throughput of this machine with matrix-vector products of the size of
+     * the tiny model's layers, taking the best of a few runs to dampen the noise
+     *
+     * @return MFLOP/s
+     */
+    private static double calibrate() {
+        int rows = 172;
+        int cols = 64;
+        Random random = new Random(42);
+        float[] matrix = new float[rows * cols];
+        float[] x = new float[cols];
+        float[] out = new float[rows];
+        for (int i = 0; i < matrix.length; i++) {
+            matrix[i] = random.nextFloat() - 0.5f;
+        }
+        for (int i = 0; i < cols; i++) {
+            x[i] = random.nextFloat() - 0.5f;
+        }
+
+        int iterations = 2_000;
+        double best = 0;
+        float sink = 0;
+        for (int run = 0; run < 100; run++) {
+            long start = System.nanoTime();
+            for (int it = 0; it < iterations; it++) {
+                for (int r = 0; r < rows; r++) {
+                    float sum = 0;
+                    int offset = r * cols;
+                    for (int c = 0; c < cols; c++) {
+                        sum += matrix[offset + c] * x[c];
+                    }
+                    out[r] = sum;
+                }
+                sink += out[it % rows];
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            best = Math.max(best, 2.0 * rows * cols * iterations / seconds / 1e6);
+        }
+        // keep the loop alive
+        assertThat(Float.isNaN(sink)).isFalse();
+        return best;
+    }
+
+    private static Properties loadBudgets() {
+        Properties budgets = new Properties();
+        try (InputStream in = ModelPerformanceTest.class.getClassLoader()
+                .getResourceAsStream("performance-budgets.properties")) {
+            assertThat(in).as("performance-budgets.properties").isNotNull();
+            budgets.load(in);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return budgets;
+    }
+}
@@ -0,0 +1,71 @@
+package org.javallm.llama4j.model.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PenaltyWindowTest {
+    private static final int VOCAB_SIZE = 50;
+
+    @Test
+    public void test_sliding_counts() {
+        Random random = new Random(7);
+        int[] history = new int[1000];
+        for (int i = 0; i < history.length; i++) {
+            history[i] = random.nextInt(VOCAB_SIZE);
+        }
+
+        int windowSize = 64;
+        PenaltyWindow window = new PenaltyWindow(VOCAB_SIZE);
+        window.rebuild(history, 10, windowSize);
+        int length = 10;
+        while (length < history.length) {
+            int next = Math.min(history.length, length + 1 + random.nextInt(8));
+            window.append(history, length, next);
+            length = next;
+
+            int[] expected = naiveCounts(history, length, windowSize);
+            int nDistinct = 0;
+            for (int token = 0; token < VOCAB_SIZE; token++) {
+                assertThat(window.count(token)).isEqualTo(expected[token]);
+                nDistinct += expected[token] > 0 ? 1 : 0;
+            }
+            assertThat(window.distinctCount()).isEqualTo(nDistinct);
+        }
+    }
+
+    @Test
+    public void test_apply_penalties() {
+        int[] history = new int[]{3, 5, 3, 7, 3, 5, 9};
+        float[] logits = new float[VOCAB_SIZE];
+        for (int i = 0; i < VOCAB_SIZE; i++) {
+            logits[i] = i % 2 == 0 ? -1.0f * i : 1.0f * i;
+        }
+        float[] expected = Arrays.copyOf(logits, logits.length);
+
+        // repetition penalty first, then frequency and presence penalties, on the last 6 tokens
+        int[] counts = naiveCounts(history, history.length, 6);
+        for (int token = 0; token < VOCAB_SIZE; token++) {
+            if (counts[token] > 0) {
+                expected[token] = expected[token] <= 0 ? expected[token] * 1.1f : expected[token] / 1.1f;
+                expected[token] -= counts[token] * 0.5f + 0.25f;
+            }
+        }
+
+        PenaltyWindow window = new PenaltyWindow(VOCAB_SIZE);
+        window.rebuild(history, history.length, 6);
+        window.apply(logits, 1.1f, 0.5f, 0.25f);
+        assertThat(logits).containsExactly(expected);
+    }
+
+    private static int[] naiveCounts(int[] history, int length, int windowSize) {
+        int[] counts = new int[VOCAB_SIZE];
+        for (int i = Math.max(0, length - windowSize); i < length; i++) {
+            counts[history[i]]++;
+        }
+        return counts;
+    }
+}
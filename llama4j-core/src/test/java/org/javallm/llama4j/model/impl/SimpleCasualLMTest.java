@@ -7,9 +7,17 @@ package org.javallm.llama4j.model.impl;
 import com.google.common.collect.ImmutableMap;
 import org.javallm.llama4j.SimpleCasualLM;
 import org.javallm.llama4j.TestUtils;
+import org.javallm.llama4j.model.LlamaModel;
 import org.javallm.llama4j.model.params.ModelParameters;
+import org.javallm.llama4j.model.params.PenalizeParameters;
+import org.javallm.llama4j.model.params.SamplingParameters;
 import org.junit.jupiter.api.Test;
 
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
 /**
  * @author pengym
  * @version SimpleCasualLMTest.java, v 0.1 2023年09月02日 21:25 pengym
@@ -23,6 +31,29 @@ public class SimpleCasualLMTest {
         client.infer("Once upon a time, there was a little girl named Lily.", System.out::print);
     }
 
+    @Test
+    public void test_infer_n() throws Exception {
+        ModelParameters modelParameters = new ModelParameters()
+                .setModelPath(MODEL_PATH)
+                .setContextSize(256);
+        SimpleCasualLM client = new SimpleCasualLM(modelParameters);
+        String prompt = "Once upon a time, there was a little girl named Lily.";
+        SamplingParameters samplingParams = new SamplingParameters();
+        PenalizeParameters penalizeParams = new PenalizeParameters();
+
+        List<String> sequential = client.infer(prompt, 3, samplingParams, penalizeParams, 32, 42);
+        assertThat(sequential).hasSize(3).doesNotContainNull();
+
+        // the same seeds give the same completions, whichever context generates them
+        try (LlamaModel fork = new LlamaModelImpl(modelParameters)) {
+            List<String> forked = client.infer(prompt, 3, samplingParams, penalizeParams, 32, 42,
+                    Collections.singletonList(fork));
+            assertThat(forked).isEqualTo(sequential);
+            assertThat(fork.nPastTokens()).isZero();
+        }
+        assertThat(client.getModel().nPastTokens()).isZero();
+    }
+
     @Test
     public void test_infer_gpu() {
         ModelParameters modelParameters = new ModelParameters()
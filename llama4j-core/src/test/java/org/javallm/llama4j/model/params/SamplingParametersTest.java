@@ -0,0 +1,26 @@
+package org.javallm.llama4j.model.params;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SamplingParametersTest {
+    @Test
+    public void test_compiled_logit_bias_follows_changes() {
+        SamplingParameters params = new SamplingParameters().setLogitBias(ImmutableMap.of(1, 2f));
+        float[] logits = new float[4];
+        params.compiledLogitBias().apply(logits);
+        assertThat(logits).containsExactly(0f, 2f, 0f, 0f);
+
+        // the map cannot be changed behind the compiled bias
+        assertThatThrownBy(() -> params.getLogitBias().put(2, 1f)).isInstanceOf(UnsupportedOperationException.class);
+
+        params.banTokens(3);
+        logits = new float[4];
+        params.compiledLogitBias().apply(logits);
+        assertThat(logits).containsExactly(0f, 2f, 0f, Float.NEGATIVE_INFINITY);
+        assertThat(params.copy().getLogitBias()).isEqualTo(params.getLogitBias());
+    }
+}
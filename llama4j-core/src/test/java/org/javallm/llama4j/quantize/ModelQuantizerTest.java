@@ -0,0 +1,76 @@
+package org.javallm.llama4j.quantize;
+
+import org.javallm.llama4j.TestUtils;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.impl.LlamaModelImpl;
+import org.javallm.llama4j.model.params.ModelParameters;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ModelQuantizerTest {
+    private static final String MODEL_PATH = TestUtils.getResourceAbsolutePath("tinyllamas-stories-260k-f32.gguf");
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void test_quantize_q8_0() throws Exception {
+        File output = new File(tempDir, "tinyllamas-stories-260k-q8_0.gguf");
+        QuantizationParameters params = new QuantizationParameters()
+                .setInputPath(MODEL_PATH)
+                .setOutputPath(output.getAbsolutePath())
+                .setType(QuantizationType.Q8_0)
+                .setNThreads(2);
+
+        List<QuantizationStage> stages = new ArrayList<>();
+        QuantizationResult result = ModelQuantizer.quantize(params, stages::add);
+        System.out.printf("Quantization result: %s%n", result);
+
+        assertThat(stages).containsExactly(QuantizationStage.VALIDATING_INPUT, QuantizationStage.QUANTIZING,
+                QuantizationStage.VALIDATING_OUTPUT, QuantizationStage.DONE);
+        assertThat(output).exists();
+        assertThat(result.getOutputBytes()).isLessThan(result.getInputBytes());
+
+        ModelParameters modelParams = new ModelParameters()
+                .setModelPath(output.getAbsolutePath())
+                .setNThreads(4);
+        try (LlamaModel model = new LlamaModelImpl(modelParams)) {
+            int[] tokens = model.tokenize("Once upon a time", true);
+            model.evaluate(tokens);
+            assertThat(model.nPastTokens()).isEqualTo(tokens.length);
+        }
+    }
+
+    @Test
+    public void test_quantize_q4_0() {
+        File output = new File(tempDir, "tinyllamas-stories-260k-q4_0.gguf");
+        QuantizationResult result = ModelQuantizer.quantize(new QuantizationParameters()
+                .setInputPath(MODEL_PATH)
+                .setOutputPath(output.getAbsolutePath())
+                .setType(QuantizationType.of("q4_0")));
+        assertThat(result.compressionRatio()).isBetween(0.0, 1.0);
+    }
+
+    @Test
+    public void test_quantize_invalid_params() {
+        assertThatThrownBy(() -> ModelQuantizer.quantize(new QuantizationParameters()
+                .setInputPath("NOT_EXISTS")
+                .setOutputPath(new File(tempDir, "out.gguf").getAbsolutePath())))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThatThrownBy(() -> ModelQuantizer.quantize(new QuantizationParameters()
+                .setInputPath(MODEL_PATH)
+                .setOutputPath(MODEL_PATH)))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThatThrownBy(() -> QuantizationType.of("q9_9"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
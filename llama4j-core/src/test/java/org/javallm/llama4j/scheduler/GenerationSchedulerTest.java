@@ -0,0 +1,110 @@
+package org.javallm.llama4j.scheduler;
+
+import com.google.common.collect.ImmutableList;
+import org.javallm.llama4j.TestUtils;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.impl.LlamaModelImpl;
+import org.javallm.llama4j.model.params.ModelParameters;
+import org.javallm.llama4j.model.params.SamplingParameters;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GenerationSchedulerTest {
+    private static final String MODEL_PATH = TestUtils.getResourceAbsolutePath("tinyllamas-stories-260k-f32.gguf");
+
+    private static LlamaModel newModel() {
+        return new LlamaModelImpl(new ModelParameters()
+                .setModelPath(MODEL_PATH)
+                .setNThreads(2)
+                .setContextSize(512));
+    }
+
+    @Test
+    public void test_priority_preemption() throws Exception {
+        try (LlamaModel model = newModel();
+             GenerationScheduler scheduler = new GenerationScheduler(ImmutableList.of(model), 16)) {
+            List<String> finished = new CopyOnWriteArrayList<>();
+            CountDownLatch started = new CountDownLatch(1);
+            SamplingParameters greedy = new SamplingParameters().setTemperature(0);
+
+            CompletableFuture<GenerationResult> batch = scheduler.submit(new GenerationRequest()
+                    .setPrompt("Once upon a time, there was a little girl named Lily.")
+                    .setSamplingParams(greedy)
+                    .setMaxTokens(300)
+                    .setCallback(piece -> {
+                        started.countDown();
+                        return true;
+                    }));
+            batch.thenRun(() -> finished.add("batch"));
+            assertThat(started.await(30, TimeUnit.SECONDS)).isTrue();
+
+            CompletableFuture<GenerationResult> interactive = scheduler.submit(new GenerationRequest()
+                    .setPrompt("One day, Tom went to the park.")
+                    .setSamplingParams(greedy)
+                    .setMaxTokens(8)
+                    .setPriority(10));
+            interactive.thenRun(() -> finished.add("interactive"));
+
+            GenerationResult interactiveResult = interactive.get(30, TimeUnit.SECONDS);
+            GenerationResult batchResult = batch.get(60, TimeUnit.SECONDS);
+            System.out.printf("interactive -> %s%nbatch -> %s%n", interactiveResult, batchResult);
+
+            assertThat(finished).containsExactly("interactive", "batch");
+            assertThat(batchResult.getPreemptions()).isGreaterThanOrEqualTo(1);
+            assertThat(interactiveResult.getNTokens()).isLessThanOrEqualTo(8);
+            assertThat(scheduler.meanQueueWaitNanos()).isPositive();
+        }
+    }
+
+    @Test
+    public void test_preempted_generation_is_unchanged() throws Exception {
+        SamplingParameters greedy = new SamplingParameters().setTemperature(0);
+        String prompt = "Once upon a time, there was a little girl named Lily.";
+
+        try (LlamaModel model = newModel()) {
+            String expected;
+            try (GenerationScheduler scheduler = new GenerationScheduler(ImmutableList.of(model), 1000)) {
+                expected = scheduler.submit(new GenerationRequest().setPrompt(prompt).setSamplingParams(greedy)
+                        .setMaxTokens(64)).get().getText();
+            }
+
+            // with a one-token time slice, two generations of the same priority alternate on every token
+            try (GenerationScheduler scheduler = new GenerationScheduler(ImmutableList.of(model), 1)) {
+                CompletableFuture<GenerationResult> first = scheduler.submit(new GenerationRequest().setPrompt(prompt)
+                        .setSamplingParams(greedy).setMaxTokens(64));
+                CompletableFuture<GenerationResult> second = scheduler.submit(new GenerationRequest().setPrompt(prompt)
+                        .setSamplingParams(greedy).setMaxTokens(64));
+                assertThat(first.get().getText()).isEqualTo(expected);
+                assertThat(second.get().getText()).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void test_deadline_while_queued() throws Exception {
+        try (LlamaModel model = newModel();
+             GenerationScheduler scheduler = new GenerationScheduler(ImmutableList.of(model), 16)) {
+            CompletableFuture<GenerationResult> running = scheduler.submit(new GenerationRequest()
+                    .setPrompt("Once upon a time")
+                    .setMaxTokens(200)
+                    .setPriority(10));
+            CompletableFuture<GenerationResult> expired = scheduler.submit(new GenerationRequest()
+                    .setPrompt("Once upon a time")
+                    .setTimeout(1, TimeUnit.MILLISECONDS));
+
+            assertThatThrownBy(expired::get).isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(TimeoutException.class);
+            assertThat(running.get().getFinishReason()).isIn(FinishReason.STOP, FinishReason.LENGTH);
+        }
+    }
+}
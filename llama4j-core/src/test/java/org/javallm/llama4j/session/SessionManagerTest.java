@@ -0,0 +1,124 @@
+package org.javallm.llama4j.session;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.commons.lang3.ArrayUtils;
+import org.javallm.llama4j.TestUtils;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.impl.JavaLlamaModel;
+import org.javallm.llama4j.model.impl.LlamaModelImpl;
+import org.javallm.llama4j.model.params.ModelParameters;
+import org.javallm.llama4j.model.params.PenalizeParameters;
+import org.javallm.llama4j.model.params.SamplingParameters;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SessionManagerTest {
+    private static final String MODEL_PATH = TestUtils.getResourceAbsolutePath("tinyllamas-stories-260k-f32.gguf");
+    private static final SamplingParameters GREEDY = new SamplingParameters().setTemperature(0);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void test_tiered_store() {
+        PagedState state = new PagedState(new int[]{1, 2, 3}, new byte[64 * 1024]);
+        try (TieredStateStore store = new TieredStateStore(1024 * 1024, tempDir)) {
+            store.put("a", state);
+            assertThat(store.offHeapSize()).isEqualTo(1);
+            // zeros compress well
+            assertThat(store.offHeapBytes()).isLessThan(state.getState().length / 10);
+            assertThat(store.get("a").getTokens()).containsExactly(1, 2, 3);
+        }
+
+        // spill everything to disk
+        try (TieredStateStore store = new TieredStateStore(0, tempDir)) {
+            store.put("b", state);
+            assertThat(store.offHeapSize()).isZero();
+            assertThat(store.get("b").getState()).isEqualTo(state.getState());
+            store.remove("b");
+            assertThat(store.get("b")).isNull();
+
+            store.put("c", state);
+            assertThat(tempDir.toFile().list()).hasSize(1);
+        }
+        // the spilled states are deleted on close
+        assertThat(tempDir.toFile().list()).isEmpty();
+    }
+
+    @Test
+    public void test_paging() throws Exception {
+        try (LlamaModel model = new LlamaModelImpl(new ModelParameters().setModelPath(MODEL_PATH).setNThreads(4));
+             SessionManager manager = new SessionManager(ImmutableList.of(model), new TieredStateStore(0, tempDir))) {
+            int[] alice = model.tokenize("Once upon a time, there was a little girl named Alice.", true);
+            int[] bob = model.tokenize("One day, Bob went to the park with his dog.", true);
+
+            int expected = manager.withSession("alice", alice, this::sample);
+            manager.withSession("bob", bob, this::sample);
+
+            // alice is paged back in, so nothing has to be evaluated
+            long evaluatedBefore = manager.stats().getEvaluatedTokens();
+            int actual = manager.withSession("alice", alice, this::sample);
+            SessionStats stats = manager.stats();
+            System.out.printf("Session stats -> %s%n", stats);
+
+            assertThat(actual).isEqualTo(expected);
+            assertThat(stats.getPageOuts()).isEqualTo(2);
+            assertThat(stats.getPageIns()).isEqualTo(1);
+            assertThat(stats.getEvaluatedTokens()).isEqualTo(evaluatedBefore);
+
+            // a new turn only evaluates the appended tokens
+            int[] appended = ArrayUtils.addAll(alice, model.tokenize(" She loved her cat.", false));
+            manager.withSession("alice", appended, this::sample);
+            assertThat(manager.stats().getEvaluatedTokens()).isEqualTo(evaluatedBefore + appended.length - alice.length);
+            assertThat(manager.stats().getHits()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void test_remove_during_page_out() throws Exception {
+        CountDownLatch putStarted = new CountDownLatch(1);
+        CountDownLatch putAllowed = new CountDownLatch(1);
+        // holds the page-out of the evicted session in the middle of storing its state
+        TieredStateStore store = new TieredStateStore(0, tempDir) {
+            @Override
+            public void put(String sessionId, PagedState state) {
+                putStarted.countDown();
+                try {
+                    putAllowed.await();
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+                super.put(sessionId, state);
+            }
+        };
+        try (LlamaModel model = new JavaLlamaModel(new ModelParameters().setModelPath(MODEL_PATH).setNThreads(2));
+             SessionManager manager = new SessionManager(ImmutableList.of(model), store)) {
+            manager.withSession("alice", model.tokenize("Once upon a time", true), this::sample);
+
+            Thread bob = new Thread(() -> manager.withSession("bob", model.tokenize("One day", true), this::sample));
+            bob.start();
+            assertThat(putStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // the removal waits for the page-out of alice, and then deletes the stored state
+            Thread remove = new Thread(() -> manager.remove("alice"));
+            remove.start();
+            remove.join(200);
+            assertThat(remove.isAlive()).isTrue();
+
+            putAllowed.countDown();
+            bob.join();
+            remove.join();
+            assertThat(store.get("alice")).isNull();
+        }
+    }
+
+    private int sample(LlamaModel model) {
+        return model.sample(GREEDY, new PenalizeParameters());
+    }
+}
@@ -0,0 +1,83 @@
+package org.javallm.llama4j.state;
+
+import org.javallm.llama4j.TestUtils;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.impl.LlamaModelImpl;
+import org.javallm.llama4j.model.params.ModelParameters;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SnapshotStoreTest {
+    private static final String MODEL_PATH = TestUtils.getResourceAbsolutePath("tinyllamas-stories-260k-f32.gguf");
+
+    @Test
+    public void test_deduplicate_shifted_content() {
+        Random random = new Random(42);
+        byte[] shared = new byte[1024 * 1024];
+        random.nextBytes(shared);
+
+        // the same content at different offsets, as the K cache of a shared prefix in states of different lengths
+        byte[] first = new byte[shared.length + 1000];
+        byte[] second = new byte[shared.length + 3000];
+        random.nextBytes(first);
+        random.nextBytes(second);
+        System.arraycopy(shared, 0, first, 1000, shared.length);
+        System.arraycopy(shared, 0, second, 3000, shared.length);
+
+        try (SnapshotStore store = new SnapshotStore()) {
+            StateSnapshot a = store.save(new int[]{1}, first);
+            long storedAfterFirst = store.storedBytes();
+            StateSnapshot b = store.save(new int[]{2}, second);
+            System.out.printf("logical = %d Bytes, stored = %d Bytes%n", store.logicalBytes(), store.storedBytes());
+
+            assertThat(store.storedBytes() - storedAfterFirst).isLessThan(shared.length / 10);
+            assertThat(store.restore(a)).isEqualTo(first);
+            assertThat(store.restore(b)).isEqualTo(second);
+
+            store.release(a);
+            assertThat(store.restore(b)).isEqualTo(second);
+            store.release(b);
+            assertThat(store.chunkCount()).isZero();
+            assertThat(store.storedBytes()).isZero();
+            assertThatThrownBy(() -> store.restore(b)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    public void test_model_state_snapshot() throws Exception {
+        ModelParameters params = new ModelParameters()
+                .setModelPath(MODEL_PATH)
+                .setNThreads(4)
+                .setContextSize(2048);
+        try (LlamaModel model = new LlamaModelImpl(params); SnapshotStore store = new SnapshotStore()) {
+            int[] prompt = model.tokenize("Once upon a time, there was a little girl named Lily.", true);
+            model.evaluate(prompt);
+            byte[] shortState = model.getState();
+
+            model.evaluate(model.tokenize(" She loved playing with her toys on top of her bed.", false));
+            byte[] longState = model.getState();
+            int[] longTokens = model.inputTokens();
+
+            // only the populated part of the KV cache is included
+            assertThat(shortState.length).isLessThan(longState.length);
+
+            StateSnapshot a = store.save(prompt, shortState);
+            StateSnapshot b = store.save(longTokens, longState);
+            System.out.printf("short = %d Bytes, long = %d Bytes, stored = %d Bytes%n",
+                    shortState.length, longState.length, store.storedBytes());
+            assertThat(store.storedBytes()).isLessThan(store.logicalBytes());
+
+            model.reset();
+            model.loadState(store.restore(a), a.getTokens());
+            assertThat(model.inputTokens()).isEqualTo(prompt);
+            assertThat(model.getState()).isEqualTo(shortState);
+
+            model.loadState(store.restore(b), b.getTokens());
+            assertThat(model.getState()).isEqualTo(longState);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.javallm.llama4j.tokenizer;
+
+import org.javallm.llama4j.TestUtils;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.impl.LlamaModelImpl;
+import org.javallm.llama4j.model.params.ModelParameters;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SentencePieceTokenizerTest {
+    private static final String MODEL_PATH = TestUtils.getResourceAbsolutePath("tinyllamas-stories-260k-f32.gguf");
+    private static final List<String> TEXTS = Arrays.asList(
+            "Once upon a time, there was a little girl named Lily.",
+            "",
+            " ",
+            "  two leading spaces and trailing ones  ",
+            "new\nline\n\n\ttab",
+            "Ünïcödé: 你好世界, こんにちは, 🦙🦙 and a lone é",
+            "123456789 + 0.5 = ?!",
+            "The quick brown fox jumps over the lazy dog. THE QUICK BROWN FOX!");
+
+    @Test
+    public void test_tokenize_all() {
+        Tokenizer tokenizer = SentencePieceTokenizer.open(Paths.get(MODEL_PATH));
+        List<String> texts = new ArrayList<>();
+        Random random = new Random(42);
+        // enough text to be split into many tasks
+        for (int i = 0; i < 2000; i++) {
+            String text = TEXTS.get(random.nextInt(TEXTS.size()));
+            texts.add(i % 100 == 0 ? String.join(" ", TEXTS) : text + " " + i);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            int[][] tokens = tokenizer.tokenizeAll(texts, true, pool);
+            assertThat(tokens.length).isEqualTo(texts.size());
+            for (int i = 0; i < texts.size(); i++) {
+                assertThat(tokens[i]).isEqualTo(tokenizer.tokenize(texts.get(i), true));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertThat(tokenizer.tokenizeAll(TEXTS, false)[0]).isEqualTo(tokenizer.tokenize(TEXTS.get(0), false));
+        assertThat(tokenizer.tokenizeAll(new ArrayList<>(), true)).isEmpty();
+    }
+
+    @Test
+    public void test_matches_llama_tokenize() throws Exception {
+        Tokenizer tokenizer = SentencePieceTokenizer.open(Paths.get(MODEL_PATH));
+        try (LlamaModel model = new LlamaModelImpl(new ModelParameters().setModelPath(MODEL_PATH))) {
+            assertThat(tokenizer.vocabSize()).isEqualTo(model.vocabSize());
+            assertThat(tokenizer.bosToken()).isEqualTo(model.bosToken());
+            assertThat(tokenizer.eosToken()).isEqualTo(model.eosToken());
+            assertThat(tokenizer.newLineToken()).isEqualTo(model.newLineToken());
+            for (String text : TEXTS) {
+                int[] expected = model.tokenize(text, true);
+                assertThat(tokenizer.tokenize(text, true)).as(text).isEqualTo(expected);
+                assertThat(tokenizer.detokenize(expected)).isEqualTo(model.detokenize(expected));
+            }
+        }
+    }
+}
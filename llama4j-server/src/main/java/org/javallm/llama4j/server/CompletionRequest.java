@@ -0,0 +1,35 @@
+package org.javallm.llama4j.server;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Body of {@code POST /v1/completions}, absent optional fields fall back to the server/sampling defaults
+ */
+@Data
+public class CompletionRequest {
+    private String prompt;
+
+    private Integer maxTokens;
+
+    private boolean stream = false;
+
+    /**
+     * Deadline of the request in milliseconds, covering both queueing and generation
+     */
+    private Long deadlineMs;
+
+    private Float temperature;
+
+    private Integer topK;
+
+    private Float topP;
+
+    private Float repeatPenalty;
+
+    /**
+     * Additive logit bias by token id, see {@link org.javallm.llama4j.model.params.SamplingParameters#getLogitBias()}
+     */
+    private Map<Integer, Float> logitBias;
+}
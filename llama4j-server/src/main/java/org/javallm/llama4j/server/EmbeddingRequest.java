@@ -0,0 +1,16 @@
+package org.javallm.llama4j.server;
+
+import lombok.Data;
+
+/**
+ * Body of {@code POST /v1/embeddings}
+ */
+@Data
+public class EmbeddingRequest {
+    private String input;
+
+    /**
+     * Deadline of the request in milliseconds, covering both queueing and embedding
+     */
+    private Long deadlineMs;
+}
@@ -0,0 +1,466 @@
+package org.javallm.llama4j.server;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.lang3.StringUtils;
+import org.javallm.llama4j.SimpleCasualLM;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.impl.LlamaModelImpl;
+import org.javallm.llama4j.model.params.ModelParameters;
+import org.javallm.llama4j.model.params.PenalizeParameters;
+import org.javallm.llama4j.model.params.SamplingParameters;
+import org.javallm.llama4j.utils.ValidationUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A minimal HTTP inference server on top of the JDK {@link HttpServer}
+ * <ul>
+ *     <li>{@code POST /v1/completions}: text completion, streamed as server-sent events if {@code "stream": true}</li>
+ *     <li>{@code POST /v1/embeddings}: embedding of the input text, enabled if {@code embeddingPoolSize > 0}</li>
+ *     <li>{@code GET /health}: pool and queue statistics</li>
+ * </ul>
+ * Requests beyond the pool plus queue capacity are rejected with 429, requests whose deadline passes while queueing
+ * get 503, and generations are cut off at their deadline or soon after the client disconnects. To notice a
+ * disconnection, the response starts before the generation and gets a heartbeat every second: whitespace, which JSON
+ * allows before the body, or an SSE comment.
+ */
+public class InferenceServer implements AutoCloseable {
+    /**
+     * Extra handler threads beyond the admitted requests, so that rejections are answered promptly
+     */
+    private static final int REJECTION_THREADS = 2;
+    /**
+     * Connections waiting for a rejection thread, beyond which they are closed without a response
+     */
+    private static final int REJECTION_QUEUE_CAPACITY = 64;
+    private static final long HEARTBEAT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final byte[] JSON_HEARTBEAT = " ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SSE_HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+    // set on the threads answering the connections rejected by the executor
+    private static final ThreadLocal<Boolean> REJECTED = ThreadLocal.withInitial(() -> false);
+
+    private final ServerParameters params;
+    private final ModelPool completionPool;
+    private final ModelPool embeddingPool;
+    private final ObjectMapper mapper = new ObjectMapper()
+            .setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private ExecutorService rejectionExecutor;
+
+    /**
+     * Constructor to load the model contexts
+     *
+     * @param params server parameters
+     * @throws IllegalArgumentException when the passed arguments are invalid
+     */
+    public InferenceServer(ServerParameters params) {
+        this(params, createPool(params, false));
+    }
+
+    private InferenceServer(ServerParameters params, ModelPool completionPool) {
+        this(params, completionPool, createEmbeddingPool(params, completionPool));
+    }
+
+    InferenceServer(ServerParameters params, ModelPool completionPool, ModelPool embeddingPool) {
+        Preconditions.checkNotNull(params);
+        ValidationUtils.validateOrThrow(params);
+        this.params = params;
+        this.completionPool = Preconditions.checkNotNull(completionPool);
+        this.embeddingPool = embeddingPool;
+    }
+
+    /**
+     * @return the embedding pool, or null if disabled; the completion pool is closed if it cannot be created
+     */
+    private static ModelPool createEmbeddingPool(ServerParameters params, ModelPool completionPool) {
+        if (params.getEmbeddingPoolSize() == 0) {
+            return null;
+        }
+        try {
+            return createPool(params, true);
+        } catch (RuntimeException ex) {
+            closeQuietly(completionPool, ex);
+            throw ex;
+        }
+    }
+
+    private static ModelPool createPool(ServerParameters params, boolean embedding) {
+        Preconditions.checkNotNull(params);
+        ValidationUtils.validateOrThrow(params);
+
+        int size = embedding ? params.getEmbeddingPoolSize() : params.getPoolSize();
+        List<LlamaModel> models = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            try {
+                models.add(new LlamaModelImpl(modelParametersOf(params, embedding)));
+            } catch (RuntimeException ex) {
+                // the contexts created so far are not owned by any pool yet
+                for (LlamaModel model : models) {
+                    closeQuietly(model, ex);
+                }
+                throw ex;
+            }
+        }
+        return new ModelPool(models, params.getQueueCapacity());
+    }
+
+    /**
+     * @return a copy of the model parameters of the server, for a context of the completion or the embedding pool
+     */
+    static ModelParameters modelParametersOf(ServerParameters params, boolean embedding) {
+        return params.getModelParameters().copy().setEmbeddingMode(embedding);
+    }
+
+    private static void closeQuietly(AutoCloseable closeable, RuntimeException failure) {
+        try {
+            closeable.close();
+        } catch (Exception ex) {
+            failure.addSuppressed(ex);
+        }
+    }
+
+    /**
+     * Start serving
+     *
+     * @throws IOException if the server cannot be bound
+     */
+    public synchronized void start() throws IOException {
+        Preconditions.checkState(server == null, "server is already started");
+
+        int nThreads = completionPool.size() + params.getQueueCapacity() + REJECTION_THREADS;
+        if (embeddingPool != null) {
+            nThreads += embeddingPool.size() + params.getQueueCapacity();
+        }
+        // connections beyond the handler threads and a bounded queue are answered with 429 by the rejection threads
+        rejectionExecutor = new ThreadPoolExecutor(REJECTION_THREADS, REJECTION_THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(REJECTION_QUEUE_CAPACITY),
+                new ThreadFactoryBuilder().setNameFormat("llama4j-server-rejection-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor = new ThreadPoolExecutor(nThreads, nThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(params.getQueueCapacity(), 1)),
+                new ThreadFactoryBuilder().setNameFormat("llama4j-server-%d").setDaemon(true).build(),
+                (task, pool) -> rejectionExecutor.execute(() -> {
+                    REJECTED.set(true);
+                    try {
+                        task.run();
+                    } finally {
+                        REJECTED.remove();
+                    }
+                }));
+
+        server = HttpServer.create(new InetSocketAddress(params.getHost(), params.getPort()), 0);
+        server.setExecutor(executor);
+        server.createContext("/v1/completions", handler("POST", this::complete));
+        server.createContext("/v1/embeddings", handler("POST", this::embed));
+        server.createContext("/health", handler("GET", this::health));
+        server.start();
+    }
+
+    /**
+     * @return the actual port the server listens on
+     */
+    public int getPort() {
+        Preconditions.checkState(server != null, "server is not started");
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public synchronized void close() throws Exception {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            rejectionExecutor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+            rejectionExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            server = null;
+        }
+        completionPool.close();
+        if (embeddingPool != null) {
+            embeddingPool.close();
+        }
+    }
+
+    private void complete(HttpExchange exchange) throws IOException {
+        CompletionRequest request = readBody(exchange, CompletionRequest.class);
+        if (StringUtils.isEmpty(request.getPrompt())) {
+            throw new HttpException(400, "prompt must be provided");
+        }
+        long deadline = deadlineOf(request.getDeadlineMs());
+        int maxTokens = request.getMaxTokens() != null ? request.getMaxTokens() : params.getDefaultMaxTokens();
+
+        try (ModelPool.Ticket ticket = admit(completionPool)) {
+            LlamaModel model = awaitModel(ticket, deadline);
+            SimpleCasualLM lm = new SimpleCasualLM(model);
+            SamplingParameters samplingParams = samplingParamsOf(request);
+            PenalizeParameters penalizeParams = penalizeParamsOf(request);
+
+            if (request.isStream()) {
+                streamCompletion(exchange, lm, request.getPrompt(), samplingParams, penalizeParams, maxTokens, deadline);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            Heartbeat heartbeat = new Heartbeat(out, JSON_HEARTBEAT);
+            StringBuilder text = new StringBuilder();
+            Map<String, Object> body;
+            try {
+                int nTokens = lm.infer(request.getPrompt(), samplingParams, penalizeParams, maxTokens,
+                        () -> heartbeat.proceed(deadline), piece -> {
+                            text.append(piece);
+                            return true;
+                        });
+                body = ImmutableMap.of(
+                        "text", text.toString(),
+                        "tokens", nTokens,
+                        "finish_reason", finishReason(nTokens, maxTokens, deadline),
+                        "queue_ms", TimeUnit.NANOSECONDS.toMillis(ticket.queueNanos()));
+            } catch (RuntimeException ex) {
+                // the status is sent already, the error goes in the body, which may follow heartbeat whitespace
+                body = ImmutableMap.of("error", String.valueOf(ex.getMessage()));
+            }
+            if (heartbeat.isClientGone()) {
+                return;
+            }
+            out.write(mapper.writeValueAsBytes(body));
+            out.close();
+        }
+    }
+
+    private void streamCompletion(HttpExchange exchange, SimpleCasualLM lm, String prompt, SamplingParameters samplingParams,
+                                  PenalizeParameters penalizeParams, int maxTokens, long deadline) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+
+        OutputStream out = exchange.getResponseBody();
+        Heartbeat heartbeat = new Heartbeat(out, SSE_HEARTBEAT);
+        // a failed write means the client is gone, which cancels the generation
+        try {
+            int nTokens = lm.infer(prompt, samplingParams, penalizeParams, maxTokens, () -> heartbeat.proceed(deadline),
+                    piece -> sendEvent(out, ImmutableMap.of("text", piece)));
+            sendEvent(out, ImmutableMap.of("tokens", nTokens, "finish_reason", finishReason(nTokens, maxTokens, deadline)));
+        } catch (RuntimeException ex) {
+            // the status is sent already
+            sendEvent(out, ImmutableMap.of("error", String.valueOf(ex.getMessage())));
+        }
+        if (sendEvent(out, "[DONE]")) {
+            out.close();
+        }
+    }
+
+    private boolean sendEvent(OutputStream out, Object data) {
+        try {
+            String payload = data instanceof String ? (String) data : mapper.writeValueAsString(data);
+            out.write(("data: " + payload + "\n\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            return true;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private String finishReason(int nTokens, int maxTokens, long deadline) {
+        if (System.nanoTime() >= deadline) {
+            return "deadline";
+        }
+        return nTokens >= maxTokens ? "length" : "stop";
+    }
+
+    private void embed(HttpExchange exchange) throws IOException {
+        if (embeddingPool == null) {
+            throw new HttpException(501, "embedding is not enabled, please set embeddingPoolSize");
+        }
+        EmbeddingRequest request = readBody(exchange, EmbeddingRequest.class);
+        if (StringUtils.isEmpty(request.getInput())) {
+            throw new HttpException(400, "input must be provided");
+        }
+        long deadline = deadlineOf(request.getDeadlineMs());
+
+        try (ModelPool.Ticket ticket = admit(embeddingPool)) {
+            LlamaModel model = awaitModel(ticket, deadline);
+            float[] embedding;
+            try {
+                embedding = model.embed(request.getInput());
+            } finally {
+                model.reset();
+            }
+            sendJson(exchange, 200, ImmutableMap.of(
+                    "embedding", embedding,
+                    "queue_ms", TimeUnit.NANOSECONDS.toMillis(ticket.queueNanos())));
+        }
+    }
+
+    private void health(HttpExchange exchange) throws IOException {
+        ImmutableMap.Builder<String, Object> body = ImmutableMap.<String, Object>builder()
+                .put("pool_size", completionPool.size())
+                .put("busy", completionPool.busy())
+                .put("waiting", completionPool.waiting());
+        if (embeddingPool != null) {
+            body.put("embedding_pool_size", embeddingPool.size())
+                    .put("embedding_busy", embeddingPool.busy())
+                    .put("embedding_waiting", embeddingPool.waiting());
+        }
+        sendJson(exchange, 200, body.build());
+    }
+
+    private ModelPool.Ticket admit(ModelPool pool) {
+        ModelPool.Ticket ticket = pool.tryAdmit();
+        if (ticket == null) {
+            throw new HttpException(429, "Too many requests, please retry later");
+        }
+        return ticket;
+    }
+
+    private LlamaModel awaitModel(ModelPool.Ticket ticket, long deadline) {
+        try {
+            return ticket.await(deadline);
+        } catch (TimeoutException ex) {
+            throw new HttpException(503, ex.getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new HttpException(503, "Server is shutting down");
+        }
+    }
+
+    private long deadlineOf(Long deadlineMs) {
+        long millis = deadlineMs != null && deadlineMs > 0 ? deadlineMs : params.getDefaultDeadlineMillis();
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private SamplingParameters samplingParamsOf(CompletionRequest request) {
+        SamplingParameters samplingParams = new SamplingParameters();
+        if (request.getTemperature() != null) {
+            samplingParams.setTemperature(request.getTemperature());
+        }
+        if (request.getTopK() != null) {
+            samplingParams.setTopK(request.getTopK());
+        }
+        if (request.getTopP() != null) {
+            samplingParams.setTopP(request.getTopP());
+        }
+        if (request.getLogitBias() != null) {
+            samplingParams.setLogitBias(request.getLogitBias());
+        }
+        return samplingParams;
+    }
+
+    private PenalizeParameters penalizeParamsOf(CompletionRequest request) {
+        PenalizeParameters penalizeParams = new PenalizeParameters();
+        if (request.getRepeatPenalty() != null) {
+            penalizeParams.setRepeatPenalty(request.getRepeatPenalty());
+        }
+        return penalizeParams;
+    }
+
+    private <T> T readBody(HttpExchange exchange, Class<T> type) {
+        try (InputStream in = exchange.getRequestBody()) {
+            return mapper.readValue(in, type);
+        } catch (IOException ex) {
+            throw new HttpException(400, String.format("Malformed request body: %s", ex.getMessage()));
+        }
+    }
+
+    private void sendJson(HttpExchange exchange, int status, Map<String, ?> body) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        // the status line is gone once a streaming response has started
+        if (exchange.getResponseCode() == -1) {
+            sendJson(exchange, status, ImmutableMap.of("error", message));
+        }
+    }
+
+    private HttpHandler handler(String method, HttpHandler delegate) {
+        return exchange -> {
+            try {
+                if (REJECTED.get()) {
+                    throw new HttpException(429, "Too many connections, please retry later");
+                }
+                if (!method.equalsIgnoreCase(exchange.getRequestMethod())) {
+                    throw new HttpException(405, String.format("Only %s is allowed", method));
+                }
+                delegate.handle(exchange);
+            } catch (HttpException ex) {
+                sendError(exchange, ex.status, ex.getMessage());
+            } catch (Exception ex) {
+                sendError(exchange, 500, String.valueOf(ex.getMessage()));
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+
+    /**
+     * Decides before each token whether a generation goes on: until its deadline, and while the client is connected
+     * according to the periodic writes of a heartbeat
+     */
+    private static final class Heartbeat {
+        private final OutputStream out;
+        private final byte[] beat;
+        private long lastBeat = System.nanoTime();
+        private boolean clientGone = false;
+
+        private Heartbeat(OutputStream out, byte[] beat) {
+            this.out = out;
+            this.beat = beat;
+        }
+
+        private boolean proceed(long deadline) {
+            long now = System.nanoTime();
+            if (!clientGone && now - lastBeat >= HEARTBEAT_NANOS) {
+                lastBeat = now;
+                try {
+                    out.write(beat);
+                    out.flush();
+                } catch (IOException ex) {
+                    clientGone = true;
+                }
+            }
+            return !clientGone && now < deadline;
+        }
+
+        private boolean isClientGone() {
+            return clientGone;
+        }
+    }
+
+    private static class HttpException extends RuntimeException {
+        private final int status;
+
+        HttpException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
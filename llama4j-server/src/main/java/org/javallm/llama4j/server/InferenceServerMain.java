@@ -0,0 +1,48 @@
+package org.javallm.llama4j.server;
+
+import org.javallm.llama4j.model.params.ModelParameters;
+
+/**
+ * Command line entry of {@link InferenceServer}
+ * <p>
+ * Usage: {@code InferenceServerMain <model.gguf> [port] [poolSize] [queueCapacity] [embeddingPoolSize] [host]}
+ * <p>
+ * The server binds to the loopback address unless another host is given, e.g., {@code 0.0.0.0} for all interfaces;
+ * it has no authentication, so only expose it behind a trusted network or proxy.
+ */
+public final class InferenceServerMain {
+    private InferenceServerMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println(
+                    "Usage: InferenceServerMain <model.gguf> [port] [poolSize] [queueCapacity] [embeddingPoolSize] [host]");
+            System.exit(1);
+        }
+
+        ServerParameters params = new ServerParameters()
+                .setModelParameters(new ModelParameters()
+                        .setModelPath(args[0])
+                        .setContextSize(2048)
+                        .setBatchSize(512))
+                .setPort(args.length > 1 ? Integer.parseInt(args[1]) : 8080)
+                .setPoolSize(args.length > 2 ? Integer.parseInt(args[2]) : 1)
+                .setQueueCapacity(args.length > 3 ? Integer.parseInt(args[3]) : 16)
+                .setEmbeddingPoolSize(args.length > 4 ? Integer.parseInt(args[4]) : 0);
+        if (args.length > 5) {
+            params.setHost(args[5]);
+        }
+
+        InferenceServer server = new InferenceServer(params);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }));
+        server.start();
+        System.out.printf("llama4j server is listening on %s:%d%n", params.getHost(), server.getPort());
+    }
+}
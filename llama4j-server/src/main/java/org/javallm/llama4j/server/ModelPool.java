@@ -0,0 +1,128 @@
+package org.javallm.llama4j.server;
+
+import com.google.common.base.Preconditions;
+import org.javallm.llama4j.jfr.ModelWaitEvent;
+import org.javallm.llama4j.model.LlamaModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed pool of model contexts in front of a bounded waiting queue
+ * <p>
+ * At most {@code models.size() + queueCapacity} requests are admitted at a time, so that excess load is rejected
+ * up front instead of piling up threads, and an admitted request waits for an idle context no longer than its deadline.
+ */
+public class ModelPool implements AutoCloseable {
+    private final List<LlamaModel> models;
+    private final BlockingQueue<LlamaModel> idle;
+    private final Semaphore admission;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public ModelPool(List<? extends LlamaModel> models, int queueCapacity) {
+        Preconditions.checkArgument(!models.isEmpty(), "models should not be empty");
+        Preconditions.checkArgument(queueCapacity >= 0, "queueCapacity should >= 0");
+
+        this.models = new ArrayList<>(models);
+        this.idle = new ArrayBlockingQueue<>(models.size(), false, models);
+        this.admission = new Semaphore(models.size() + queueCapacity, true);
+    }
+
+    /**
+     * Admit a request without blocking
+     *
+     * @return a ticket to wait for a context, or null if the queue is full
+     */
+    public Ticket tryAdmit() {
+        return admission.tryAcquire() ? new Ticket() : null;
+    }
+
+    public int size() {
+        return models.size();
+    }
+
+    /**
+     * @return number of admitted requests waiting for a context
+     */
+    public int waiting() {
+        return waiting.get();
+    }
+
+    /**
+     * @return number of contexts currently serving a request
+     */
+    public int busy() {
+        return models.size() - idle.size();
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (LlamaModel model : models) {
+            model.close();
+        }
+    }
+
+    /**
+     * An admitted request, which must be closed to release its slot (and its context, if acquired)
+     */
+    public final class Ticket implements AutoCloseable {
+        private final long admittedAt = System.nanoTime();
+        private LlamaModel model;
+        private long queueNanos;
+        private boolean closed = false;
+
+        private Ticket() {
+        }
+
+        /**
+         * Wait for an idle context
+         *
+         * @param deadlineNanos the deadline, in terms of {@link System#nanoTime()}
+         * @return the context, exclusively owned by this ticket until it is closed
+         * @throws TimeoutException     if no context became idle before the deadline
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public LlamaModel await(long deadlineNanos) throws TimeoutException, InterruptedException {
+            Preconditions.checkState(!closed && model == null, "ticket is closed or already holds a context");
+            ModelWaitEvent event = ModelWaitEvent.start();
+            waiting.incrementAndGet();
+            try {
+                model = idle.poll(Math.max(deadlineNanos - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+            } finally {
+                waiting.decrementAndGet();
+                queueNanos = System.nanoTime() - admittedAt;
+                event.finish(model != null);
+            }
+            if (model == null) {
+                throw new TimeoutException("Deadline exceeded while waiting for a model context");
+            }
+            return model;
+        }
+
+        /**
+         * @return time spent waiting for a context, in nanoseconds
+         */
+        public long queueNanos() {
+            return queueNanos;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (model != null) {
+                idle.add(model);
+                model = null;
+            }
+            admission.release();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.javallm.llama4j.server;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.javallm.llama4j.model.params.ModelParameters;
+
+@Accessors(chain = true)
+@Data
+public final class ServerParameters {
+    /**
+     * The address to bind
+     */
+    @NotBlank(message = "host must be provided")
+    private String host = "127.0.0.1";
+
+    /**
+     * The port to listen on, 0 to pick a free one
+     */
+    @Min(value = 0, message = "port must not be negative")
+    private int port = 8080;
+
+    /**
+     * Parameters of each pooled model context
+     */
+    @NotNull(message = "modelParameters must be provided")
+    private ModelParameters modelParameters;
+
+    /**
+     * Number of model contexts serving completions, i.e., the number of concurrent generations
+     */
+    @Min(value = 1, message = "poolSize must be larger than 0")
+    private int poolSize = 1;
+
+    /**
+     * Number of model contexts (in embedding mode) serving embeddings, 0 to disable the embedding endpoint
+     */
+    @Min(value = 0, message = "embeddingPoolSize must not be negative")
+    private int embeddingPoolSize = 0;
+
+    /**
+     * Maximum number of requests waiting for a context; any request beyond it is rejected with 429
+     */
+    @Min(value = 0, message = "queueCapacity must not be negative")
+    private int queueCapacity = 16;
+
+    /**
+     * Deadline of a request (queueing plus generation) if the request does not specify one
+     */
+    @Min(value = 1, message = "defaultDeadlineMillis must be larger than 0")
+    private long defaultDeadlineMillis = 60_000;
+
+    /**
+     * Maximum number of tokens to generate if the request does not specify one
+     */
+    @Min(value = 1, message = "defaultMaxTokens must be larger than 0")
+    private int defaultMaxTokens = 256;
+}
@@ -0,0 +1,202 @@
+package org.javallm.llama4j.server;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.CharStreams;
+import org.javallm.llama4j.model.LlamaModel;
+import org.javallm.llama4j.model.impl.JavaLlamaModel;
+import org.javallm.llama4j.model.impl.LlamaModelImpl;
+import org.javallm.llama4j.model.params.ModelParameters;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class InferenceServerTest {
+    private static final String MODEL_PATH = new File("../llama4j-core/src/test/resources/tinyllamas-stories-260k-f32.gguf")
+            .getAbsolutePath();
+
+    private static ServerParameters serverParams() {
+        return new ServerParameters()
+                .setPort(0)
+                .setPoolSize(2)
+                .setEmbeddingPoolSize(1)
+                .setQueueCapacity(4)
+                .setModelParameters(new ModelParameters()
+                        .setModelPath(MODEL_PATH)
+                        .setNThreads(2));
+    }
+
+    @Test
+    public void test_completion_and_embedding() throws Exception {
+        try (InferenceServer server = new InferenceServer(serverParams())) {
+            server.start();
+
+            Response completion = post(server, "/v1/completions",
+                    "{\"prompt\": \"Once upon a time\", \"max_tokens\": 32}");
+            System.out.printf("Completion -> %s%n", completion.body);
+            assertThat(completion.status).isEqualTo(200);
+            assertThat(completion.body).contains("\"text\"").contains("\"queue_ms\"");
+
+            Response stream = post(server, "/v1/completions",
+                    "{\"prompt\": \"Once upon a time\", \"max_tokens\": 16, \"stream\": true}");
+            System.out.printf("Stream -> %s%n", stream.body);
+            assertThat(stream.status).isEqualTo(200);
+            assertThat(stream.body).startsWith("data: ").endsWith("data: [DONE]\n\n");
+
+            Response embedding = post(server, "/v1/embeddings", "{\"input\": \"Embedding from llama4j\"}");
+            assertThat(embedding.status).isEqualTo(200);
+            assertThat(embedding.body).contains("\"embedding\"");
+
+            Response badRequest = post(server, "/v1/completions", "{\"max_tokens\": 16}");
+            assertThat(badRequest.status).isEqualTo(400);
+        }
+    }
+
+    @Test
+    public void test_model_parameters() {
+        ServerParameters params = serverParams();
+        params.getModelParameters().setAdaptiveBatchSize(true).getExtra().put("n_gpu_layers", "8");
+
+        ModelParameters embedding = InferenceServer.modelParametersOf(params, true);
+        assertThat(embedding.isEmbeddingMode()).isTrue();
+        assertThat(embedding.isAdaptiveBatchSize()).isTrue();
+        assertThat(embedding.getExtra()).containsEntry("n_gpu_layers", "8")
+                .isNotSameAs(params.getModelParameters().getExtra());
+        assertThat(InferenceServer.modelParametersOf(params, false).isEmbeddingMode()).isFalse();
+    }
+
+    @Test
+    public void test_backpressure() throws Exception {
+        LlamaModel model = new LlamaModelImpl(new ModelParameters().setModelPath(MODEL_PATH).setNThreads(2));
+        ModelPool pool = new ModelPool(ImmutableList.of(model), 0);
+        try (InferenceServer server = new InferenceServer(serverParams(), pool, null)) {
+            server.start();
+
+            // occupy the only slot, so that any further request is rejected
+            try (ModelPool.Ticket ticket = pool.tryAdmit()) {
+                assertThat(ticket).isNotNull();
+                assertThat(pool.tryAdmit()).isNull();
+
+                Response rejected = post(server, "/v1/completions", "{\"prompt\": \"Once upon a time\"}");
+                assertThat(rejected.status).isEqualTo(429);
+            }
+
+            Response accepted = post(server, "/v1/completions", "{\"prompt\": \"Once upon a time\", \"max_tokens\": 8}");
+            assertThat(accepted.status).isEqualTo(200);
+        }
+    }
+
+    @Test
+    public void test_connection_overflow() throws Exception {
+        LlamaModel model = new JavaLlamaModel(new ModelParameters().setModelPath(MODEL_PATH).setNThreads(2));
+        ModelPool pool = new ModelPool(ImmutableList.of(model), 0);
+        ServerParameters params = serverParams().setEmbeddingPoolSize(0).setQueueCapacity(0);
+        try (InferenceServer server = new InferenceServer(params, pool, null)) {
+            server.start();
+
+            // connections stuck reading their bodies hold the handler threads (1 + 2) and the executor queue (1)
+            List<Socket> stalled = new ArrayList<>();
+            try {
+                for (int i = 0; i < 4; i++) {
+                    Socket socket = new Socket("127.0.0.1", server.getPort());
+                    socket.getOutputStream().write(("POST /v1/completions HTTP/1.1\r\nHost: 127.0.0.1\r\n"
+                            + "Content-Length: 100\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+                    stalled.add(socket);
+                }
+                Thread.sleep(500);
+
+                Response rejected = post(server, "/v1/completions", "{\"prompt\": \"Once upon a time\"}");
+                assertThat(rejected.status).isEqualTo(429);
+                assertThat(rejected.body).contains("Too many connections");
+            } finally {
+                for (Socket socket : stalled) {
+                    socket.close();
+                }
+            }
+
+            // the JSON body follows the heartbeat whitespace, if any
+            Response accepted = post(server, "/v1/completions", "{\"prompt\": \"Once upon a time\", \"max_tokens\": 8}");
+            assertThat(accepted.status).isEqualTo(200);
+            assertThat(accepted.body.trim()).startsWith("{").contains("\"finish_reason\"");
+        }
+    }
+
+    @Test
+    public void test_generation_failure() throws Exception {
+        LlamaModel model = new JavaLlamaModel(new ModelParameters().setModelPath(MODEL_PATH).setNThreads(2));
+        ModelPool pool = new ModelPool(ImmutableList.of(model), 0);
+        try (InferenceServer server = new InferenceServer(serverParams(), pool, null)) {
+            server.start();
+
+            // the bias of a token out of the vocabulary fails the sampling, after the status is sent
+            String prompt = "\"prompt\": \"Once upon a time\", \"logit_bias\": {\"1000000\": 1.0}";
+            Response completion = post(server, "/v1/completions", "{" + prompt + "}");
+            assertThat(completion.status).isEqualTo(200);
+            assertThat(completion.body.trim()).startsWith("{\"error\":");
+
+            Response stream = post(server, "/v1/completions", "{" + prompt + ", \"stream\": true}");
+            assertThat(stream.body).startsWith("data: {\"error\":").endsWith("data: [DONE]\n\n");
+        }
+    }
+
+    @Test
+    public void test_queue_deadline() throws Exception {
+        LlamaModel model = new LlamaModelImpl(new ModelParameters().setModelPath(MODEL_PATH).setNThreads(2));
+        try (ModelPool pool = new ModelPool(ImmutableList.of(model), 1)) {
+            ModelPool.Ticket first = pool.tryAdmit();
+            first.await(System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+
+            ModelPool.Ticket second = pool.tryAdmit();
+            assertThat(second).isNotNull();
+            assertThatThrownBy(() -> second.await(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50)))
+                    .isInstanceOf(TimeoutException.class);
+            second.close();
+
+            first.close();
+            try (ModelPool.Ticket third = pool.tryAdmit()) {
+                assertThat(third.await(System.nanoTime() + TimeUnit.SECONDS.toNanos(1))).isSameAs(model);
+            }
+        }
+    }
+
+    private static Response post(InferenceServer server, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path)
+                .openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        try (InputStreamReader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return new Response(status, CharStreams.toString(reader));
+        }
+    }
+
+    private static class Response {
+        private final int status;
+        private final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}